@@ -4,7 +4,9 @@ import java.io.*;
 import java.net.Socket;
 import java.util.concurrent.*;
 import modeloDominio.Apuesta;
+import modeloDominio.Dinero;
 import modeloDominio.Jugador;
+import modeloDominio.MensajeRed;
 import modeloDominio.TipoApuesta;
 
 /**
@@ -45,8 +47,8 @@ public class ClienteRuleta {
         if (this.socket == null || this.socket.isClosed()) return;
 
         try {
-            ObjectOutputStream out = new ObjectOutputStream(this.socket.getOutputStream());
-            ObjectInputStream in = new ObjectInputStream(this.socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(this.socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(this.socket.getInputStream()));
             BufferedReader teclado = new BufferedReader(new InputStreamReader(System.in));
 
             System.out.println("✅ Conectado al Casino.");
@@ -57,7 +59,8 @@ public class ClienteRuleta {
             }
             
             // 2. SINCRONIZACIÓN INICIAL DE ESTADO
-            this.isNoVaMas = in.readBoolean();
+            MensajeRed estado = MensajeRed.leer(in);
+            this.isNoVaMas = estado.getTipo() != MensajeRed.ESTADO_MESA || estado.isMesaCerrada();
             
             if (this.isNoVaMas) {
                 this.latchEspera = new CountDownLatch(1); 
@@ -84,7 +87,7 @@ public class ClienteRuleta {
                         opcionJugar(out, teclado);
                         break;
                     case "3":
-                        out.writeObject("SALIR"); 
+                        MensajeRed.salir().escribir(out);
                         out.flush();
                         System.out.println("¡Hasta pronto!");
                         return;
@@ -115,7 +118,7 @@ public class ClienteRuleta {
 
     // --- LÓGICA DE JUEGO ---
 
-    private void opcionJugar(ObjectOutputStream out, BufferedReader teclado) {
+    private void opcionJugar(DataOutputStream out, BufferedReader teclado) {
         try {
             System.out.println("⏳ Entrando a la mesa... (Esperando apertura)");
             latchEspera.await(); 
@@ -140,7 +143,7 @@ public class ClienteRuleta {
                     }
 
                     if (apuesta != null) {
-                        out.writeObject(apuesta);
+                        MensajeRed.apuesta(apuesta).escribir(out);
                         out.flush();
                         System.out.println("📨 Enviando apuesta...");
                     } else {
@@ -324,7 +327,7 @@ public class ClienteRuleta {
 
     // --- MÉTODOS AUXILIARES ---
 
-    private void opcionAnadirSaldo(ObjectOutputStream out, BufferedReader teclado) throws IOException {
+    private void opcionAnadirSaldo(DataOutputStream out, BufferedReader teclado) throws IOException {
         if (jugador == null) return;
         System.out.println("¿Cuánto dinero quieres ingresar?");
         
@@ -336,7 +339,7 @@ public class ClienteRuleta {
             if (cantidad <= 0 || cantidad > 10000) {
                 System.out.println("⚠️ Cantidad inválida (Máx 10.000€).");
             } else {
-                out.writeObject(Double.valueOf(cantidad));
+                MensajeRed.ingreso(Dinero.aCentimos(cantidad)).escribir(out);
                 out.flush();
             }
         } catch (NumberFormatException e) {
@@ -354,7 +357,7 @@ public class ClienteRuleta {
 
     // --- GESTIÓN DE SESIÓN (VALIDACIONES RESTAURADAS) ---
 
-    private boolean gestionarSesion(ObjectInputStream in, ObjectOutputStream out, BufferedReader teclado) throws IOException, ClassNotFoundException {
+    private boolean gestionarSesion(DataInputStream in, DataOutputStream out, BufferedReader teclado) throws IOException {
         System.out.println("=== BIENVENIDO AL CASINO ===");
         
         String opcion = "";
@@ -370,9 +373,7 @@ public class ClienteRuleta {
             }
         }
 
-        out.writeObject(opcion); // Handshake
-        out.flush();
-
+        // El handshake (login o registro) va en un solo mensaje, tras pedir los datos
         if ("1".equals(opcion)) {
             return iniciarSesion(in, out, teclado);
         } else {
@@ -380,7 +381,7 @@ public class ClienteRuleta {
         }
     }
 
-    private boolean iniciarSesion(ObjectInputStream in, ObjectOutputStream out, BufferedReader teclado) throws IOException, ClassNotFoundException {
+    private boolean iniciarSesion(DataInputStream in, DataOutputStream out, BufferedReader teclado) throws IOException {
         String usuario = "";
         // Validación local de ID no vacío
         while (usuario.trim().isEmpty()) {
@@ -389,18 +390,18 @@ public class ClienteRuleta {
             if (usuario == null) return false;
         }
 
-        out.writeObject(usuario);
+        MensajeRed.login(usuario).escribir(out);
         out.flush();
 
-        Object respuesta = in.readObject();
+        MensajeRed respuesta = MensajeRed.leer(in);
         
         // Validación de tipo de respuesta del servidor
-        if (respuesta instanceof Jugador) {
-            this.jugador = (Jugador) respuesta;
+        if (respuesta.getTipo() == MensajeRed.SESION) {
+            this.jugador = new Jugador(respuesta.getTexto(), Dinero.aEuros(respuesta.getCentimos()));
             System.out.println("✅ Login correcto. Hola " + jugador.getID());
             return true;
-        } else if (respuesta instanceof String) {
-            System.out.println("❌ Error del servidor: " + respuesta);
+        } else if (respuesta.getTipo() == MensajeRed.RECHAZO) {
+            System.out.println("❌ Error del servidor: " + respuesta.getTexto());
             return false;
         } else {
             System.out.println("❌ Respuesta desconocida del servidor.");
@@ -408,7 +409,7 @@ public class ClienteRuleta {
         }
     }
 
-    private boolean registrarSesion(ObjectInputStream in, ObjectOutputStream out, BufferedReader teclado) throws IOException, ClassNotFoundException {
+    private boolean registrarSesion(DataInputStream in, DataOutputStream out, BufferedReader teclado) throws IOException {
         System.out.println("--- REGISTRO ---");
         
         // Validación ID
@@ -433,18 +434,18 @@ public class ClienteRuleta {
             }
         }
 
-        out.writeObject(new Jugador(id, saldo));
+        MensajeRed.registro(id, Dinero.aCentimos(saldo)).escribir(out);
         out.flush();
 
-        Object respuesta = in.readObject();
+        MensajeRed respuesta = MensajeRed.leer(in);
         
         // Validación de tipo de respuesta
-        if (respuesta instanceof Jugador) {
-            this.jugador = (Jugador) respuesta;
+        if (respuesta.getTipo() == MensajeRed.SESION) {
+            this.jugador = new Jugador(respuesta.getTexto(), Dinero.aEuros(respuesta.getCentimos()));
             System.out.println("✅ Registro completado.");
             return true;
-        } else if (respuesta instanceof String) {
-            System.out.println("❌ Error en registro: " + respuesta);
+        } else if (respuesta.getTipo() == MensajeRed.RECHAZO) {
+            System.out.println("❌ Error en registro: " + respuesta.getTexto());
             return false;
         } else {
             System.out.println("❌ Respuesta desconocida.");
@@ -1,23 +1,32 @@
 package cliente;
 
+import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
+import modeloDominio.Casilla;
+import modeloDominio.Dinero;
 import modeloDominio.Jugador;
+import modeloDominio.MensajeRed;
 
 /**
  * Clase mostrarYLeerServidor
  * --------------------------
  * Hilo "Listener" del cliente. Se encarga de recibir mensajes asíncronos del servidor
  * y actualizar el estado local del juego (saldo, barreras, mensajes de chat).
+ * Las fases de la ronda y el resultado llegan como mensajes sin texto (MensajeRed):
+ * los avisos que se muestran se componen aquí.
  */
 public class mostrarYLeerServidor implements Runnable {
 
-    private final ObjectInputStream in;
+    // Avisos de las fases de la ronda (antes los mandaba el servidor como texto)
+    private static final String AVISO_NO_VA_MAS = "\u001b[31m--- ⛔ NO VA MÁS ⛔ ---\u001b[0m";
+    private static final String AVISO_ABRIR_MESA = "\u001b[32m--- 🟢 ¡HAGAN JUEGO! (ABRIR MESA) ---\u001b[0m";
+
+    private final DataInputStream in;
     private final Jugador jugador;
     private final ClienteRuleta cliente; // Controlador principal
 
-    public mostrarYLeerServidor(ObjectInputStream in, Jugador jugador, ClienteRuleta cliente) {
+    public mostrarYLeerServidor(DataInputStream in, Jugador jugador, ClienteRuleta cliente) {
         this.in = in;
         this.jugador = jugador;
         this.cliente = cliente;
@@ -26,20 +35,14 @@ public class mostrarYLeerServidor implements Runnable {
     @Override
     public void run() {
         try {
-            Object mensaje;
-            
             // Bucle infinito de lectura bloqueante
-            while ((mensaje = in.readObject()) != null && !Thread.currentThread().isInterrupted()) {
-                
-                if (mensaje instanceof String) {
-                    procesarMensajeTexto((String) mensaje);
-                } 
-                // Aquí podrías procesar otros objetos si el servidor los mandara (ej. List<Jugador>)
+            while (!Thread.currentThread().isInterrupted()) {
+                procesarMensaje(MensajeRed.leer(in));
             }
         } catch (EOFException e) {
             // Cierre normal de conexión por parte del servidor
             System.out.println("\n--- El servidor ha cerrado la conexión ---");
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             System.err.println("\n❌ Error de conexión: " + e.getMessage());
         } finally {
             // Pase lo que pase, desbloqueamos al cliente para que no se quede colgado
@@ -48,43 +51,65 @@ public class mostrarYLeerServidor implements Runnable {
     }
 
     /**
-     * Procesa los comandos de texto que vienen del servidor.
+     * Procesa un mensaje del servidor según su tipo.
      */
-    private void procesarMensajeTexto(String texto) {
-        String textoUpper = texto.toUpperCase();
-
-        // 1. SINCRONIZACIÓN DE ESTADOS (Mesa Cerrada)
-        if (textoUpper.contains("NO_VA_MAS") || textoUpper.contains("NO VA MAS") || textoUpper.contains("NO VA MÁS")) {
-            this.cliente.cerrarMesa(); // Bloquea al usuario local
-            imprimirMensaje(texto);
-        } 
-        
-        // 2. SINCRONIZACIÓN DE ESTADOS (Mesa Abierta)
-        else if (textoUpper.contains("ABRIR_MESA") || textoUpper.contains("ABRIR MESA")) {
-            this.cliente.abrirMesa(); // Desbloquea al usuario
-            imprimirMensaje(texto);
-        }
-        
-        // 3. ACTUALIZACIÓN TÉCNICA DE SALDO
-        else if (texto.toLowerCase().startsWith("actualizar saldo:")) {
-            try {
-                String[] partes = texto.split(":");
-                double cantidad = Double.parseDouble(partes[1].trim());
-                
-                // Actualizamos el modelo local
-                synchronized(this.jugador) {
-                    this.jugador.sumaRestaSaldo(cantidad);
-                }
+    private void procesarMensaje(MensajeRed mensaje) {
+        switch (mensaje.getTipo()) {
+            // 1. SINCRONIZACIÓN DE ESTADOS (Mesa Cerrada)
+            case MensajeRed.NO_VA_MAS:
+                this.cliente.cerrarMesa(); // Bloquea al usuario local
+                imprimirMensaje(AVISO_NO_VA_MAS);
+                break;
+
+            // 2. SINCRONIZACIÓN DE ESTADOS (Mesa Abierta)
+            case MensajeRed.ABRIR_MESA:
+                this.cliente.abrirMesa(); // Desbloquea al usuario
+                imprimirMensaje(AVISO_ABRIR_MESA);
+                break;
+
+            // 3. RESULTADO DE LA RONDA (no hemos apostado)
+            case MensajeRed.RESULTADO:
+                imprimirMensaje(avisoResultado(new Casilla(mensaje.getNumero())));
+                break;
+
+            // 3b. RESULTADO + PREMIO (hemos apostado): un solo mensaje
+            case MensajeRed.DESENLACE:
+                // Actualizamos el modelo local como con SALDO (suma atómica en Jugador)
+                this.jugador.sumarCentimos(mensaje.getPremio());
+                imprimirMensaje(avisoResultado(new Casilla(mensaje.getNumero())) + "\n" + avisoPremio(mensaje));
+                break;
+
+            // 4. ACTUALIZACIÓN TÉCNICA DE SALDO
+            case MensajeRed.SALDO:
+                // Actualizamos el modelo local (suma atómica en Jugador)
+                this.jugador.sumarCentimos(mensaje.getCentimos());
                 // No imprimimos nada aquí, el servidor ya manda otro mensaje visual después
-            } catch (Exception e) {
-                // Error de formato, ignoramos
-            }
-        } 
-        
-        // 4. MENSAJES GENÉRICOS (Chat, Premios, Errores)
-        else {
-            imprimirMensaje("\n(Servidor): " + texto);
+                break;
+
+            // 5. MENSAJES GENÉRICOS (Chat, Premios, Errores)
+            case MensajeRed.TEXTO:
+            case MensajeRed.RECHAZO:
+                imprimirMensaje("\n(Servidor): " + mensaje.getTexto());
+                break;
+
+            default:
+                // Mensaje que el cliente no espera a estas alturas: se ignora
+                break;
+        }
+    }
+
+    private static String avisoResultado(Casilla ganadora) {
+        return "\n(Servidor): \u001b[33m🎲 ¡RESULTADO: " + ganadora.getNumero() + " " + ganadora.getColor()
+            + (ganadora.getDocena() > 0 ? " (docena " + ganadora.getDocena() + ")" : "") + "! 🎲\u001b[0m";
+    }
+
+    private static String avisoPremio(MensajeRed desenlace) {
+        String saldo = " Saldo: " + Dinero.aEuros(desenlace.getSaldo()) + "€";
+        if (desenlace.getPremio() > 0) {
+            return "(Servidor): \u001b[1m\u001b[33m🎉 ¡HAS GANADO: " + Dinero.aEuros(desenlace.getPremio()) + "€ (neto "
+                + Dinero.aEuros(desenlace.getNeta()) + "€)! 🎉" + saldo + "\u001b[0m";
         }
+        return "(Servidor): \u001b[1m\u001b[33m No ha habido suerte. Sigue minando!!!" + saldo + "\u001b[0m";
     }
 
     /**
@@ -0,0 +1,170 @@
+package logicaRuleta.concurrencia;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import modeloDominio.MensajeRed;
+
+/**
+ * Clase ColaSalida
+ * ----------------
+ * Cola de salida acotada de un cliente. Los broadcasts, premios y respuestas solo encolan;
+ * una tarea escritora del pool vacía la cola sobre el stream del socket (MensajeRed.escribir).
+ * Así un cliente lento (ventana TCP llena) solo bloquea a su propio escritor,
+ * nunca a la ronda ni a los demás jugadores.
+ *
+ * FUNCIONAMIENTO:
+ *  - Nace retenida: lo que se encola no se escribe hasta liberar(), para que el
+ *    handshake (Jugador + estado de la mesa) llegue siempre antes que cualquier broadcast.
+ *  - Cada encolar() es un grupo de mensajes que se escribe seguido (p.ej. SALDO + TEXTO).
+ *  - Como mucho hay una tarea escritora por cola a la vez.
+ *  - Si la cola se llena, el cliente no está leyendo: se cierra su socket y se anota en MetricasSalida.
+ *
+ * CONCURRENCIA:
+ *  - encolar() es thread-safe y nunca bloquea.
+ *  - Toda escritura en el stream se hace con synchronized(out), incluida escribirDirecto().
+ */
+public class ColaSalida {
+
+    /**
+     * Grupos de mensajes pendientes como máximo. Una ronda genera unos pocos por jugador.
+     */
+    public static final int MAX_PENDIENTES = 256;
+
+    // --- ATRIBUTOS ---
+    private final DataOutputStream out;
+    private final Socket socket;
+    private final Executor escritor;
+
+    private final BlockingQueue<MensajeRed[]> pendientes;
+    private final AtomicBoolean escribiendo;
+    private volatile boolean retenida;
+    private volatile boolean cerrada;
+
+    // --- CONSTRUCTOR ---
+    /**
+     * @param out      Stream de salida del cliente (con buffer: se vacía con flush() tras cada tanda).
+     * @param socket   Socket del cliente (se cierra si la cola se desborda).
+     * @param escritor Pool donde se ejecutan las tareas escritoras.
+     */
+    public ColaSalida(DataOutputStream out, Socket socket, Executor escritor) {
+        this.out = out;
+        this.socket = socket;
+        this.escritor = escritor;
+        this.pendientes = new ArrayBlockingQueue<>(MAX_PENDIENTES);
+        this.escribiendo = new AtomicBoolean(false);
+        this.retenida = true;
+        this.cerrada = false;
+    }
+
+    // --- OPERACIONES ---
+
+    /**
+     * Encola un grupo de mensajes para el cliente. No bloquea.
+     *
+     * POST:
+     *  - Si hay sitio, el grupo se escribirá en orden y seguido.
+     *  - Si la cola está llena, se desconecta al cliente y se registra la métrica.
+     *
+     * @param mensajes Mensajes a enviar.
+     * @return true si se encoló, false si la cola está cerrada o llena.
+     */
+    public boolean encolar(MensajeRed... mensajes) {
+        if (this.cerrada) {
+            return false;
+        }
+        if (!this.pendientes.offer(mensajes)) {
+            MetricasSalida.registrarDesbordamiento(this.socket.getRemoteSocketAddress(), this.pendientes.size());
+            this.cerrar();
+            return false;
+        }
+        this.programarEscritura();
+        return true;
+    }
+
+    /**
+     * Escribe un mensaje directamente, sin pasar por la cola (handshake y rechazo de login).
+     *
+     * @param mensaje Mensaje a enviar.
+     * @throws IOException Si falla la escritura.
+     */
+    public void escribirDirecto(MensajeRed mensaje) throws IOException {
+        synchronized (this.out) {
+            mensaje.escribir(this.out);
+            this.out.flush();
+        }
+    }
+
+    /**
+     * Termina el handshake: a partir de aquí se escribe lo encolado.
+     */
+    public void liberar() {
+        this.retenida = false;
+        this.programarEscritura();
+    }
+
+    /**
+     * Descarta lo pendiente y cierra el socket. Idempotente.
+     * El hilo AtenderJugador del cliente verá el cierre y hará la desconexión completa.
+     */
+    public void cerrar() {
+        this.cerrada = true;
+        this.pendientes.clear();
+        try {
+            this.socket.close();
+        } catch (IOException e) {
+            /* Ignorar */
+        }
+    }
+
+    /**
+     * @return true si la cola ya no acepta mensajes.
+     */
+    public boolean isCerrada() {
+        return this.cerrada;
+    }
+
+    // --- ESCRITOR ---
+
+    private void programarEscritura() {
+        if (this.retenida || this.cerrada || this.pendientes.isEmpty()) {
+            return;
+        }
+        if (this.escribiendo.compareAndSet(false, true)) {
+            try {
+                this.escritor.execute(this::vaciar);
+            } catch (RejectedExecutionException e) {
+                this.escribiendo.set(false); // Pool apagado (cierre del servidor)
+            }
+        }
+    }
+
+    private void vaciar() {
+        try {
+            synchronized (this.out) {
+                MensajeRed[] grupo;
+                while (!this.cerrada && (grupo = this.pendientes.poll()) != null) {
+                    for (MensajeRed m : grupo) {
+                        m.escribir(this.out);
+                    }
+                }
+                if (!this.cerrada) {
+                    this.out.flush(); // Toda la tanda en una sola escritura al socket
+                }
+            }
+        } catch (IOException e) {
+            // El jugador se desconectó: no hay nada más que escribir
+            this.cerrar();
+        } finally {
+            this.escribiendo.set(false);
+        }
+        // Lo que se encoló mientras terminábamos
+        this.programarEscritura();
+    }
+}
@@ -0,0 +1,82 @@
+package logicaRuleta.concurrencia;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import logicaRuleta.core.ApuestaCompilada;
+import modeloDominio.Jugador;
+import modeloDominio.MensajeRed;
+
+/**
+ * Clase liquidarRonda
+ * -------------------
+ * Tarea concurrente que cierra la ronda para una sublista de jugadores: paga sus apuestas
+ * y les encola un único mensaje con el desenlace. Sustituye al broadcast de RESULTADO más
+ * un mandarPremios por apostante (con su CyclicBarrier): un solo reparto por ronda y un
+ * solo mensaje por jugador, así que el premio ya no puede llegar separado del resultado.
+ * * PRECONDICIONES:
+ * - La sublista y el mapa de apuestas (ronda congelada por NoVaMas) no deben ser null.
+ * - El latch debe estar dimensionado para el número de sublistas.
+ * * POSTCONDICIONES:
+ * - El saldo de quien apostó se actualiza (incluso si está desconectado).
+ * - Quien apostó recibe DESENLACE; el resto, el RESULTADO compartido por toda la mesa.
+ * - Se descuenta el latch para que el servidor sepa que la liquidación ha terminado.
+ */
+public class liquidarRonda implements Runnable {
+
+    // --- ATRIBUTOS ---
+    private final List<Jugador> jugadores;
+    private final Map<Jugador, List<ApuestaCompilada>> apuestas;
+    private final MensajeRed resultado;
+    private final CountDownLatch fin;
+
+    // --- CONSTRUCTOR ---
+    /**
+     * @param jugadores Sublista de jugadores a liquidar.
+     * @param apuestas  Apuestas de la ronda cerrada, por jugador.
+     * @param resultado RESULTADO de la ronda (el mismo objeto para todos: es inmutable).
+     * @param fin       Latch global, se descuenta una vez por sublista.
+     */
+    public liquidarRonda(List<Jugador> jugadores, Map<Jugador, List<ApuestaCompilada>> apuestas, MensajeRed resultado, CountDownLatch fin) {
+        this.jugadores = jugadores;
+        this.apuestas = apuestas;
+        this.resultado = resultado;
+        this.fin = fin;
+    }
+
+    // --- LÓGICA DE NEGOCIO ---
+    @Override
+    public void run() {
+        int numero = resultado.getNumero();
+        try {
+            for (Jugador j : jugadores) {
+                List<ApuestaCompilada> suyas = apuestas.get(j);
+                ColaSalida salida = j.getSalida();
+
+                if (suyas == null) {
+                    if (salida != null) salida.encolar(resultado);
+                    continue;
+                }
+
+                // 1. Premio y total apostado (operación local, sin bloqueos: un bit por apuesta)
+                long premio = 0; // Céntimos
+                long apostado = 0;
+                for (ApuestaCompilada ap : suyas) {
+                    premio += ap.premioPara(numero);
+                    apostado += ap.getCantidadCentimos();
+                }
+
+                // 2. Actualización segura del modelo y un solo mensaje (si sigue conectado):
+                // solo se encola, un cliente lento no retiene a este hilo ni a la ronda.
+                j.sumarCentimos(premio);
+                if (salida != null) {
+                    salida.encolar(MensajeRed.desenlace(numero, premio, premio - apostado, j.getSaldoCentimos()));
+                }
+            }
+        } finally {
+            // Debe ejecutarse SIEMPRE, o el servidor se quedaría esperando
+            fin.countDown();
+        }
+    }
+}
@@ -1,109 +1,62 @@
 package logicaRuleta.concurrencia;
 
-import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.util.List;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.CyclicBarrier;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
 
 import modeloDominio.Jugador;
+import modeloDominio.MensajeRed;
 
 /**
  * Clase mandarMensaje
  * -------------------
  * Tarea concurrente encargada de difundir un mensaje a una sublista de jugadores.
- * Utiliza un ThreadPool interno para paralelizar el envío dentro de este grupo.
+ * Solo encola el mensaje en la ColaSalida de cada jugador: la escritura real la hace
+ * el escritor de cada cola, así que un cliente lento no frena al resto ni a la ronda.
  * * PRECONDICIONES:
  * - La lista de jugadores no debe ser null.
- * - La barrera debe estar dimensionada para (Total Jugadores + 1).
+ * - El latch debe estar dimensionado para el número de sublistas.
  * * POSTCONDICIONES:
- * - Se envía el mensaje a todos los jugadores con conexión activa.
- * - Se sincroniza con la barrera para garantizar que el servidor no avance hasta terminar el envío.
+ * - El mensaje queda encolado para todos los jugadores con conexión activa.
+ * - Se descuenta el latch para que el servidor sepa que el reparto ha terminado.
  */
 public class mandarMensaje implements Runnable {
 
     // --- ATRIBUTOS ---
-    private final String msg;
+    private final MensajeRed msg;
     private final List<Jugador> jugadores;
-    private final CyclicBarrier starter;
+    private final CountDownLatch fin;
 
     // --- CONSTRUCTOR ---
     /**
-     * @param msg       Mensaje a enviar (String).
+     * @param msg       Mensaje a enviar (el mismo objeto para todos: es inmutable).
      * @param jugadores Sublista de jugadores a los que notificar.
-     * @param starter   Barrera global de sincronización.
+     * @param fin       Latch global, se descuenta una vez por sublista.
      */
-    public mandarMensaje(String msg, List<Jugador> jugadores, CyclicBarrier starter) {
+    public mandarMensaje(MensajeRed msg, List<Jugador> jugadores, CountDownLatch fin) {
         this.msg = msg;
         this.jugadores = jugadores;
-        this.starter = starter;
+        this.fin = fin;
     }
 
     // --- LÓGICA DE NEGOCIO ---
     @Override
     public void run() {
-        // Validación rápida de interrupción
-        if (Thread.currentThread().isInterrupted()) return;
-
-        // Creamos un pool local para enviar a este grupo de jugadores en paralelo
-        // Math.max(1, ...) evita error si la lista está vacía
-        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, jugadores.size()));
-
-        for (final Jugador j : jugadores) {
-            
-            // Comprobación de seguridad por si el hilo principal se interrumpe
-            if (Thread.currentThread().isInterrupted()) {
-                break;
-            }
-
-            // Usamos Clase Anónima en lugar de Lambda
-            pool.execute(new Runnable() {
-                @Override
-                public void run() {
-                    
-                    // SECCIÓN CRÍTICA: Bloqueamos al jugador para escritura exclusiva
-                    // Obligatorio para no chocar con AtenderJugador
-                    synchronized (j) {
-                        ObjectOutputStream out = null;
-                        
-                        // 1. Intento de escritura
-                        try {
-                            out = j.getOutputStream();
-                            if (out != null) {
-                                out.writeObject(msg);
-                                // Nota: No hacemos flush todavía para sincronizar el efecto visual
-                            }
-                        } catch (IOException e) {
-                            // Jugador desconectado o error de red. 
-                            // Lo ignoramos aquí para que el código siga y llegue al await.
-                        }
+        try {
+            for (Jugador j : jugadores) {
+                // Comprobación de seguridad por si el hilo principal se interrumpe
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
 
-                        // 2. Sincronización (CRÍTICO)
-                        // Este bloque debe ejecutarse SIEMPRE, haya fallado el writeObject o no.
-                        // Si no se ejecuta, la barrera nunca llega al tope y el servidor se congela (Deadlock).
-                        try {
-                            starter.await();
-                        } catch (InterruptedException | BrokenBarrierException e) {
-                            Thread.currentThread().interrupt();
-                        } finally {
-                            // 3. Limpieza final (Flush y Reset)
-                            if (out != null) {
-                                try {
-                                    out.flush();
-                                    out.reset(); // Evita fugas de memoria en la caché del stream
-                                } catch (IOException e) {
-                                    // Error final, no podemos hacer nada más
-                                }
-                            }
-                        }
-                    } // Fin synchronized
+                // Sin synchronized(j): encolar no bloquea y no choca con AtenderJugador
+                ColaSalida salida = j.getSalida();
+                if (salida != null) {
+                    salida.encolar(msg);
                 }
-            });
+            }
+        } finally {
+            // Debe ejecutarse SIEMPRE, o el servidor se quedaría esperando
+            fin.countDown();
         }
-
-        // Cerramos el pool local para liberar recursos
-        pool.shutdown();
     }
-}
\ No newline at end of file
+}
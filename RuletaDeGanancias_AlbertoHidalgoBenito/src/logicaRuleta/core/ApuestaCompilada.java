@@ -0,0 +1,42 @@
+package logicaRuleta.core;
+
+import modeloDominio.Apuesta;
+
+/**
+ * Clase ApuestaCompilada
+ * ----------------------
+ * Forma precalculada de una Apuesta, creada en el servidor al aceptarla (anadirApuesta).
+ * Bit n de la máscara a 1 si el número n (0-36) gana; premio = cantidad × multiplicador (en céntimos).
+ * El reparto solo comprueba un bit: sin parseos ni comparaciones de texto.
+ * * Se calcula en el servidor, nunca viaja por red (el cliente no puede falsearla).
+ */
+public final class ApuestaCompilada {
+
+    // --- ATRIBUTOS ---
+    private final Apuesta apuesta; // Original, para el historial XML
+    private final long mascara;    // 37 bits, uno por número
+    private final long cantidad;   // Céntimos apostados
+    private final long premio;     // Céntimos que se pagan si sale un número de la máscara
+
+    // --- CONSTRUCTOR ---
+    ApuestaCompilada(Apuesta apuesta, long mascara, long cantidad, long premio) {
+        this.apuesta = apuesta;
+        this.mascara = mascara;
+        this.cantidad = cantidad;
+        this.premio = premio;
+    }
+
+    // --- GETTERS ---
+    public Apuesta getApuesta() { return this.apuesta; }
+    public long getMascara() { return this.mascara; }
+    public long getCantidadCentimos() { return this.cantidad; }
+    public long getPremioCentimos() { return this.premio; }
+
+    /**
+     * @param numero Número ganador (0-36).
+     * @return Premio en céntimos si el número está en la máscara, 0 si no.
+     */
+    public long premioPara(int numero) {
+        return ((this.mascara >>> numero) & 1L) != 0 ? this.premio : 0;
+    }
+}
@@ -0,0 +1,88 @@
+package logicaRuleta.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import modeloDominio.Jugador;
+
+/**
+ * Clase ApuestasRonda
+ * -------------------
+ * Apuestas (compiladas) y libro de riesgo de una sola ronda.
+ * ServicioRuleta tiene siempre una abierta; NoVaMas la cambia por una nueva y congela
+ * la anterior, que se reparte y se guarda en XML tal cual, sin copias defensivas.
+ * * Concurrencia: cada escritor se apunta con entrar()/salir(); cerrar() impide entrar
+ *   y espera a los que estaban dentro. Después el contenido ya no cambia y se puede
+ *   leer desde cualquier hilo sin sincronización.
+ */
+public class ApuestasRonda {
+
+    // --- ATRIBUTOS ---
+    private final int ronda; // Número de ronda (EstadoRonda) al que pertenecen las apuestas
+    private final Map<Jugador, List<ApuestaCompilada>> apuestas = new ConcurrentHashMap<>();
+    private final LibroRiesgo riesgo = new LibroRiesgo();
+    private final AtomicInteger escritores = new AtomicInteger(0);
+    private volatile boolean cerrada = false;
+
+    // --- CONSTRUCTOR ---
+    public ApuestasRonda(int ronda) {
+        this.ronda = ronda;
+    }
+
+    // --- ESCRITURA (RONDA ABIERTA) ---
+
+    /**
+     * @return false si la ronda ya está cerrada. Si devuelve true, hay que llamar a salir() (finally).
+     */
+    public boolean entrar() {
+        this.escritores.incrementAndGet();
+        if (this.cerrada) {
+            this.escritores.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public void salir() {
+        this.escritores.decrementAndGet();
+    }
+
+    /**
+     * Añade una apuesta ya aceptada (saldo descontado). Solo entre entrar() y salir().
+     */
+    public void anadir(Jugador jug, ApuestaCompilada compilada) {
+        this.apuestas.computeIfAbsent(jug, k -> Collections.synchronizedList(new ArrayList<>()))
+                     .add(compilada);
+        this.riesgo.registrar(compilada);
+    }
+
+    // --- CIERRE ---
+
+    /**
+     * Congela la ronda. Solo espera a quien esté a mitad de anadir(), así que es muy corto.
+     */
+    public void cerrar() {
+        this.cerrada = true;
+        while (this.escritores.get() > 0) {
+            Thread.yield();
+        }
+    }
+
+    // --- CONSULTAS ---
+
+    public int getRonda() { return this.ronda; }
+    public boolean isCerrada() { return this.cerrada; }
+    public boolean isVacia() { return this.apuestas.isEmpty(); }
+    public LibroRiesgo getLibroRiesgo() { return this.riesgo; }
+
+    /**
+     * @return Vista de solo lectura, sin copiar (recorrer sin sincronizar solo si está cerrada).
+     */
+    public Map<Jugador, List<ApuestaCompilada>> getApuestas() {
+        return Collections.unmodifiableMap(this.apuestas);
+    }
+}
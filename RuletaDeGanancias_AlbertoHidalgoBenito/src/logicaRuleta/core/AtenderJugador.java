@@ -3,18 +3,22 @@ package logicaRuleta.core;
 import java.io.*;
 import java.net.Socket;
 import java.net.SocketException;
+
+import logicaRuleta.concurrencia.ColaSalida;
 import modeloDominio.Apuesta;
+import modeloDominio.Dinero;
 import modeloDominio.Jugador;
+import modeloDominio.MensajeRed;
 
 /**
  * Clase AtenderJugador
  * --------------------
  * Hilo dedicado (Worker) que gestiona la comunicación exclusiva con un cliente conectado.
- * Implementa el protocolo de comunicación Servidor <-> Cliente.
+ * Implementa el protocolo de comunicación Servidor <-> Cliente (mensajes MensajeRed).
  * * Responsabilidades:
  * 1. Gestionar el Handshake inicial (Login/Registro).
  * 2. Escuchar peticiones del cliente (Apuestas, Recargas, Comandos).
- * 3. Enviar respuestas directas sincronizadas con el resto del sistema.
+ * 3. Enviar respuestas a través de la ColaSalida del cliente (la misma que usan broadcasts y premios).
  */
 public class AtenderJugador implements Runnable {
 
@@ -22,7 +26,8 @@ public class AtenderJugador implements Runnable {
     private final Socket cliente;
     private final ServicioRuleta rule;
     private Jugador jugador;
-    private ObjectOutputStream out; 
+    private DataOutputStream out; 
+    private ColaSalida salida; // Cola acotada de salida: todo lo que no es handshake pasa por aquí
 
     // Constantes de estilo (Protocolo visual)
     private static final String AZUL = "\u001B[34m";
@@ -44,16 +49,17 @@ public class AtenderJugador implements Runnable {
     @Override
     public void run() {
         try (
-            // Inicialización de Streams (Output primero para evitar bloqueo de cabeceras de Java)
-            ObjectOutputStream outStream = new ObjectOutputStream(this.cliente.getOutputStream());
-            ObjectInputStream in = new ObjectInputStream(this.cliente.getInputStream())
+            // Streams con buffer: cada mensaje son unos pocos bytes, se vacían con flush() por tanda
+            DataOutputStream outStream = new DataOutputStream(new BufferedOutputStream(this.cliente.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(this.cliente.getInputStream()))
         ) {
             this.out = outStream;
+            this.salida = new ColaSalida(outStream, this.cliente, this.rule.getPoolServer());
 
             // ---------------------------------------------------------
             // FASE 1: HANDSHAKE Y LOGIN
             // ---------------------------------------------------------
-            if (!gestionarLogin(in, outStream)) {
+            if (!gestionarLogin(in)) {
                 return; // Fallo en login o desconexión prematura
             }
 
@@ -61,30 +67,28 @@ public class AtenderJugador implements Runnable {
             // FASE 2: SINCRONIZACIÓN DE ESTADO
             // ---------------------------------------------------------
             // Informamos si la mesa está bloqueada para que el cliente configure su barrera local
-            outStream.writeBoolean(this.rule.isNoVaMas());
-            outStream.flush();
-            outStream.reset(); // Limpieza preventiva
+            // La cola sigue retenida, así que ningún broadcast se cuela antes del estado
+            this.salida.escribirDirecto(MensajeRed.estadoMesa(this.rule.isNoVaMas()));
+            this.salida.liberar();
 
             // ---------------------------------------------------------
             // FASE 3: BUCLE DE ESCUCHA (LISTENER)
             // ---------------------------------------------------------
             // Bucle infinito hasta desconexión o interrupción.
-            // Solo leemos aquí. Las escrituras se delegan a métodos sincronizados.
+            // Solo leemos aquí. Las escrituras se encolan en la ColaSalida.
             while (!Thread.currentThread().isInterrupted()) {
                 try {
-                    Object mensaje = in.readObject();
+                    MensajeRed mensaje = MensajeRed.leer(in);
 
-                    // Despacho polimórfico de mensajes
-                    if (mensaje instanceof Apuesta) {
-                        procesarApuesta((Apuesta) mensaje);
+                    // Despacho por tipo de mensaje
+                    if (mensaje.getTipo() == MensajeRed.APUESTA) {
+                        procesarApuesta(mensaje);
                     } 
-                    else if (mensaje instanceof Double) {
-                        procesarSaldo((Double) mensaje);
+                    else if (mensaje.getTipo() == MensajeRed.INGRESO) {
+                        procesarSaldo(mensaje.getCentimos());
                     } 
-                    else if (mensaje instanceof String) {
-                        if ("SALIR".equalsIgnoreCase((String) mensaje)) {
-                            break; // Salida ordenada
-                        }
+                    else if (mensaje.getTipo() == MensajeRed.SALIR) {
+                        break; // Salida ordenada
                     }
 
                 } catch (EOFException e) {
@@ -95,7 +99,7 @@ public class AtenderJugador implements Runnable {
         } catch (SocketException e) {
             // Desconexión esperada o abrupta
             // System.out.println("Info: Cliente desconectado."); 
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             System.err.println("Error en comunicación con cliente: " + e.getMessage());
         } finally {
             this.desconectar();
@@ -106,23 +110,26 @@ public class AtenderJugador implements Runnable {
      * Gestiona la lógica de autenticación inicial.
      * @return true si el jugador se ha autenticado correctamente, false si no.
      */
-    private boolean gestionarLogin(ObjectInputStream in, ObjectOutputStream out) throws IOException, ClassNotFoundException {
-        String opcionLogin = (String) in.readObject();
+    private boolean gestionarLogin(DataInputStream in) throws IOException {
+        MensajeRed peticion = MensajeRed.leer(in);
 
-        if ("1".equals(opcionLogin)) {
-            // LOGIN
-            String id = (String) in.readObject();
-            this.jugador = this.rule.inicioSesionDefinitivo(id, out);
+        if (peticion.getTipo() == MensajeRed.LOGIN) {
+            this.jugador = this.rule.inicioSesionDefinitivo(peticion.getTexto(), this.salida);
+        } else if (peticion.getTipo() == MensajeRed.REGISTRO) {
+            this.jugador = this.rule.registroSesionDefinitivo(peticion.getTexto(), Dinero.aEuros(peticion.getCentimos()), this.salida);
         } else {
-            // REGISTRO
-            Jugador jTemp = (Jugador) in.readObject();
-            this.jugador = this.rule.registroSesionDefinitivo(jTemp.getID(), jTemp.getSaldo(), out);
+            this.salida.escribirDirecto(MensajeRed.rechazo("Se esperaba un login o un registro"));
+            return false;
         }
 
-        // Respuesta al cliente
-        out.writeObject(this.jugador);
-        out.flush();
-        out.reset(); // IMPORTANTE: Evitar caching de objetos en el stream
+        // Respuesta al cliente (directa: la cola sigue retenida hasta terminar el handshake)
+        if (this.jugador != null) {
+            this.salida.escribirDirecto(MensajeRed.sesion(this.jugador));
+        } else if (peticion.getTipo() == MensajeRed.LOGIN) {
+            this.salida.escribirDirecto(MensajeRed.rechazo("El usuario no existe"));
+        } else {
+            this.salida.escribirDirecto(MensajeRed.rechazo("El usuario ya existe"));
+        }
 
         return this.jugador != null;
     }
@@ -132,51 +139,52 @@ public class AtenderJugador implements Runnable {
     /**
      * Procesa una solicitud de apuesta.
      * PRE: El jugador debe estar autenticado.
-     * POST: Se envía confirmación o rechazo al cliente de forma sincronizada.
+     * POST: Se encola confirmación o rechazo en la ColaSalida del cliente.
      */
-    private void procesarApuesta(Apuesta apuesta) throws IOException {
+    private void procesarApuesta(MensajeRed peticion) {
+        // La apuesta se construye con el jugador de esta sesión, no con uno que mande el cliente
+        Apuesta apuesta;
+        try {
+            apuesta = new Apuesta(this.jugador, peticion.getTipoApuesta(), peticion.getTexto(), Dinero.aEuros(peticion.getCentimos()));
+        } catch (IllegalArgumentException e) {
+            apuesta = null; // Cantidad no positiva: anadirApuesta la rechaza
+        }
+
+        // El protocolo no lleva número de ronda: se sella con la abierta al leerla del socket
+        int ronda = this.rule.getEstadoRonda().getRondaAbierta();
+
         // Delegación lógica al servicio (Atomicidad garantizada por el servicio)
-        boolean aceptada = this.rule.anadirApuesta(this.jugador, apuesta);
+        boolean aceptada = this.rule.anadirApuesta(this.jugador, apuesta, ronda);
         
-        // Sincronización OBLIGATORIA para escritura:
-        // Evita colisión con hilos de 'MandarPremios' o 'Broadcast'
-        synchronized(this.jugador) {
-            if (aceptada) {
+        // La cola ordena estas respuestas con los broadcasts y premios, sin bloqueos
+        if (aceptada) {
+            this.salida.encolar(
                 // Confirmación visual
-                out.writeObject(AZUL + "✅ Apuesta registrada: " + apuesta.getCantidad() + "€ al " + apuesta.getValor() + RESET);
+                MensajeRed.texto(AZUL + "✅ Apuesta registrada: " + apuesta.getCantidad() + "€ al " + apuesta.getValor() + RESET),
                 // Protocolo técnico: Actualizar saldo local del cliente
-                out.writeObject("actualizar saldo:" + (-apuesta.getCantidad()));
-            } else {
-                // Rechazo
-                out.writeObject(ROJO + "⛔ Apuesta rechazada (Mesa cerrada o saldo insuficiente)." + RESET);
-            }
-            out.flush();
-            out.reset(); // Liberar memoria de referencias enviadas
+                MensajeRed.saldo(-peticion.getCentimos()));
+        } else {
+            // Rechazo
+            this.salida.encolar(MensajeRed.texto(ROJO + "⛔ Apuesta rechazada (Mesa cerrada o saldo insuficiente)." + RESET));
         }
     }
 
     /**
      * Procesa una solicitud de recarga de saldo.
-     * PRE: Cantidad > 0.
+     * PRE: Cantidad > 0 (en céntimos).
      * POST: Actualiza el saldo en servidor y notifica al cliente.
      */
-    private void procesarSaldo(Double cantidad) throws IOException {
-        if (cantidad <= 0) return;
+    private void procesarSaldo(long centimos) {
+        if (centimos <= 0) return;
 
         // Operación thread-safe en el modelo
-        this.jugador.sumaRestaSaldo(cantidad);
+        this.jugador.sumarCentimos(centimos);
         
-        // Bloqueo para escritura exclusiva
-        synchronized(this.jugador) {
+        this.salida.encolar(
             // 1. Comando técnico
-            out.writeObject("actualizar saldo:" + cantidad);
-            
+            MensajeRed.saldo(centimos),
             // 2. Feedback visual
-            out.writeObject(AZUL + "✅ Saldo añadido. Nuevo total: " + this.jugador.getSaldo() + "€" + RESET);
-            
-            out.flush();
-            out.reset();
-        }
+            MensajeRed.texto(AZUL + "✅ Saldo añadido. Nuevo total: " + this.jugador.getSaldo() + "€" + RESET));
     }
 
     /**
@@ -194,10 +202,7 @@ public class AtenderJugador implements Runnable {
                 if (this.out != null && jugador != null) {
                     try {
                         // Intentamos despedirnos respetando el turno de escritura
-                        synchronized(jugador) {
-                            this.out.writeObject(AZUL + "MUCHAS GRACIAS POR JUGAR" + RESET);
-                            this.out.flush();
-                        }
+                        this.salida.escribirDirecto(MensajeRed.texto(AZUL + "MUCHAS GRACIAS POR JUGAR" + RESET));
                     } catch (IOException ignored) {
                         // Si el socket ya está roto, ignoramos el error de escritura
                     }
@@ -0,0 +1,84 @@
+package logicaRuleta.core;
+
+import java.util.concurrent.Phaser;
+
+/**
+ * Clase EstadoRonda
+ * -----------------
+ * Número de ronda y estado de la mesa (abierta/cerrada) en un único valor atómico.
+ * Sustituye al flag isNoVaMas.
+ * * Es la fase de un Phaser con una sola parte (el crupier): cada apertura o cierre avanza
+ *   la fase en 1. Fase 0 → ronda 1 abierta, fase 1 → ronda 1 cerrada, fase 2 → ronda 2 abierta...
+ * * Lecturas sin bloqueo. Quien necesite esperar una ronda/fase concreta usa awaitAdvance,
+ *   sin crear latches por ronda.
+ * * abrir()/cerrar() solo desde el hilo del crupier.
+ */
+public class EstadoRonda {
+
+    // --- ATRIBUTOS ---
+    private final Phaser fases = new Phaser(1); // Empieza en la ronda 1 abierta
+
+    // --- FASE ---
+    public int getFase() { return this.fases.getPhase(); }
+    public static boolean isAbierta(int fase) { return (fase & 1) == 0; }
+    public static int ronda(int fase) { return fase / 2 + 1; }
+    private static int faseCierre(int ronda) { return 2 * (ronda - 1) + 1; }
+
+    // --- CONSULTAS ---
+    public boolean isAbierta() { return isAbierta(this.getFase()); }
+    public int getRonda() { return ronda(this.getFase()); }
+    public boolean isCerrada(int ronda) { return this.getFase() >= faseCierre(ronda); }
+
+    /**
+     * @return Número de la ronda abierta, o 0 si la mesa está cerrada (una sola lectura).
+     */
+    public int getRondaAbierta() {
+        int fase = this.getFase();
+        return isAbierta(fase) ? ronda(fase) : 0;
+    }
+
+    // --- TRANSICIONES (HILO DEL CRUPIER) ---
+
+    /**
+     * @return false si la mesa ya estaba cerrada.
+     */
+    public boolean cerrar() {
+        if (!this.isAbierta()) return false;
+        this.fases.arrive();
+        return true;
+    }
+
+    /**
+     * @return false si la mesa ya estaba abierta.
+     */
+    public boolean abrir() {
+        if (this.isAbierta()) return false;
+        this.fases.arrive();
+        return true;
+    }
+
+    // --- ESPERAS ---
+
+    /**
+     * Espera a que la mesa esté abierta (vuelve enseguida si ya lo está).
+     * @return Número de la ronda abierta.
+     */
+    public int esperarApertura() throws InterruptedException {
+        int fase = this.getFase();
+        while (!isAbierta(fase)) {
+            fase = this.fases.awaitAdvanceInterruptibly(fase);
+        }
+        return ronda(fase);
+    }
+
+    /**
+     * Espera a que se cierre la ronda indicada (vuelve enseguida si ya se cerró).
+     */
+    public void esperarCierre(int ronda) throws InterruptedException {
+        int objetivo = faseCierre(ronda);
+        int fase = this.getFase();
+        while (fase < objetivo) {
+            fase = this.fases.awaitAdvanceInterruptibly(fase);
+        }
+    }
+}
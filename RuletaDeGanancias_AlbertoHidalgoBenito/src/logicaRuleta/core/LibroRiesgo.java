@@ -0,0 +1,61 @@
+package logicaRuleta.core;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import modeloDominio.Dinero;
+
+/**
+ * Clase LibroRiesgo
+ * -----------------
+ * Lo que la banca tendría que pagar en la ronda actual según el número que salga (0-36).
+ * Se actualiza con cada apuesta aceptada: total apostado, deuda por número y exposición
+ * máxima se consultan sin recorrer las apuestas de los jugadores.
+ * * Cada casilla es un LongAdder de céntimos, así que muchos hilos pueden sumar a la vez sin competir.
+ * * Las consultas devuelven euros.
+ */
+public class LibroRiesgo {
+
+    // --- ATRIBUTOS ---
+    private final LongAdder[] deudas;       // deudas[n] = céntimos a pagar si sale n
+    private final LongAdder totalApostado;
+
+    // --- CONSTRUCTOR ---
+    public LibroRiesgo() {
+        this.deudas = new LongAdder[RuletaUtils.NUMEROS];
+        for (int n = 0; n < this.deudas.length; n++) {
+            this.deudas[n] = new LongAdder();
+        }
+        this.totalApostado = new LongAdder();
+    }
+
+    // --- ACTUALIZACIÓN ---
+
+    /**
+     * Suma el premio de una apuesta aceptada a cada número de su máscara.
+     */
+    public void registrar(ApuestaCompilada apuesta) {
+        long premio = apuesta.getPremioCentimos();
+        long mascara = apuesta.getMascara();
+        while (mascara != 0) {
+            this.deudas[Long.numberOfTrailingZeros(mascara)].add(premio);
+            mascara &= mascara - 1; // Quita el bit más bajo
+        }
+        this.totalApostado.add(apuesta.getCantidadCentimos());
+    }
+
+    // --- CONSULTAS ---
+
+    public double getDeuda(int numero) { return Dinero.aEuros(this.deudas[numero].sum()); }
+    public double getTotalApostado() { return Dinero.aEuros(this.totalApostado.sum()); }
+
+    /**
+     * @return Lo máximo que puede tener que pagar la banca esta ronda (peor número posible).
+     */
+    public double getExposicionMaxima() {
+        long max = 0;
+        for (LongAdder d : this.deudas) {
+            max = Math.max(max, d.sum());
+        }
+        return Dinero.aEuros(max);
+    }
+}
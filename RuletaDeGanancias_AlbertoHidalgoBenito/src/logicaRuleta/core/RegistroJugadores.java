@@ -0,0 +1,298 @@
+package logicaRuleta.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import modeloDominio.Jugador;
+import servidor.persistencia.AlmacenJugadores;
+import servidor.persistencia.PersistenciaJugadores;
+
+/**
+ * Clase RegistroJugadores
+ * -----------------------
+ * Registro de todos los jugadores dados de alta en el casino, indexado por ID.
+ * Sustituye a la búsqueda lineal particionada (getIDHilos) de ServicioRuleta.getJugador.
+ *
+ * ESTRUCTURA:
+ *  - Un ConcurrentHashMap ID → Jugador para las búsquedas (O(1), sin bloqueos).
+ *  - Una lista sincronizada con el orden de alta, que es la que se persiste en XML.
+ *  - Opcionalmente, la PersistenciaJugadores que guarda los saldos que cambian (null = sin BD).
+ *
+ * CARGA EN SEGUNDO PLANO (cargarEnSegundoPlano):
+ *  - Un hilo lee la BD en streaming y publica cada jugador en el índice según se lee, así que
+ *    el servidor acepta conexiones desde el primer momento.
+ *  - Un buscar() que no encuentra el ID espera a que termine la carga (puede que aún no se haya
+ *    leído). Un registrarSiAusente() espera siempre: si no, se podría dar de alta un nombre
+ *    que ya existe en la parte de la BD que falta por leer.
+ *  - Si la carga falla, el registro no admite altas (se repetirían nombres que están en la BD
+ *    sin leer y el diario acabaría pisando sus saldos) y se avisa al servidor para que pare.
+ *
+ * PRECONDICIONES:
+ *  - Los IDs de los jugadores no deben ser nulos.
+ *
+ * POSTCONDICIONES:
+ *  - buscar() nunca copia la lista ni lanza tareas al pool, da igual cuántos jugadores haya.
+ *  - Si el fichero trae IDs repetidos, se queda el primero (igual que la búsqueda lineal).
+ */
+public class RegistroJugadores {
+
+    // --- ATRIBUTOS ---
+
+    /**
+     * Índice por ID. Es el que se consulta en cada inicio de sesión y registro.
+     */
+    private final ConcurrentHashMap<String, Jugador> porId;
+
+    /**
+     * Todos los jugadores en orden de alta. Solo se añade, nunca se borra.
+     */
+    private final List<Jugador> jugadores;
+
+    /**
+     * Guardado de los jugadores (null si el registro no tiene BD).
+     */
+    private final PersistenciaJugadores persistencia;
+
+    /**
+     * Llega a 0 cuando la BD está cargada entera (enseguida si no hay carga en segundo plano).
+     */
+    private final CountDownLatch carga = new CountDownLatch(1);
+
+    /**
+     * true si la carga en segundo plano no pudo leer la BD entera (se publica antes del countDown).
+     */
+    private volatile boolean cargaFallida = false;
+
+    // --- CONSTRUCTORES ---
+
+    /**
+     * Crea el registro a partir de los jugadores cargados de la BD.
+     *
+     * PRE: iniciales != null
+     * POST: Todos los jugadores con ID no nulo quedan indexados.
+     *
+     * @param iniciales Lista de jugadores existentes (se envuelve, no se copia).
+     */
+    public RegistroJugadores(List<Jugador> iniciales) {
+        this(iniciales, null);
+    }
+
+    /**
+     * Crea el registro a partir de los jugadores cargados de la BD y lo conecta a ella.
+     *
+     * PRE: iniciales != null, cargados con PersistenciaJugadores.cargar(almacen).
+     * POST:
+     *  - Todos los jugadores con ID no nulo quedan indexados.
+     *  - Si almacen != null, los cambios de saldo y las altas se guardan solos (PersistenciaJugadores).
+     *
+     * @param iniciales Lista de jugadores existentes (se envuelve, no se copia).
+     * @param almacen   Foto de los jugadores (XML o binaria), o null para un registro sin BD.
+     */
+    public RegistroJugadores(List<Jugador> iniciales, AlmacenJugadores almacen) {
+        this(iniciales, almacen, false);
+    }
+
+    private RegistroJugadores(List<Jugador> iniciales, AlmacenJugadores almacen, boolean cargando) {
+        this.jugadores = Collections.synchronizedList(iniciales);
+        this.porId = new ConcurrentHashMap<>(Math.max(16, iniciales.size() * 2));
+
+        for (Jugador j : iniciales) {
+            if (j.getID() != null) {
+                this.porId.putIfAbsent(j.getID(), j);
+            }
+        }
+        this.persistencia = (almacen != null) ? new PersistenciaJugadores(this.jugadores, almacen) : null;
+        if (cargando) {
+            this.persistencia.iniciarCarga();
+        } else {
+            this.carga.countDown();
+        }
+    }
+
+    /**
+     * Crea un registro vacío y lo va llenando desde la BD en un hilo aparte.
+     *
+     * PRE: almacen != null
+     * POST:
+     *  - El registro se puede usar enseguida (ver CARGA EN SEGUNDO PLANO).
+     *  - Al terminar se informa por consola de cuántos jugadores se han cargado y en cuánto tiempo.
+     *  - Si la BD no se puede leer entera, no se compacta nunca (la foto buena no se toca),
+     *    se rechazan las altas y se ejecuta alFallar (si no es null).
+     *
+     * @param almacen Foto de los jugadores (XML o binaria).
+     * @return Registro que se está cargando.
+     */
+    public static RegistroJugadores cargarEnSegundoPlano(AlmacenJugadores almacen) {
+        return cargarEnSegundoPlano(almacen, null);
+    }
+
+    /**
+     * Igual que el anterior, avisando si la carga falla (el servidor lo usa para pararse).
+     *
+     * @param almacen  Foto de los jugadores (XML o binaria).
+     * @param alFallar Se ejecuta en el hilo de carga si la BD no se ha podido leer, o null.
+     * @return Registro que se está cargando.
+     */
+    public static RegistroJugadores cargarEnSegundoPlano(AlmacenJugadores almacen, Runnable alFallar) {
+        RegistroJugadores registro = new RegistroJugadores(new ArrayList<>(), almacen, true);
+        Thread t = new Thread(() -> {
+            if (!registro.cargar(almacen) && alFallar != null) {
+                alFallar.run();
+            }
+        }, "carga-jugadores");
+        t.setDaemon(true);
+        t.start();
+        return registro;
+    }
+
+    private boolean cargar(AlmacenJugadores almacen) {
+        long inicio = System.nanoTime();
+        boolean completa = false;
+        try {
+            PersistenciaJugadores.cargar(almacen, this::anadirCargado);
+            completa = true;
+            System.out.println("✅ " + this.size() + " jugadores cargados de " + almacen + " en "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms.");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠️ Error cargando jugadores de " + almacen + ": " + e.getMessage()
+                + " (" + this.size() + " cargados; la BD no se compactará ni se admiten altas)");
+        } finally {
+            this.cargaFallida = !completa;
+            this.persistencia.terminarCarga(completa);
+            this.carga.countDown();
+        }
+        return completa;
+    }
+
+    /**
+     * @return true si la carga en segundo plano terminó sin poder leer la BD entera.
+     */
+    public boolean isCargaFallida() {
+        return this.cargaFallida;
+    }
+
+    /**
+     * Publica un jugador leído de la BD (desde uno o varios hilos de carga).
+     */
+    private void anadirCargado(Jugador jug) {
+        if (jug.getID() == null) {
+            return;
+        }
+        // Primero la persistencia: cuando otro hilo lo encuentre, sus cambios ya se vigilan
+        this.persistencia.cargado(jug);
+        if (this.porId.putIfAbsent(jug.getID(), jug) == null) {
+            this.jugadores.add(jug);
+        }
+    }
+
+    /**
+     * Espera a que la BD esté cargada entera.
+     *
+     * POST: La carga ha terminado, o el hilo ha sido interrumpido (queda marcado).
+     */
+    public void esperarCarga() {
+        try {
+            this.carga.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return true mientras la carga en segundo plano no ha terminado.
+     */
+    public boolean isCargando() {
+        return this.carga.getCount() > 0;
+    }
+
+    /**
+     * Registro vacío.
+     */
+    public RegistroJugadores() {
+        this(new ArrayList<>());
+    }
+
+    // --- OPERACIONES ---
+
+    /**
+     * Busca un jugador por su ID.
+     *
+     * PRE: Ninguna.
+     * POST: Retorna el jugador o null si no existe o el ID es nulo.
+     *
+     * @param id Identificador del jugador.
+     * @return Jugador encontrado o null.
+     */
+    public Jugador buscar(String id) {
+        if (id == null) {
+            return null;
+        }
+        Jugador jug = this.porId.get(id);
+        if (jug == null && this.isCargando()) {
+            // Puede estar en la parte de la BD que aún no se ha leído
+            this.esperarCarga();
+            jug = this.porId.get(id);
+        }
+        return jug;
+    }
+
+    /**
+     * Da de alta un jugador solo si su ID no existe todavía ("registrar si ausente").
+     * La comprobación y la inserción son una única operación atómica del índice
+     * (putIfAbsent), sin ningún lock global: de dos altas simultáneas con el mismo
+     * nombre gana siempre exactamente una.
+     *
+     * PRE:
+     *  - jug != null && jug.getID() != null
+     * POST:
+     *  - Si el ID estaba libre: el jugador queda indexado y en la lista de persistencia, retorna null.
+     *    Si hay PersistenciaJugadores, queda pendiente de guardar.
+     *  - Si el ID ya existía: no se modifica nada y retorna el jugador existente.
+     *  - Si la carga de la BD falló: no se modifica nada y lanza IllegalStateException
+     *    (no se sabe si el ID está en la parte que no se pudo leer).
+     *
+     * @param jug Jugador a dar de alta.
+     * @return null si se ha registrado, o el jugador que ya tenía ese ID.
+     */
+    public Jugador registrarSiAusente(Jugador jug) {
+        this.esperarCarga();
+        if (this.cargaFallida) {
+            throw new IllegalStateException("la BD de jugadores no se ha podido cargar");
+        }
+        Jugador previo = this.porId.putIfAbsent(jug.getID(), jug);
+        if (previo == null) {
+            // Solo el ganador del putIfAbsent llega aquí: la lista nunca tiene duplicados
+            this.jugadores.add(jug);
+            if (this.persistencia != null) {
+                this.persistencia.vigilar(jug);
+            }
+        }
+        return previo;
+    }
+
+    /**
+     * @return Lista sincronizada con todos los jugadores (para persistencia).
+     */
+    public List<Jugador> getLista() {
+        return this.jugadores;
+    }
+
+    /**
+     * @return Persistencia de los jugadores, o null si el registro no tiene BD.
+     */
+    public PersistenciaJugadores getPersistencia() {
+        return this.persistencia;
+    }
+
+    /**
+     * @return Número de jugadores registrados.
+     */
+    public int size() {
+        return this.porId.size();
+    }
+}
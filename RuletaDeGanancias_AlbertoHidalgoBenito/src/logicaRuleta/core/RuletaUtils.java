@@ -2,81 +2,157 @@ package logicaRuleta.core;
 
 import modeloDominio.Apuesta;
 import modeloDominio.Casilla;
+import modeloDominio.Dinero;
 
 /**
  * Clase RuletaUtils
  * -----------------
  * Métodos utilitarios estáticos para cálculos de la ruleta.
  * No dependen de estado de instancia, por lo que son thread-safe.
+ *
+ * PAGOS (cantidad × multiplicador):
+ *  - NUMERO    → 36 (el 0 paga 300).
+ *  - COLOR     → 2 (el 0 no es ROJO ni NEGRO).
+ *  - PAR_IMPAR → 2 (el 0 no es PAR ni IMPAR).
+ *  - DOCENA    → 3.
  */
 public final class RuletaUtils {
 
+    /**
+     * Números de la ruleta (0-36): una máscara necesita 37 bits.
+     */
+    public static final int NUMEROS = 37;
+
+    // Máscaras de cada apuesta exterior, calculadas con las reglas de Casilla
+    private static final long MASCARA_ROJO;
+    private static final long MASCARA_NEGRO;
+    private static final long MASCARA_PAR;
+    private static final long MASCARA_IMPAR;
+    private static final long[] MASCARA_DOCENA = new long[4]; // Índice 1-3
+
+    static {
+        long rojo = 0, negro = 0, par = 0, impar = 0;
+        for (int n = 1; n < NUMEROS; n++) {
+            Casilla c = new Casilla(n);
+            long bit = 1L << n;
+            if (c.getColor() == Casilla.COLOR.ROJO) {
+                rojo |= bit;
+            } else {
+                negro |= bit;
+            }
+            if (n % 2 == 0) {
+                par |= bit;
+            } else {
+                impar |= bit;
+            }
+            MASCARA_DOCENA[c.getDocena()] |= bit;
+        }
+        MASCARA_ROJO = rojo;
+        MASCARA_NEGRO = negro;
+        MASCARA_PAR = par;
+        MASCARA_IMPAR = impar;
+    }
+
     // Constructor privado para evitar instanciación
     private RuletaUtils() {}
 
     /**
-     * Calcula el premio de una apuesta concreta según la casilla ganadora.
+     * Compila una apuesta: traduce su tipo y valor a máscara de números ganadores y premio.
+     * Se llama una vez al aceptar la apuesta, no en cada reparto.
      *
-     * @param ganadora Casilla ganadora.
-     * @param apuesta  Apuesta del jugador.
-     * @return Importe ganado (0 si perdió).
+     * PRE: apuesta != null
+     * POST: Retorna null si el valor no es válido para el tipo (p.ej. número 40 o color "AZUL").
+     *
+     * @param apuesta Apuesta del jugador.
+     * @return Apuesta compilada, o null si el valor no es válido.
      */
-    public static double calcularPremio(Casilla ganadora, Apuesta apuesta) {
-        double cantidad = apuesta.getCantidad();
-        String valorApostado = apuesta.getValor();
+    public static ApuestaCompilada compilar(Apuesta apuesta) {
+        String valor = apuesta.getValor().trim();
+        long mascara;
+        int multiplicador;
 
         switch (apuesta.getTipo()) {
             case NUMERO:
+                int numero;
                 try {
-                    int numeroApostado = Integer.parseInt(valorApostado);
-                    
-                   
-                    
-                    if (numeroApostado == ganadora.getNumero()) {
-                    	
-                    	 if(numeroApostado == 0) {
-                         	return cantidad*300;//Te haces rico
-                         }
-                    	
-                        return cantidad * 36;
-                    }
+                    numero = Integer.parseInt(valor);
                 } catch (NumberFormatException e) {
-                    System.err.println("⚠️ Error formato número: " + valorApostado);
+                    System.err.println("⚠️ Error formato número: " + valor);
+                    return null;
+                }
+                if (numero < 0 || numero >= NUMEROS) {
+                    return null;
                 }
+                mascara = 1L << numero;
+                multiplicador = (numero == 0) ? 300 : 36; // El 0: te haces rico
                 break;
 
             case COLOR:
-                if (ganadora.getNumero() != 0 &&
-                    valorApostado.equalsIgnoreCase(ganadora.getColor().toString())) {
-                    return cantidad * 2;
+                if (valor.equalsIgnoreCase("ROJO")) {
+                    mascara = MASCARA_ROJO;
+                } else if (valor.equalsIgnoreCase("NEGRO")) {
+                    mascara = MASCARA_NEGRO;
+                } else {
+                    return null;
                 }
+                multiplicador = 2;
                 break;
 
             case PAR_IMPAR:
-                if (ganadora.getNumero() != 0) {
-                    boolean apostoPar = valorApostado.equalsIgnoreCase("PAR");
-                    if ((apostoPar && ganadora.getNumero() % 2 == 0) ||
-                        (!apostoPar && ganadora.getNumero() % 2 != 0)) {
-                        return cantidad * 2;
-                    }
+                if (valor.equalsIgnoreCase("PAR")) {
+                    mascara = MASCARA_PAR;
+                } else if (valor.equalsIgnoreCase("IMPAR")) {
+                    mascara = MASCARA_IMPAR;
+                } else {
+                    return null;
                 }
+                multiplicador = 2;
                 break;
 
             case DOCENA:
+                int docena;
                 try {
-                    int docenaApostada = Integer.parseInt(valorApostado);
-                    if (docenaApostada == ganadora.getDocena()) {
-                        return cantidad * 3;
-                    }
+                    docena = Integer.parseInt(valor);
                 } catch (NumberFormatException e) {
-                    System.err.println("⚠️ Error formato docena: " + valorApostado);
+                    System.err.println("⚠️ Error formato docena: " + valor);
+                    return null;
                 }
+                if (docena < 1 || docena > 3) {
+                    return null;
+                }
+                mascara = MASCARA_DOCENA[docena];
+                multiplicador = 3;
                 break;
 
             default:
-                return 0;
+                return null;
         }
 
-        return 0;
+        long cantidad = Dinero.aCentimos(apuesta.getCantidad());
+        return new ApuestaCompilada(apuesta, mascara, cantidad, cantidad * multiplicador);
+    }
+
+    /**
+     * Calcula el premio de una apuesta ya compilada según la casilla ganadora.
+     *
+     * @param ganadora Casilla ganadora.
+     * @param apuesta  Apuesta compilada del jugador.
+     * @return Importe ganado (0 si perdió).
+     */
+    public static double calcularPremio(Casilla ganadora, ApuestaCompilada apuesta) {
+        return Dinero.aEuros(apuesta.premioPara(ganadora.getNumero()));
+    }
+
+    /**
+     * Calcula el premio de una apuesta concreta según la casilla ganadora.
+     * Compila la apuesta en cada llamada: en el reparto se usa la versión con ApuestaCompilada.
+     *
+     * @param ganadora Casilla ganadora.
+     * @param apuesta  Apuesta del jugador.
+     * @return Importe ganado (0 si perdió o si la apuesta no es válida).
+     */
+    public static double calcularPremio(Casilla ganadora, Apuesta apuesta) {
+        ApuestaCompilada compilada = compilar(apuesta);
+        return (compilada == null) ? 0 : calcularPremio(ganadora, compilada);
     }
 }
@@ -2,18 +2,20 @@ package logicaRuleta.core;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
 
-import logicaRuleta.concurrencia.getIDHilos;
-import logicaRuleta.concurrencia.mandarPremios;
-import logicaRuleta.concurrencia.cancelarFuture;
+import logicaRuleta.concurrencia.ColaSalida;
+import logicaRuleta.concurrencia.liquidarRonda;
 import logicaRuleta.concurrencia.mandarMensaje;
 import modeloDominio.Apuesta;
 import modeloDominio.Casilla;
 import modeloDominio.Jugador;
-import servidor.persistencia.ActualizarBD;
+import modeloDominio.MensajeRed;
+import servidor.persistencia.AlmacenJugadores;
+import servidor.persistencia.PersistenciaJugadores;
 
 /**
  * Clase ServicioRuleta
@@ -24,27 +26,29 @@ import servidor.persistencia.ActualizarBD;
  * 1. Mantener la lista de jugadores conectados y sus sesiones.
  * 2. Gestionar el estado de la mesa (Abierta/Cerrada).
  * 3. Coordinar el envío de mensajes masivos (Broadcast).
- * 4. Repartir premios de forma concurrente.
+ * 4. Liquidar la ronda de forma concurrente (premio y resultado en un solo mensaje).
  */
 public class ServicioRuleta {
 
     // --- ATRIBUTOS ---
     
-    // Pool de hilos para tareas asíncronas (búsquedas, mensajes, premios)
+    // Pool de hilos para tareas asíncronas (mensajes, premios, persistencia)
     private final ExecutorService poolServer;
     
+    // Registro de todos los jugadores indexado por ID (búsquedas O(1) en login/registro)
+    private final RegistroJugadores registro;
+
     // Listas thread-safe para gestión de usuarios
-    private final List<Jugador> jugadoresSesion;   // Todos los registrados en memoria
+    private final List<Jugador> jugadoresSesion;   // Todos los registrados en memoria (la del registro, para persistir)
     private final List<Jugador> jugadoresConexion; // Solo los que tienen socket activo
     
-    // Mapa de apuestas (ConcurrentHashMap para permitir escrituras simultáneas rápidas)
-    private final Map<Jugador, List<Apuesta>> jugadorApuestas;
+    // Apuestas de la ronda en curso (compiladas + libro de riesgo). NoVaMas la cambia de golpe
+    // por una vacía y deja la anterior congelada en rondaCerrada para repartir y guardar sin copias
+    private final AtomicReference<ApuestasRonda> rondaAbierta = new AtomicReference<>(new ApuestasRonda(1));
+    private volatile ApuestasRonda rondaCerrada = new ApuestasRonda(0);
 
-    // Estado de la mesa (volatile para visibilidad inmediata entre hilos)
-    private volatile boolean isNoVaMas; 
-    
-    // Referencia al archivo de persistencia
-    private final File BBDD;
+    // Estado de la mesa: número de ronda + abierta/cerrada en un solo valor atómico (Phaser)
+    private final EstadoRonda estado = new EstadoRonda();
 
     // --- CONSTRUCTORES ---
 
@@ -52,18 +56,26 @@ public class ServicioRuleta {
      * Constructor principal.
      * @param jugadoresSesion Lista inicial de jugadores cargada de BD.
      * @param pool ExecutorService para gestión de hilos.
-     * @param BBDD Archivo físico para persistencia.
+     * @param BBDD Archivo físico para persistencia: .bin binario, si no XML (null = sin BD).
      */
     public ServicioRuleta(List<Jugador> jugadoresSesion, ExecutorService pool, File BBDD) {
-        this.isNoVaMas = false; // La mesa empieza abierta ("Hagan juego")
+        // El registro envuelve la lista cargada de BD, la indexa por ID y guarda los saldos que cambian
+        this(new RegistroJugadores(jugadoresSesion, (BBDD != null) ? AlmacenJugadores.segunExtension(BBDD) : null), pool);
+    }
 
-        // Usamos listas sincronizadas para evitar corrupciones básicas
-        this.jugadoresSesion = Collections.synchronizedList(jugadoresSesion);
+    /**
+     * Constructor sobre un registro ya creado (por ejemplo, uno que se está cargando
+     * con RegistroJugadores.cargarEnSegundoPlano).
+     * @param registro Registro de jugadores.
+     * @param pool ExecutorService para gestión de hilos.
+     */
+    public ServicioRuleta(RegistroJugadores registro, ExecutorService pool) {
+        // La mesa empieza abierta ("Hagan juego"): EstadoRonda arranca en la ronda 1
+        this.registro = registro;
+        this.jugadoresSesion = this.registro.getLista();
         this.jugadoresConexion = Collections.synchronizedList(new ArrayList<>());
-        this.jugadorApuestas = new ConcurrentHashMap<>();
         
         this.poolServer = pool;
-        this.BBDD = BBDD;
     }
     
     /**
@@ -76,179 +88,139 @@ public class ServicioRuleta {
     // --- GETTERS ---
 
     public List<Jugador> getListJugadoresSesion() { return this.jugadoresSesion; }
-    public Map<Jugador, List<Apuesta>> getJugadorApuestas() { return this.jugadorApuestas; }
-    public boolean isNoVaMas() { return this.isNoVaMas; }
+    public RegistroJugadores getRegistro() { return this.registro; }
+    public Map<Jugador, List<ApuestaCompilada>> getJugadorApuestas() { return this.rondaAbierta.get().getApuestas(); }
+    public boolean isNoVaMas() { return !this.estado.isAbierta(); }
+    public EstadoRonda getEstadoRonda() { return this.estado; }
+    public ExecutorService getPoolServer() { return this.poolServer; }
+    public LibroRiesgo getLibroRiesgo() { return this.rondaAbierta.get().getLibroRiesgo(); }
     
     /**
-     * Genera una instantánea segura (Snapshot) de las apuestas actuales.
-     * Útil para guardar en XML o inspeccionar sin bloquear el mapa original.
-     * @return Copia profunda del mapa de apuestas.
+     * Última ronda cerrada por NoVaMas (la que se reparte y se guarda en XML).
+     * Sustituye a la copia profunda del mapa de apuestas: ya nadie la modifica.
      */
-    public Map<Jugador, List<Apuesta>> getCopiaJugadorApuestas() {
-        Map<Jugador, List<Apuesta>> foto;
-        // Bloqueo breve para copiar la estructura del mapa
-        synchronized (jugadorApuestas) {
-            foto = new HashMap<>(jugadorApuestas);
-        }
-        
-        // Copia profunda de las listas de apuestas
-        Map<Jugador, List<Apuesta>> copia = new HashMap<>(foto.size());
-        for (Map.Entry<Jugador, List<Apuesta>> entry : foto.entrySet()) {
-            Jugador jugador = entry.getKey();
-            synchronized (entry.getValue()) {
-                copia.put(jugador, new ArrayList<>(entry.getValue()));
-            }
-        }
-        return copia;
-    }
+    public ApuestasRonda getRondaCerrada() { return this.rondaCerrada; }
 
     // --- CONTROL DE RONDAS Y MENSAJERÍA ---
 
     /**
-     * Cierra la mesa para impedir nuevas apuestas.
+     * Cierra la mesa para impedir nuevas apuestas. Solo desde el hilo del crupier.
      * @param latchFinBroadcast Latch para notificar cuando se termine de avisar a todos.
      */
     public void NoVaMas(CountDownLatch latchFinBroadcast) {
-        this.isNoVaMas = true;
-        String msg = "\u001b[31m--- ⛔ NO VA MÁS ⛔ ---\u001b[0m";
-        enviarBroadcastConcurrente(msg, latchFinBroadcast);
+        int ronda = this.estado.getRondaAbierta();
+        if (ronda != 0) {
+            // Cambio de ronda de apuestas ANTES de cerrar el estado: una apuesta sellada con
+            // esta ronda que llegue tarde ya no encuentra su ronda abierta. La anterior se congela tal cual.
+            ApuestasRonda cerrada = this.rondaAbierta.getAndSet(new ApuestasRonda(ronda + 1));
+            this.estado.cerrar();
+            cerrada.cerrar();
+            this.rondaCerrada = cerrada;
+        }
+
+        // El cliente muestra su propio aviso: por la red solo va el tipo de mensaje
+        enviarBroadcastConcurrente(MensajeRed.noVaMas(), latchFinBroadcast);
     }
 
     /**
-     * Abre la mesa y limpia las apuestas anteriores.
+     * Abre la mesa (NoVaMas ya dejó preparada una ronda de apuestas vacía).
      * @param latchFinBroadcast Latch para notificar fin del broadcast.
      */
     public void resetNoVaMas(CountDownLatch latchFinBroadcast) {
-        this.jugadorApuestas.clear();
-        this.isNoVaMas = false;
-        String msg = "\u001b[32m--- 🟢 ¡HAGAN JUEGO! (ABRIR MESA) ---\u001b[0m";
-        enviarBroadcastConcurrente("ABRIR MESA " + msg, latchFinBroadcast);
+        this.estado.abrir();
+        enviarBroadcastConcurrente(MensajeRed.abrirMesa(), latchFinBroadcast);
     }
 
     /**
      * Envía un mensaje a todos los jugadores conectados de forma concurrente.
      * Divide la lista de jugadores en chunks y asigna hilos para el envío.
-     * * @param mensaje Texto a enviar.
+     * * @param mensaje Mensaje a enviar.
      * @param latchFinExterno Latch opcional para sincronizar con el hilo principal.
      */
-    public void enviarBroadcastConcurrente(String mensaje, CountDownLatch latchFinExterno) {
-        if (jugadoresConexion.isEmpty()) {
+    public void enviarBroadcastConcurrente(MensajeRed mensaje, CountDownLatch latchFinExterno) {
+        synchronized (this.jugadoresConexion) {
+            // 'mandarMensaje' solo encola, no espera a ningún socket
+            repartirEnSublistas(this.jugadoresConexion, (sublista, encolados) -> new mandarMensaje(mensaje, sublista, encolados), latchFinExterno);
+        }
+    }
+
+    /**
+     * Divide los destinatarios en sublistas (como mucho 30, para no saturar el pool),
+     * lanza una tarea por sublista y espera a que terminen todas.
+     * @param destinos Jugadores a repartir (se copian por sublistas: se puede soltar su lock después).
+     * @param tarea Crea la tarea de una sublista; la tarea descuenta el latch que recibe al terminar.
+     * @param latchFinExterno Latch opcional para sincronizar con el hilo principal.
+     */
+    private void repartirEnSublistas(List<Jugador> destinos, BiFunction<List<Jugador>, CountDownLatch, Runnable> tarea, CountDownLatch latchFinExterno) {
+        int N = destinos.size();
+        if (N == 0) {
             if (latchFinExterno != null) latchFinExterno.countDown();
             return;
         }
 
-        synchronized (this.jugadoresConexion) {
-            int N = this.jugadoresConexion.size(); 
-            
-            // Limitamos a 30 hilos máximo para no saturar el pool
-            int numHilos = Math.min(N, 30);
-            
-            // IMPORTANTE: La barrera espera a (Total Jugadores + 1).
-            // Esto es porque 'mandarMensaje' lanza internamente un hilo por jugador.
-            CyclicBarrier internalBarrier = new CyclicBarrier(N + 1); 
-
-            int tamanoChunk = N / numHilos;
-            int resto = N % numHilos;
-            int indiceInicio = 0;
-
-            for (int i = 0; i < numHilos; i++) {
-                int indiceFin = indiceInicio + tamanoChunk + (i < resto ? 1 : 0);
-                
-                List<Jugador> sublista = new ArrayList<>(this.jugadoresConexion.subList(indiceInicio, indiceFin));
-                
-                // Lanzamos la tarea de distribución
-                this.poolServer.execute(new mandarMensaje(mensaje, sublista, internalBarrier));
-
-                indiceInicio = indiceFin;
-            }
+        // Limitamos a 30 hilos máximo para no saturar el pool
+        int numHilos = Math.min(N, 30);
 
-            try {
-                // Esperamos a que todos los mensajes se hayan enviado
-                internalBarrier.await(); 
-            } catch (InterruptedException | BrokenBarrierException e) {
-                e.printStackTrace();
-            } finally {
-                if (latchFinExterno != null) latchFinExterno.countDown();
-            }
+        // Un descuento por sublista
+        CountDownLatch terminados = new CountDownLatch(numHilos);
+
+        int tamanoChunk = N / numHilos;
+        int resto = N % numHilos;
+        int indiceInicio = 0;
+
+        for (int i = 0; i < numHilos; i++) {
+            int indiceFin = indiceInicio + tamanoChunk + (i < resto ? 1 : 0);
+
+            List<Jugador> sublista = new ArrayList<>(destinos.subList(indiceInicio, indiceFin));
+
+            // Lanzamos la tarea de distribución
+            this.poolServer.execute(tarea.apply(sublista, terminados));
+
+            indiceInicio = indiceFin;
+        }
+
+        try {
+            // Esperamos a que todo esté encolado (no a que se haya escrito)
+            terminados.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (latchFinExterno != null) latchFinExterno.countDown();
         }
     }
 
-    // --- GESTIÓN DE JUGADORES (BÚSQUEDA CONCURRENTE) ---
+    // --- GESTIÓN DE JUGADORES ---
 
     /**
-     * Busca un jugador por ID utilizando paralelismo.
+     * Busca un jugador por ID en el registro indexado.
+     * Ya no se copia la lista ni se reparte la búsqueda en el pool: el coste
+     * del login no depende del número de cuentas registradas.
      * @param iD Identificador del jugador.
      * @return Objeto Jugador si existe, null si no.
      */
-    @SuppressWarnings({ "unchecked", "rawtypes" })
     public Jugador getJugador(String iD) {
         if (iD == null || iD.trim().isEmpty()) return null;
-        
-        List<Future<Jugador>> lfj;
-        Jugador sesion = null;
-        
-        // FASE 1: Preparación (Sincronizada)
-        // Solo bloqueamos para copiar la lista y lanzar tareas. Es muy rápido.
-        synchronized (jugadoresSesion) {
-            if (this.jugadoresSesion.isEmpty()) return null;
-            
-            int N = this.jugadoresSesion.size();
-            int numHilos = Math.min(N, 30);
-            
-            int tamanoChunk = N / numHilos;
-            int resto = N % numHilos;
-            int indiceInicio = 0;
-            
-            lfj = new ArrayList<>(numHilos);
-            
-            for (int i = 0; i < numHilos; i++) {
-                int indiceFin = indiceInicio + tamanoChunk + (i < resto ? 1 : 0);
-                
-                // Creamos copia segura del subsegmento para el hilo
-                List<Jugador> copiaSublista = new ArrayList<>(this.jugadoresSesion.subList(indiceInicio, indiceFin));
-                
-                // Lanzamos búsqueda sin índices, pasamos la sublista directa
-                lfj.add(this.poolServer.submit(new getIDHilos(copiaSublista, iD)));
-                
-                indiceInicio = indiceFin;
-            }
-        } // Fin synchronized: liberamos el servidor para otros usuarios
-        
-        // FASE 2: Recogida de resultados (Sin bloqueo global)
-        for (Future<Jugador> jug : lfj) {
-            try {
-                sesion = jug.get(); // Esperamos resultado
-                if (sesion != null) break; // Encontrado
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            } catch (ExecutionException e) {
-                e.printStackTrace();
-            }
-        }
-        
-        // Cancelamos tareas pendientes para ahorrar recursos
-        this.poolServer.execute(new cancelarFuture(lfj));
-        return sesion;
+        return this.registro.buscar(iD);
     }
 
     // --- CONEXIÓN Y REGISTRO ---
 
     /**
-     * Asocia un stream de salida a un jugador existente.
+     * Asocia la cola de salida de una conexión a un jugador existente.
      * Evita dobles conexiones.
      */
-    public void establecerConexion(Jugador jug, ObjectOutputStream out) throws IOException {
+    public void establecerConexion(Jugador jug, ColaSalida salida) throws IOException {
         synchronized (jug) {
             if (!jug.isSesionIniciada()) {
                 jug.setSesionIniciada(true);
-                jug.setOutputStream(out); 
+                jug.setSalida(salida);
                 jugadoresConexion.add(jug);
             } else {
                 // Usuario ya conectado: Rechazamos la NUEVA conexión.
                 // NO desconectamos al usuario antiguo.
+                // Va directo (no por la cola): el cliente lo lee como respuesta al login.
                 try {
-                    out.writeObject("El usuario ya ha iniciado sesion");
-                    out.flush();
+                    salida.escribirDirecto(MensajeRed.rechazo("El usuario ya ha iniciado sesion"));
                 } catch(IOException e) {
                     e.printStackTrace();
                 } 
@@ -258,107 +230,119 @@ public class ServicioRuleta {
 
     /**
      * Registra un nuevo jugador si no existe.
+     * El alta es un "registrar si ausente" atómico sobre el índice, sin lock global:
+     * un registro en curso no frena al resto de logins y, con dos altas simultáneas
+     * del mismo nombre, gana exactamente una.
      */
-    public Jugador registroSesionDefinitivo(String name, double saldo, ObjectOutputStream out) throws IOException {
+    public Jugador registroSesionDefinitivo(String name, double saldo, ColaSalida salida) throws IOException {
         if (name == null || name.trim().isEmpty()) return null;
 
-        // Bloqueamos la lista global porque vamos a escribir en ella
-        synchronized (jugadoresSesion) {
-            // Reutilizamos la búsqueda concurrente (seguro porque tenemos el lock)
-            Jugador jug = this.getJugador(name); 
+        // Se publica con la sesión ya marcada para que un login simultáneo la vea ocupada
+        Jugador jug = new Jugador(name, saldo);
+        jug.setSesionIniciada(true);
+        jug.setSalida(salida);
 
-            if (jug == null) {
-                jug = new Jugador(name, saldo);
-                this.establecerConexion(jug, out);
-                jugadoresSesion.add(jug);
-                return jug;
-            } else {
+        try {
+            if (this.registro.registrarSiAusente(jug) != null) {
                 return null; // Ya existe
             }
+        } catch (IllegalStateException e) {
+            System.err.println("⚠️ Alta de " + name + " rechazada: " + e.getMessage());
+            return null;
         }
+
+        jugadoresConexion.add(jug);
+        return jug;
     }
 
     /**
      * Inicia sesión de un jugador existente.
+     * Solo se bloquea al propio jugador (establecerConexion), nunca la lista global.
      */
-    public Jugador inicioSesionDefinitivo(String name, ObjectOutputStream out) throws IOException {
+    public Jugador inicioSesionDefinitivo(String name, ColaSalida salida) throws IOException {
         if (name == null || name.trim().isEmpty()) return null;
 
-        synchronized (jugadoresSesion) {
-            Jugador jug = this.getJugador(name);
+        Jugador jug = this.getJugador(name);
 
-            if (jug != null) {
-                this.establecerConexion(jug, out);
-            }
-            return jug;
+        if (jug != null) {
+            this.establecerConexion(jug, salida);
         }
+        return jug;
     }
 
     // --- GESTIÓN DE APUESTAS ---
 
     /**
-     * Valida y registra una apuesta.
-     * @return true si la apuesta fue aceptada, false si no (saldo insuficiente o mesa cerrada).
+     * Valida, compila y registra una apuesta.
+     * La compilación (máscara de números ganadores + premio) se hace aquí una sola vez.
+     * Sin locks: la apuesta va sellada con su ronda y se rechaza si no es la abierta
+     * (la comprobación se repite con el número de la ronda de apuestas, que NoVaMas cambia).
+     * @param ronda Ronda con la que se selló la apuesta.
+     * @return true si la apuesta fue aceptada, false si no (saldo insuficiente, mesa cerrada, otra ronda o valor no válido).
      */
-    public boolean anadirApuesta(Jugador jug, Apuesta apuesta) {
-        if (this.isNoVaMas) return false; 
+    public boolean anadirApuesta(Jugador jug, Apuesta apuesta, int ronda) {
+        if (this.estado.getRondaAbierta() != ronda) return false;
         if (apuesta == null) return false;
 
-        synchronized (jug) {
-            if (jug.getSaldo() < apuesta.getCantidad()) return false;
-            jug.sumaRestaSaldo(-apuesta.getCantidad());
-        }
+        // La apuesta llega del cliente: el valor se valida al compilar
+        ApuestaCompilada compilada = RuletaUtils.compilar(apuesta);
+        if (compilada == null) return false;
 
-        this.jugadorApuestas.computeIfAbsent(jug, k -> Collections.synchronizedList(new ArrayList<>()))
-                            .add(apuesta);
-        
-        return true;
+        // Si NoVaMas congela esta ronda mientras estamos dentro, espera a que salgamos
+        ApuestasRonda apuestas = this.rondaAbierta.get();
+        if (apuestas.getRonda() != ronda || !apuestas.entrar()) return false;
+        try {
+            // Comprobar saldo y descontar en un único CAS (sin monitor del jugador)
+            if (!jug.reservarApuesta(compilada.getCantidadCentimos())) return false;
+            apuestas.anadir(jug, compilada);
+            return true;
+        } finally {
+            apuestas.salir();
+        }
     }
 
     // --- PREMIOS ---
     
     /**
-     * Calcula y reparte los premios de la ronda.
-     * Utiliza una barrera para sincronizar el envío de resultados.
+     * Liquida la ronda cerrada en un solo reparto: cada jugador recibe un único mensaje,
+     * DESENLACE si apostó (resultado, premio, ganancia neta y saldo) o RESULTADO si no.
+     * Sustituye al broadcast del resultado seguido de repartirPremio (dos repartos por ronda,
+     * el segundo con una CyclicBarrier y una tarea por apostante).
+     * @param ganadora Casilla ganadora.
+     * @param count Latch opcional para notificar cuando todo esté encolado.
      */
-    public void repartirPremio(Casilla ganadora, CountDownLatch count) {
-        Set<Map.Entry<Jugador, List<Apuesta>>> snapshot;
-        
-        // Snapshot seguro para iterar
-        synchronized (this.jugadorApuestas) { 
-            snapshot = new HashSet<>(this.jugadorApuestas.entrySet());
+    public void liquidarRonda(Casilla ganadora, CountDownLatch count) {
+        // Ronda congelada por NoVaMas: se recorre sin snapshot ni copias
+        ApuestasRonda ronda = this.rondaCerrada;
+        Map<Jugador, List<ApuestaCompilada>> apuestas = ronda.getApuestas();
+
+        if (!apuestas.isEmpty()) {
+            // Totales de la ronda sin recorrer las apuestas
+            LibroRiesgo riesgo = ronda.getLibroRiesgo();
+            System.out.println("Ronda " + ronda.getRonda() + " (sale el " + ganadora.getNumero() + "): apostado " + riesgo.getTotalApostado()
+                + "€, premios " + riesgo.getDeuda(ganadora.getNumero())
+                + "€ (exposición máxima " + riesgo.getExposicionMaxima() + "€)");
         }
 
-        if (snapshot.isEmpty()) {
-            if (count != null) count.countDown();
-            return;
-        }
-
-        // Barrera: Espera a (Jugadores con apuestas + 1 hilo principal)
-        final CyclicBarrier starter = new CyclicBarrier(snapshot.size() + 1);
-
-        for (Map.Entry<Jugador, List<Apuesta>> entry : snapshot) {
-            List<Apuesta> copiaApuestas;
-            synchronized (entry.getValue()) {
-                copiaApuestas = new ArrayList<>(entry.getValue());
+        // Conectados que no apostaron + todos los que apostaron (sigan conectados o no: se les paga igual)
+        List<Jugador> destinos;
+        synchronized (this.jugadoresConexion) {
+            destinos = new ArrayList<>(this.jugadoresConexion.size() + apuestas.size());
+            for (Jugador j : this.jugadoresConexion) {
+                if (!apuestas.containsKey(j)) destinos.add(j);
             }
-            this.poolServer.execute(new mandarPremios(entry.getKey(), copiaApuestas, ganadora, starter));
         }
+        destinos.addAll(apuestas.keySet());
 
-        try {
-            // Esperamos a que todos calculen sus premios
-            starter.await(); 
-        } catch (InterruptedException | BrokenBarrierException e) {
-            e.printStackTrace();
-        } finally {
-            if (count != null) count.countDown();
-        }
+        MensajeRed resultado = MensajeRed.resultado(ganadora.getNumero());
+        repartirEnSublistas(destinos, (sublista, fin) -> new liquidarRonda(sublista, apuestas, resultado, fin), count);
     }
 
     // --- DESCONEXIÓN ---
 
     /**
-     * Cierra la sesión de un jugador y guarda estado en BD.
+     * Cierra la sesión de un jugador y pide el guardado de lo pendiente
+     * (sin copiar la lista ni reescribir el XML: una desconexión masiva sale en un solo lote).
      */
     public void desconectarJugador(Jugador jug) {
         if (jug == null) return;
@@ -366,17 +350,17 @@ public class ServicioRuleta {
         synchronized (jug) {
             jug.setSesionIniciada(false);
             
-            try {
-                if (jug.getOutputStream() != null) jug.getOutputStream().close();
-            } catch (IOException e) { /* Ignorar */ }
+            // Descarta lo pendiente y cierra el socket
+            if (jug.getSalida() != null) jug.getSalida().cerrar();
             
-            jug.setOutputStream(null);
+            jug.setSalida(null);
         }
 
         jugadoresConexion.remove(jug);
         
-        if (BBDD != null) {
-            this.poolServer.execute(new ActualizarBD(new ArrayList<>(this.jugadoresSesion), this.BBDD));
+        PersistenciaJugadores persistencia = this.registro.getPersistencia();
+        if (persistencia != null) {
+            persistencia.solicitarGuardado();
         }
     }
 }
\ No newline at end of file
@@ -1,6 +1,5 @@
 package modeloDominio;
 
-import java.io.Serializable;
 import java.util.Objects;
 
 
@@ -9,12 +8,9 @@ import java.util.Objects;
  * -------------
  * Clase inmutable que representa una transacción de juego en la ruleta.
  * Encapsula quién apuesta, qué tipo de apuesta realiza y cuánto dinero arriesga.
- * * Implementa Serializable para poder ser transmitida por red (Cliente -> Servidor).
+ * * Por red viaja como MensajeRed.APUESTA (tipo, valor y céntimos): el servidor la rehace con su Jugador.
  */
-public class Apuesta implements Serializable {
-
-    // Identificador de versión para la serialización (Buena práctica para evitar errores de versión)
-    private static final long serialVersionUID = 1L;
+public class Apuesta {
 
     // --- ATRIBUTOS ---
     // Son final para garantizar la inmutabilidad del objeto una vez creado
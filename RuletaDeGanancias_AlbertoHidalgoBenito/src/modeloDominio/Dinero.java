@@ -0,0 +1,19 @@
+package modeloDominio;
+
+/**
+ * Clase Dinero
+ * ------------
+ * Conversión entre euros (double: pantalla, red y XML) y céntimos (long).
+ * Saldos, premios y riesgos se calculan en céntimos enteros para no acumular
+ * errores de redondeo del double ronda tras ronda.
+ */
+public final class Dinero {
+
+    private Dinero() {} // Clase de utilidades
+
+    /** @return Importe en céntimos, redondeado al céntimo más cercano. */
+    public static long aCentimos(double euros) { return Math.round(euros * 100); }
+
+    /** @return Importe en euros. */
+    public static double aEuros(long centimos) { return centimos / 100.0; }
+}
@@ -1,44 +1,52 @@
 package modeloDominio;
 
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import javax.xml.bind.annotation.*;
 
+import logicaRuleta.concurrencia.ColaSalida;
+
 /**
  * Clase Jugador
  * -------------
  * Entidad principal que representa al usuario en el sistema.
- * Es híbrida: sirve como DTO para la red (Serializable) y como entidad de persistencia (JAXB/XML).
+ * Es híbrida: modelo en memoria y entidad de persistencia (JAXB/XML). Por red solo viajan
+ * su ID y su saldo (MensajeRed.SESION / REGISTRO).
  *
  * PRECONDICIONES:
  * - El ID no debe ser nulo.
  * - El saldo no debe ser negativo.
+ * * CONCURRENCIA:
+ * - El saldo se guarda en céntimos en un AtomicLong: sumar es atómico y apostar es un
+ *   compare-and-set que solo descuenta si hay saldo (reservarApuesta). Sin monitores.
+ * - En XML y por red se sigue viendo en euros (getSaldo/setSaldo convierten).
+ * - Cada cambio de saldo deja al jugador pendiente de guardar; solo el primero desde el
+ *   último guardado avisa a la PersistenciaJugadores.
  */
 @XmlRootElement(name = "jugador")
-public class Jugador implements Serializable {
-
-    private static final long serialVersionUID = 1L;
+public class Jugador {
 
     // --- ATRIBUTOS PERSISTENTES ---
     private String id;
-    private double saldo;
+    private final AtomicLong saldoCentimos = new AtomicLong();
 
     // --- ATRIBUTOS TRANSITORIOS (No se guardan en XML ni viajan por red) ---
-    // 'transient' de Java evita serialización binaria (Red).
     // '@XmlTransient' en los getters evita serialización XML (Disco).
-    private transient ObjectOutputStream conexionOut;
-    private transient boolean isSesionIniciada;
+    private ColaSalida salida;
+    private boolean isSesionIniciada;
+    private final AtomicBoolean pendiente = new AtomicBoolean();
+    private volatile Consumer<Jugador> alCambiarSaldo;
 
     // --- CONSTRUCTORES ---
 
     /**
-     * Constructor vacío requerido por JAXB y Serialización.
+     * Constructor vacío requerido por JAXB.
      */
     public Jugador() {
         this.id = "";
-        this.saldo = 0.0;
-        this.conexionOut = null;
+        this.salida = null;
         this.isSesionIniciada = false;
     }
 
@@ -49,27 +57,80 @@ public class Jugador implements Serializable {
      */
     public Jugador(String id, double saldo) {
         this.id = id;
-        this.saldo = saldo;
-        this.conexionOut = null;
+        this.setSaldo(saldo);
+        this.salida = null;
         this.isSesionIniciada = false;
     }
 
     /**
      * Constructor completo (útil para pruebas o reconexiones).
      */
-    public Jugador(String id, double saldo, ObjectOutputStream cliente) {
+    public Jugador(String id, double saldo, ColaSalida cliente) {
         this(id, saldo);
-        this.conexionOut = cliente;
+        this.salida = cliente;
     }
 
     // --- LÓGICA DE NEGOCIO ---
 
     /**
-     * Modifica el saldo del jugador de forma sincronizada (Thread-Safe).
+     * Modifica el saldo del jugador con una suma atómica (Thread-Safe, sin bloqueos).
      * @param cantidad Cantidad a sumar (positiva) o restar (negativa).
      */
-    public synchronized void sumaRestaSaldo(double cantidad) {
-        this.saldo += cantidad;
+    public void sumaRestaSaldo(double cantidad) {
+        this.saldoCentimos.addAndGet(Dinero.aCentimos(cantidad));
+        this.marcarCambio();
+    }
+
+    /**
+     * Suma céntimos al saldo (premios ya calculados en céntimos).
+     */
+    public void sumarCentimos(long centimos) {
+        this.saldoCentimos.addAndGet(centimos);
+        this.marcarCambio();
+    }
+
+    /**
+     * Descuenta una apuesta solo si hay saldo suficiente (comprobar y descontar en un único CAS).
+     * @param centimos Importe de la apuesta en céntimos (> 0).
+     * @return true si se ha descontado, false si no llega el saldo (no se modifica nada).
+     */
+    public boolean reservarApuesta(long centimos) {
+        long actual;
+        do {
+            actual = this.saldoCentimos.get();
+            if (actual < centimos) return false;
+        } while (!this.saldoCentimos.compareAndSet(actual, actual - centimos));
+        this.marcarCambio();
+        return true;
+    }
+
+    // --- CAMBIOS PENDIENTES DE GUARDAR ---
+
+    /**
+     * Deja al jugador pendiente de guardar y, si no lo estaba, avisa al observador.
+     * setSaldo no marca: lo usan la carga de la BD (JAXB) y los constructores.
+     */
+    public void marcarCambio() {
+        if (!this.pendiente.get() && this.pendiente.compareAndSet(false, true)) {
+            Consumer<Jugador> obs = this.alCambiarSaldo;
+            if (obs != null) obs.accept(this);
+        }
+    }
+
+    /**
+     * Consume la marca de cambio. Se llama antes de leer el saldo a guardar: un cambio
+     * posterior vuelve a marcar al jugador y va en el lote siguiente.
+     * @return true si tenía cambios sin guardar.
+     */
+    public boolean tomarCambio() {
+        return this.pendiente.getAndSet(false);
+    }
+
+    /**
+     * @param observador Quién recibe el aviso del primer cambio de saldo (null para nadie).
+     */
+    public void observarSaldo(Consumer<Jugador> observador) {
+        this.alCambiarSaldo = observador;
     }
 
     // --- GETTERS Y SETTERS (PERSISTENCIA) ---
@@ -79,14 +140,17 @@ public class Jugador implements Serializable {
     public void setID(String id) { this.id = id; }
 
     @XmlElement(name = "saldo", required = true)
-    public double getSaldo() { return saldo; }
-    public void setSaldo(double saldo) { this.saldo = saldo; }
+    public double getSaldo() { return Dinero.aEuros(this.saldoCentimos.get()); }
+    public void setSaldo(double saldo) { this.saldoCentimos.set(Dinero.aCentimos(saldo)); }
+
+    @XmlTransient
+    public long getSaldoCentimos() { return this.saldoCentimos.get(); }
 
     // --- GETTERS Y SETTERS (TRANSITORIOS / CONEXIÓN) ---
 
     @XmlTransient
-    public ObjectOutputStream getOutputStream() { return conexionOut; }
-    public void setOutputStream(ObjectOutputStream conex) { this.conexionOut = conex; }
+    public ColaSalida getSalida() { return salida; }
+    public void setSalida(ColaSalida salida) { this.salida = salida; }
 
     @XmlTransient
     public boolean isSesionIniciada() { return this.isSesionIniciada; }
@@ -109,6 +173,6 @@ public class Jugador implements Serializable {
 
     @Override
     public String toString() {
-        return "Jugador [ID=" + id + ", Saldo=" + saldo + "]";
+        return "Jugador [ID=" + id + ", Saldo=" + this.getSaldo() + "]";
     }
 }
\ No newline at end of file
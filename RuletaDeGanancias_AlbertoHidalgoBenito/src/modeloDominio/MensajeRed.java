@@ -0,0 +1,274 @@
+package modeloDominio;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Clase MensajeRed
+ * ----------------
+ * Mensaje del protocolo Cliente <-> Servidor y su codificación a mano sobre DataOutput/DataInput.
+ * Sustituye a ObjectOutputStream/ObjectInputStream: sin descriptores de clase, sin tabla de
+ * handles que limpiar con reset() y sin reflexión. Un mensaje es un byte de tipo seguido de
+ * sus campos, así que se delimita solo (no hace falta cabecera de longitud).
+ *
+ * FORMATO (big-endian, textos con writeUTF, dinero siempre en céntimos):
+ *  Cliente -> Servidor
+ *  - LOGIN       id
+ *  - REGISTRO    id, saldo inicial (8 B)
+ *  - APUESTA     tipo (1 B, ordinal de TipoApuesta), valor, cantidad (8 B)
+ *  - INGRESO     cantidad (8 B)
+ *  - SALIR       -
+ *  Servidor -> Cliente
+ *  - SESION      id, saldo (8 B)        Login/registro aceptado
+ *  - RECHAZO     motivo                 Login/registro rechazado
+ *  - ESTADO_MESA cerrada (1 B)          Fin del handshake
+ *  - TEXTO       texto                  Mensajes para mostrar
+ *  - SALDO       variación (8 B)        Actualización del saldo local del cliente
+ *  - NO_VA_MAS   -                      La mesa cierra
+ *  - ABRIR_MESA  -                      La mesa abre (hagan juego)
+ *  - RESULTADO   número ganador (1 B)   Color y docena salen de Casilla (a quien no apostó)
+ *  - DESENLACE   número ganador (1 B), premio (8 B), ganancia neta (8 B), saldo (8 B)
+ *                Resultado y premio de quien apostó en un solo mensaje. El cliente suma el
+ *                premio a su saldo local (como SALDO); neta y saldo son para mostrarlos.
+ *
+ * CONCURRENCIA:
+ *  - Inmutable: un mismo mensaje se puede encolar para varios clientes.
+ */
+public final class MensajeRed {
+
+    // --- TIPOS CLIENTE -> SERVIDOR ---
+    public static final byte LOGIN = 1;
+    public static final byte REGISTRO = 2;
+    public static final byte APUESTA = 3;
+    public static final byte INGRESO = 4;
+    public static final byte SALIR = 5;
+
+    // --- TIPOS SERVIDOR -> CLIENTE ---
+    public static final byte SESION = 20;
+    public static final byte RECHAZO = 21;
+    public static final byte ESTADO_MESA = 22;
+    public static final byte TEXTO = 23;
+    public static final byte SALDO = 24;
+    public static final byte NO_VA_MAS = 25;
+    public static final byte ABRIR_MESA = 26;
+    public static final byte RESULTADO = 27;
+    public static final byte DESENLACE = 28;
+
+    private static final TipoApuesta[] TIPOS = TipoApuesta.values();
+
+    // Los mensajes sin campos son siempre el mismo objeto
+    private static final MensajeRed MSG_SALIR = new MensajeRed(SALIR, null, null, 0);
+    private static final MensajeRed MSG_NO_VA_MAS = new MensajeRed(NO_VA_MAS, null, null, 0);
+    private static final MensajeRed MSG_ABRIR_MESA = new MensajeRed(ABRIR_MESA, null, null, 0);
+
+    // --- ATRIBUTOS ---
+    private final byte tipo;
+    private final String texto;           // id, valor de la apuesta, motivo o texto
+    private final TipoApuesta tipoApuesta; // Solo APUESTA
+    private final long numero;            // Céntimos, número ganador o estado de la mesa
+    private final long premio;            // Solo DESENLACE (céntimos)
+    private final long neta;
+    private final long saldo;
+
+    private MensajeRed(byte tipo, String texto, TipoApuesta tipoApuesta, long numero) {
+        this(tipo, texto, tipoApuesta, numero, 0, 0, 0);
+    }
+
+    private MensajeRed(byte tipo, String texto, TipoApuesta tipoApuesta, long numero, long premio, long neta, long saldo) {
+        this.tipo = tipo;
+        this.texto = texto;
+        this.tipoApuesta = tipoApuesta;
+        this.numero = numero;
+        this.premio = premio;
+        this.neta = neta;
+        this.saldo = saldo;
+    }
+
+    // --- MENSAJES DEL CLIENTE ---
+
+    public static MensajeRed login(String id) {
+        return new MensajeRed(LOGIN, id, null, 0);
+    }
+
+    public static MensajeRed registro(String id, long saldoCentimos) {
+        return new MensajeRed(REGISTRO, id, null, saldoCentimos);
+    }
+
+    public static MensajeRed apuesta(TipoApuesta tipo, String valor, long cantidadCentimos) {
+        return new MensajeRed(APUESTA, valor, tipo, cantidadCentimos);
+    }
+
+    public static MensajeRed apuesta(Apuesta apuesta) {
+        return apuesta(apuesta.getTipo(), apuesta.getValor(), Dinero.aCentimos(apuesta.getCantidad()));
+    }
+
+    public static MensajeRed ingreso(long centimos) {
+        return new MensajeRed(INGRESO, null, null, centimos);
+    }
+
+    public static MensajeRed salir() {
+        return MSG_SALIR;
+    }
+
+    // --- MENSAJES DEL SERVIDOR ---
+
+    public static MensajeRed sesion(Jugador jugador) {
+        return new MensajeRed(SESION, jugador.getID(), null, jugador.getSaldoCentimos());
+    }
+
+    public static MensajeRed rechazo(String motivo) {
+        return new MensajeRed(RECHAZO, motivo, null, 0);
+    }
+
+    public static MensajeRed estadoMesa(boolean cerrada) {
+        return new MensajeRed(ESTADO_MESA, null, null, cerrada ? 1 : 0);
+    }
+
+    public static MensajeRed texto(String texto) {
+        return new MensajeRed(TEXTO, texto, null, 0);
+    }
+
+    public static MensajeRed saldo(long variacionCentimos) {
+        return new MensajeRed(SALDO, null, null, variacionCentimos);
+    }
+
+    public static MensajeRed noVaMas() {
+        return MSG_NO_VA_MAS;
+    }
+
+    public static MensajeRed abrirMesa() {
+        return MSG_ABRIR_MESA;
+    }
+
+    public static MensajeRed resultado(int numero) {
+        return new MensajeRed(RESULTADO, null, null, numero);
+    }
+
+    public static MensajeRed desenlace(int numero, long premioCentimos, long netaCentimos, long saldoCentimos) {
+        return new MensajeRed(DESENLACE, null, null, numero, premioCentimos, netaCentimos, saldoCentimos);
+    }
+
+    // --- GETTERS ---
+
+    public byte getTipo() { return tipo; }
+
+    /** @return id (LOGIN, REGISTRO, SESION), valor (APUESTA), motivo (RECHAZO) o texto (TEXTO). */
+    public String getTexto() { return texto; }
+
+    /** @return Tipo de la apuesta (solo APUESTA). */
+    public TipoApuesta getTipoApuesta() { return tipoApuesta; }
+
+    /** @return Céntimos (REGISTRO, APUESTA, INGRESO, SESION, SALDO) o número ganador (RESULTADO). */
+    public long getCentimos() { return numero; }
+
+    /** @return Número ganador (RESULTADO, DESENLACE). */
+    public int getNumero() { return (int) numero; }
+
+    /** @return Premio de la ronda, lo que hay que sumar al saldo (DESENLACE). */
+    public long getPremio() { return premio; }
+
+    /** @return Premio menos lo apostado en la ronda (DESENLACE). */
+    public long getNeta() { return neta; }
+
+    /** @return Saldo tras cobrar el premio (DESENLACE). */
+    public long getSaldo() { return saldo; }
+
+    /** @return true si la mesa está cerrada (ESTADO_MESA). */
+    public boolean isMesaCerrada() { return numero != 0; }
+
+    // --- CODIFICACIÓN ---
+
+    /**
+     * Escribe el mensaje. No hace flush.
+     * @param out Destino (normalmente un DataOutputStream sobre un BufferedOutputStream del socket).
+     * @throws IOException Si falla la escritura.
+     */
+    public void escribir(DataOutput out) throws IOException {
+        out.writeByte(this.tipo);
+        switch (this.tipo) {
+            case LOGIN:
+            case RECHAZO:
+            case TEXTO:
+                out.writeUTF(this.texto);
+                break;
+            case REGISTRO:
+            case SESION:
+                out.writeUTF(this.texto);
+                out.writeLong(this.numero);
+                break;
+            case APUESTA:
+                out.writeByte(this.tipoApuesta.ordinal());
+                out.writeUTF(this.texto);
+                out.writeLong(this.numero);
+                break;
+            case INGRESO:
+            case SALDO:
+                out.writeLong(this.numero);
+                break;
+            case ESTADO_MESA:
+            case RESULTADO:
+                out.writeByte((int) this.numero);
+                break;
+            case DESENLACE:
+                out.writeByte((int) this.numero);
+                out.writeLong(this.premio);
+                out.writeLong(this.neta);
+                out.writeLong(this.saldo);
+                break;
+            default:
+                // SALIR, NO_VA_MAS, ABRIR_MESA: solo el tipo
+                break;
+        }
+    }
+
+    /**
+     * Lee el siguiente mensaje (bloquea hasta tenerlo completo).
+     * @param in Origen.
+     * @return Mensaje leído.
+     * @throws java.io.EOFException Si el otro extremo cerró la conexión.
+     * @throws IOException Si falla la lectura o el mensaje no es válido.
+     */
+    public static MensajeRed leer(DataInput in) throws IOException {
+        byte tipo = in.readByte();
+        switch (tipo) {
+            case LOGIN:
+                return login(in.readUTF());
+            case RECHAZO:
+                return rechazo(in.readUTF());
+            case TEXTO:
+                return texto(in.readUTF());
+            case REGISTRO:
+            case SESION:
+                return new MensajeRed(tipo, in.readUTF(), null, in.readLong());
+            case APUESTA:
+                int ordinal = in.readUnsignedByte();
+                if (ordinal >= TIPOS.length) throw new IOException("Tipo de apuesta desconocido: " + ordinal);
+                return apuesta(TIPOS[ordinal], in.readUTF(), in.readLong());
+            case INGRESO:
+                return ingreso(in.readLong());
+            case SALDO:
+                return saldo(in.readLong());
+            case ESTADO_MESA:
+                return estadoMesa(in.readUnsignedByte() != 0);
+            case RESULTADO:
+                return resultado(in.readUnsignedByte());
+            case DESENLACE:
+                return desenlace(in.readUnsignedByte(), in.readLong(), in.readLong(), in.readLong());
+            case SALIR:
+                return MSG_SALIR;
+            case NO_VA_MAS:
+                return MSG_NO_VA_MAS;
+            case ABRIR_MESA:
+                return MSG_ABRIR_MESA;
+            default:
+                throw new IOException("Mensaje desconocido: " + tipo);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MensajeRed [tipo=" + tipo + ", texto=" + texto + ", tipoApuesta=" + tipoApuesta + ", numero=" + numero
+            + (tipo == DESENLACE ? ", premio=" + premio + ", neta=" + neta + ", saldo=" + saldo : "") + "]";
+    }
+}
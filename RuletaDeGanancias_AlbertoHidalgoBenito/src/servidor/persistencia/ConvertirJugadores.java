@@ -0,0 +1,81 @@
+package servidor.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import modeloDominio.Jugador;
+
+/**
+ * Clase ConvertirJugadores
+ * ------------------------
+ * Pasa la base de datos de jugadores de un formato a otro (XML ↔ binario).
+ * El formato de cada fichero se deduce de su extensión (AlmacenJugadores.segunExtension).
+ *
+ * PRECONDICIONES:
+ *  - El servidor no debe estar usando ninguno de los dos ficheros.
+ *
+ * POSTCONDICIONES:
+ *  - El destino tiene los mismos jugadores, en el mismo orden, con el diario del origen
+ *    ya aplicado. El origen y su diario no se tocan.
+ *  - Si el origen no se puede leer entero (corrupto, truncado o de otro formato), el destino
+ *    no se escribe y el programa sale con código 1.
+ */
+public class ConvertirJugadores {
+
+    // Constructor privado para evitar instanciación
+    private ConvertirJugadores() {}
+
+    /**
+     * Copia todos los jugadores de un almacén a otro.
+     *
+     * PRE: origen y destino son ficheros distintos.
+     *
+     * @param origen  Almacén del que se leen (más su diario, si lo tiene).
+     * @param destino Almacén que se reemplaza.
+     * @return Número de jugadores copiados.
+     * @throws IOException Si no se puede leer el origen entero (el destino no se toca) o escribir el destino.
+     */
+    public static int convertir(AlmacenJugadores origen, AlmacenJugadores destino) throws IOException {
+        if (origen.getFichero().getAbsoluteFile().equals(destino.getFichero().getAbsoluteFile())) {
+            throw new IOException("El origen y el destino son el mismo fichero: " + origen.getFichero());
+        }
+        // Carga estricta: con la versión tolerante, un origen ilegible daría un destino vacío
+        List<Jugador> jugadores = new ArrayList<>();
+        PersistenciaJugadores.cargar(origen, j -> {
+            synchronized (jugadores) {
+                jugadores.add(j);
+            }
+        });
+        destino.guardar(jugadores);
+        return jugadores.size();
+    }
+
+    // --- LÍNEA DE COMANDOS ---
+
+    /**
+     * Uso: ConvertirJugadores origen destino   (p. ej. jugadores.xml jugadores.bin)
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Uso: ConvertirJugadores origen destino   (.bin = binario, otra extensión = XML)");
+            System.exit(2);
+        }
+        AlmacenJugadores origen = AlmacenJugadores.segunExtension(new File(args[0]));
+        AlmacenJugadores destino = AlmacenJugadores.segunExtension(new File(args[1]));
+
+        long inicio = System.nanoTime();
+        int n;
+        try {
+            n = convertir(origen, destino);
+        } catch (IOException e) {
+            System.err.println("⚠️ No se ha convertido " + origen + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+        System.out.println("✅ " + n + " jugadores: " + origen + " → " + destino + " (" + ms + " ms, "
+            + destino.getFichero().length() + " bytes)");
+    }
+}
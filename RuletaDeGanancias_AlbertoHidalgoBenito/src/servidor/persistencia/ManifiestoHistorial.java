@@ -0,0 +1,216 @@
+package servidor.persistencia;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Clase ManifiestoHistorial
+ * -------------------------
+ * Índice de los segmentos cerrados del historial: qué rondas y qué fechas hay en cada fichero.
+ * Permite encontrar una ronda o un periodo sin abrir los segmentos, y archivar o borrar
+ * segmentos viejos sabiendo lo que contienen.
+ *
+ * FORMATO (texto, una línea por segmento, en orden):
+ *  segmento;primeraRonda;ultimaRonda;desde;hasta
+ *  - segmento: nombre del fichero (acaba en .gz cuando ya está comprimido).
+ *  - primeraRonda/ultimaRonda: número de orden de las rondas en el historial (empieza en 1).
+ *  - desde/hasta: fecha (ms desde 1970) de la primera y la última ronda, 0 si no se conoce.
+ *  Las líneas que empiezan por # son comentarios.
+ *
+ * PRECONDICIONES:
+ *  - Solo lo modifica el XMLServidor dueño del historial.
+ *
+ * POSTCONDICIONES:
+ *  - guardar() reemplaza el fichero de forma atómica (temporal + rename): tras una caída
+ *    queda la versión anterior o la nueva, nunca una a medias.
+ *
+ * CONCURRENCIA:
+ *  - Thread-safe: el hilo de la ronda (rotación) y el de compresión lo comparten.
+ */
+public class ManifiestoHistorial {
+
+    /**
+     * Un segmento cerrado del historial.
+     */
+    public static final class Segmento {
+        private final String fichero;
+        private final long primeraRonda;
+        private final long ultimaRonda;
+        private final long desde;
+        private final long hasta;
+
+        public Segmento(String fichero, long primeraRonda, long ultimaRonda, long desde, long hasta) {
+            this.fichero = fichero;
+            this.primeraRonda = primeraRonda;
+            this.ultimaRonda = ultimaRonda;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        public String getFichero() { return this.fichero; }
+        public long getPrimeraRonda() { return this.primeraRonda; }
+        public long getUltimaRonda() { return this.ultimaRonda; }
+        public long getDesde() { return this.desde; }
+        public long getHasta() { return this.hasta; }
+        public boolean isComprimido() { return this.fichero.endsWith(".gz"); }
+
+        /**
+         * @return El mismo segmento con otro nombre de fichero (al comprimirlo).
+         */
+        Segmento renombrado(String nuevo) {
+            return new Segmento(nuevo, this.primeraRonda, this.ultimaRonda, this.desde, this.hasta);
+        }
+
+        String aLinea() {
+            return this.fichero + ";" + this.primeraRonda + ";" + this.ultimaRonda + ";" + this.desde + ";" + this.hasta;
+        }
+
+        @Override
+        public String toString() {
+            return this.fichero + " (rondas " + this.primeraRonda + "-" + this.ultimaRonda + ")";
+        }
+    }
+
+    // --- ATRIBUTOS ---
+    private final File file;
+    private final List<Segmento> segmentos = new ArrayList<>();
+
+    // --- CONSTRUCTOR ---
+    /**
+     * Carga el manifiesto (vacío si el fichero no existe).
+     * Las líneas mal formadas se ignoran con un aviso.
+     *
+     * @param file Fichero del manifiesto.
+     */
+    public ManifiestoHistorial(File file) {
+        this.file = file;
+        if (!file.isFile()) {
+            return;
+        }
+        try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String linea;
+            while ((linea = in.readLine()) != null) {
+                linea = linea.trim();
+                if (linea.isEmpty() || linea.startsWith("#")) {
+                    continue;
+                }
+                String[] c = linea.split(";");
+                try {
+                    this.segmentos.add(new Segmento(c[0], Long.parseLong(c[1]), Long.parseLong(c[2]),
+                        Long.parseLong(c[3]), Long.parseLong(c[4])));
+                } catch (RuntimeException e) {
+                    System.err.println("⚠️ Línea no válida en " + file.getName() + ": " + linea);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Error leyendo manifiesto del historial: " + e.getMessage());
+        }
+    }
+
+    // --- CONSULTAS ---
+
+    /**
+     * @return Copia de los segmentos, en orden.
+     */
+    public synchronized List<Segmento> getSegmentos() {
+        return Collections.unmodifiableList(new ArrayList<>(this.segmentos));
+    }
+
+    /**
+     * @return Última ronda guardada en un segmento cerrado (0 si no hay ninguno).
+     */
+    public synchronized long getUltimaRonda() {
+        return this.segmentos.isEmpty() ? 0 : this.segmentos.get(this.segmentos.size() - 1).getUltimaRonda();
+    }
+
+    /**
+     * @param fichero Nombre del fichero (sin ruta), comprimido o no.
+     * @return true si el segmento ya está en el manifiesto.
+     */
+    public synchronized boolean contiene(String fichero) {
+        return this.buscarIndice(fichero) >= 0;
+    }
+
+    /**
+     * @param ronda Número de orden de la ronda en el historial.
+     * @return Segmento cerrado que la contiene, o null (ronda aún en el segmento vivo o inexistente).
+     */
+    public synchronized Segmento buscarRonda(long ronda) {
+        for (Segmento s : this.segmentos) {
+            if (ronda >= s.getPrimeraRonda() && ronda <= s.getUltimaRonda()) {
+                return s;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Segmentos con alguna ronda entre dos fechas (ms desde 1970, ambas incluidas).
+     * Los segmentos sin fechas conocidas se incluyen siempre.
+     */
+    public synchronized List<Segmento> buscarEntre(long desde, long hasta) {
+        List<Segmento> res = new ArrayList<>();
+        for (Segmento s : this.segmentos) {
+            boolean sinFechas = s.getDesde() == 0 || s.getHasta() == 0;
+            if (sinFechas || (s.getHasta() >= desde && s.getDesde() <= hasta)) {
+                res.add(s);
+            }
+        }
+        return res;
+    }
+
+    // --- MODIFICACIONES ---
+
+    /**
+     * Añade un segmento recién cerrado y guarda el manifiesto.
+     */
+    public synchronized void anadir(Segmento s) throws IOException {
+        this.segmentos.add(s);
+        this.guardar();
+    }
+
+    /**
+     * Cambia el nombre de fichero de un segmento (al comprimirlo) y guarda el manifiesto.
+     */
+    public synchronized void renombrar(String anterior, String nuevo) throws IOException {
+        int i = this.buscarIndice(anterior);
+        if (i >= 0) {
+            this.segmentos.set(i, this.segmentos.get(i).renombrado(nuevo));
+            this.guardar();
+        }
+    }
+
+    private int buscarIndice(String fichero) {
+        String base = fichero.endsWith(".gz") ? fichero.substring(0, fichero.length() - 3) : fichero;
+        for (int i = 0; i < this.segmentos.size(); i++) {
+            String f = this.segmentos.get(i).getFichero();
+            if (f.equals(base) || f.equals(base + ".gz")) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reescribe el manifiesto completo (es pequeño: una línea por segmento).
+     */
+    private void guardar() throws IOException {
+        File tmp = new File(this.file.getPath() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            out.write("# segmento;primeraRonda;ultimaRonda;desde;hasta\n");
+            for (Segmento s : this.segmentos) {
+                out.write(s.aLinea());
+                out.write('\n');
+            }
+        }
+        Files.move(tmp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,542 @@
+package servidor.persistencia;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import modeloDominio.Dinero;
+import modeloDominio.Jugador;
+
+/**
+ * Clase PersistenciaJugadores
+ * ---------------------------
+ * Guarda los saldos de los jugadores escribiendo solo los que han cambiado.
+ * Sustituye a lanzar un ActualizarBD (reescritura completa de jugadores.xml) en cada desconexión.
+ * La foto completa va en un AlmacenJugadores (XML o binario); aquí solo se lleva el diario.
+ *
+ * FUNCIONAMIENTO:
+ *  - Cada cambio de saldo marca al jugador (Jugador.marcarCambio). El primer cambio desde el
+ *    último guardado lo mete en la cola de pendientes y programa un volcado dentro de RETARDO_MS.
+ *  - Un único hilo trabajador vacía la cola y añade al diario (FOTO.diario) una línea
+ *    por jugador cambiado, todas en una sola escritura. Los cambios de una ronda, de una
+ *    desconexión masiva o de un minuto entero de juego salen en el mismo lote.
+ *  - Cuando el diario crece más que COMPACTAR_MIN o que el doble de jugadores, y al cerrar,
+ *    se reescribe la foto del almacén (temporal + rename) y se vacía el diario.
+ *
+ * FORMATO DEL DIARIO (texto UTF-8, una línea por cambio, en orden):
+ *  id TAB saldoCentimos
+ *  - En el id se escapan \ , tabulador, \n y \r con una barra invertida.
+ *  - El saldo es el absoluto, no la diferencia: aplicar una línea dos veces no cambia nada.
+ *  - Una línea sin \n al final (caída a mitad de escritura) se descarta.
+ *
+ * RECUPERACIÓN:
+ *  - cargar() lee primero el diario (pequeño) y después la foto en streaming: cada jugador sale
+ *    ya con su último saldo, así que se puede publicar en el registro según se lee.
+ *  - Mientras la foto no se ha cargado entera y sin errores no se compacta: una foto a medias
+ *    reescrita encima de la buena perdería a los jugadores que faltan.
+ *  - La compactación escribe la foto con los saldos YA guardados en el diario (no con los vivos).
+ *    Si el servidor cae entre el rename de la foto y el vaciado del diario, volver a aplicar el
+ *    diario deja cada jugador con su último valor del diario, que es el mismo de la foto.
+ *
+ * MÉTRICAS:
+ *  - Escrituras evitadas: guardados pedidos (desconexiones y el guardado de cada minuto) que no
+ *    han necesitado escritura propia, porque no había cambios o ya había un lote programado.
+ *    Antes cada uno era una reescritura completa del XML.
+ *  - Registros evitados: jugadores que no se han escrito en un lote porque no habían cambiado.
+ *
+ * CONCURRENCIA:
+ *  - marcar() y solicitarGuardado() son lock-free y se llaman desde cualquier hilo.
+ *  - El diario y la foto solo los toca el hilo trabajador. El mapa de saldos guardados lo
+ *    rellena la carga y después solo lo actualiza el hilo trabajador.
+ */
+public class PersistenciaJugadores {
+
+    /**
+     * Ventana de agrupación: los cambios que llegan durante este tiempo van en el mismo lote.
+     */
+    static final long RETARDO_MS = 1000;
+
+    /**
+     * Líneas mínimas del diario antes de compactar.
+     */
+    static final int COMPACTAR_MIN = 10_000;
+
+    // --- ATRIBUTOS ---
+    private final AlmacenJugadores almacen;
+    private final File diario;
+    private final ScheduledExecutorService trabajador;
+    private final ConcurrentLinkedQueue<Jugador> pendientes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean programado = new AtomicBoolean();
+
+    private final List<Jugador> jugadores;       // Lista del registro: da el orden de la foto
+    private final Map<String, Long> guardados;   // ID → saldo en céntimos tal y como está en disco
+    private volatile boolean fotoCompleta = true;
+
+    // Solo los toca el hilo trabajador
+    private FileChannel canalDiario;
+    private long lineasDiario;
+
+    // Métricas
+    private final LongAdder solicitudes = new LongAdder();
+    private final LongAdder evitadas = new LongAdder();
+    private volatile long lotes;
+    private volatile long registros;
+    private volatile long registrosEvitados;
+    private volatile long compactaciones;
+
+    // --- CONSTRUCTOR ---
+    /**
+     * Empieza a vigilar a los jugadores cargados de la BD.
+     *
+     * PRE:
+     *  - jugadores es la lista cargada con cargar(almacen): sus saldos son los que hay en disco.
+     *    Si se va a cargar después (iniciarCarga), puede estar vacía.
+     *  - almacen != null
+     *
+     * POST:
+     *  - Cualquier cambio de saldo de esos jugadores acaba en el diario en menos de RETARDO_MS.
+     *
+     * @param jugadores Jugadores registrados (lista sincronizada del registro).
+     * @param almacen   Foto de los jugadores (XML o binaria).
+     */
+    public PersistenciaJugadores(List<Jugador> jugadores, AlmacenJugadores almacen) {
+        this.almacen = almacen;
+        this.diario = ficheroDiario(almacen.getFichero());
+        this.trabajador = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "persistencia-jugadores"));
+        this.jugadores = jugadores;
+        this.guardados = new ConcurrentHashMap<>(Math.max(16, jugadores.size() * 2));
+
+        synchronized (jugadores) {
+            for (Jugador j : jugadores) {
+                this.cargado(j);
+            }
+        }
+        this.lineasDiario = contarLineas(this.diario);
+    }
+
+    // --- CARGA EN SEGUNDO PLANO ---
+
+    /**
+     * Avisa de que la foto se va a cargar después de crear la persistencia: hasta terminarCarga(true)
+     * no se compacta.
+     */
+    public void iniciarCarga() {
+        this.fotoCompleta = false;
+    }
+
+    /**
+     * Empieza a vigilar a un jugador recién leído de la BD (ya con el diario aplicado).
+     *
+     * PRE: Se llama antes de que nadie pueda cambiar su saldo (antes de publicarlo en el registro).
+     *
+     * @param jug Jugador cargado.
+     */
+    public void cargado(Jugador jug) {
+        if (jug.getID() != null) {
+            this.guardados.putIfAbsent(jug.getID(), jug.getSaldoCentimos());
+        }
+        jug.observarSaldo(this::marcar);
+    }
+
+    /**
+     * Fin de la carga en segundo plano.
+     *
+     * @param completa true si la foto se ha leído entera; con false no se compacta nunca
+     *                 (los cambios siguen yendo al diario y la foto buena no se toca).
+     */
+    public void terminarCarga(boolean completa) {
+        this.fotoCompleta = completa;
+    }
+
+    // --- OPERACIONES ---
+
+    /**
+     * Empieza a vigilar a un jugador recién registrado y lo deja pendiente de guardar.
+     *
+     * PRE: jug != null y ya está en el registro.
+     *
+     * @param jug Jugador dado de alta.
+     */
+    public void vigilar(Jugador jug) {
+        jug.observarSaldo(this::marcar);
+        // Forzamos la transición a pendiente para que entre en la cola aunque ya estuviera marcado
+        jug.tomarCambio();
+        jug.marcarCambio();
+    }
+
+    /**
+     * Pide que se guarde lo pendiente (desconexión de un jugador, guardado periódico).
+     * No escribe nada: como mucho programa el volcado si aún no lo estaba.
+     */
+    public void solicitarGuardado() {
+        this.solicitudes.increment();
+        if (this.pendientes.isEmpty() || !this.programar()) {
+            this.evitadas.increment();
+        }
+    }
+
+    /**
+     * @return Almacén de la foto de los jugadores.
+     */
+    public AlmacenJugadores getAlmacen() {
+        return this.almacen;
+    }
+
+    /**
+     * Vuelca lo pendiente, compacta el diario en la foto y para el hilo trabajador.
+     * Se llama al cerrar el servidor, cuando ya no se juega.
+     */
+    public void cerrar() {
+        try {
+            this.trabajador.submit(() -> {
+                this.volcar();
+                this.compactar();
+                this.cerrarDiario();
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RejectedExecutionException e) {
+            System.err.println("⚠️ Error en el guardado final de jugadores: " + e.getMessage());
+        }
+        this.trabajador.shutdown();
+        System.out.println(this.resumen());
+    }
+
+    // --- MÉTRICAS ---
+
+    public long getSolicitudes() { return this.solicitudes.sum(); }
+
+    public long getEscriturasEvitadas() { return this.evitadas.sum(); }
+
+    public long getLotes() { return this.lotes; }
+
+    public long getRegistrosEscritos() { return this.registros; }
+
+    public long getRegistrosEvitados() { return this.registrosEvitados; }
+
+    public long getCompactaciones() { return this.compactaciones; }
+
+    /**
+     * @return Una línea con las métricas, para la consola.
+     */
+    public String resumen() {
+        return "Persistencia jugadores: " + this.getSolicitudes() + " guardados pedidos, "
+            + this.getEscriturasEvitadas() + " escrituras evitadas, " + this.getLotes() + " lotes, "
+            + this.getRegistrosEscritos() + " registros escritos, " + this.getRegistrosEvitados()
+            + " registros evitados, " + this.getCompactaciones() + " compactaciones";
+    }
+
+    // --- CARGA ---
+
+    /**
+     * Carga los jugadores en una lista: la foto del almacén y el diario de cambios.
+     * Si la foto no se puede leer se informa por consola y se carga solo el diario.
+     *
+     * POST:
+     *  - Cada jugador tiene su último saldo guardado.
+     *  - Los jugadores que solo están en el diario (registrados después de la última
+     *    compactación) se añaden al final, en orden de alta.
+     *
+     * @param almacen Foto de los jugadores (XML o binaria).
+     * @return Lista de jugadores (vacía si no hay nada guardado).
+     */
+    public static List<Jugador> cargar(AlmacenJugadores almacen) {
+        List<Jugador> lista = new ArrayList<>();
+        Consumer<Jugador> destino = j -> {
+            synchronized (lista) {
+                lista.add(j);
+            }
+        };
+        try {
+            cargar(almacen, destino);
+        } catch (IOException e) {
+            System.err.println("⚠️ Error cargando jugadores de " + almacen + ": " + e.getMessage());
+            lista.clear();
+            cargarDiario(almacen, destino);
+        }
+        return lista;
+    }
+
+    /**
+     * Carga los jugadores en streaming: la foto del almacén con el diario de cambios ya aplicado.
+     *
+     * POST:
+     *  - Cada jugador llega a destino una vez y con su último saldo guardado.
+     *  - Los que solo están en el diario (registrados después de la última compactación)
+     *    llegan al final, en orden de alta.
+     *
+     * @param almacen Foto de los jugadores (XML o binaria).
+     * @param destino Receptor (desde varios hilos a la vez si el almacén lee en paralelo).
+     * @return Número de jugadores entregados.
+     * @throws IOException Si la foto no se puede leer (puede haber entregado ya una parte).
+     */
+    public static int cargar(AlmacenJugadores almacen, Consumer<Jugador> destino) throws IOException {
+        Map<String, Long> diario = leerDiario(ficheroDiario(almacen.getFichero()));
+        Set<String> vistos = ConcurrentHashMap.newKeySet();
+        LongAdder n = new LongAdder();
+
+        almacen.recorrer(j -> {
+            Long centimos = (j.getID() != null) ? diario.get(j.getID()) : null;
+            if (centimos != null) {
+                j.setSaldo(Dinero.aEuros(centimos));
+                vistos.add(j.getID());
+            }
+            destino.accept(j);
+            n.increment();
+        });
+        for (Map.Entry<String, Long> e : diario.entrySet()) {
+            if (!vistos.contains(e.getKey())) {
+                destino.accept(new Jugador(e.getKey(), Dinero.aEuros(e.getValue())));
+                n.increment();
+            }
+        }
+        if (!diario.isEmpty()) {
+            System.out.println("Diario de jugadores: " + diario.size() + " jugadores con cambios aplicados.");
+        }
+        return n.intValue();
+    }
+
+    /**
+     * Solo los jugadores del diario (la foto no se ha podido leer).
+     */
+    private static void cargarDiario(AlmacenJugadores almacen, Consumer<Jugador> destino) {
+        for (Map.Entry<String, Long> e : leerDiario(ficheroDiario(almacen.getFichero())).entrySet()) {
+            destino.accept(new Jugador(e.getKey(), Dinero.aEuros(e.getValue())));
+        }
+    }
+
+    /**
+     * Último saldo de cada jugador del diario, en orden de primera aparición.
+     */
+    private static Map<String, Long> leerDiario(File diario) {
+        Map<String, Long> saldos = new LinkedHashMap<>();
+        if (!diario.isFile()) {
+            return saldos;
+        }
+        try (BufferedReader in = Files.newBufferedReader(diario.toPath(), StandardCharsets.UTF_8)) {
+            for (String linea : lineasCompletas(in)) {
+                int tab = linea.lastIndexOf('\t');
+                if (tab <= 0) {
+                    continue;
+                }
+                try {
+                    saldos.put(desescapar(linea.substring(0, tab)), Long.parseLong(linea.substring(tab + 1)));
+                } catch (NumberFormatException e) {
+                    // Línea dañada: se ignora
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Error leyendo el diario de jugadores: " + e.getMessage());
+        }
+        return saldos;
+    }
+
+    // --- HILO TRABAJADOR ---
+
+    private void marcar(Jugador jug) {
+        this.pendientes.add(jug);
+        this.programar();
+    }
+
+    /**
+     * Programa un volcado si no hay ya uno en camino.
+     *
+     * @return true si lo ha programado esta llamada.
+     */
+    private boolean programar() {
+        if (!this.programado.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            this.trabajador.schedule(this::volcarYCompactar, RETARDO_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Cerrando: cerrar() hace el último volcado
+            this.programado.set(false);
+        }
+        return true;
+    }
+
+    private void volcarYCompactar() {
+        this.volcar();
+        if (this.lineasDiario > Math.max(COMPACTAR_MIN, 2L * this.guardados.size())) {
+            this.compactar();
+        }
+    }
+
+    /**
+     * Añade al diario, en una sola escritura, los jugadores pendientes cuyo saldo ha cambiado.
+     */
+    private void volcar() {
+        // Antes de vaciar la cola: una marca que llegue ahora programa el lote siguiente
+        this.programado.set(false);
+
+        StringBuilder sb = new StringBuilder();
+        int escritos = 0;
+        Jugador jug;
+        while ((jug = this.pendientes.poll()) != null) {
+            // Primero se consume la marca y después se lee el saldo (ver Jugador.tomarCambio)
+            if (!jug.tomarCambio() || jug.getID() == null) {
+                continue;
+            }
+            long saldo = jug.getSaldoCentimos();
+            Long anterior = this.guardados.put(jug.getID(), saldo);
+            if (anterior != null && anterior == saldo) {
+                continue; // Apostó y recuperó lo mismo: en disco ya está bien
+            }
+            escapar(jug.getID(), sb).append('\t').append(saldo).append('\n');
+            escritos++;
+        }
+        if (escritos == 0) {
+            return;
+        }
+
+        try {
+            if (this.canalDiario == null) {
+                this.canalDiario = FileChannel.open(this.diario.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            ByteBuffer b = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            while (b.hasRemaining()) {
+                this.canalDiario.write(b);
+            }
+            this.canalDiario.force(false);
+        } catch (IOException e) {
+            System.err.println("⚠️ Error escribiendo el diario de jugadores: " + e.getMessage());
+            return;
+        }
+        this.lineasDiario += escritos;
+        this.lotes++;
+        this.registros += escritos;
+        this.registrosEvitados += this.guardados.size() - escritos;
+    }
+
+    /**
+     * Reescribe la foto con los saldos guardados, en el orden del registro, y vacía el diario.
+     * Un jugador registrado que aún no ha salido en ningún lote no entra: irá en el diario nuevo.
+     */
+    private void compactar() {
+        if (!this.fotoCompleta || (this.lineasDiario == 0 && this.almacen.getFichero().isFile())) {
+            return;
+        }
+        List<Jugador> lista = new ArrayList<>(this.guardados.size());
+        Set<String> vistos = new HashSet<>();
+        synchronized (this.jugadores) {
+            for (Jugador j : this.jugadores) {
+                Long centimos = (j.getID() != null) ? this.guardados.get(j.getID()) : null;
+                if (centimos != null && vistos.add(j.getID())) {
+                    lista.add(new Jugador(j.getID(), Dinero.aEuros(centimos)));
+                }
+            }
+        }
+        try {
+            this.almacen.guardar(lista);
+            this.cerrarDiario();
+            Files.deleteIfExists(this.diario.toPath());
+            this.lineasDiario = 0;
+            this.compactaciones++;
+            System.out.println("✅ Base de datos de jugadores compactada en: " + this.almacen.getFichero().getAbsolutePath());
+        } catch (IOException e) {
+            // El diario se conserva: no se pierde nada, se reintenta en la próxima compactación
+            System.err.println("⚠️ Error compactando base de datos de jugadores: " + e.getMessage());
+        }
+    }
+
+    private void cerrarDiario() {
+        if (this.canalDiario == null) {
+            return;
+        }
+        try {
+            this.canalDiario.close();
+        } catch (IOException e) {
+            System.err.println("⚠️ Error cerrando el diario de jugadores: " + e.getMessage());
+        }
+        this.canalDiario = null;
+    }
+
+    // --- AUXILIARES ---
+
+    static File ficheroDiario(File foto) {
+        return new File(foto.getPath() + ".diario");
+    }
+
+    /**
+     * Líneas terminadas en \n (la última, si está a medias, se descarta).
+     */
+    private static List<String> lineasCompletas(BufferedReader in) throws IOException {
+        List<String> lineas = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0) {
+            if (c == '\n') {
+                lineas.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append((char) c);
+            }
+        }
+        return lineas;
+    }
+
+    private static long contarLineas(File f) {
+        if (!f.isFile()) {
+            return 0;
+        }
+        try (BufferedReader in = Files.newBufferedReader(f.toPath(), StandardCharsets.UTF_8)) {
+            return lineasCompletas(in).size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static StringBuilder escapar(String id, StringBuilder sb) {
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            switch (c) {
+                case '\\': sb.append("\\\\"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                default:   sb.append(c);
+            }
+        }
+        return sb;
+    }
+
+    private static String desescapar(String s) {
+        if (s.indexOf('\\') < 0) {
+            return s;
+        }
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char e = s.charAt(++i);
+                sb.append(e == 't' ? '\t' : e == 'n' ? '\n' : e == 'r' ? '\r' : e);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -3,6 +3,9 @@ package servidor.red;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import logicaRuleta.core.ServicioRuleta;
@@ -12,108 +15,193 @@ import servidor.persistencia.XMLServidor;
 /**
  * Clase GiraPelotita
  * ------------------
- * Hilo director (Orquestador) de una ronda de juego.
+ * Hilo director (Orquestador) de las rondas de juego.
  * Controla la secuencia de tiempos: Cierre de mesa -> Giro -> Resultado -> Premios -> Apertura.
  * * PRECONDICIONES:
  * - El servicio de ruleta y el pool de hilos deben estar inicializados.
+ * * LÍNEA DE TIEMPO:
+ * - Cada fase es una tarea del scheduler que, al terminar, programa la siguiente para un
+ *   instante absoluto calculado con el PlanRonda (sin sleeps ni retardo fijo entre rondas).
+ *   Lo que tarda un broadcast no se suma a la ronda: el resultado llega a cierre + giro.
+ * - Cuando el reparto termina, empieza el descanso (no se espera a agotar su plazo).
+ * - Al abrir la mesa se imprime el tiempo real de cada fase frente al planificado.
  * * NOTA SOBRE CONCURRENCIA:
- * - Esta clase se ejecuta en un hilo separado.
- * - Utiliza CountDownLatch para bloquearse a sí misma hasta que el ServicioRuleta 
- * confirme que una operación masiva (Broadcast/Premios) ha terminado.
+ * - Las fases van encadenadas: nunca se ejecutan dos a la vez.
+ * - Utiliza CountDownLatch para esperar a que el ServicioRuleta confirme que una
+ *   operación masiva (Broadcast/Premios) ha terminado.
  */
-public class GiraPelotita implements Runnable {
+public class GiraPelotita {
 
     // --- ATRIBUTOS ---
     private final ServicioRuleta rule;
     private final ExecutorService pool;
     private final XMLServidor xml;
+    private final PlanRonda plan;
+    private final ScheduledExecutorService reloj;
+    private final Random random = new Random();
+
+    private volatile boolean detenido = false;
+    private volatile ScheduledFuture<?> siguiente;
+
+    // Instantes (System.nanoTime) de la ronda en curso. Solo los toca la fase que se está ejecutando.
+    private long aperturaPlan; // Apertura según el plan: de aquí salen los plazos
+    private long apertura, cierre, inicioReparto, finReparto;
 
     // --- CONSTRUCTOR ---
-    public GiraPelotita(ServicioRuleta rule, ExecutorService pool, XMLServidor xml) {
+    public GiraPelotita(ServicioRuleta rule, ExecutorService pool, XMLServidor xml,
+                        PlanRonda plan, ScheduledExecutorService reloj) {
         this.rule = rule;
         this.pool = pool;
         this.xml = xml;
+        this.plan = plan;
+        this.reloj = reloj;
+    }
+
+    // --- CICLO DE VIDA ---
+
+    /**
+     * Arranca la primera ronda (la mesa ya empieza abierta): se programa su cierre.
+     */
+    public void iniciar() {
+        System.out.println("Plan de ronda: " + this.plan);
+        this.aperturaPlan = System.nanoTime();
+        this.apertura = this.aperturaPlan;
+        programar(this::cerrarMesa, this.aperturaPlan + ms(this.plan.getApuestas()));
+    }
+
+    /**
+     * Cancela la próxima fase y no programa más (apagado del servidor).
+     */
+    public void detener() {
+        this.detenido = true;
+        ScheduledFuture<?> f = this.siguiente;
+        if (f != null) f.cancel(false);
+    }
+
+    // --- FASES DE LA RONDA ---
+
+    /**
+     * 1. CERRAR APUESTAS (NO VA MÁS) y avisar a todos.
+     */
+    private void cerrarMesa() throws InterruptedException {
+        this.cierre = System.nanoTime();
+
+        CountDownLatch latchCierre = new CountDownLatch(1);
+        // El servicio notifica a todos los clientes. Cuando termina, baja el latch.
+        this.rule.NoVaMas(latchCierre);
+        latchCierre.await();
+
+        // 2. SIMULACIÓN DE GIRO (Suspenso): el resultado sale a cierre planificado + giro,
+        // el tiempo del broadcast ya cuenta como parte del giro
+        programar(this::resultadoYPremios, this.aperturaPlan + ms(this.plan.getApuestas()) + ms(this.plan.getGiro()));
     }
 
-    // --- LÓGICA DE LA RONDA ---
-    @Override
-    public void run() {
-        // Chequeo de seguridad inicial
-        if (Thread.currentThread().isInterrupted()) return;
+    /**
+     * 3-6. GENERAR GANADOR, LIQUIDAR LA RONDA (RESULTADO + PREMIOS) Y GUARDAR HISTORIAL.
+     */
+    private void resultadoYPremios() throws InterruptedException {
+        this.inicioReparto = System.nanoTime();
+
+        // Generamos número aleatorio [0-36]
+        int numero = this.random.nextInt(37);
+        Casilla ganadora = new Casilla(numero);
+
+        System.out.println("Resultado de la ronda: " + numero + " (" + ganadora.getColor() + ")");
+
+        // Comunicar resultado y repartir premios en un solo reparto: un mensaje por jugador
+        // NOTA: Si se bloquea aquí, revisa el tamaño del ThreadPool en el Main.
+        CountDownLatch latchLiquidacion = new CountDownLatch(1);
+        this.rule.liquidarRonda(ganadora, latchLiquidacion);
+        latchLiquidacion.await();
+
+        // Persistencia asíncrona ("Fire & Forget") con la ronda congelada por NoVaMas, sin copias
+        this.pool.execute(new guardarApuestas(this.rule.getRondaCerrada().getApuestas(), ganadora, this.xml));
+
+        // 7. TIEMPO DE LECTURA (Cooldown): empieza ya, aunque sobre plazo de reparto
+        this.finReparto = System.nanoTime();
+        System.out.println("⏳ Esperando para nueva ronda...");
+        programar(this::abrirMesa, this.finReparto + ms(this.plan.getDescanso()));
+    }
 
+    /**
+     * 8. ABRIR NUEVA RONDA (ABRIR MESA).
+     */
+    private void abrirMesa() throws InterruptedException {
+        long ahora = System.nanoTime();
+        System.out.println("🟢 Abriendo mesa...");
+
+        CountDownLatch latchApertura = new CountDownLatch(1);
+        this.rule.resetNoVaMas(latchApertura);
+        latchApertura.await();
+
+        informar(ahora);
+
+        // La siguiente ronda cuenta desde la apertura planificada (el broadcast va dentro de las apuestas)
+        this.aperturaPlan = this.finReparto + ms(this.plan.getDescanso());
+        this.apertura = ahora;
+        programar(this::cerrarMesa, this.aperturaPlan + ms(this.plan.getApuestas()));
+    }
+
+    // --- AUXILIARES ---
+
+    /**
+     * Fase de la ronda: puede quedarse esperando a un latch.
+     */
+    private interface Fase {
+        void ejecutar() throws InterruptedException;
+    }
+
+    /**
+     * Programa la fase para un instante absoluto (si ya pasó, se ejecuta enseguida).
+     */
+    private void programar(Fase fase, long instante) {
+        if (this.detenido) return;
+        long espera = Math.max(0, instante - System.nanoTime());
         try {
-            // =================================================================
-            // 1. CERRAR APUESTAS (NO VA MÁS)
-            // =================================================================
-            //System.out.println("⛔ Cerrando mesa...");
-            
-            CountDownLatch latchCierre = new CountDownLatch(1);
-            // El servicio notifica a todos los clientes. Cuando termina, baja el latch.
-            this.rule.NoVaMas(latchCierre);
-            latchCierre.await(); 
-
-            // =================================================================
-            // 2. SIMULACIÓN DE GIRO (Suspenso)
-            // =================================================================
-            // System.out.println("... Girando la ruleta ...");
-            TimeUnit.SECONDS.sleep(3); 
-
-            // =================================================================
-            // 3. GENERAR GANADOR
-            // =================================================================
-            // Generamos número aleatorio [0-36]
-            int numero = new Random().nextInt(37); 
-            Casilla ganadora = new Casilla(numero);
-            
-            String mensajeGanador = "\u001b[33m🎲 ¡RESULTADO: " + numero + " " + ganadora.getColor() + "! 🎲\u001b[0m";
-            System.out.println("Resultado de la ronda: " + numero + " (" + ganadora.getColor() + ")");
-
-            // =================================================================
-            // 4. COMUNICAR RESULTADO (Broadcast)
-            // =================================================================
-            CountDownLatch latchResultado = new CountDownLatch(1);
-            this.rule.enviarBroadcastConcurrente(mensajeGanador, latchResultado);
-            latchResultado.await();
-
-            // =================================================================
-            // 5. REPARTIR PREMIOS (Unicast Paralelo)
-            // =================================================================
-            // Calculamos premios y actualizamos saldos.
-            // NOTA: Si se bloquea aquí, revisa el tamaño del ThreadPool en el Main.
-            CountDownLatch latchPremios = new CountDownLatch(1);
-            this.rule.repartirPremio(ganadora, latchPremios);
-            latchPremios.await(); 
-
-            // =================================================================
-            // 6. PERSISTENCIA (Asíncrona "Fire & Forget")
-            // =================================================================
-            // Guardamos el historial en XML en segundo plano para no frenar el juego.
-            // Se pasa una COPIA de las apuestas para evitar ConcurrentModificationException.
-            this.pool.execute(new guardarApuestas(this.rule.getCopiaJugadorApuestas(), ganadora, this.xml));
-
-            // =================================================================
-            // 7. TIEMPO DE LECTURA (Cooldown)
-            // =================================================================
-            System.out.println("⏳ Esperando para nueva ronda...");
-            TimeUnit.SECONDS.sleep(4);
-
-            // =================================================================
-            // 8. ABRIR NUEVA RONDA (ABRIR MESA)
-            // =================================================================
-            System.out.println("🟢 Abriendo mesa...");
-            
-            CountDownLatch latchApertura = new CountDownLatch(1);
-            this.rule.resetNoVaMas(latchApertura);
-            latchApertura.await();
+            this.siguiente = this.reloj.schedule(() -> ejecutar(fase), espera, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // Scheduler cerrándose: fin del ciclo
+        }
+    }
 
+    private void ejecutar(Fase fase) {
+        if (this.detenido) return;
+        try {
+            fase.ejecutar();
         } catch (InterruptedException e) {
             // Interrupción limpia (apagado del servidor)
             Thread.currentThread().interrupt();
             System.out.println("Ronda interrumpida. Cerrando hilo GiraPelotita.");
         } catch (Exception e) {
-            // Captura de errores imprevistos para no tumbar el hilo silenciosamente
+            // Error imprevisto: se informa y se reabre la mesa para no dejar el juego parado
             System.err.println("❌ Error CRÍTICO en el ciclo de la ruleta: " + e.getMessage());
             e.printStackTrace();
+            this.finReparto = System.nanoTime();
+            programar(this::abrirMesa, this.finReparto + ms(this.plan.getDescanso()));
+        }
+    }
+
+    /**
+     * Tiempo real de cada fase de la ronda terminada frente al planificado.
+     */
+    private void informar(long aperturaSiguiente) {
+        long apuestas = aMs(this.cierre - this.apertura);
+        long giro = aMs(this.inicioReparto - this.cierre);
+        long reparto = aMs(this.finReparto - this.inicioReparto);
+        long descanso = aMs(aperturaSiguiente - this.finReparto);
+
+        System.out.println("Ronda " + this.rule.getRondaCerrada().getRonda() + " (real/plan): apuestas "
+            + apuestas + "/" + this.plan.getApuestas() + " ms, giro "
+            + giro + "/" + this.plan.getGiro() + " ms, reparto "
+            + reparto + "/" + this.plan.getReparto() + " ms, descanso "
+            + descanso + "/" + this.plan.getDescanso() + " ms, total "
+            + (apuestas + giro + reparto + descanso) + "/" + this.plan.getTotal() + " ms");
+
+        if (reparto > this.plan.getReparto()) {
+            System.err.println("⚠️ El reparto ha superado su plazo en " + (reparto - this.plan.getReparto()) + " ms");
         }
     }
-}
\ No newline at end of file
+
+    private static long ms(long milisegundos) { return TimeUnit.MILLISECONDS.toNanos(milisegundos); }
+    private static long aMs(long nanos) { return TimeUnit.NANOSECONDS.toMillis(nanos); }
+}
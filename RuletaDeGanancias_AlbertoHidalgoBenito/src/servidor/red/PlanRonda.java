@@ -0,0 +1,47 @@
+package servidor.red;
+
+/**
+ * Clase PlanRonda
+ * ---------------
+ * Duración planificada (ms) de cada fase de la ronda que dirige GiraPelotita.
+ * * apuestas: mesa abierta. giro: del "No va más" al resultado.
+ * * reparto: resultado + premios. Es un máximo: si termina antes, la ronda avanza ya.
+ * * descanso: tiempo de lectura antes de abrir otra vez.
+ * Por defecto 20 s / 3 s / 3 s / 4 s (los tiempos fijos que tenía GiraPelotita).
+ */
+public class PlanRonda {
+
+    // --- ATRIBUTOS ---
+    private final long apuestas;
+    private final long giro;
+    private final long reparto;
+    private final long descanso;
+
+    // --- CONSTRUCTORES ---
+    public PlanRonda() {
+        this(20000, 3000, 3000, 4000);
+    }
+
+    public PlanRonda(long apuestas, long giro, long reparto, long descanso) {
+        if (apuestas < 0 || giro < 0 || reparto < 0 || descanso < 0) {
+            throw new IllegalArgumentException("Las duraciones de la ronda no pueden ser negativas.");
+        }
+        this.apuestas = apuestas;
+        this.giro = giro;
+        this.reparto = reparto;
+        this.descanso = descanso;
+    }
+
+    // --- GETTERS ---
+    public long getApuestas() { return this.apuestas; }
+    public long getGiro() { return this.giro; }
+    public long getReparto() { return this.reparto; }
+    public long getDescanso() { return this.descanso; }
+    public long getTotal() { return this.apuestas + this.giro + this.reparto + this.descanso; }
+
+    @Override
+    public String toString() {
+        return "apuestas " + this.apuestas + " ms, giro " + this.giro + " ms, reparto " + this.reparto
+            + " ms, descanso " + this.descanso + " ms";
+    }
+}
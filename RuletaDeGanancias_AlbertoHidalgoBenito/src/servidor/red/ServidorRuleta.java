@@ -1,18 +1,18 @@
 package servidor.red;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.*;
 
 import logicaRuleta.core.AtenderJugador;
+import logicaRuleta.core.RegistroJugadores;
 import logicaRuleta.core.ServicioRuleta;
-import modeloDominio.Jugador;
 import servidor.persistencia.ActualizarBD;
-import servidor.persistencia.BDJugadores;
+import servidor.persistencia.AlmacenJugadores;
+import servidor.persistencia.PersistenciaJugadores;
 import servidor.persistencia.XMLServidor;
 
 /**
@@ -21,12 +21,18 @@ import servidor.persistencia.XMLServidor;
  * Punto de entrada (Main) del Servidor.
  * Orquestador principal que levanta la infraestructura de red, persistencia y lógica de juego.
  * * Responsabilidades:
- * 1. Cargar estado inicial (Jugadores) desde disco.
- * 2. Iniciar el ciclo de juego (GiraPelotita) y persistencia programada (ActualizarBD).
+ * 1. Cargar estado inicial (Jugadores) desde disco, en segundo plano (RegistroJugadores.cargarEnSegundoPlano).
+ * 2. Iniciar el ciclo de juego (GiraPelotita) y la persistencia de jugadores
+ *    (PersistenciaJugadores, con un guardado de seguridad cada minuto con ActualizarBD).
  * 3. Escuchar conexiones TCP entrantes y delegarlas a hilos trabajadores (AtenderJugador).
+ * Si la BD de jugadores no se puede leer, se para sin compactarla y main sale con código 1.
  */
 public class ServidorRuleta {
 
+    private volatile boolean detenido = false;
+    private volatile boolean cargaFallida = false;
+    private Closeable escucha; // Socket de escucha actual (protegido por this)
+
     /**
      * Entry Point de la aplicación Servidor.
      * @param args Argumentos de consola (no usados).
@@ -35,6 +41,9 @@ public class ServidorRuleta {
         ServidorRuleta server = new ServidorRuleta();
         // Rutas relativas por defecto
         server.IniciarServidor(8000, "historial.xml", "jugadores.xml");
+        if (server.cargaFallida) {
+            System.exit(1);
+        }
     }
 
     /**
@@ -42,9 +51,18 @@ public class ServidorRuleta {
      *
      * @param puerto    Puerto TCP de escucha (ej: 8000).
      * @param historial Ruta del archivo XML para historial de rondas.
-     * @param bd        Ruta del archivo XML para base de datos de usuarios.
+     * @param bd        Ruta de la base de datos de usuarios (.bin = foto binaria, si no XML).
      */
     public void IniciarServidor(int puerto, String historial, String bd) {
+        this.IniciarServidor(puerto, historial, bd, new PlanRonda());
+    }
+
+    /**
+     * Igual que el anterior, con duraciones de ronda a medida.
+     *
+     * @param plan Duración de cada fase de la ronda (apuestas, giro, reparto, descanso).
+     */
+    public void IniciarServidor(int puerto, String historial, String bd, PlanRonda plan) {
         
         System.out.println("🚀 Iniciando Servidor Ruleta en puerto " + puerto + "...");
         
@@ -52,14 +70,14 @@ public class ServidorRuleta {
         XMLServidor xml = new XMLServidor(historial);
         File BBDD = new File(bd);
 
-        // Cargar jugadores (o crear lista vacía si no existe fichero)
-        List<Jugador> jugadoresConSesion = BDJugadores.UnmarshallingJugadores(BBDD);
-        if (jugadoresConSesion == null) {
-            System.out.println("ℹ️ No se encontró base de datos previa o estaba vacía. Iniciando desde cero.");
-            jugadoresConSesion = new ArrayList<>();
-        } else {
-            System.out.println("✅ " + jugadoresConSesion.size() + " jugadores cargados desde BD.");
-        }
+        // Cargar jugadores: foto (XML o binaria) + diario de cambios, en segundo plano.
+        // El servidor acepta conexiones ya; quien busca un jugador aún no leído espera a la carga
+        // Si la carga falla se para el servidor: con un registro a medias se repetirían altas
+        RegistroJugadores registro = RegistroJugadores.cargarEnSegundoPlano(AlmacenJugadores.segunExtension(BBDD), () -> {
+            this.cargaFallida = true;
+            System.err.println("❌ Sin la BD de jugadores no se puede seguir.");
+            this.detener();
+        });
 
         // 2. INFRAESTRUCTURA DE CONCURRENCIA
         // CachedThreadPool es ideal aquí: crea hilos bajo demanda y reutiliza los inactivos.
@@ -67,26 +85,28 @@ public class ServidorRuleta {
         ExecutorService pool = Executors.newCachedThreadPool();
 
         // 3. LÓGICA DE NEGOCIO
-        ServicioRuleta rule = new ServicioRuleta(jugadoresConSesion, pool, BBDD);
+        ServicioRuleta rule = new ServicioRuleta(registro, pool);
+        PersistenciaJugadores persistencia = rule.getRegistro().getPersistencia();
 
         // 4. TAREAS PROGRAMADAS (Scheduler)
         // Usamos un pool de 2 hilos para garantizar que la persistencia y el juego no se bloqueen mutuamente
         ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        GiraPelotita crupier = new GiraPelotita(rule, pool, xml, plan, scheduler);
 
         try (ServerSocket server = new ServerSocket(puerto)) {
+            this.escuchar(server);
             
             System.out.println("🟢 Servidor ONLINE. Esperando conexiones...");
 
-            // A) Tarea Cíclica: GiraPelotita (Ciclo de juego)
-            // Ejecuta una ronda cada 20 segundos (Delay inicial de 10s para dar tiempo a conectar)
-            scheduler.scheduleWithFixedDelay(new GiraPelotita(rule, pool, xml), 10, 20, TimeUnit.SECONDS);
+            // A) Ciclo de juego: GiraPelotita encadena las fases de cada ronda según el plan
+            crupier.iniciar();
 
             // B) Tarea Cíclica: Persistencia (Backup de seguridad)
             // Guarda el estado de los jugadores cada minuto
-            scheduler.scheduleAtFixedRate(new ActualizarBD(jugadoresConSesion, BBDD), 1, 1, TimeUnit.MINUTES);
+            scheduler.scheduleAtFixedRate(new ActualizarBD(persistencia), 1, 1, TimeUnit.MINUTES);
 
             // 5. BUCLE PRINCIPAL DE CONEXIÓN
-            while (true) {
+            while (!this.detenido) {
                 try {
                     // Bloqueante hasta que llega un cliente
                     Socket cl = server.accept();
@@ -99,6 +119,7 @@ public class ServidorRuleta {
                     pool.execute(new AtenderJugador(cl, rule));
                     
                 } catch (IOException e) {
+                    if (this.detenido) break; // detener() ha cerrado el socket
                     System.err.println("⚠️ Error de conexión con cliente: " + e.getMessage());
                 } catch (RejectedExecutionException e) {
                     System.err.println("⚠️ Servidor saturado. Conexión rechazada: " + e.getMessage());
@@ -111,9 +132,7 @@ public class ServidorRuleta {
             // CIERRE ORDENADO (Graceful Shutdown)
             System.out.println("⛔ Deteniendo servidor...");
 
-            // Forzamos guardado final
-            BDJugadores.MarshallingJugadores(jugadoresConSesion, BBDD);
-
+            crupier.detener();
             scheduler.shutdown();
             pool.shutdown();
             
@@ -123,8 +142,35 @@ public class ServidorRuleta {
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
+
+            // Guardado final (vuelca el diario y compacta el XML), con las rondas ya repartidas
+            persistencia.cerrar();
+
+            // Cierre del historial cuando ya no queda ningún guardarApuestas pendiente
+            xml.cerrar();
             
             System.out.println("👋 Servidor detenido.");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Deja de aceptar conexiones (cierra el socket de escucha) y da paso al cierre ordenado.
+     */
+    public synchronized void detener() {
+        this.detenido = true;
+        if (this.escucha != null) {
+            try {
+                this.escucha.close();
+            } catch (IOException e) {
+                System.err.println("⚠️ Error cerrando el socket de escucha: " + e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void escuchar(Closeable socket) throws IOException {
+        this.escucha = socket;
+        if (this.detenido) {
+            socket.close();
+        }
+    }
+}
@@ -3,7 +3,7 @@ package servidor.red;
 import java.util.List;
 import java.util.Map;
 
-import modeloDominio.Apuesta;
+import logicaRuleta.core.ApuestaCompilada;
 import modeloDominio.Casilla;
 import modeloDominio.Jugador;
 import servidor.persistencia.XMLServidor;
@@ -15,7 +15,7 @@ import servidor.persistencia.XMLServidor;
  * y el resultado de la casilla ganadora.
  *
  * PRECONDICIONES:
- *  - El mapa de apuestas debe estar inicializado y no ser null.
+ *  - El mapa de apuestas debe estar inicializado, no ser null y ser de una ronda cerrada (no cambia).
  *  - La casilla ganadora debe estar correctamente creada (número válido entre 0 y 36).
  *  - El objeto XMLServidor debe estar inicializado y apuntar a un fichero XML válido.
  *
@@ -28,7 +28,7 @@ import servidor.persistencia.XMLServidor;
  */
 public class guardarApuestas implements Runnable {
 
-    private final Map<Jugador, List<Apuesta>> apuestas;
+    private final Map<Jugador, List<ApuestaCompilada>> apuestas;
     private final Casilla ganadora;
     private final XMLServidor xml;
 
@@ -43,7 +43,7 @@ public class guardarApuestas implements Runnable {
      * POSTCONDICIONES:
      *  - Se crea una tarea lista para persistir las apuestas en el historial.
      */
-    public guardarApuestas(Map<Jugador, List<Apuesta>> apuestas, Casilla ganadora, XMLServidor xml) {
+    public guardarApuestas(Map<Jugador, List<ApuestaCompilada>> apuestas, Casilla ganadora, XMLServidor xml) {
         this.apuestas = apuestas;
         this.ganadora = ganadora;
         this.xml = xml;
@@ -0,0 +1,126 @@
+package logicaRuleta.concurrencia;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clase FabricaHilos
+ * ------------------
+ * Crea los pools de hilos del servidor según el modo elegido al arrancar:
+ * hilos de plataforma (como siempre) o hilos virtuales.
+ *
+ * HILOS VIRTUALES:
+ *  - Solo existen a partir de Java 21. El proyecto compila para Java 8, así que se
+ *    obtienen por reflexión (Executors.newVirtualThreadPerTaskExecutor).
+ *  - Si la JVM no los tiene, se avisa por consola y se usan hilos de plataforma.
+ *  - Con hilos virtuales un cliente bloqueado en readLine() no ocupa un hilo del SO:
+ *    el límite de conexiones pasa a ser la memoria.
+ *
+ * POSTCONDICIONES:
+ *  - Con virtuales = false se obtienen exactamente los mismos pools que antes.
+ */
+public final class FabricaHilos {
+
+    private FabricaHilos() {
+        // Clase de utilidades
+    }
+
+    /**
+     * Pool para atender conexiones y tareas auxiliares (AtenderJugador, guardarApuestas, ActualizarBD).
+     *
+     * @param virtuales true para usar un hilo virtual por tarea.
+     * @return CachedThreadPool, o un executor de hilos virtuales si se pide y la JVM lo permite.
+     */
+    public static ExecutorService crearPoolConexiones(boolean virtuales) {
+        if (virtuales) {
+            ExecutorService pool = crearPoolVirtual();
+            if (pool != null) {
+                return pool;
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Pool persistente del MotorDifusion (reparto de fin de ronda).
+     * Los hilos de plataforma son daemon para no retrasar el cierre del servidor.
+     *
+     * PRE: hilos > 0
+     *
+     * @param hilos     Número de hilos de trabajo.
+     * @param virtuales true para usar un hilo virtual por lote.
+     * @return FixedThreadPool de 'hilos' hilos, o un executor de hilos virtuales.
+     */
+    public static ExecutorService crearPoolDifusion(int hilos, boolean virtuales) {
+        return crearPoolDifusion("difusion-", hilos, virtuales);
+    }
+
+    /**
+     * Igual que crearPoolDifusion(hilos, virtuales), con otro prefijo en el nombre de los hilos
+     * (una mesa del casino por pool).
+     *
+     * PRE: hilos > 0
+     *
+     * @param prefijo   Prefijo del nombre de los hilos de plataforma.
+     * @param hilos     Número de hilos de trabajo.
+     * @param virtuales true para usar un hilo virtual por lote.
+     * @return FixedThreadPool de 'hilos' hilos, o un executor de hilos virtuales.
+     */
+    public static ExecutorService crearPoolDifusion(String prefijo, int hilos, boolean virtuales) {
+        if (virtuales) {
+            ExecutorService pool = crearPoolVirtual();
+            if (pool != null) {
+                return pool;
+            }
+        }
+        AtomicInteger contador = new AtomicInteger();
+        return Executors.newFixedThreadPool(hilos, r -> {
+            Thread t = new Thread(r, prefijo + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Reloj del crupier de una mesa: un solo hilo en el que se encadenan las fases de sus rondas.
+     * Cada mesa tiene el suyo, así que un reparto lento en una mesa no retrasa a las demás.
+     *
+     * @param mesa Número de la mesa (para el nombre del hilo).
+     * @return ScheduledExecutorService de un hilo llamado "crupier-mesa-N".
+     */
+    public static ScheduledExecutorService crearRelojMesa(int mesa) {
+        return Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "crupier-mesa-" + mesa));
+    }
+
+    /**
+     * @return true si la JVM en ejecución tiene hilos virtuales (Java 21+).
+     */
+    public static boolean hayHilosVirtuales() {
+        return metodoVirtual() != null;
+    }
+
+    private static ExecutorService crearPoolVirtual() {
+        Method m = metodoVirtual();
+        if (m == null) {
+            System.err.println("⚠️ Hilos virtuales no disponibles en esta JVM (requiere Java 21+), se usan hilos de plataforma.");
+            return null;
+        }
+        try {
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("⚠️ Error creando hilos virtuales: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Method metodoVirtual() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
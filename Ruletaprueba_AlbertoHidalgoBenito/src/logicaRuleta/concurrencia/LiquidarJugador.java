@@ -0,0 +1,80 @@
+package logicaRuleta.concurrencia;
+
+import java.util.List;
+
+import logicaRuleta.core.ApuestaCompilada;
+import modeloDominio.ConexionJugador;
+import modeloDominio.Jugador;
+import modeloDominio.MensajeCodificado;
+
+/**
+ * Clase LiquidarJugador
+ * ---------------------
+ * Tarea Runnable que cierra la ronda para un jugador: calcula su premio, lo suma a su saldo
+ * y le comunica el desenlace en un único mensaje (resultado + ganancia neta + saldo).
+ * Sustituye a la pareja MandarCasillaGanadora + MandarPremios, que hacía dos repartos por
+ * ronda y dos escrituras por jugador, y dejaba que el premio llegara separado del resultado.
+ * La ejecuta el MotorDifusion, dentro del lote de jugadores de uno de sus hilos.
+ *
+ * PRECONDICIONES:
+ *  - El jugador debe estar inicializado (su conexión puede ser null o estar cerrada).
+ *  - apuestas es null si el jugador no apostó en la ronda.
+ *  - El resultado ya viene compuesto y codificado (una vez por ronda, no por jugador).
+ *
+ * POSTCONDICIONES:
+ *  - Si apostó: se suma el premio a su saldo y, si sigue conectado, recibe el desenlace.
+ *  - Si no apostó: recibe solo el resultado, compartido con el resto de la mesa.
+ *  - Si la conexión está cerrada, el saldo se actualiza igual pero no se envía nada.
+ */
+public class LiquidarJugador implements Runnable {
+
+    // --- ATRIBUTOS ---
+    private final Jugador jugador;
+    private final List<ApuestaCompilada> apuestas;
+    private final int numero;
+    private final MensajeCodificado resultado;
+
+    // --- CONSTRUCTOR ---
+    /**
+     * @param jugador   Jugador sentado en la mesa o que apostó en la ronda.
+     * @param apuestas  Apuestas compiladas del jugador en la ronda, o null si no apostó.
+     * @param resultado Resultado de la ronda, el mismo objeto para toda la mesa.
+     */
+    public LiquidarJugador(Jugador jugador, List<ApuestaCompilada> apuestas, MensajeCodificado resultado) {
+        this.jugador = jugador;
+        this.apuestas = apuestas;
+        this.numero = resultado.getGanadora().getNumero();
+        this.resultado = resultado;
+    }
+
+    // --- LÓGICA DE NEGOCIO ---
+    /**
+     * Ejecuta la tarea: liquida las apuestas del jugador (si las hay) y le envía un solo mensaje.
+     */
+    @Override
+    public void run() {
+        ConexionJugador conexion = this.jugador.getConexion();
+        boolean conectado = conexion != null && conexion.isAbierta();
+
+        if (this.apuestas == null) {
+            if (conectado) {
+                conexion.enviarResultado(this.resultado);
+            }
+            return;
+        }
+
+        // 1. Premio y total apostado (un bit por apuesta, sin parseos)
+        long premio = 0;     // Céntimos
+        long apostado = 0;
+        for (ApuestaCompilada ap : this.apuestas) {
+            premio += ap.premioPara(this.numero);
+            apostado += ap.getCantidadCentimos();
+        }
+
+        // 2. Actualizar saldo y mandar el desenlace (si se ha caído la conexión, solo el saldo)
+        this.jugador.sumarCentimos(premio);
+        if (conectado) {
+            conexion.enviarDesenlace(this.resultado, premio - apostado, this.jugador.getSaldoCentimos());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package logicaRuleta.concurrencia;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clase MetricasSalida
+ * --------------------
+ * Contadores globales de las colas de salida de los clientes.
+ * Sirve para saber cuántos clientes se han desconectado por no leer a tiempo
+ * (cola de salida llena) sin tener que revisar el log entero.
+ */
+public final class MetricasSalida {
+
+    private static final AtomicLong desbordamientos = new AtomicLong();
+
+    private MetricasSalida() {
+        // Clase de utilidades
+    }
+
+    /**
+     * Registra que un cliente ha llenado su cola de salida y va a ser desconectado.
+     *
+     * @param cliente    Descripción del cliente (dirección remota).
+     * @param pendientes Mensajes que tenía en cola.
+     */
+    public static void registrarDesbordamiento(Object cliente, int pendientes) {
+        long total = desbordamientos.incrementAndGet();
+        System.err.println("⚠️ Cola de salida llena (" + pendientes + " mensajes) para " + cliente
+            + ", se desconecta. Desconexiones por cola llena: " + total);
+    }
+
+    /**
+     * @return Número total de clientes desconectados por cola de salida llena.
+     */
+    public static long getDesbordamientos() {
+        return desbordamientos.get();
+    }
+}
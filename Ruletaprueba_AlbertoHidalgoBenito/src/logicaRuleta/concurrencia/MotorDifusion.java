@@ -0,0 +1,120 @@
+package logicaRuleta.concurrencia;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase MotorDifusion
+ * -------------------
+ * Reparto ("fan-out") de los mensajes de fin de ronda a todos los jugadores.
+ * Sustituye al patrón anterior de crear en cada ronda un FixedThreadPool con un hilo
+ * por jugador más una CyclicBarrier, que con miles de jugadores creaba y destruía
+ * miles de hilos cada 20 segundos.
+ *
+ * FUNCIONAMIENTO:
+ *  - Los hilos de trabajo son de larga duración y se reutilizan en todas las rondas.
+ *  - Las tareas (una por jugador) se reparten en lotes contiguos, un lote por hilo,
+ *    y cada hilo ejecuta su lote en secuencia.
+ *  - ejecutar() espera a que terminen todos los lotes (con un tiempo máximo) y
+ *    devuelve lo que ha tardado el reparto completo.
+ *
+ * PRECONDICIONES:
+ *  - El pool recibido no se comparte con tareas que bloqueen indefinidamente.
+ *
+ * POSTCONDICIONES:
+ *  - Un fallo en la tarea de un jugador no impide repartir al resto del lote.
+ *  - Si el reparto supera el tiempo máximo, la ronda sigue y los lotes terminan por su cuenta.
+ */
+public class MotorDifusion {
+
+    /**
+     * Tiempo máximo que la ronda espera al reparto (el mismo que el antiguo awaitTermination).
+     */
+    private static final long ESPERA_MAXIMA_MS = 3000;
+
+    // --- ATRIBUTOS ---
+    private final ExecutorService trabajadores;
+    private final int lotes;
+
+    // --- CONSTRUCTOR ---
+    /**
+     * PRE: trabajadores != null, lotes > 0
+     *
+     * @param trabajadores Pool persistente donde se ejecutan los lotes.
+     * @param lotes        Número máximo de lotes por reparto (normalmente, hilos del pool).
+     */
+    public MotorDifusion(ExecutorService trabajadores, int lotes) {
+        this.trabajadores = trabajadores;
+        this.lotes = lotes;
+    }
+
+    /**
+     * Ejecuta todas las tareas repartidas en lotes y espera a que terminen.
+     *
+     * PRE: tareas != null
+     * POST:
+     *  - Cada tarea se ha ejecutado una vez (o sigue ejecutándose si se agotó la espera).
+     *  - Se informa por consola del tiempo de reparto.
+     *
+     * @param nombre Nombre del reparto (para el log).
+     * @param tareas Una tarea por destinatario.
+     * @return Milisegundos que ha tardado el reparto (o el tiempo esperado si se agotó la espera).
+     */
+    public long ejecutar(String nombre, List<? extends Runnable> tareas) {
+        if (tareas.isEmpty()) {
+            return 0;
+        }
+
+        long inicio = System.nanoTime();
+        int numLotes = Math.min(this.lotes, tareas.size());
+        int tamLote = (tareas.size() + numLotes - 1) / numLotes;
+        CountDownLatch terminados = new CountDownLatch(numLotes);
+
+        for (int l = 0; l < numLotes; l++) {
+            List<? extends Runnable> lote = tareas.subList(l * tamLote, Math.min(tareas.size(), (l + 1) * tamLote));
+            Runnable trabajo = () -> {
+                try {
+                    for (Runnable t : lote) {
+                        try {
+                            t.run();
+                        } catch (RuntimeException e) {
+                            System.err.println("⚠️ Error en reparto " + nombre + ": " + e.getMessage());
+                        }
+                    }
+                } finally {
+                    terminados.countDown();
+                }
+            };
+
+            try {
+                this.trabajadores.execute(trabajo);
+            } catch (RejectedExecutionException e) {
+                // Pool apagado (cierre del servidor): lo hacemos en este hilo
+                trabajo.run();
+            }
+        }
+
+        try {
+            if (!terminados.await(ESPERA_MAXIMA_MS, TimeUnit.MILLISECONDS)) {
+                System.err.println("⚠️ Reparto " + nombre + " sin terminar tras " + ESPERA_MAXIMA_MS + " ms, la ronda continúa.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // restaurar estado de interrupción
+        }
+
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        System.out.println("Reparto " + nombre + ": " + tareas.size() + " jugadores en "
+            + numLotes + " lotes, " + ms + " ms");
+        return ms;
+    }
+
+    /**
+     * Detiene los hilos de trabajo (cierre del servidor).
+     */
+    public void cerrar() {
+        this.trabajadores.shutdown();
+    }
+}
@@ -0,0 +1,78 @@
+package logicaRuleta.core;
+
+import modeloDominio.Apuesta;
+
+/**
+ * Clase ApuestaCompilada
+ * ----------------------
+ * Forma precalculada de una Apuesta, creada una sola vez al aceptarla (anadirApuesta).
+ * Guarda qué números hacen ganar la apuesta y cuánto paga, para que el reparto
+ * no tenga que interpretar el tipo ni el valor (texto) de cada apuesta.
+ *
+ * ESTRUCTURA:
+ *  - mascara: bit n a 1 si el número n (0-36) gana la apuesta. 37 bits en un long.
+ *  - premio:  cantidad apostada × multiplicador del tipo de apuesta, en céntimos.
+ *
+ * PRECONDICIONES:
+ *  - Solo se crea con RuletaUtils.compilar(), que valida el valor de la apuesta.
+ *
+ * POSTCONDICIONES:
+ *  - Inmutable: se puede leer desde cualquier hilo sin sincronización.
+ *  - premioPara(n) es una comprobación de bit y una selección, sin parseos ni comparaciones de texto.
+ */
+public final class ApuestaCompilada {
+
+    // --- ATRIBUTOS ---
+    private final Apuesta apuesta;
+    private final long mascara;
+    private final long cantidad;
+    private final long premio;
+
+    // --- CONSTRUCTOR ---
+    /**
+     * @param apuesta  Apuesta original (se conserva para el historial).
+     * @param mascara  Números ganadores, un bit por número.
+     * @param cantidad Importe apostado en céntimos.
+     * @param premio   Céntimos que se pagan si sale uno de esos números.
+     */
+    ApuestaCompilada(Apuesta apuesta, long mascara, long cantidad, long premio) {
+        this.apuesta = apuesta;
+        this.mascara = mascara;
+        this.cantidad = cantidad;
+        this.premio = premio;
+    }
+
+    // --- GETTERS ---
+    /**
+     * @return Apuesta original.
+     */
+    public Apuesta getApuesta() { return this.apuesta; }
+
+    /**
+     * @return Máscara de números ganadores (bit n → número n).
+     */
+    public long getMascara() { return this.mascara; }
+
+    /**
+     * @return Importe apostado en céntimos.
+     */
+    public long getCantidadCentimos() { return this.cantidad; }
+
+    /**
+     * @return Céntimos que se pagan si la apuesta gana.
+     */
+    public long getPremioCentimos() { return this.premio; }
+
+    // --- LÓGICA ---
+    /**
+     * Premio de la apuesta si sale el número indicado.
+     *
+     * PRE: 0 <= numero <= 36
+     *
+     * @param numero Número ganador.
+     * @return Premio en céntimos si el número está en la máscara, 0 en caso contrario.
+     */
+    public long premioPara(int numero) {
+        return ((this.mascara >>> numero) & 1L) != 0 ? this.premio : 0;
+    }
+}
@@ -0,0 +1,143 @@
+package logicaRuleta.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import modeloDominio.Jugador;
+
+/**
+ * Clase ApuestasRonda
+ * -------------------
+ * Apuestas de una sola ronda. ServicioRuleta tiene siempre una abierta; en NoVaMas()
+ * la cambia por una nueva y congela la anterior, que se reparte y se guarda en el
+ * historial tal cual, sin copias.
+ *
+ * ESTRUCTURA:
+ *  - Número de ronda (el de EstadoRonda) al que pertenecen las apuestas.
+ *  - Mapa jugador → lista de apuestas compiladas.
+ *  - Libro de riesgo de la ronda (se suma al añadir cada apuesta).
+ *
+ * CONCURRENCIA:
+ *  - Abierta: anadir() es thread-safe (ConcurrentHashMap + listas sincronizadas).
+ *  - Cada escritor se apunta con entrar()/salir(). cerrar() marca la ronda y espera a que
+ *    salgan los que ya estaban dentro: después nadie más escribe.
+ *  - Cerrada: getApuestas() se puede leer desde cualquier hilo sin sincronización
+ *    (la espera de cerrar() publica todo lo escrito).
+ *
+ * POSTCONDICIONES:
+ *  - Tras cerrar(), entrar() devuelve false y el contenido ya no cambia.
+ */
+public class ApuestasRonda {
+
+    // --- ATRIBUTOS ---
+    private final int ronda;
+    private final Map<Jugador, List<ApuestaCompilada>> apuestas;
+    private final LibroRiesgo riesgo;
+    private final AtomicInteger escritores;
+    private volatile boolean cerrada;
+
+    // --- CONSTRUCTOR ---
+    /**
+     * POST: Ronda abierta y vacía.
+     *
+     * @param ronda Número de ronda (EstadoRonda) al que pertenecerán las apuestas.
+     */
+    public ApuestasRonda(int ronda) {
+        this.ronda = ronda;
+        this.apuestas = new ConcurrentHashMap<>();
+        this.riesgo = new LibroRiesgo();
+        this.escritores = new AtomicInteger(0);
+        this.cerrada = false;
+    }
+
+    // --- ESCRITURA (RONDA ABIERTA) ---
+
+    /**
+     * Apunta al hilo como escritor de la ronda.
+     *
+     * POST: Si devuelve true, el llamante DEBE llamar a salir() (en un finally).
+     *
+     * @return false si la ronda ya está cerrada.
+     */
+    public boolean entrar() {
+        this.escritores.incrementAndGet();
+        if (this.cerrada) {
+            this.escritores.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Fin de la escritura empezada con entrar().
+     */
+    public void salir() {
+        this.escritores.decrementAndGet();
+    }
+
+    /**
+     * Añade una apuesta ya aceptada (saldo descontado) y la suma al libro de riesgo.
+     *
+     * PRE: El hilo está dentro (entrar() devolvió true).
+     *
+     * @param jug       Jugador que apuesta.
+     * @param compilada Apuesta compilada.
+     */
+    public void anadir(Jugador jug, ApuestaCompilada compilada) {
+        this.apuestas.computeIfAbsent(jug, k -> Collections.synchronizedList(new ArrayList<>()))
+                     .add(compilada);
+        this.riesgo.registrar(compilada);
+    }
+
+    // --- CIERRE ---
+
+    /**
+     * Congela la ronda: no entran más escritores y se espera a los que estaban dentro
+     * (solo los que están a mitad de anadir(), así que la espera es muy corta).
+     *
+     * POST: El contenido ya no cambia.
+     */
+    public void cerrar() {
+        this.cerrada = true;
+        while (this.escritores.get() > 0) {
+            Thread.yield();
+        }
+    }
+
+    // --- CONSULTAS ---
+
+    /**
+     * @return Número de ronda.
+     */
+    public int getRonda() { return this.ronda; }
+
+    /**
+     * @return true si la ronda está cerrada.
+     */
+    public boolean isCerrada() { return this.cerrada; }
+
+    /**
+     * Apuestas de la ronda, sin copiar.
+     *
+     * PRE: Para recorrerlas sin sincronización, la ronda debe estar cerrada.
+     *
+     * @return Vista de solo lectura del mapa jugador → apuestas compiladas.
+     */
+    public Map<Jugador, List<ApuestaCompilada>> getApuestas() {
+        return Collections.unmodifiableMap(this.apuestas);
+    }
+
+    /**
+     * @return Libro de riesgo de la ronda.
+     */
+    public LibroRiesgo getLibroRiesgo() { return this.riesgo; }
+
+    /**
+     * @return true si nadie ha apostado en la ronda.
+     */
+    public boolean isVacia() { return this.apuestas.isEmpty(); }
+}
@@ -0,0 +1,289 @@
+package logicaRuleta.core;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import modeloDominio.Apuesta;
+import modeloDominio.ConexionBinaria;
+import modeloDominio.Dinero;
+import modeloDominio.Jugador;
+import modeloDominio.ProtocoloBinario;
+import modeloDominio.TipoApuesta;
+
+/**
+ * Clase AtencionBinaria
+ * ---------------------
+ * Conversación con un cliente que ha negociado el protocolo binario (ProtocoloBinario).
+ * No hay menús: cada trama del cliente es una petición completa y se contesta con una trama.
+ * No depende del transporte: la usan AtenderJugador (un hilo por cliente) y AtenderJugadorNIO.
+ *
+ * ESPERA DE LA MESA:
+ *  - ESPERAR_RONDA no bloquea: deja la petición anotada (isEsperandoRonda) y mesaCambiada()
+ *    contesta RONDA_ABIERTA en cuanto la mesa abre. El modo clásico espera con VaMasAwait()
+ *    y llama a mesaCambiada(); el modo NIO la llama cuando la mesa avisa.
+ *
+ * VALIDACIÓN:
+ *  - La misma que el diálogo de texto: saldo inicial de 5 a 10.000€, ingresos de hasta 10.000€,
+ *    apuestas de 5 a 10.000€ sin pasar del saldo y con un valor válido para el tipo.
+ *  - Una trama corta o con un código desconocido se contesta con ERROR(TRAMA_NO_VALIDA).
+ *
+ * CONCURRENCIA:
+ *  - No es thread-safe: todos sus métodos se llaman desde el hilo que atiende la conexión.
+ */
+public class AtencionBinaria {
+
+    private static final TipoApuesta[] TIPOS = TipoApuesta.values();
+
+    // Límites del diálogo de texto, en céntimos
+    private static final long MIN_SALDO_INICIAL = 500;
+    private static final long MIN_APUESTA = 500;
+    private static final long MAX_OPERACION = 1_000_000;
+
+    // --- ATRIBUTOS ---
+    private final Casino casino;
+    private final ConexionBinaria conexion;
+    private ServicioRuleta rule; // Mesa en la que está sentado el jugador
+    private Jugador jugador;
+    private boolean esperandoRonda;
+    private boolean cerrada;
+
+    // --- CONSTRUCTOR ---
+    /**
+     * PRE: casino, mesa y conexion != null.
+     *
+     * @param casino   Mesas del casino.
+     * @param mesa     Mesa asignada al cliente al conectarse.
+     * @param conexion Vista binaria de la conexión del cliente.
+     */
+    public AtencionBinaria(Casino casino, ServicioRuleta mesa, ConexionBinaria conexion) {
+        this.casino = casino;
+        this.rule = mesa;
+        this.conexion = conexion;
+    }
+
+    // --- EVENTOS ---
+
+    /**
+     * Confirma la negociación (trama HOLA).
+     */
+    public void iniciar() {
+        this.conexion.enviarTrama(ProtocoloBinario.hola());
+    }
+
+    /**
+     * Procesa una trama del cliente.
+     *
+     * PRE: trama posicionada en el código de operación y con el límite al final de la trama.
+     *
+     * @param trama Código y datos de la trama (sin la cabecera de longitud).
+     */
+    public void procesar(ByteBuffer trama) {
+        if (this.cerrada) {
+            return;
+        }
+        int op = trama.get() & 0xFF;
+        try {
+            switch (op) {
+                case ProtocoloBinario.LOGIN:
+                    this.iniciarSesion(ProtocoloBinario.leerNombre(trama));
+                    break;
+                case ProtocoloBinario.REGISTRO:
+                    long saldo = trama.getLong();
+                    this.registrar(ProtocoloBinario.leerNombre(trama), saldo);
+                    break;
+                case ProtocoloBinario.INGRESAR:
+                    this.ingresar(trama.getLong());
+                    break;
+                case ProtocoloBinario.ESPERAR_RONDA:
+                    if (this.conSesion(op)) {
+                        this.esperandoRonda = true;
+                        this.mesaCambiada(); // Si ya está abierta, contestamos ya
+                    }
+                    break;
+                case ProtocoloBinario.APOSTAR:
+                    int ronda = trama.getInt();
+                    int tipo = trama.get() & 0xFF;
+                    int valor = trama.get() & 0xFF;
+                    this.apostar(ronda, tipo, valor, trama.getInt());
+                    break;
+                case ProtocoloBinario.MESA:
+                    this.elegirMesa(trama.get() & 0xFF);
+                    break;
+                case ProtocoloBinario.SALIR:
+                    this.desconectar();
+                    break;
+                default:
+                    this.error(op, ProtocoloBinario.TRAMA_NO_VALIDA);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            this.error(op, ProtocoloBinario.TRAMA_NO_VALIDA);
+        }
+    }
+
+    /**
+     * Aviso de que alguna mesa ha abierto o cerrado: si el cliente esperaba la apertura
+     * de la suya y ya está abierta, se le manda RONDA_ABIERTA.
+     */
+    public void mesaCambiada() {
+        if (!this.esperandoRonda || this.cerrada) {
+            return;
+        }
+        int abierta = this.rule.getEstadoRonda().getRondaAbierta();
+        if (abierta != 0) {
+            this.esperandoRonda = false;
+            this.conexion.enviarTrama(ProtocoloBinario.rondaAbierta(this.rule.getNumeroMesa(), abierta));
+        }
+    }
+
+    /**
+     * Desconecta al jugador de forma limpia. Idempotente.
+     */
+    public void desconectar() {
+        if (this.cerrada) {
+            return;
+        }
+        this.cerrada = true;
+        this.esperandoRonda = false;
+        try {
+            if (this.jugador != null) {
+                this.rule.desconectarJugador(this.jugador);
+            }
+        } catch (Exception e) {
+            System.out.println("⚠️ Error al desconectar jugador en servidor: " + e.getMessage());
+        }
+        this.conexion.cerrar();
+        if (this.jugador != null) {
+            this.jugador.setSesionIniciada(false);
+            this.jugador = null;
+        }
+    }
+
+    // --- CONSULTAS ---
+
+    /**
+     * @return true si hay un ESPERAR_RONDA sin contestar.
+     */
+    public boolean isEsperandoRonda() {
+        return this.esperandoRonda;
+    }
+
+    /**
+     * @return true si la conversación ya terminó.
+     */
+    public boolean isCerrada() {
+        return this.cerrada;
+    }
+
+    /**
+     * @return Mesa en la que está sentado el cliente.
+     */
+    public ServicioRuleta getMesa() {
+        return this.rule;
+    }
+
+    // --- PETICIONES ---
+
+    private void iniciarSesion(String nombre) {
+        if (this.jugador != null) {
+            this.error(ProtocoloBinario.LOGIN, ProtocoloBinario.SESION_DUPLICADA);
+            return;
+        }
+        Jugador jug = this.rule.inicioSesionDefinitivo(nombre, this.conexion);
+        if (jug == null) {
+            this.conexion.enviarTrama(ProtocoloBinario.sesion(ProtocoloBinario.NO_EXISTE, 0));
+        } else if (!this.conexion.isAbierta()) {
+            // Ya tenía sesión: establecerConexion ha cerrado esta conexión (y la otra)
+            this.cerrada = true;
+        } else {
+            this.jugador = jug;
+            this.conexion.enviarTrama(ProtocoloBinario.sesion(ProtocoloBinario.OK, jug.getSaldoCentimos()));
+        }
+    }
+
+    private void registrar(String nombre, long saldo) {
+        if (this.jugador != null) {
+            this.error(ProtocoloBinario.REGISTRO, ProtocoloBinario.SESION_DUPLICADA);
+            return;
+        }
+        String id = nombre.trim();
+        if (id.isEmpty()) {
+            this.error(ProtocoloBinario.REGISTRO, ProtocoloBinario.TRAMA_NO_VALIDA);
+            return;
+        }
+        if (saldo < MIN_SALDO_INICIAL || saldo > MAX_OPERACION) {
+            this.conexion.enviarTrama(ProtocoloBinario.sesion(ProtocoloBinario.CANTIDAD_NO_VALIDA, 0));
+            return;
+        }
+        Jugador jug = this.rule.registroSesionDefinitivo(id, Dinero.aEuros(saldo), this.conexion);
+        if (jug == null) {
+            this.conexion.enviarTrama(ProtocoloBinario.sesion(ProtocoloBinario.NOMBRE_OCUPADO, 0));
+        } else {
+            this.jugador = jug;
+            this.conexion.enviarTrama(ProtocoloBinario.sesion(ProtocoloBinario.OK, jug.getSaldoCentimos()));
+        }
+    }
+
+    private void ingresar(long centimos) {
+        if (!this.conSesion(ProtocoloBinario.INGRESAR)) {
+            return;
+        }
+        if (centimos <= 0 || centimos > MAX_OPERACION) {
+            this.error(ProtocoloBinario.INGRESAR, ProtocoloBinario.CANTIDAD_NO_VALIDA);
+            return;
+        }
+        this.jugador.sumarCentimos(centimos);
+        this.conexion.enviarTrama(ProtocoloBinario.saldo(this.jugador.getSaldoCentimos()));
+    }
+
+    private void apostar(int ronda, int tipo, int valor, long centimos) {
+        if (!this.conSesion(ProtocoloBinario.APOSTAR)) {
+            return;
+        }
+        String v = (tipo < TIPOS.length) ? ProtocoloBinario.valorApuesta(TIPOS[tipo], valor) : null;
+        if (v == null) {
+            this.error(ProtocoloBinario.APOSTAR, ProtocoloBinario.VALOR_NO_VALIDO);
+            return;
+        }
+        if (centimos < MIN_APUESTA || centimos > MAX_OPERACION) {
+            this.error(ProtocoloBinario.APOSTAR, ProtocoloBinario.CANTIDAD_NO_VALIDA);
+            return;
+        }
+
+        Apuesta ap = new Apuesta(this.jugador, TIPOS[tipo], v, Dinero.aEuros(centimos));
+        if (this.rule.anadirApuesta(this.jugador, ap, ronda)) {
+            this.conexion.enviarTrama(ProtocoloBinario.apuestaAceptada(this.jugador.getSaldoCentimos()));
+        } else if (this.jugador.getSaldoCentimos() < centimos) {
+            this.error(ProtocoloBinario.APOSTAR, ProtocoloBinario.SALDO_INSUFICIENTE);
+        } else {
+            this.error(ProtocoloBinario.APOSTAR, ProtocoloBinario.RONDA_CERRADA);
+        }
+    }
+
+    private void elegirMesa(int numero) {
+        if (!this.conSesion(ProtocoloBinario.MESA)) {
+            return;
+        }
+        ServicioRuleta nueva = (numero == 0) ? this.casino.asignarMesa() : this.casino.getMesa(numero);
+        if (nueva == null) {
+            this.error(ProtocoloBinario.MESA, ProtocoloBinario.MESA_NO_VALIDA);
+            return;
+        }
+        this.rule = this.casino.cambiarMesa(this.jugador, this.rule, nueva);
+        this.conexion.enviarTrama(ProtocoloBinario.mesaAsignada(this.rule.getNumeroMesa()));
+        this.mesaCambiada(); // Si esperaba ronda, ahora es la de la mesa nueva
+    }
+
+    // --- AUXILIARES ---
+
+    private boolean conSesion(int op) {
+        if (this.jugador == null) {
+            this.error(op, ProtocoloBinario.SIN_SESION);
+            return false;
+        }
+        return true;
+    }
+
+    private void error(int op, int motivo) {
+        this.conexion.enviarTrama(ProtocoloBinario.error(op, motivo));
+    }
+}
@@ -1,16 +1,25 @@
 package logicaRuleta.core;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 import modeloDominio.Apuesta;
+import modeloDominio.ConexionBinaria;
 import modeloDominio.Jugador;
+import modeloDominio.ProtocoloBinario;
 import modeloDominio.TipoApuesta;
+import servidor.persistencia.Historial;
+import servidor.persistencia.RondaJugador;
 
 /**
  * Clase AtenderJugador
@@ -20,13 +29,17 @@ import modeloDominio.TipoApuesta;
  *
  * RESPONSABILIDADES:
  *  - Autenticación: inicio de sesión o registro de nuevos jugadores.
- *  - Menú principal: añadir saldo, jugar, desconectar.
- *  - Juego: sincronización con rondas de la ruleta, creación de apuestas, espera de resultados.
+ *  - Menú principal: añadir saldo, jugar, desconectar y ver las últimas rondas jugadas.
+ *  - Juego: sincronización con rondas de la ruleta, creación de apuestas (diálogo o comando
+ *    BET de una línea, ComandoApuesta), espera de resultados.
+ *  - Mesas: con varias mesas en el casino, el jugador elige mesa al entrar a jugar.
  *  - Robustez: manejo de timeouts, desconexiones abruptas y errores de comunicación.
+ *  - Protocolo binario: si el cliente contesta "BINARIO 2" a la bienvenida, el resto de la
+ *    conexión va en tramas (ProtocoloBinario) y la conversación la lleva AtencionBinaria.
  *
  * CONCURRENCIA:
  *  - Cada instancia se ejecuta en un hilo independiente del pool del servidor.
- *  - Se sincroniza con otros jugadores mediante latches (VaMas/NoVaMas).
+ *  - Se sincroniza con la mesa esperando su ronda en el EstadoRonda (VaMas/NoVaMas).
  *
  * TIMEOUT:
  *  - El socket tiene un timeout de 45 segundos para lectura.
@@ -36,8 +49,12 @@ public class AtenderJugador implements Runnable {
 
     // --- ATRIBUTOS ---
     private Socket cliente;
-    private ServicioRuleta rule; // Lógica de negocio compartida
+    private ConexionSocket conexion; // Canal de salida compartido con los broadcasts de la ronda
+    private final Casino casino; // Mesas del casino (registro de jugadores compartido)
+    private ServicioRuleta rule; // Mesa en la que está sentado el jugador
     private Jugador jugador; // El jugador asociado a este hilo (null hasta login/registro)
+    private final Historial historial; // Para "mis últimas rondas" (null = opción no disponible)
+    private AtencionBinaria binaria; // Conversación en tramas (null = protocolo de texto)
 
     // --- CONSTRUCTOR ---
     /**
@@ -56,12 +73,51 @@ public class AtenderJugador implements Runnable {
      * @throws IllegalArgumentException Si el socket o rule son nulos/inválidos.
      */
     public AtenderJugador(Socket cliente, ServicioRuleta rule) {
-        if (cliente == null || cliente.isClosed() || rule == null) {
+        this(cliente, rule == null ? null : new Casino(rule));
+    }
+
+    /**
+     * Inicializa el hilo de atención al jugador en un casino de varias mesas.
+     *
+     * PRE:
+     *  - cliente != null && !cliente.isClosed()
+     *  - casino != null
+     *
+     * POST:
+     *  - El jugador queda asignado a la mesa con menos jugadores (Casino.asignarMesa).
+     *
+     * @param cliente Socket de conexión con el cliente.
+     * @param casino  Mesas del casino.
+     * @throws IllegalArgumentException Si el socket o el casino son nulos/inválidos.
+     */
+    public AtenderJugador(Socket cliente, Casino casino) {
+        this(cliente, casino, null);
+    }
+
+    /**
+     * Inicializa el hilo de atención al jugador con acceso al historial de rondas.
+     *
+     * PRE:
+     *  - cliente != null && !cliente.isClosed()
+     *  - casino != null
+     *
+     * POST:
+     *  - Como el constructor anterior; si historial != null el menú ofrece ver las últimas rondas.
+     *
+     * @param cliente   Socket de conexión con el cliente.
+     * @param casino    Mesas del casino.
+     * @param historial Historial de rondas (puede ser null).
+     * @throws IllegalArgumentException Si el socket o el casino son nulos/inválidos.
+     */
+    public AtenderJugador(Socket cliente, Casino casino, Historial historial) {
+        if (cliente == null || cliente.isClosed() || casino == null) {
             throw new IllegalArgumentException("Socket inválido: nulo o cerrado.");
         }
         
         this.cliente = cliente;
-        this.rule = rule;
+        this.casino = casino;
+        this.rule = casino.asignarMesa();
+        this.historial = historial;
         this.jugador = null; // Se asignará en login/registro
     }
 
@@ -87,12 +143,17 @@ public class AtenderJugador implements Runnable {
             BufferedReader in = new BufferedReader(new InputStreamReader(cliente.getInputStream()));
             PrintWriter out = new PrintWriter(cliente.getOutputStream(), true) // autoFlush activado
         ) {
+            // El servidor escribe a este cliente siempre por el mismo PrintWriter
+            this.conexion = new ConexionSocket(this.cliente, out, this.rule.getPoolServer());
             
             // El servidor se puede quedar atascado leyendo al cliente, lo que provocará un cliente fantasma.
             // El cliente solo tiene 30 segundos para mandar un mensaje, sino se cerrará la conexión.
             // Entonces el servidor solo tiene 45 segundos para intentar leer al cliente (tiene 15 segundos de gracia)
             // sino cierra conexión.
             this.cliente.setSoTimeout(45000);
+            // Cada println sale en su propio segmento: sin Nagle, las líneas de una respuesta no esperan
+            // al ACK (retardado) de la anterior, que costaba ~40 ms por intercambio
+            this.cliente.setTcpNoDelay(true);
             
             // --- FASE 1: LOGIN / REGISTRO ---
             boolean logueado = false;
@@ -107,7 +168,12 @@ public class AtenderJugador implements Runnable {
                 String opcion = safeReadLine(in, out);
                 if (opcion == null) return; // Cliente cerró conexión
 
-                if (opcion.equals("1")) {
+                if (opcion.startsWith(ProtocoloBinario.SALUDO)) {
+                    if (this.negociarBinario(opcion, out)) {
+                        this.atenderBinario();
+                        return;
+                    }
+                } else if (opcion.equals("1")) {
                     logueado = iniciarSesion(in, out);
                 } else {
                     // Aquí no dejamos escapar a nadie, si no inicias sesión te registras.
@@ -126,6 +192,9 @@ public class AtenderJugador implements Runnable {
                     out.println("1. Añadir saldo");
                     out.println("2. Entrar a la Ruleta (Jugar)");
                     out.println("3. Desconectar");
+                    if (this.historial != null) {
+                        out.println("4. Ver mis últimas rondas");
+                    }
                     out.println("Elige una opción:");
                     out.println("NECESITO RESPUESTA");
 
@@ -137,13 +206,23 @@ public class AtenderJugador implements Runnable {
                             opcionAnadirSaldo(in, out);
                             break;
                         case "2":
-                            opcionJugar(in, out);
+                            if (this.casino.getNumMesas() == 1 || elegirMesa(in, out)) {
+                                opcionJugar(in, out);
+                            }
                             break;
                         case "3":
                             out.println("¡Hasta pronto!");
                             this.desconectar();
                             salir = true;
                             break;
+                        case "4":
+                            if (this.historial != null) {
+                                opcionUltimasRondas(in, out);
+                            } else {
+                                // Sin historial, como cualquier otra opción desconocida
+                                out.println("❌ Opción incorrecta.");
+                            }
+                            break;
                         default:
                             out.println("❌ Opción incorrecta.");
                     }
@@ -215,6 +294,93 @@ public class AtenderJugador implements Runnable {
         }
     }
 
+    /**
+     * Opción 4: Ver las últimas rondas en las que ha apostado el jugador.
+     *
+     * PRE:
+     *  - jugador != null && jugador.isSesionIniciada()
+     *  - historial != null
+     *
+     * POST:
+     *  - Se muestran hasta N rondas (de la más reciente a la más antigua) con la casilla
+     *    ganadora, las apuestas del jugador y lo que cobró. Se leen con el índice por jugador,
+     *    así que no depende del tamaño del historial.
+     *  - Con una respuesta no válida se vuelve al menú.
+     *
+     * @param in  BufferedReader del cliente.
+     * @param out PrintWriter del cliente.
+     */
+    private void opcionUltimasRondas(BufferedReader in, PrintWriter out) {
+        out.println("¿Cuántas rondas quieres ver? (1-" + RondaJugador.MAX_RONDAS + ", vacío = " + RondaJugador.RONDAS_POR_DEFECTO + ")");
+        out.println("NECESITO RESPUESTA");
+        String linea = safeReadLine(in, out);
+        if (linea == null) return; // Cliente cerró conexión
+
+        int n = RondaJugador.leerCantidad(linea);
+        if (n == 0) {
+            out.println("⚠️ Número de rondas no válido.");
+            return;
+        }
+
+        List<RondaJugador> rondas = this.historial.ultimasRondas(this.jugador, n);
+        if (rondas.isEmpty()) {
+            out.println("Aún no hay rondas tuyas en el historial.");
+            return;
+        }
+        out.println("--- TUS ÚLTIMAS " + rondas.size() + " RONDAS ---");
+        for (RondaJugador r : rondas) {
+            for (String l : r.describir()) {
+                out.println(l);
+            }
+        }
+    }
+
+    /**
+     * Opción 2 (con varias mesas): elegir la mesa antes de jugar.
+     *
+     * PRE:
+     *  - jugador != null && jugador.isSesionIniciada()
+     *  - in, out != null
+     *
+     * POST:
+     *  - Se muestran las mesas con sus jugadores sentados.
+     *  - Con un número válido el jugador se cambia a esa mesa; con 0 se le asigna la más libre.
+     *  - Con una respuesta no válida se queda en la mesa en la que estaba.
+     *  - Retorna false si se perdió la conexión.
+     *
+     * @param in  BufferedReader del cliente.
+     * @param out PrintWriter del cliente.
+     * @return true si el jugador puede seguir a la mesa.
+     */
+    private boolean elegirMesa(BufferedReader in, PrintWriter out) {
+        out.println("--- MESAS ---");
+        for (ServicioRuleta mesa : this.casino.getMesas()) {
+            out.println("Mesa " + mesa.getNumeroMesa() + ": " + mesa.getNumJugadoresMesa() + " jugadores"
+                + (mesa == this.rule ? " (estás aquí)" : ""));
+        }
+        out.println("¿En qué mesa quieres jugar? (1-" + this.casino.getNumMesas() + ", 0 = automática)");
+        out.println("NECESITO RESPUESTA");
+
+        String linea = safeReadLine(in, out);
+        if (linea == null) return false; // Cliente cerró conexión
+
+        ServicioRuleta nueva;
+        try {
+            int numero = Integer.parseInt(linea.trim());
+            nueva = (numero == 0) ? this.casino.asignarMesa() : this.casino.getMesa(numero);
+        } catch (NumberFormatException e) {
+            nueva = null;
+        }
+
+        if (nueva == null) {
+            out.println("⚠️ Mesa no válida, sigues en la mesa " + this.rule.getNumeroMesa() + ".");
+        } else {
+            this.rule = this.casino.cambiarMesa(this.jugador, this.rule, nueva);
+        }
+        out.println("🎰 Mesa " + this.rule.getNumeroMesa());
+        return true;
+    }
+
     /**
      * Opción 2: Entrar a la ruleta y realizar apuestas.
      *
@@ -224,13 +390,15 @@ public class AtenderJugador implements Runnable {
      *
      * POST:
      *  - El jugador espera a que se abra la mesa (VaMas).
-     *  - Puede realizar múltiples apuestas mientras la mesa esté abierta.
+     *  - Puede realizar múltiples apuestas mientras la mesa esté abierta, con el diálogo
+     *    (crearApuesta) o con una línea "BET <TIPO> <VALOR> <CANTIDAD>" (ComandoApuesta).
      *  - Espera al resultado (NoVaMas).
      *  - Si hay error de comunicación, se desconecta.
      *
      * SINCRONIZACIÓN:
-     *  - VaMasAwait(): espera a que el servidor abra la mesa.
-     *  - noVaMasAwait(): espera a que el servidor cierre la mesa y reparta premios.
+     *  - VaMasAwait(): espera a que el servidor abra la mesa y devuelve el número de ronda.
+     *  - Las apuestas se sellan con esa ronda: si llegan tarde (ya hay otra), se rechazan.
+     *  - noVaMasAwait(ronda): espera a que el servidor cierre ESA ronda (si ya cerró, no espera).
      *
      * @param in  BufferedReader del cliente.
      * @param out PrintWriter del cliente.
@@ -250,7 +418,7 @@ public class AtenderJugador implements Runnable {
             
             
             
-            this.rule.VaMasAwait(); 
+            int ronda = this.rule.VaMasAwait();
             out.println("--- ¡HAGAN JUEGO! (Mesa Abierta) ---");
             
             boolean seguirApostando = true;
@@ -263,14 +431,27 @@ public class AtenderJugador implements Runnable {
                 
                 out.println("1. Apostar");
                 out.println("2. Terminar apuestas (Esperar resultado)");
+                out.println(ComandoApuesta.AYUDA);
                 out.println("NECESITO RESPUESTA");
                 
                 String op = safeReadLine(in, out);
                 if (op == null) return; // Cliente cerró conexión
 
-                if (op.equals("1")) {
-                    Apuesta ap = this.crearApuesta(in, out);
-                    if (ap != null && this.rule.anadirApuesta(jugador, ap)) {
+                boolean comando = ComandoApuesta.esComando(op);
+                if (op.equals("1") || comando) {
+                    Apuesta ap;
+                    if (comando) {
+                        // Apuesta completa en una línea: un solo intercambio en lugar de cuatro
+                        try {
+                            ap = ComandoApuesta.leer(op, this.jugador);
+                        } catch (IllegalArgumentException e) {
+                            out.println(e.getMessage());
+                            continue; // Comando no válido: seguimos en el menú de apuestas
+                        }
+                    } else {
+                        ap = this.crearApuesta(in, out);
+                    }
+                    if (ap != null && this.rule.anadirApuesta(jugador, ap, ronda)) {
                         out.println("✅ Apuesta guardada con éxito.");
                     } else {
                         out.println("⚠️ No se pudo guardar la apuesta.");
@@ -288,7 +469,7 @@ public class AtenderJugador implements Runnable {
 
             // Esperamos al resultado (sin timeout, según tu decisión)
             out.println("⏳ Esperando a que gire la bola... ");
-            this.rule.noVaMasAwait();
+            this.rule.noVaMasAwait(ronda);
             out.println("--- FIN DE LA RONDA ---");
 
         } catch (InterruptedException e) {
@@ -346,7 +527,7 @@ public class AtenderJugador implements Runnable {
 
 		// Intentamos iniciar sesión en el servidor
 		try {
-		    this.jugador = this.rule.inicioSesionDefinitivo(id, cliente);
+		    this.jugador = this.rule.inicioSesionDefinitivo(id, this.conexion);
 		} catch (Exception e) {
 		    out.println("❌ Error al acceder al servidor de ruleta. Se cerrará la conexión.");
 		    this.desconectar();
@@ -435,7 +616,7 @@ public class AtenderJugador implements Runnable {
 
 		// 3. Intentar registrar en el servidor
 		try {
-		    this.jugador = this.rule.registroSesionDefinitivo(id, saldo, cliente);
+		    this.jugador = this.rule.registroSesionDefinitivo(id, saldo, this.conexion);
 		} catch (Exception e) {
 		    out.println("❌ Error al registrar en el servidor. Se cerrará la conexión.");
 		    this.desconectar();
@@ -618,6 +799,71 @@ public class AtenderJugador implements Runnable {
 		return new Apuesta(jugador, tipoSeleccionado, valorApostado, cantidad);
     }
 
+    // --- PROTOCOLO BINARIO ---
+
+    /**
+     * Respuesta "BINARIO <versión>" a la bienvenida.
+     *
+     * POST:
+     *  - Con la versión soportada se crea la AtencionBinaria y se contesta con la trama HOLA.
+     *  - Si no, se avisa en texto y se vuelve a la bienvenida.
+     *
+     * @param saludo Línea recibida.
+     * @param out    PrintWriter del cliente.
+     * @return true si la conexión pasa a binario.
+     */
+    private boolean negociarBinario(String saludo, PrintWriter out) {
+        String version = saludo.substring(ProtocoloBinario.SALUDO.length()).trim();
+        ConexionBinaria conexionBinaria = null;
+        if (version.equals(String.valueOf(ProtocoloBinario.VERSION))) {
+            conexionBinaria = this.conexion.pasarABinario();
+        }
+        if (conexionBinaria == null) {
+            out.println("❌ Versión de protocolo no soportada (" + saludo + "), se sigue en texto.");
+            return false;
+        }
+        this.binaria = new AtencionBinaria(this.casino, this.rule, conexionBinaria);
+        this.binaria.iniciar();
+        return true;
+    }
+
+    /**
+     * Bucle del protocolo binario: lee una trama, la procesa y, si el cliente espera
+     * la apertura de la mesa, se bloquea hasta que abra (como VaMasAwait en opcionJugar).
+     *
+     * PRE: negociarBinario() devolvió true. El cliente no manda tramas antes de recibir HOLA,
+     *      así que el BufferedReader de texto no se ha quedado con ningún byte de ellas.
+     *
+     * POST: Vuelve al cerrarse la conversación, la conexión o al agotarse el timeout.
+     */
+    private void atenderBinario() throws IOException {
+        DataInputStream entrada = new DataInputStream(new BufferedInputStream(this.cliente.getInputStream()));
+        byte[] trama = new byte[ProtocoloBinario.MAX_TRAMA_CLIENTE];
+
+        try {
+            while (!this.binaria.isCerrada()) {
+                int len = entrada.readUnsignedShort();
+                if (len == 0 || len > trama.length) {
+                    System.out.println("Trama no válida de cliente (" + len + " bytes), se cierra la conexión.");
+                    break;
+                }
+                entrada.readFully(trama, 0, len);
+                this.binaria.procesar(ByteBuffer.wrap(trama, 0, len));
+
+                while (this.binaria.isEsperandoRonda()) {
+                    this.binaria.getMesa().VaMasAwait();
+                    this.binaria.mesaCambiada();
+                }
+            }
+        } catch (EOFException e) {
+            // El cliente cerró la conexión entre tramas o a mitad de una
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.binaria.desconectar();
+        }
+    }
+
     // --- MÉTODO AUXILIAR DE LECTURA ---
     /**
      * Lee una línea del cliente con manejo robusto de timeout y desconexión.
@@ -679,6 +925,12 @@ public class AtenderJugador implements Runnable {
      *  - Es seguro llamar este método desde múltiples puntos (idempotente).
      */
     public void desconectar() {
+        if (this.binaria != null) {
+            // En binario no hay despedida en texto: AtencionBinaria cierra la sesión y el socket
+            this.binaria.desconectar();
+            return;
+        }
+
         // 1. Actualizar BD / servidor
         try {
             if (jugador != null) {
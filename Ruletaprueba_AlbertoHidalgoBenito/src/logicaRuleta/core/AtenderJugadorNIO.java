@@ -0,0 +1,927 @@
+package logicaRuleta.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import modeloDominio.Apuesta;
+import modeloDominio.ConexionBinaria;
+import modeloDominio.ConexionJugador;
+import modeloDominio.Jugador;
+import modeloDominio.ProtocoloBinario;
+import modeloDominio.TipoApuesta;
+import servidor.persistencia.Historial;
+import servidor.persistencia.RondaJugador;
+
+/**
+ * Clase AtenderJugadorNIO
+ * -----------------------
+ * Conversación con un cliente en el modo NIO, como máquina de estados.
+ * Es el equivalente de AtenderJugador, pero sin hilo propio: en lugar de bloquearse en
+ * readLine() o en los latches de la mesa, guarda en qué punto del diálogo está y avanza
+ * cuando el bucle de eventos le entrega una línea (procesarLinea) o cuando la mesa
+ * abre o cierra (mesaCambiada).
+ *
+ * PROTOCOLO:
+ *  - Mismas líneas, en el mismo orden, que AtenderJugador (login, menú, apuestas),
+ *    incluido el marcador "NECESITO RESPUESTA". Los clientes actuales no notan la diferencia.
+ *  - En el menú de apuestas acepta también el comando de una línea BET (ComandoApuesta).
+ *  - Con varias mesas en el casino, también la misma elección de mesa (ELEGIR_MESA).
+ *  - Con historial, la misma opción 4 de últimas rondas (ULTIMAS_RONDAS). Se envía como un
+ *    único mensaje de varias líneas para no llenar la cola de salida de la sesión.
+ *  - Si el cliente contesta "BINARIO 2" a la bienvenida, pasa al estado BINARIO: el bucle le
+ *    entrega tramas (procesarTrama) y la conversación la lleva AtencionBinaria, igual que en
+ *    el modo clásico. En ese estado el timeout corre salvo con un ESPERAR_RONDA pendiente.
+ *
+ * CONCURRENCIA:
+ *  - No es thread-safe: todos sus métodos se llaman desde el hilo del bucle NIO que
+ *    atiende la conexión. Solo la ConexionJugador se comparte con otros hilos.
+ *  - Lo que puede bloquear se hace fuera del bucle (consultar, estado CONSULTANDO): el inicio
+ *    de sesión y el registro, que esperan a la carga de la BD de jugadores, y la consulta al
+ *    historial, que puede descomprimir segmentos. El resultado vuelve al hilo del bucle.
+ *
+ * TIMEOUT:
+ *  - El bucle NIO consulta isEsperandoRespuesta() y getUltimaActividad() para cerrar
+ *    a los clientes que llevan 45 segundos sin contestar, igual que el modo clásico.
+ */
+public class AtenderJugadorNIO {
+
+    /**
+     * Punto de la conversación en el que se encuentra el cliente.
+     */
+    private enum Estado {
+        MENU_INICIO,
+        LOGIN_NOMBRE,
+        LOGIN_PREFIERE_REGISTRO,
+        REGISTRO_NOMBRE,
+        REGISTRO_SALDO,
+        MENU_PRINCIPAL,
+        ANADIR_SALDO,
+        ULTIMAS_RONDAS,
+        CONSULTANDO,
+        ELEGIR_MESA,
+        ESPERANDO_MESA,
+        MENU_APUESTA,
+        APUESTA_CANTIDAD,
+        APUESTA_TIPO,
+        APUESTA_VALOR,
+        ESPERANDO_BOLA,
+        BINARIO,
+        CERRADO
+    }
+
+    private static final String SALTO = System.lineSeparator(); // El mismo que pone enviar() al final
+
+    // --- ATRIBUTOS ---
+    private final Casino casino;
+    private final Historial historial; // null = sin opción de últimas rondas
+    private final Executor consultas;  // Hilos para leer el historial (null = en el hilo actual)
+    private final Executor bucle;      // Devuelve el resultado al hilo del bucle NIO
+    private ServicioRuleta rule; // Mesa en la que está sentado el jugador
+    private final ConexionJugador conexion;
+    private Jugador jugador;
+    private Estado estado;
+    private AtencionBinaria binaria; // Solo en el estado BINARIO
+
+    // Datos parciales del registro y de la apuesta en curso
+    private String nombreRegistro;
+    private double cantidadApuesta;
+    private TipoApuesta tipoApuesta;
+
+    // Ronda en la que juega el cliente (la que estaba abierta al entrar a la mesa)
+    private int ronda;
+
+    // Líneas que llegan mientras se espera a la mesa (el modo clásico las dejaría en el BufferedReader)
+    private final Deque<String> pendientes;
+
+    private long ultimaActividad;
+
+    // --- CONSTRUCTOR ---
+    /**
+     * PRE:
+     *  - casino != null
+     *  - conexion != null && conexion.isAbierta()
+     *
+     * POST: El jugador queda asignado a la mesa con menos jugadores (Casino.asignarMesa).
+     *
+     * @param casino   Mesas del casino.
+     * @param conexion Conexión NIO del cliente.
+     * @throws IllegalArgumentException Si algún parámetro es nulo.
+     */
+    public AtenderJugadorNIO(Casino casino, ConexionJugador conexion) {
+        this(casino, conexion, null);
+    }
+
+    /**
+     * Como el constructor anterior, con la opción de ver las últimas rondas.
+     *
+     * @param casino    Mesas del casino.
+     * @param conexion  Conexión NIO del cliente.
+     * @param historial Historial de rondas (puede ser null).
+     * @throws IllegalArgumentException Si el casino o la conexión son nulos.
+     */
+    public AtenderJugadorNIO(Casino casino, ConexionJugador conexion, Historial historial) {
+        this(casino, conexion, historial, null, null);
+    }
+
+    /**
+     * Como el constructor anterior, leyendo el historial fuera del hilo del bucle.
+     *
+     * PRE: consultas y bucle son los dos null (consulta en el hilo actual) o los dos no null.
+     *
+     * @param casino    Mesas del casino.
+     * @param conexion  Conexión NIO del cliente.
+     * @param historial Historial de rondas (puede ser null).
+     * @param consultas Ejecutor de las consultas al historial.
+     * @param bucle     Ejecutor que corre las tareas en el hilo del bucle NIO de esta conexión.
+     * @throws IllegalArgumentException Si el casino o la conexión son nulos.
+     */
+    public AtenderJugadorNIO(Casino casino, ConexionJugador conexion, Historial historial, Executor consultas, Executor bucle) {
+        if (casino == null || conexion == null) {
+            throw new IllegalArgumentException("Servicio o conexión nulos.");
+        }
+        this.casino = casino;
+        this.historial = historial;
+        this.consultas = consultas;
+        this.bucle = bucle;
+        this.rule = casino.asignarMesa();
+        this.conexion = conexion;
+        this.jugador = null;
+        this.estado = Estado.MENU_INICIO;
+        this.pendientes = new ArrayDeque<>();
+        this.ultimaActividad = System.currentTimeMillis();
+    }
+
+    // --- EVENTOS DEL BUCLE NIO ---
+
+    /**
+     * Arranca la conversación (pantalla de bienvenida).
+     */
+    public void iniciar() {
+        this.mostrarBienvenida();
+    }
+
+    /**
+     * Procesa una línea recibida del cliente.
+     *
+     * PRE: linea != null (sin el salto de línea).
+     * POST: La conversación avanza al siguiente estado y se envían las respuestas.
+     *
+     * @param linea Línea recibida.
+     */
+    public void procesarLinea(String linea) {
+        this.ultimaActividad = System.currentTimeMillis();
+
+        if (this.estado == Estado.ESPERANDO_MESA || this.estado == Estado.ESPERANDO_BOLA
+                || this.estado == Estado.CONSULTANDO) {
+            this.pendientes.addLast(linea);
+            return;
+        }
+        this.procesar(linea);
+    }
+
+    /**
+     * Procesa una trama recibida del cliente (estado BINARIO).
+     *
+     * PRE: trama posicionada en el código de operación (SesionNIO.leerTramas).
+     *
+     * @param trama Trama recibida.
+     */
+    public void procesarTrama(ByteBuffer trama) {
+        this.ultimaActividad = System.currentTimeMillis();
+        this.binaria.procesar(trama);
+        if (this.binaria.isCerrada()) {
+            this.estado = Estado.CERRADO;
+        }
+    }
+
+    /**
+     * Aviso de que alguna mesa del casino ha abierto o cerrado (solo cuenta la del jugador).
+     * Desbloquea a las sesiones que esperaban la apertura (VaMasAwait) o el cierre de su
+     * ronda (noVaMasAwait). Los avisos se pueden juntar, así que se mira la ronda y no solo
+     * si la mesa está abierta: si la ronda del cliente ya cerró, ha terminado aunque la mesa
+     * haya vuelto a abrir.
+     */
+    public void mesaCambiada() {
+        if (this.estado == Estado.BINARIO) {
+            this.binaria.mesaCambiada();
+            return;
+        }
+        int abierta = this.rule.getEstadoRonda().getRondaAbierta();
+        if (this.estado == Estado.ESPERANDO_MESA && abierta != 0) {
+            this.ronda = abierta;
+            this.ultimaActividad = System.currentTimeMillis();
+            this.conexion.enviar("--- ¡HAGAN JUEGO! (Mesa Abierta) ---");
+            this.mostrarMenuApuesta();
+        } else if (this.estado == Estado.ESPERANDO_BOLA && this.rule.getEstadoRonda().isCerrada(this.ronda)) {
+            this.ultimaActividad = System.currentTimeMillis();
+            this.conexion.enviar("--- FIN DE LA RONDA ---");
+            this.mostrarMenuPrincipal();
+        } else {
+            return;
+        }
+        this.procesarPendientes();
+    }
+
+    /**
+     * Consume lo que el cliente escribió mientras esperaba (a la mesa o a una consulta).
+     */
+    private void procesarPendientes() {
+        while (!this.pendientes.isEmpty()
+                && this.estado != Estado.ESPERANDO_MESA
+                && this.estado != Estado.ESPERANDO_BOLA
+                && this.estado != Estado.CONSULTANDO
+                && this.estado != Estado.CERRADO) {
+            this.procesar(this.pendientes.pollFirst());
+        }
+    }
+
+    /**
+     * @return true si la conversación espera una línea del cliente (corre el timeout).
+     */
+    public boolean isEsperandoRespuesta() {
+        if (this.estado == Estado.BINARIO) {
+            return !this.binaria.isEsperandoRonda();
+        }
+        return this.estado != Estado.ESPERANDO_MESA
+            && this.estado != Estado.ESPERANDO_BOLA
+            && this.estado != Estado.CONSULTANDO
+            && this.estado != Estado.CERRADO;
+    }
+
+    /**
+     * @return Instante (ms) de la última línea recibida o del último cambio de mesa atendido.
+     */
+    public long getUltimaActividad() {
+        return this.ultimaActividad;
+    }
+
+    /**
+     * @return true si la conversación ya terminó.
+     */
+    public boolean isCerrada() {
+        return this.estado == Estado.CERRADO;
+    }
+
+    /**
+     * El cliente cerró su extremo de la conexión (equivale a readLine() == null).
+     */
+    public void conexionCerradaPorCliente() {
+        if (this.estado == Estado.BINARIO) {
+            this.desconectar();
+            return;
+        }
+        this.conexion.enviar("❌ Conexión cerrada por el cliente.");
+        this.desconectar();
+    }
+
+    /**
+     * Cierre por timeout de lectura (45s sin respuesta).
+     */
+    public void tiempoAgotado() {
+        if (this.estado == Estado.BINARIO) {
+            this.desconectar();
+            return;
+        }
+        this.conexion.enviar("⏳ Tiempo de espera agotado (45s). Se cerrará la conexión.");
+        this.desconectar();
+    }
+
+    /**
+     * Desconecta al jugador de forma limpia. Idempotente.
+     *
+     * POST:
+     *  - Se actualiza el estado del jugador en el servidor.
+     *  - Se envía la despedida y se cierra la conexión.
+     */
+    public void desconectar() {
+        if (this.estado == Estado.CERRADO) {
+            return;
+        }
+        boolean binario = this.estado == Estado.BINARIO;
+        this.estado = Estado.CERRADO;
+        this.pendientes.clear();
+        if (binario) {
+            // En binario no hay despedida en texto: AtencionBinaria cierra la sesión y la conexión
+            this.binaria.desconectar();
+            return;
+        }
+
+        // La despedida se encola antes de cerrar: la sesión NIO vacía su cola antes de cerrar el canal
+        this.conexion.enviar("MUCHAS GRACIAS POR JUGAR");
+
+        try {
+            if (this.jugador != null) {
+                this.rule.desconectarJugador(this.jugador);
+            }
+        } catch (Exception e) {
+            System.out.println("⚠️ Error al desconectar jugador en servidor: " + e.getMessage());
+        }
+
+        this.conexion.cerrar();
+
+        if (this.jugador != null) {
+            this.jugador.setSesionIniciada(false);
+            this.jugador = null;
+        }
+    }
+
+    // --- MÁQUINA DE ESTADOS ---
+
+    private void procesar(String linea) {
+        switch (this.estado) {
+            case MENU_INICIO:
+                if (linea.startsWith(ProtocoloBinario.SALUDO)) {
+                    this.negociarBinario(linea);
+                } else if (linea.equals("1")) {
+                    this.conexion.enviar("--- INICIANDO SESION ---");
+                    this.conexion.enviar("Nombre de usuario:");
+                    this.pedirRespuesta(Estado.LOGIN_NOMBRE);
+                } else {
+                    // Aquí no dejamos escapar a nadie, si no inicias sesión te registras.
+                    this.empezarRegistro();
+                }
+                break;
+
+            case LOGIN_NOMBRE:
+                this.iniciarSesion(linea);
+                break;
+
+            case LOGIN_PREFIERE_REGISTRO:
+                if ("si".equalsIgnoreCase(linea)) {
+                    this.empezarRegistro();
+                } else {
+                    this.conexion.enviar("❌ No se pudo iniciar sesión tras varios intentos. Se cerrará la conexión.");
+                    this.desconectar();
+                }
+                break;
+
+            case REGISTRO_NOMBRE:
+                String id = linea.trim();
+                if (id.isEmpty()) {
+                    this.conexion.enviar("❌ El nombre no puede estar vacío.");
+                    this.pedirNombreRegistro();
+                } else {
+                    this.nombreRegistro = id;
+                    this.pedirSaldoRegistro();
+                }
+                break;
+
+            case REGISTRO_SALDO:
+                this.procesarSaldoRegistro(linea);
+                break;
+
+            case MENU_PRINCIPAL:
+                switch (linea) {
+                    case "1":
+                        this.conexion.enviar("¿Cuánto dinero quieres ingresar?");
+                        this.pedirRespuesta(Estado.ANADIR_SALDO);
+                        break;
+                    case "2":
+                        if (this.casino.getNumMesas() > 1) {
+                            this.mostrarMesas();
+                        } else {
+                            this.entrarMesa();
+                        }
+                        break;
+                    case "3":
+                        this.conexion.enviar("¡Hasta pronto!");
+                        this.desconectar();
+                        break;
+                    case "4":
+                        if (this.historial != null) {
+                            this.conexion.enviar("¿Cuántas rondas quieres ver? (1-" + RondaJugador.MAX_RONDAS
+                                + ", vacío = " + RondaJugador.RONDAS_POR_DEFECTO + ")");
+                            this.pedirRespuesta(Estado.ULTIMAS_RONDAS);
+                        } else {
+                            // Sin historial, como cualquier otra opción desconocida
+                            this.conexion.enviar("❌ Opción incorrecta.");
+                            this.mostrarMenuPrincipal();
+                        }
+                        break;
+                    default:
+                        this.conexion.enviar("❌ Opción incorrecta.");
+                        this.mostrarMenuPrincipal();
+                }
+                break;
+
+            case ANADIR_SALDO:
+                this.procesarAnadirSaldo(linea);
+                break;
+
+            case ELEGIR_MESA:
+                this.procesarEleccionMesa(linea);
+                break;
+
+            case ULTIMAS_RONDAS:
+                this.procesarUltimasRondas(linea);
+                break;
+
+            case MENU_APUESTA:
+                if (linea.equals("1")) {
+                    this.empezarApuesta();
+                } else if (ComandoApuesta.esComando(linea)) {
+                    this.procesarComandoApuesta(linea);
+                } else {
+                    this.conexion.enviar("Apuestas finalizadas por el jugador.");
+                    this.esperarBola();
+                }
+                break;
+
+            case APUESTA_CANTIDAD:
+                this.procesarCantidadApuesta(linea);
+                break;
+
+            case APUESTA_TIPO:
+                this.procesarTipoApuesta(linea);
+                break;
+
+            case APUESTA_VALOR:
+                this.procesarValorApuesta(linea);
+                break;
+
+            default:
+                // ESPERANDO_* y CONSULTANDO nunca llegan aquí, en BINARIO no llegan líneas y en CERRADO se ignora todo
+                break;
+        }
+    }
+
+    // --- LOGIN / REGISTRO ---
+
+    /**
+     * Respuesta "BINARIO <versión>" a la bienvenida: con la versión soportada se pasa al
+     * estado BINARIO y se contesta HOLA; si no, se avisa en texto y se repite la bienvenida.
+     */
+    private void negociarBinario(String saludo) {
+        String version = saludo.substring(ProtocoloBinario.SALUDO.length()).trim();
+        ConexionBinaria conexionBinaria = null;
+        if (version.equals(String.valueOf(ProtocoloBinario.VERSION))) {
+            conexionBinaria = this.conexion.pasarABinario();
+        }
+        if (conexionBinaria == null) {
+            this.conexion.enviar("❌ Versión de protocolo no soportada (" + saludo + "), se sigue en texto.");
+            this.mostrarBienvenida();
+            return;
+        }
+        this.binaria = new AtencionBinaria(this.casino, this.rule, conexionBinaria);
+        this.estado = Estado.BINARIO;
+        this.binaria.iniciar();
+    }
+
+    private void mostrarBienvenida() {
+        this.conexion.enviar("=== BIENVENIDO AL CASINO ===");
+        this.conexion.enviar("1. Iniciar Sesion");
+        this.conexion.enviar("2. Registrarse");
+        this.pedirRespuesta(Estado.MENU_INICIO);
+    }
+
+    private void empezarRegistro() {
+        this.conexion.enviar("--- REGISTRO ---");
+        this.pedirNombreRegistro();
+    }
+
+    private void pedirNombreRegistro() {
+        this.conexion.enviar("Nombre deseado:");
+        this.pedirRespuesta(Estado.REGISTRO_NOMBRE);
+    }
+
+    private void pedirSaldoRegistro() {
+        this.conexion.enviar("Saldo inicial:");
+        this.pedirRespuesta(Estado.REGISTRO_SALDO);
+    }
+
+    private void procesarSaldoRegistro(String entrada) {
+        double saldo;
+        try {
+            saldo = Double.parseDouble(entrada);
+        } catch (NumberFormatException e) {
+            this.conexion.enviar("❌ Introduce un número válido (ej: 100 o 250.5).");
+            this.pedirSaldoRegistro();
+            return;
+        }
+
+        if (saldo < 5) {
+            this.conexion.enviar("❌ El saldo inicial debe ser al menos 5€.");
+            this.pedirSaldoRegistro();
+        } else if (saldo > 10000) {
+            this.conexion.enviar("❌ El saldo inicial no puede superar los 10.000€.");
+            this.pedirSaldoRegistro();
+        } else {
+            // El alta espera a que la BD de jugadores esté cargada entera: fuera del bucle
+            ServicioRuleta mesa = this.rule;
+            String nombre = this.nombreRegistro;
+            this.consultar(() -> mesa.registroSesionDefinitivo(nombre, saldo, this.conexion), jug -> {
+                if (this.estado == Estado.CERRADO) {
+                    this.soltarJugador(jug); // Se fue mientras se registraba
+                    return;
+                }
+                this.jugador = jug;
+                if (jug == null) {
+                    this.conexion.enviar("❌ El nombre de usuario ya existe. Intenta con otro.");
+                    this.empezarRegistro();
+                } else {
+                    this.conexion.enviar("✅ Registro completado. Bienvenido " + jug.getID() + "!");
+                    this.mostrarMenuPrincipal();
+                }
+            });
+        }
+    }
+
+    /**
+     * Inicio de sesión. Si la BD se está cargando y el nombre aún no se ha leído, la búsqueda
+     * espera a la carga: por eso va fuera del bucle.
+     */
+    private void iniciarSesion(String nombre) {
+        ServicioRuleta mesa = this.rule;
+        this.consultar(() -> mesa.inicioSesionDefinitivo(nombre, this.conexion), jug -> {
+            if (this.estado == Estado.CERRADO) {
+                this.soltarJugador(jug); // Se fue mientras se buscaba
+                return;
+            }
+            this.jugador = jug;
+            if (jug == null) {
+                this.conexion.enviar("No ha sido posible iniciar sesión. ¿Prefiere registrar? (si/no)");
+                this.pedirRespuesta(Estado.LOGIN_PREFIERE_REGISTRO);
+            } else {
+                this.mostrarMenuPrincipal();
+            }
+        });
+    }
+
+    /**
+     * Libera un jugador cuya sesión se abrió cuando la conexión ya estaba cerrada.
+     */
+    private void soltarJugador(Jugador jug) {
+        if (jug == null) {
+            return;
+        }
+        try {
+            this.rule.desconectarJugador(jug);
+        } catch (Exception e) {
+            System.out.println("⚠️ Error al desconectar jugador en servidor: " + e.getMessage());
+        }
+        jug.setSesionIniciada(false);
+    }
+
+    // --- MENÚ PRINCIPAL ---
+
+    private void mostrarMenuPrincipal() {
+        this.conexion.enviar("\n--- MENÚ PRINCIPAL ---");
+        this.conexion.enviar("Saldo actual: " + this.jugador.getSaldo() + "€");
+        this.conexion.enviar("1. Añadir saldo");
+        this.conexion.enviar("2. Entrar a la Ruleta (Jugar)");
+        this.conexion.enviar("3. Desconectar");
+        if (this.historial != null) {
+            this.conexion.enviar("4. Ver mis últimas rondas");
+        }
+        this.conexion.enviar("Elige una opción:");
+        this.pedirRespuesta(Estado.MENU_PRINCIPAL);
+    }
+
+    private void procesarUltimasRondas(String linea) {
+        int n = RondaJugador.leerCantidad(linea);
+        if (n == 0) {
+            this.conexion.enviar("⚠️ Número de rondas no válido.");
+            this.mostrarMenuPrincipal();
+            return;
+        }
+
+        // La lectura puede descomprimir segmentos: fuera del bucle, que atiende a muchos más clientes
+        Jugador jug = this.jugador;
+        this.consultar(() -> this.consultarHistorial(jug, n), this::mostrarUltimasRondas);
+    }
+
+    /**
+     * Lee las rondas del jugador; ante un fallo inesperado devuelve una lista vacía.
+     */
+    private List<RondaJugador> consultarHistorial(Jugador jug, int n) {
+        try {
+            return this.historial.ultimasRondas(jug, n);
+        } catch (RuntimeException e) {
+            System.err.println("⚠️ Error leyendo el historial de " + jug.getID() + ": " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Envía las rondas consultadas y vuelve al menú. Siempre en el hilo del bucle.
+     * Todas las líneas van en un solo mensaje: 50 rondas con sus apuestas, línea a línea,
+     * bastarían para desbordar la cola de salida de la sesión.
+     */
+    private void mostrarUltimasRondas(List<RondaJugador> rondas) {
+        if (this.estado == Estado.CERRADO) {
+            return; // Se desconectó mientras se leía el historial
+        }
+        if (rondas.isEmpty()) {
+            this.conexion.enviar("Aún no hay rondas tuyas en el historial.");
+        } else {
+            StringBuilder sb = new StringBuilder(64 * rondas.size());
+            sb.append("--- TUS ÚLTIMAS ").append(rondas.size()).append(" RONDAS ---");
+            for (RondaJugador r : rondas) {
+                for (String l : r.describir()) {
+                    sb.append(SALTO).append(l);
+                }
+            }
+            this.conexion.enviar(sb.toString());
+        }
+        this.mostrarMenuPrincipal();
+    }
+
+    // --- ELECCIÓN DE MESA ---
+
+    private void mostrarMesas() {
+        this.conexion.enviar("--- MESAS ---");
+        for (ServicioRuleta mesa : this.casino.getMesas()) {
+            this.conexion.enviar("Mesa " + mesa.getNumeroMesa() + ": " + mesa.getNumJugadoresMesa() + " jugadores"
+                + (mesa == this.rule ? " (estás aquí)" : ""));
+        }
+        this.conexion.enviar("¿En qué mesa quieres jugar? (1-" + this.casino.getNumMesas() + ", 0 = automática)");
+        this.pedirRespuesta(Estado.ELEGIR_MESA);
+    }
+
+    private void procesarEleccionMesa(String linea) {
+        ServicioRuleta nueva;
+        try {
+            int numero = Integer.parseInt(linea.trim());
+            nueva = (numero == 0) ? this.casino.asignarMesa() : this.casino.getMesa(numero);
+        } catch (NumberFormatException e) {
+            nueva = null;
+        }
+
+        if (nueva == null) {
+            this.conexion.enviar("⚠️ Mesa no válida, sigues en la mesa " + this.rule.getNumeroMesa() + ".");
+        } else {
+            this.rule = this.casino.cambiarMesa(this.jugador, this.rule, nueva);
+        }
+        this.conexion.enviar("🎰 Mesa " + this.rule.getNumeroMesa());
+        this.entrarMesa();
+    }
+
+    private void entrarMesa() {
+        this.conexion.enviar("⏳ Esperando a que se abra la mesa...");
+        this.estado = Estado.ESPERANDO_MESA;
+        this.mesaCambiada(); // Si ya está abierta, entramos directamente
+    }
+
+    private void procesarAnadirSaldo(String cantStr) {
+        double cantidad;
+        try {
+            cantidad = Double.parseDouble(cantStr);
+        } catch (NumberFormatException e) {
+            this.conexion.enviar("⚠️ Error: Introduce un número válido (ej: 100 o 250.5).");
+            this.pedirRespuesta(Estado.ANADIR_SALDO);
+            return;
+        }
+
+        if (cantidad <= 0) {
+            this.conexion.enviar("⚠️ La cantidad debe ser positiva.");
+            this.pedirRespuesta(Estado.ANADIR_SALDO);
+        } else if (cantidad > 10000) {
+            this.conexion.enviar("⚠️ El máximo permitido por operación es 10.000€.");
+            this.pedirRespuesta(Estado.ANADIR_SALDO);
+        } else {
+            this.jugador.sumarGanancia(cantidad);
+            this.conexion.enviar("✅ Saldo añadido correctamente. Nuevo saldo: " + this.jugador.getSaldo() + "€");
+            this.mostrarMenuPrincipal();
+        }
+    }
+
+    // --- MESA Y APUESTAS ---
+
+    private void mostrarMenuApuesta() {
+        if (this.jugador.getSaldo() < 5) {
+            this.conexion.enviar("❌ No tienes saldo suficiente");
+            this.esperarBola();
+            return;
+        }
+        this.conexion.enviar("1. Apostar");
+        this.conexion.enviar("2. Terminar apuestas (Esperar resultado)");
+        this.conexion.enviar(ComandoApuesta.AYUDA);
+        this.pedirRespuesta(Estado.MENU_APUESTA);
+    }
+
+    private void esperarBola() {
+        this.conexion.enviar("⏳ Esperando a que gire la bola... ");
+        this.estado = Estado.ESPERANDO_BOLA;
+        this.mesaCambiada(); // Si la mesa ya cerró, la ronda ha terminado para este jugador
+    }
+
+    private void empezarApuesta() {
+        if (this.jugador.getSaldo() < 5) {
+            this.conexion.enviar("❌ No tienes saldo suficiente");
+            this.apuestaFallida();
+            return;
+        }
+        this.conexion.enviar("\n--- NUEVA APUESTA ---");
+        this.conexion.enviar("Saldo actual: " + this.jugador.getSaldo() + "€");
+        this.pedirCantidadApuesta();
+    }
+
+    private void pedirCantidadApuesta() {
+        this.conexion.enviar("¿Cuánto quieres apostar?");
+        this.pedirRespuesta(Estado.APUESTA_CANTIDAD);
+    }
+
+    private void procesarCantidadApuesta(String entrada) {
+        double cantidad;
+        try {
+            cantidad = Double.parseDouble(entrada);
+        } catch (NumberFormatException e) {
+            this.conexion.enviar("❌ Introduce un número válido (ej: 10.5).");
+            this.pedirCantidadApuesta();
+            return;
+        }
+
+        if (cantidad < 5) {
+            this.conexion.enviar("❌ La cantidad mínima es 5€.");
+            this.pedirCantidadApuesta();
+        } else if (cantidad > 10000) {
+            this.conexion.enviar("❌ El máximo permitido por apuesta es 10.000€.");
+            this.pedirCantidadApuesta();
+        } else if (cantidad > this.jugador.getSaldo()) {
+            this.conexion.enviar("❌ No tienes suficiente saldo (Tienes: " + this.jugador.getSaldo() + "€).");
+            this.pedirCantidadApuesta();
+        } else {
+            this.cantidadApuesta = cantidad;
+            this.conexion.enviar("¿Qué tipo de apuesta quieres hacer?");
+            this.conexion.enviar("1- NUMERO (Pleno)");
+            this.conexion.enviar("2- COLOR");
+            this.conexion.enviar("3- PAR / IMPAR");
+            this.conexion.enviar("4- DOCENA");
+            this.pedirRespuesta(Estado.APUESTA_TIPO);
+        }
+    }
+
+    private void procesarTipoApuesta(String s) {
+        try {
+            int op = Integer.parseInt(s);
+            if (op >= 1 && op <= 4) {
+                this.tipoApuesta = TipoApuesta.values()[op - 1];
+                this.pedirValorApuesta();
+                return;
+            }
+            this.conexion.enviar("❌ Elige entre 1 y 4.");
+        } catch (NumberFormatException e) {
+            this.conexion.enviar("❌ Introduce un número válido.");
+        }
+        this.pedirRespuesta(Estado.APUESTA_TIPO);
+    }
+
+    private void pedirValorApuesta() {
+        switch (this.tipoApuesta) {
+            case NUMERO:
+                this.conexion.enviar("Elige número (0-36): ");
+                break;
+            case COLOR:
+                this.conexion.enviar("Elige color (ROJO / NEGRO): ");
+                break;
+            case PAR_IMPAR:
+                this.conexion.enviar("Elige paridad (PAR / IMPAR): ");
+                break;
+            case DOCENA:
+                this.conexion.enviar("Elige docena (1, 2 o 3): ");
+                break;
+        }
+        this.pedirRespuesta(Estado.APUESTA_VALOR);
+    }
+
+    private void procesarValorApuesta(String linea) {
+        String valor = null;
+
+        switch (this.tipoApuesta) {
+            case NUMERO:
+                try {
+                    int num = Integer.parseInt(linea);
+                    if (num >= 0 && num <= 36) {
+                        valor = String.valueOf(num);
+                    } else {
+                        this.conexion.enviar("❌ Número fuera de rango.");
+                    }
+                } catch (NumberFormatException e) {
+                    this.conexion.enviar("❌ Error de formato.");
+                }
+                break;
+
+            case COLOR:
+                String color = linea.toUpperCase().trim();
+                if (color.equals("ROJO") || color.equals("NEGRO")) {
+                    valor = color;
+                } else {
+                    this.conexion.enviar("❌ Escribe ROJO o NEGRO.");
+                }
+                break;
+
+            case PAR_IMPAR:
+                String paridad = linea.toUpperCase().trim();
+                if (paridad.equals("PAR") || paridad.equals("IMPAR")) {
+                    valor = paridad;
+                } else {
+                    this.conexion.enviar("❌ Escribe PAR o IMPAR.");
+                }
+                break;
+
+            case DOCENA:
+                String docena = linea.trim();
+                if (docena.equals("1") || docena.equals("2") || docena.equals("3")) {
+                    valor = docena;
+                } else {
+                    this.conexion.enviar("❌ Escribe 1, 2 o 3.");
+                }
+                break;
+        }
+
+        if (valor == null) {
+            this.pedirValorApuesta();
+            return;
+        }
+
+        this.guardarApuesta(new Apuesta(this.jugador, this.tipoApuesta, valor, this.cantidadApuesta));
+    }
+
+    /**
+     * Apuesta completa en una línea (BET, ver ComandoApuesta). Si no es válida se explica
+     * el motivo y se vuelve al menú de apuestas, como hace el modo clásico.
+     */
+    private void procesarComandoApuesta(String linea) {
+        Apuesta ap;
+        try {
+            ap = ComandoApuesta.leer(linea, this.jugador);
+        } catch (IllegalArgumentException e) {
+            this.conexion.enviar(e.getMessage());
+            this.mostrarMenuApuesta();
+            return;
+        }
+        this.guardarApuesta(ap);
+    }
+
+    private void guardarApuesta(Apuesta ap) {
+        if (this.rule.anadirApuesta(this.jugador, ap, this.ronda)) {
+            this.conexion.enviar("✅ Apuesta guardada con éxito.");
+            this.mostrarMenuApuesta();
+        } else {
+            this.apuestaFallida();
+        }
+    }
+
+    private void apuestaFallida() {
+        // Igual que el modo clásico: si no se pudo guardar (normalmente NoVaMas), dejamos de apostar.
+        this.conexion.enviar("⚠️ No se pudo guardar la apuesta.");
+        this.esperarBola();
+    }
+
+    // --- AUXILIARES ---
+
+    /**
+     * Envía el marcador del protocolo y pasa a esperar la respuesta en el estado indicado.
+     */
+    // --- CONSULTAS FUERA DEL BUCLE ---
+
+    /**
+     * Hace fuera del hilo del bucle un trabajo que puede bloquear y continúa la conversación
+     * con su resultado en el hilo del bucle. Mientras tanto el estado es CONSULTANDO: no corre
+     * el timeout y las líneas que llegan se guardan para después.
+     * Sin ejecutor de consultas (o con el servidor cerrándose) se hace en el hilo actual.
+     *
+     * @param consulta  Trabajo que puede bloquear; no toca el estado de la conversación.
+     * @param respuesta Sigue la conversación con el resultado. Se llama aunque el cliente se
+     *                  haya desconectado entretanto (estado CERRADO), para que pueda deshacer.
+     */
+    private <T> void consultar(Supplier<T> consulta, Consumer<T> respuesta) {
+        if (this.consultas != null) {
+            this.estado = Estado.CONSULTANDO;
+            try {
+                this.consultas.execute(() -> {
+                    T resultado;
+                    try {
+                        resultado = consulta.get();
+                    } catch (RuntimeException e) {
+                        System.err.println("⚠️ Error atendiendo a un cliente: " + e.getMessage());
+                        this.bucle.execute(this::desconectar);
+                        return;
+                    }
+                    this.bucle.execute(() -> this.responder(respuesta, resultado));
+                });
+                return;
+            } catch (RejectedExecutionException e) {
+                // Servidor cerrándose: se hace aquí mismo
+            }
+        }
+        this.responder(respuesta, consulta.get());
+    }
+
+    private <T> void responder(Consumer<T> respuesta, T resultado) {
+        respuesta.accept(resultado);
+        this.procesarPendientes();
+    }
+
+    private void pedirRespuesta(Estado siguiente) {
+        this.conexion.enviar("NECESITO RESPUESTA");
+        this.estado = siguiente;
+    }
+}
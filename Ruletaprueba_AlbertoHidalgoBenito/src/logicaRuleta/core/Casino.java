@@ -0,0 +1,186 @@
+package logicaRuleta.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import modeloDominio.Jugador;
+import servidor.persistencia.AlmacenJugadores;
+
+/**
+ * Clase Casino
+ * ------------
+ * Conjunto de mesas de ruleta independientes que comparten el registro de jugadores.
+ *
+ * ESTRUCTURA:
+ *  - Una ServicioRuleta por mesa, cada una con su ronda, sus apuestas y su MotorDifusion.
+ *    Cada mesa la dirige su propio GiraPelotita en su propio hilo (FabricaHilos.crearRelojMesa),
+ *    así que las mesas no comparten ningún lock ni ningún hilo del ciclo de ronda.
+ *  - Un único RegistroJugadores: la cuenta, el saldo y la sesión del jugador son las mismas
+ *    en todas las mesas.
+ *  - El pool del servidor (conexiones, historial) sí se comparte, y también el guardado
+ *    de los jugadores (PersistenciaJugadores del registro).
+ *
+ * ASIGNACIÓN:
+ *  - Al conectarse, el jugador se sienta en la mesa con menos jugadores (asignarMesa).
+ *  - Desde el menú puede elegir otra (cambiarMesa).
+ *
+ * PRECONDICIONES:
+ *  - numMesas >= 1
+ *
+ * POSTCONDICIONES:
+ *  - Con una sola mesa el comportamiento es exactamente el de un único ServicioRuleta.
+ */
+public class Casino {
+
+    // --- ATRIBUTOS ---
+    private final RegistroJugadores registro;
+    private final List<ServicioRuleta> mesas;
+
+    // --- CONSTRUCTORES ---
+
+    /**
+     * Crea el casino con 'numMesas' mesas sobre los jugadores cargados de la BD.
+     * Los hilos de difusión se reparten entre las mesas (mínimo 2 por mesa).
+     *
+     * PRE:
+     *  - jugadores != null
+     *  - pool != null
+     *  - numMesas >= 1
+     *
+     * @param jugadores      Jugadores existentes (se envuelven, no se copian).
+     * @param pool           Pool de hilos del servidor, compartido por todas las mesas.
+     * @param almacen        Foto de los jugadores, XML o binaria (null para un casino sin BD).
+     * @param hilosVirtuales true para usar hilos virtuales en el reparto de las rondas.
+     * @param numMesas       Número de mesas.
+     * @throws IllegalArgumentException Si numMesas < 1.
+     */
+    public Casino(List<Jugador> jugadores, ExecutorService pool, AlmacenJugadores almacen, boolean hilosVirtuales, int numMesas) {
+        this(new RegistroJugadores(jugadores, almacen), pool, hilosVirtuales, numMesas);
+    }
+
+    /**
+     * Crea el casino con 'numMesas' mesas sobre un registro ya creado
+     * (por ejemplo, uno que se está cargando con RegistroJugadores.cargarEnSegundoPlano).
+     *
+     * PRE:
+     *  - registro != null
+     *  - pool != null
+     *  - numMesas >= 1
+     *
+     * @param registro       Registro de jugadores compartido por todas las mesas.
+     * @param pool           Pool de hilos del servidor, compartido por todas las mesas.
+     * @param hilosVirtuales true para usar hilos virtuales en el reparto de las rondas.
+     * @param numMesas       Número de mesas.
+     * @throws IllegalArgumentException Si numMesas < 1.
+     */
+    public Casino(RegistroJugadores registro, ExecutorService pool, boolean hilosVirtuales, int numMesas) {
+        if (numMesas < 1) {
+            throw new IllegalArgumentException("El casino necesita al menos una mesa.");
+        }
+        this.registro = registro;
+
+        int hilosDifusion = Math.max(2, ServicioRuleta.HILOS_DIFUSION / numMesas);
+        List<ServicioRuleta> lista = new ArrayList<>(numMesas);
+        for (int i = 1; i <= numMesas; i++) {
+            lista.add(new ServicioRuleta(this.registro, pool, hilosVirtuales, i, hilosDifusion));
+        }
+        this.mesas = Collections.unmodifiableList(lista);
+    }
+
+    /**
+     * Casino de una sola mesa ya creada.
+     *
+     * PRE: mesa != null
+     *
+     * @param mesa Única mesa del casino.
+     */
+    public Casino(ServicioRuleta mesa) {
+        this.registro = mesa.getRegistro();
+        this.mesas = Collections.singletonList(mesa);
+    }
+
+    // --- GETTERS ---
+
+    public RegistroJugadores getRegistro() { return this.registro; }
+
+    public int getNumMesas() { return this.mesas.size(); }
+
+    /**
+     * @return Lista inmutable de mesas, en orden (la mesa 1 es la primera).
+     */
+    public List<ServicioRuleta> getMesas() { return this.mesas; }
+
+    /**
+     * Obtiene una mesa por su número.
+     *
+     * @param numero Número de la mesa (1..getNumMesas()).
+     * @return La mesa, o null si el número no existe.
+     */
+    public ServicioRuleta getMesa(int numero) {
+        if (numero < 1 || numero > this.mesas.size()) {
+            return null;
+        }
+        return this.mesas.get(numero - 1);
+    }
+
+    // --- ASIGNACIÓN DE MESA ---
+
+    /**
+     * Elige la mesa con menos jugadores sentados (la primera en caso de empate).
+     * Es orientativo: dos jugadores que llegan a la vez pueden acabar en la misma mesa.
+     *
+     * @return Mesa asignada.
+     */
+    public ServicioRuleta asignarMesa() {
+        ServicioRuleta elegida = this.mesas.get(0);
+        int minimo = elegida.getNumJugadoresMesa();
+        for (int i = 1; i < this.mesas.size() && minimo > 0; i++) {
+            ServicioRuleta mesa = this.mesas.get(i);
+            int n = mesa.getNumJugadoresMesa();
+            if (n < minimo) {
+                elegida = mesa;
+                minimo = n;
+            }
+        }
+        return elegida;
+    }
+
+    /**
+     * Cambia de mesa a un jugador conectado.
+     *
+     * PRE:
+     *  - jug != null, con sesión iniciada en 'actual'.
+     *  - Debe llamarse fuera de una ronda en juego del jugador (sus apuestas ya se sellaron
+     *    con la ronda de 'actual' y se reparten allí).
+     *
+     * POST:
+     *  - jug deja de recibir la casilla de 'actual' y pasa a recibir la de 'nueva'.
+     *  - Si actual == nueva no hace nada.
+     *
+     * @param jug    Jugador que cambia de mesa.
+     * @param actual Mesa en la que está sentado.
+     * @param nueva  Mesa a la que va.
+     * @return La mesa en la que queda sentado el jugador.
+     */
+    public ServicioRuleta cambiarMesa(Jugador jug, ServicioRuleta actual, ServicioRuleta nueva) {
+        if (nueva == null || nueva == actual) {
+            return actual;
+        }
+        actual.levantar(jug);
+        nueva.sentar(jug);
+        return nueva;
+    }
+
+    // --- CIERRE ---
+
+    /**
+     * Detiene los hilos de reparto de todas las mesas (cierre del servidor).
+     */
+    public void cerrarReparto() {
+        for (ServicioRuleta mesa : this.mesas) {
+            mesa.cerrarReparto();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package logicaRuleta.core;
+
+import java.util.Locale;
+
+import modeloDominio.Apuesta;
+import modeloDominio.Jugador;
+import modeloDominio.TipoApuesta;
+
+/**
+ * Clase ComandoApuesta
+ * --------------------
+ * Apuesta en una sola línea: "BET <TIPO> <VALOR> <CANTIDAD>", por ejemplo:
+ *   BET NUMERO 17 25
+ *   BET COLOR ROJO 10
+ *   BET PAR_IMPAR IMPAR 5
+ *   BET DOCENA 2 50
+ *
+ * Sustituye a las cuatro preguntas de crearApuesta (opción, cantidad, tipo, valor): el cliente
+ * la manda en el menú de apuestas en lugar de "1" y recibe la respuesta en un solo intercambio.
+ * Como el servidor lee línea a línea, un cliente puede mandar varias seguidas sin esperar al
+ * "NECESITO RESPUESTA" de cada una. El diálogo interactivo sigue funcionando igual.
+ *
+ * VALIDACIÓN:
+ *  - La misma que el diálogo: cantidad entre 5 y 10.000€ y no mayor que el saldo; NUMERO 0-36,
+ *    COLOR ROJO/NEGRO, PAR_IMPAR PAR/IMPAR, DOCENA 1-3. Mayúsculas o minúsculas indistintas.
+ *
+ * POSTCONDICIONES:
+ *  - leer() devuelve una Apuesta válida o lanza IllegalArgumentException con el mensaje para el cliente.
+ */
+public final class ComandoApuesta {
+
+    /**
+     * Palabra con la que empieza el comando.
+     */
+    public static final String COMANDO = "BET";
+
+    /**
+     * Ayuda que se muestra en el menú de apuestas.
+     */
+    public static final String AYUDA = "   (o en una línea: BET <NUMERO|COLOR|PAR_IMPAR|DOCENA> <valor> <cantidad>, ej: BET NUMERO 17 25)";
+
+    // Constructor privado para evitar instanciación
+    private ComandoApuesta() {}
+
+    /**
+     * @param linea Línea recibida del cliente.
+     * @return true si la línea es un comando BET (válido o no).
+     */
+    public static boolean esComando(String linea) {
+        String s = linea.trim();
+        return s.regionMatches(true, 0, COMANDO, 0, COMANDO.length())
+            && (s.length() == COMANDO.length() || Character.isWhitespace(s.charAt(COMANDO.length())));
+    }
+
+    /**
+     * Interpreta y valida un comando BET.
+     *
+     * PRE:
+     *  - esComando(linea)
+     *  - jugador != null
+     *
+     * @param linea   Línea recibida del cliente.
+     * @param jugador Jugador que apuesta (para comprobar su saldo).
+     * @return Apuesta lista para ServicioRuleta.anadirApuesta.
+     * @throws IllegalArgumentException Si el comando está mal formado o no es válido; el mensaje es para el cliente.
+     */
+    public static Apuesta leer(String linea, Jugador jugador) {
+        String[] partes = linea.trim().split("\\s+");
+        if (partes.length != 4) {
+            throw new IllegalArgumentException("❌ Formato: BET <TIPO> <VALOR> <CANTIDAD> (ej: BET NUMERO 17 25).");
+        }
+
+        TipoApuesta tipo;
+        try {
+            tipo = TipoApuesta.valueOf(partes[1].toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("❌ Tipo no válido: usa NUMERO, COLOR, PAR_IMPAR o DOCENA.");
+        }
+
+        String valor = leerValor(tipo, partes[2].toUpperCase(Locale.ROOT));
+
+        double cantidad;
+        try {
+            cantidad = Double.parseDouble(partes[3]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("❌ Introduce un número válido (ej: 10.5).");
+        }
+        if (cantidad < 5) {
+            throw new IllegalArgumentException("❌ La cantidad mínima es 5€.");
+        } else if (cantidad > 10000) {
+            throw new IllegalArgumentException("❌ El máximo permitido por apuesta es 10.000€.");
+        } else if (cantidad > jugador.getSaldo()) {
+            throw new IllegalArgumentException("❌ No tienes suficiente saldo (Tienes: " + jugador.getSaldo() + "€).");
+        }
+
+        return new Apuesta(jugador, tipo, valor, cantidad);
+    }
+
+    /**
+     * Valor normalizado como lo deja el diálogo interactivo (p. ej. "07" → "7").
+     */
+    private static String leerValor(TipoApuesta tipo, String v) {
+        switch (tipo) {
+            case NUMERO:
+                try {
+                    int num = Integer.parseInt(v);
+                    if (num >= 0 && num <= 36) {
+                        return String.valueOf(num);
+                    }
+                } catch (NumberFormatException e) {
+                    // Mismo mensaje que fuera de rango
+                }
+                throw new IllegalArgumentException("❌ Número fuera de rango (0-36).");
+            case COLOR:
+                if (v.equals("ROJO") || v.equals("NEGRO")) {
+                    return v;
+                }
+                throw new IllegalArgumentException("❌ Escribe ROJO o NEGRO.");
+            case PAR_IMPAR:
+                if (v.equals("PAR") || v.equals("IMPAR")) {
+                    return v;
+                }
+                throw new IllegalArgumentException("❌ Escribe PAR o IMPAR.");
+            default: // DOCENA
+                if (v.equals("1") || v.equals("2") || v.equals("3")) {
+                    return v;
+                }
+                throw new IllegalArgumentException("❌ Escribe 1, 2 o 3.");
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package logicaRuleta.core;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import logicaRuleta.concurrencia.MetricasSalida;
+import modeloDominio.ConexionBinaria;
+import modeloDominio.ConexionJugador;
+import modeloDominio.MensajeCodificado;
+
+/**
+ * Clase ConexionSocket
+ * --------------------
+ * Implementación de ConexionJugador sobre un Socket bloqueante (modo clásico, un hilo por cliente).
+ * Comparte el PrintWriter de AtenderJugador: todo el texto (menús del hilo del cliente y
+ * avisos de la ronda) sale con println() por ese mismo writer. Cada println se escribe entero
+ * bajo el lock del PrintWriter, así que un mensaje nunca se mezcla a medias con otro; entre
+ * dos mensajes distintos el orden es el de llegada al writer.
+ *
+ * COLA DE SALIDA:
+ *  - enviar() solo encola la línea en una cola acotada; una tarea escritora del pool la vacía.
+ *    Un cliente con la ventana TCP llena bloquea a su escritor, no al reparto de la ronda.
+ *  - Si la cola se llena (el cliente no lee), se cierra el socket y se anota en MetricasSalida.
+ *  - Como mucho hay una tarea escritora por conexión a la vez.
+ *  - El resultado de la ronda llega ya compuesto (MensajeCodificado): se encola la cadena con
+ *    todas sus líneas, compartida por la mesa, y sale en un único println. El desenlace va
+ *    igual, resultado y premio en la misma cadena, así que nunca se separan.
+ *
+ * PROTOCOLO BINARIO:
+ *  - Si el cliente negocia el protocolo binario, pasarABinario() da la vista ConexionBinaria de esta
+ *    misma conexión: sus tramas van por la misma cola y el mismo escritor, sin pasar por el PrintWriter.
+ *    Es el único caso en que se escriben bytes directamente: en binario AtenderJugador ya no
+ *    escribe texto. La lectura de tramas la hace AtenderJugador.
+ *
+ * PRECONDICIONES:
+ *  - socket != null
+ *  - out != null y escribe sobre el OutputStream de ese socket (autoFlush activado).
+ *
+ * POSTCONDICIONES:
+ *  - Los mensajes de la cola se escriben completos y en el orden en que se encolaron.
+ */
+public class ConexionSocket implements ConexionJugador {
+
+    /**
+     * Líneas pendientes como máximo. Una ronda genera unas pocas por jugador.
+     */
+    public static final int MAX_PENDIENTES = 256;
+
+    // --- ATRIBUTOS ---
+    private final Socket socket;
+    private final PrintWriter out;
+    private final Executor escritor;
+
+    private final BlockingQueue<Object> pendientes; // Texto (String) o tramas binarias (ByteBuffer)
+    private final AtomicBoolean escribiendo;
+
+    // Solo los usa la tarea escritora
+    private OutputStream salidaBytes;
+    private WritableByteChannel canalBytes;
+
+    // --- CONSTRUCTOR ---
+    /**
+     * @param socket   Socket del cliente.
+     * @param out      PrintWriter del cliente (el mismo que usa AtenderJugador).
+     * @param escritor Pool donde se ejecutan las tareas escritoras.
+     */
+    public ConexionSocket(Socket socket, PrintWriter out, Executor escritor) {
+        this.socket = socket;
+        this.out = out;
+        this.escritor = escritor;
+        this.pendientes = new ArrayBlockingQueue<>(MAX_PENDIENTES);
+        this.escribiendo = new AtomicBoolean(false);
+    }
+
+    // --- CONEXIONJUGADOR ---
+    @Override
+    public void enviar(String linea) {
+        this.encolar(linea);
+    }
+
+    /**
+     * Encola las líneas del resultado en una cadena, compartida con el resto de la mesa.
+     */
+    @Override
+    public void enviarResultado(MensajeCodificado resultado) {
+        this.encolar(resultado.getLineasTexto());
+    }
+
+    /**
+     * Resultado y premio en una sola cadena: un único elemento de la cola y un único println.
+     */
+    @Override
+    public void enviarDesenlace(MensajeCodificado resultado, long netaCentimos, long saldoCentimos) {
+        this.encolar(resultado.getLineasTexto(netaCentimos, saldoCentimos));
+    }
+
+    private void encolar(Object mensaje) {
+        if (!this.isAbierta()) {
+            return;
+        }
+        if (!this.pendientes.offer(mensaje)) {
+            MetricasSalida.registrarDesbordamiento(this.socket.getRemoteSocketAddress(), this.pendientes.size());
+            this.cerrar();
+            return;
+        }
+        this.programarEscritura();
+    }
+
+    @Override
+    public boolean isAbierta() {
+        return !this.socket.isClosed();
+    }
+
+    @Override
+    public void cerrar() {
+        this.pendientes.clear();
+        if (this.socket.isClosed()) {
+            return;
+        }
+        try {
+            this.socket.close();
+        } catch (IOException e) {
+            // Log silencioso, no propagamos
+            System.err.println("⚠️ Error cerrando socket: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return Socket subyacente.
+     */
+    public Socket getSocket() {
+        return this.socket;
+    }
+
+    /**
+     * @return Vista binaria que escribe las tramas por la misma cola.
+     */
+    @Override
+    public ConexionBinaria pasarABinario() {
+        return new ConexionBinaria() {
+            @Override
+            public void enviarTrama(ByteBuffer trama) {
+                ConexionSocket.this.encolar(trama);
+            }
+
+            @Override
+            public boolean isAbierta() {
+                return ConexionSocket.this.isAbierta();
+            }
+
+            @Override
+            public void cerrar() {
+                ConexionSocket.this.cerrar();
+            }
+        };
+    }
+
+    // --- ESCRITOR ---
+
+    private void programarEscritura() {
+        if (this.pendientes.isEmpty()) {
+            return;
+        }
+        if (this.escribiendo.compareAndSet(false, true)) {
+            try {
+                this.escritor.execute(this::vaciar);
+            } catch (RejectedExecutionException e) {
+                this.escribiendo.set(false); // Pool apagado (cierre del servidor)
+            }
+        }
+    }
+
+    private void vaciar() {
+        try {
+            Object mensaje;
+            boolean bytes = false;
+            while (this.isAbierta() && (mensaje = this.pendientes.poll()) != null) {
+                if (mensaje instanceof ByteBuffer) {
+                    this.escribirBytes((ByteBuffer) mensaje);
+                    bytes = true;
+                } else {
+                    if (bytes) {
+                        this.salidaBytes.flush(); // Que la línea no adelante a los bytes anteriores
+                        bytes = false;
+                    }
+                    this.out.println(mensaje);
+                }
+            }
+            if (bytes) {
+                this.salidaBytes.flush(); // Todo lo de la cola en una sola escritura
+            }
+        } catch (IOException e) {
+            // El socket se ha caído: lo que quede ya no se puede entregar
+            this.cerrar();
+        } finally {
+            this.escribiendo.set(false);
+        }
+        // Lo que se encoló mientras terminábamos
+        if (this.isAbierta()) {
+            this.programarEscritura();
+        }
+    }
+
+    /**
+     * Escribe una trama binaria sin pasar por el PrintWriter.
+     * Las vistas de solo lectura no exponen su array: el canal los copia al buffer del stream.
+     */
+    private void escribirBytes(ByteBuffer datos) throws IOException {
+        if (this.canalBytes == null) {
+            this.salidaBytes = new BufferedOutputStream(this.socket.getOutputStream());
+            this.canalBytes = Channels.newChannel(this.salidaBytes);
+        }
+        while (datos.hasRemaining()) {
+            this.canalBytes.write(datos);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package logicaRuleta.core;
+
+import java.util.concurrent.Phaser;
+
+/**
+ * Clase EstadoRonda
+ * -----------------
+ * Estado de la mesa: qué ronda es y si está abierta o cerrada, en un único valor atómico.
+ * Sustituye a los latches VaMas/noVaMas (que se cambiaban por otros nuevos en cada ronda)
+ * y al flag isNoVaMas.
+ *
+ * ESTRUCTURA:
+ *  - Un Phaser con una sola parte registrada (el crupier). Cada apertura o cierre es un arrive(),
+ *    que avanza la fase en 1. La fase lo dice todo:
+ *      fase 0 → ronda 1 abierta, fase 1 → ronda 1 cerrada, fase 2 → ronda 2 abierta, ...
+ *  - ronda = fase / 2 + 1; abierta si la fase es par.
+ *  - Como es un solo entero, ronda y estado se leen siempre juntos y coherentes.
+ *
+ * CONCURRENCIA:
+ *  - Lecturas sin bloqueo (getFase() es una lectura volatile).
+ *  - Los hilos esperan una ronda/fase concreta con awaitAdvance: no se crea ningún latch por ronda
+ *    y no se puede perder un aviso ni esperar en un objeto viejo.
+ *  - abrir()/cerrar() solo los llama el hilo del crupier.
+ *
+ * POSTCONDICIONES:
+ *  - La mesa empieza abierta en la ronda 1 (igual que antes con los latches a null).
+ *  - La fase del Phaser vuelve a 0 tras Integer.MAX_VALUE avances; a una ronda cada pocos
+ *    segundos son siglos, así que no se trata.
+ */
+public class EstadoRonda {
+
+    // --- ATRIBUTOS ---
+    private final Phaser fases;
+
+    // --- CONSTRUCTOR ---
+    /**
+     * POST: Ronda 1 abierta.
+     */
+    public EstadoRonda() {
+        this.fases = new Phaser(1); // Única parte: el crupier
+    }
+
+    // --- FASE (VALOR ATÓMICO) ---
+
+    /**
+     * @return Fase actual. Se decodifica con isAbierta(fase) y ronda(fase).
+     */
+    public int getFase() {
+        return this.fases.getPhase();
+    }
+
+    /**
+     * @param fase Fase leída con getFase().
+     * @return true si en esa fase la mesa acepta apuestas.
+     */
+    public static boolean isAbierta(int fase) {
+        return (fase & 1) == 0;
+    }
+
+    /**
+     * @param fase Fase leída con getFase().
+     * @return Número de ronda (desde 1) de esa fase.
+     */
+    public static int ronda(int fase) {
+        return fase / 2 + 1;
+    }
+
+    /**
+     * @param ronda Número de ronda.
+     * @return Fase en la que esa ronda queda cerrada.
+     */
+    private static int faseCierre(int ronda) {
+        return 2 * (ronda - 1) + 1;
+    }
+
+    // --- CONSULTAS ---
+
+    /**
+     * @return true si la mesa está abierta.
+     */
+    public boolean isAbierta() {
+        return isAbierta(this.getFase());
+    }
+
+    /**
+     * @return Ronda actual (abierta o ya cerrada).
+     */
+    public int getRonda() {
+        return ronda(this.getFase());
+    }
+
+    /**
+     * Ronda abierta en este momento, en una sola lectura.
+     *
+     * @return Número de la ronda abierta, o 0 si la mesa está cerrada.
+     */
+    public int getRondaAbierta() {
+        int fase = this.getFase();
+        return isAbierta(fase) ? ronda(fase) : 0;
+    }
+
+    /**
+     * @param ronda Número de ronda.
+     * @return true si esa ronda ya se ha cerrado (NoVaMas).
+     */
+    public boolean isCerrada(int ronda) {
+        return this.getFase() >= faseCierre(ronda);
+    }
+
+    // --- TRANSICIONES (HILO DEL CRUPIER) ---
+
+    /**
+     * Cierra la ronda abierta.
+     *
+     * POST: Se despiertan los hilos que esperan el cierre.
+     *
+     * @return false si la mesa ya estaba cerrada (no cambia nada).
+     */
+    public boolean cerrar() {
+        if (!this.isAbierta()) {
+            return false;
+        }
+        this.fases.arrive();
+        return true;
+    }
+
+    /**
+     * Abre la ronda siguiente.
+     *
+     * POST: Se despiertan los hilos que esperan la apertura.
+     *
+     * @return false si la mesa ya estaba abierta (no cambia nada).
+     */
+    public boolean abrir() {
+        if (this.isAbierta()) {
+            return false;
+        }
+        this.fases.arrive();
+        return true;
+    }
+
+    // --- ESPERAS ---
+
+    /**
+     * Espera a que la mesa esté abierta. Si ya lo está, vuelve enseguida.
+     *
+     * @return Número de la ronda abierta (para sellar las apuestas).
+     * @throws InterruptedException Si el hilo es interrumpido durante la espera.
+     */
+    public int esperarApertura() throws InterruptedException {
+        int fase = this.getFase();
+        while (!isAbierta(fase)) {
+            fase = this.fases.awaitAdvanceInterruptibly(fase);
+        }
+        return ronda(fase);
+    }
+
+    /**
+     * Espera a que se cierre una ronda concreta. Si ya se cerró (aunque después se haya abierto
+     * otra), vuelve enseguida.
+     *
+     * @param ronda Ronda que se espera ver cerrada.
+     * @throws InterruptedException Si el hilo es interrumpido durante la espera.
+     */
+    public void esperarCierre(int ronda) throws InterruptedException {
+        int objetivo = faseCierre(ronda);
+        int fase = this.getFase();
+        while (fase < objetivo) {
+            fase = this.fases.awaitAdvanceInterruptibly(fase);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package logicaRuleta.core;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import modeloDominio.Dinero;
+
+/**
+ * Clase LibroRiesgo
+ * -----------------
+ * Lo que la banca tendría que pagar en la ronda actual según el número que salga.
+ * Se actualiza con cada apuesta aceptada, así que se puede consultar en cualquier
+ * momento sin recorrer las apuestas de los jugadores.
+ *
+ * ESTRUCTURA:
+ *  - Una casilla por número (0-36) con el total de premios que pagaría si sale ese número.
+ *  - El total apostado en la ronda.
+ *  - Todo en céntimos (long); las consultas devuelven euros.
+ *
+ * CONCURRENCIA:
+ *  - Cada casilla es un LongAdder: las sumas de muchos hilos no compiten por la misma variable.
+ *  - Las lecturas no bloquean. Con apuestas entrando a la vez pueden no incluir las últimas
+ *    (igual que cualquier foto de la ronda); con la mesa cerrada son exactas.
+ *
+ * POSTCONDICIONES:
+ *  - getDeuda(n) == suma de premioPara(n) de todas las apuestas registradas desde su construcción (un libro por ronda).
+ */
+public class LibroRiesgo {
+
+    // --- ATRIBUTOS ---
+    private final LongAdder[] deudas;
+    private final LongAdder totalApostado;
+
+    // --- CONSTRUCTOR ---
+    /**
+     * POST: Libro vacío (ninguna apuesta registrada).
+     */
+    public LibroRiesgo() {
+        this.deudas = new LongAdder[RuletaUtils.NUMEROS];
+        for (int n = 0; n < this.deudas.length; n++) {
+            this.deudas[n] = new LongAdder();
+        }
+        this.totalApostado = new LongAdder();
+    }
+
+    // --- ACTUALIZACIÓN ---
+    /**
+     * Suma una apuesta aceptada: su premio a cada número de su máscara y su cantidad al total.
+     *
+     * PRE: apuesta != null
+     *
+     * @param apuesta Apuesta compilada que se acaba de aceptar.
+     */
+    public void registrar(ApuestaCompilada apuesta) {
+        long premio = apuesta.getPremioCentimos();
+        long mascara = apuesta.getMascara();
+        while (mascara != 0) {
+            this.deudas[Long.numberOfTrailingZeros(mascara)].add(premio);
+            mascara &= mascara - 1; // Quita el bit más bajo
+        }
+        this.totalApostado.add(apuesta.getCantidadCentimos());
+    }
+
+    // --- CONSULTAS ---
+    /**
+     * @param numero Número de la ruleta (0-36).
+     * @return Total de premios que se pagarían si sale ese número.
+     */
+    public double getDeuda(int numero) {
+        return Dinero.aEuros(this.deudas[numero].sum());
+    }
+
+    /**
+     * @return Lo máximo que puede tener que pagar la banca esta ronda (peor número posible).
+     */
+    public double getExposicionMaxima() {
+        long max = 0;
+        for (LongAdder d : this.deudas) {
+            max = Math.max(max, d.sum());
+        }
+        return Dinero.aEuros(max);
+    }
+
+    /**
+     * @return Total apostado en la ronda.
+     */
+    public double getTotalApostado() {
+        return Dinero.aEuros(this.totalApostado.sum());
+    }
+}
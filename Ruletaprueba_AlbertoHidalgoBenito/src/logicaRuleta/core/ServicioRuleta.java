@@ -1,57 +1,55 @@
 package logicaRuleta.core;
 
 import java.io.File;
-import java.io.IOException;
-import java.io.OutputStream;
-import java.net.Socket;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.CyclicBarrier;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
-import logicaRuleta.concurrencia.GetIDHilos;
-import logicaRuleta.concurrencia.MandarCasillaGanadora;
-import logicaRuleta.concurrencia.MandarPremios;
-import logicaRuleta.concurrencia.cancelarFuture;
+import logicaRuleta.concurrencia.FabricaHilos;
+import logicaRuleta.concurrencia.LiquidarJugador;
+import logicaRuleta.concurrencia.MotorDifusion;
 import modeloDominio.Apuesta;
 import modeloDominio.Casilla;
+import modeloDominio.ConexionJugador;
 import modeloDominio.Jugador;
-import servidor.persistencia.ActualizarBD;
+import modeloDominio.MensajeCodificado;
+import servidor.persistencia.AlmacenJugadores;
+import servidor.persistencia.PersistenciaJugadores;
 
 /**
  * Clase ServicioRuletaServidor
  * ----------------------------
- * Servicio central que coordina toda la lógica del casino de ruleta.
+ * Servicio central que coordina toda la lógica de una mesa de ruleta.
  * Gestiona jugadores, sesiones, apuestas, rondas y sincronización entre hilos.
  *
+ * MESAS:
+ *  - Cada instancia es una mesa independiente (ronda, apuestas, reparto y avisos propios).
+ *  - Varias mesas pueden compartir el RegistroJugadores: un jugador tiene una sola cuenta
+ *    y una sola sesión en todo el casino, pero está sentado en una única mesa (Casino).
+ *
  * RESPONSABILIDADES:
  *  - Gestión de jugadores: registro, inicio de sesión, desconexión.
  *  - Control de rondas: apertura/cierre de mesa (VaMas/NoVaMas).
  *  - Gestión de apuestas: validación, almacenamiento y reparto de premios.
  *  - Sincronización: coordinación entre múltiples jugadores usando latches y barriers.
- *  - Persistencia: actualización de datos en XML mediante ActualizarBD.
+ *  - Persistencia: los saldos que cambian se guardan solos (PersistenciaJugadores del registro).
  *
  * CONCURRENCIA:
  *  - Thread-safe: utiliza ConcurrentHashMap y listas sincronizadas.
- *  - Pool de hilos: ejecuta tareas concurrentes (búsquedas, premios, comunicación).
- *  - Sincronización: CountDownLatch para VaMas/NoVaMas, CyclicBarrier para premios/casillas.
+ *  - Pool de hilos: ejecuta tareas concurrentes (premios, comunicación, persistencia).
+ *  - Sincronización: EstadoRonda (Phaser) para VaMas/NoVaMas, MotorDifusion para la liquidación.
  *
  * FLUJO DE RONDA:
  *  1. resetNoVaMas() → Abre mesa, jugadores pueden apostar.
  *  2. NoVaMas() → Cierra mesa, se genera número ganador.
- *  3. repartirPremio() → Calcula y entrega ganancias.
- *  4. mandarCasilla() → Comunica resultado a todos los jugadores.
- *  5. Vuelta al paso 1.
+ *  3. liquidarRonda() → Paga las apuestas y manda a cada jugador un solo mensaje con el
+ *     resultado (y, si apostó, su ganancia neta y su saldo).
+ *  4. Vuelta al paso 1.
  */
 public class ServicioRuleta {
 
@@ -59,55 +57,72 @@ public class ServicioRuleta {
     
     /**
      * Pool de hilos del servidor para tareas concurrentes.
-     * - Búsquedas de jugadores (GetIDHilos).
-     * - Reparto de premios (MandarPremios).
-     * - Comunicación de casilla ganadora (MandarCasillaGanadora).
-     * - Actualización de BD en segundo plano (ActualizarBD).
      */
     private final ExecutorService poolServer;
+
+    /**
+     * Reparto de fin de ronda con hilos persistentes y por lotes.
+     * - Liquidación de la ronda: premio y resultado en un solo mensaje (LiquidarJugador).
+     */
+    private final MotorDifusion difusion;
     
+    /**
+     * Registro de todos los jugadores (con o sin sesión activa), indexado por ID.
+     * Las búsquedas de login/registro van contra su índice, no contra la lista.
+     */
+    private final RegistroJugadores registro;
+
     /**
      * Lista de todos los jugadores registrados en el sistema (con o sin sesión activa).
-     * Sincronizada para acceso concurrente seguro.
+     * Es la lista sincronizada del registro, la que se persiste en XML.
      */
     private final List<Jugador> jugadoresSesion;
     
     /**
-     * Mapa que asocia cada jugador con sus apuestas en la ronda actual.
-     * ConcurrentHashMap para escrituras thread-safe.
-     * Las listas de apuestas son synchronized para operaciones atómicas.
+     * Apuestas de la ronda en curso (jugador → apuestas compiladas + libro de riesgo).
+     * NoVaMas() la cambia de golpe por una vacía: las apuestas nuevas van a la nueva
+     * y la anterior queda congelada en rondaCerrada.
      */
-    private Map<Jugador, List<Apuesta>> jugadorApuestas;
+    private final AtomicReference<ApuestasRonda> rondaAbierta = new AtomicReference<>(new ApuestasRonda(1));
+
+    /**
+     * Última ronda cerrada por NoVaMas(). Es la que se reparte y se guarda en el historial,
+     * sin copias: nadie la modifica después de cerrarla.
+     */
+    private volatile ApuestasRonda rondaCerrada = new ApuestasRonda(0);
     
     /**
-     * Lista de jugadores con conexión activa (socket abierto).
-     * De esta lista solo se añade y borra, con hacerla threadSafe ya no me tengo que preocupar 
+     * Lista de jugadores con conexión activa (socket abierto) sentados en esta mesa.
+     * Son los que reciben la casilla ganadora. De esta lista solo se añade y borra, con hacerla threadSafe ya no me tengo que preocupar 
      * de hacer synchronized los métodos.
      */
     private List<Jugador> jugadoresConexion;
     
     /**
-     * Latch que se desbloquea cuando la mesa cierra (NoVaMas).
-     * Los jugadores esperan en este latch para recibir el resultado de la ronda.
+     * Número de ronda y si la mesa está abierta o cerrada, en un solo valor atómico.
+     * Los jugadores esperan en él la apertura (VaMasAwait) y el cierre de su ronda (noVaMasAwait)
+     * sin latches nuevos en cada ronda.
      */
-    private CountDownLatch noVaMas;
-    
+    private final EstadoRonda estado = new EstadoRonda();
+
     /**
-     * Latch que se desbloquea cuando la mesa abre (resetNoVaMas).
-     * Los jugadores esperan en este latch para empezar a apostar.
+     * Observadores avisados cada vez que la mesa abre o cierra.
+     * Los usa el modo NIO para despertar a las sesiones que esperan la mesa sin bloquear un hilo.
      */
-    private CountDownLatch VaMas;
+    private final List<Runnable> observadoresMesa = new CopyOnWriteArrayList<>();
+    
     
+
     /**
-     * Flag que indica si la mesa está cerrada (true = no se aceptan apuestas).
-     * Consultado por los hilos de jugadores antes de añadir apuestas.
+     * Número de la mesa (1..N) dentro del casino. Solo se usa para los mensajes.
      */
-    private boolean isNoVaMas;
-    
-    
-    
-    
-    private final File BBDD;
+    private final int numeroMesa;
+
+    /**
+     * Hilos del MotorDifusion. El envío es E/S de socket, así que usamos más hilos que CPUs.
+     * Con varias mesas, el Casino los reparte entre ellas.
+     */
+    static final int HILOS_DIFUSION = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
 
     // --- CONSTRUCTORES ---
     
@@ -120,23 +135,65 @@ public class ServicioRuleta {
      *
      * POST:
      *  - El servicio está listo para operar.
-     *  - Los latches están inicializados en estado bloqueado.
-     *  - La mesa está cerrada (isNoVaMas = false inicialmente, pero VaMas bloqueado).
+     *  - La mesa está abierta en la ronda 1 hasta el primer NoVaMas().
      *
      * @param jugadoresSesion Lista de jugadores existentes (cargados de BD).
      * @param pool            Pool de hilos personalizado.
      */
     public ServicioRuleta(List<Jugador> jugadoresSesion, ExecutorService pool,File BBDD) {
-        this.noVaMas = null;
-        this.VaMas = null;
-        this.isNoVaMas = false;
+        this(jugadoresSesion, pool, BBDD, false);
+    }
 
-        this.jugadoresSesion = Collections.synchronizedList(jugadoresSesion);
-        this.jugadorApuestas = new ConcurrentHashMap<>();
+    /**
+     * Constructor con lista de jugadores, pool personalizado y modo de hilos.
+     *
+     * PRE:
+     *  - jugadoresSesion != null
+     *  - pool != null
+     *
+     * POST:
+     *  - Igual que el constructor anterior.
+     *  - Si hilosVirtuales es true, el reparto de cada ronda se hace con hilos virtuales.
+     *
+     * @param jugadoresSesion Lista de jugadores existentes (cargados de BD).
+     * @param pool            Pool de hilos personalizado.
+     * @param BBDD            Fichero XML de jugadores.
+     * @param hilosVirtuales  true para usar hilos virtuales en el reparto de la ronda.
+     */
+    public ServicioRuleta(List<Jugador> jugadoresSesion, ExecutorService pool,File BBDD, boolean hilosVirtuales) {
+        this(new RegistroJugadores(jugadoresSesion, (BBDD != null) ? AlmacenJugadores.segunExtension(BBDD) : null),
+             pool, hilosVirtuales, 1, HILOS_DIFUSION);
+    }
+
+    /**
+     * Constructor de una mesa del casino, con el registro de jugadores compartido.
+     *
+     * PRE:
+     *  - registro != null
+     *  - pool != null
+     *  - numeroMesa >= 1, hilosDifusion >= 1
+     *
+     * POST:
+     *  - La mesa tiene su propia ronda, sus apuestas y su MotorDifusion de 'hilosDifusion' hilos.
+     *  - Las cuentas, los logins y los registros se comparten con las demás mesas del registro.
+     *
+     * @param registro       Registro de jugadores del casino.
+     * @param pool           Pool de hilos del servidor (compartido entre mesas).
+     * @param hilosVirtuales true para usar hilos virtuales en el reparto de la ronda.
+     * @param numeroMesa     Número de la mesa (1..N).
+     * @param hilosDifusion  Hilos del reparto de fin de ronda de esta mesa.
+     */
+    public ServicioRuleta(RegistroJugadores registro, ExecutorService pool, boolean hilosVirtuales,
+                          int numeroMesa, int hilosDifusion) {
+        this.registro = registro;
+        this.jugadoresSesion = this.registro.getLista();
         this.jugadoresConexion = Collections.synchronizedList(new ArrayList<>());
         
         this.poolServer = pool;
-        this.BBDD = BBDD;
+        this.numeroMesa = numeroMesa;
+        this.difusion = new MotorDifusion(
+            FabricaHilos.crearPoolDifusion("difusion-mesa-" + numeroMesa + "-", hilosDifusion, hilosVirtuales),
+            hilosDifusion);
     }
     
     /**
@@ -148,19 +205,14 @@ public class ServicioRuleta {
      *  - Listas vacías de jugadores y apuestas.
      */
     public ServicioRuleta() {
-    	
-    		//Se inician con valores nulos y se inician en GirarPelotita, asi evitamos posibles bloqueas.
-    		//Los bloqueos que pueden ocurrir es que un jugador si inicia la partida muy rapido, antes de que gire la pelotita mas concretamente, se quedara esperando para siempre en 
-    		//this.rule.VaMasAwait();  porque se cambiara la referencia de ese VaMas en girarPelotita.class cuando llame a this.rule.NoVaMas();
-    		this.noVaMas = null;
-        this.VaMas = null;
-        this.isNoVaMas = false;
-
-        this.jugadoresSesion = Collections.synchronizedList(new ArrayList<>());
-        this.jugadorApuestas = new ConcurrentHashMap<>();
+        // La mesa empieza abierta (EstadoRonda en la ronda 1): un jugador que entra antes
+        // del primer giro apuesta directamente, sin quedarse esperando un latch que no llega.
+        this.registro = new RegistroJugadores();
+        this.jugadoresSesion = this.registro.getLista();
         this.jugadoresConexion = Collections.synchronizedList(new ArrayList<>());
         this.poolServer = Executors.newCachedThreadPool();
-		this.BBDD = null;
+		this.numeroMesa = 1;
+		this.difusion = new MotorDifusion(FabricaHilos.crearPoolDifusion(HILOS_DIFUSION, false), HILOS_DIFUSION);
     }
 
     // --- GETTERS / SETTERS ---
@@ -175,61 +227,65 @@ public class ServicioRuleta {
     public List<Jugador> getListJugadoresSesion() { 
         return this.jugadoresSesion; 
     }
-    
+
     /**
-     * Obtiene el mapa de apuestas de la ronda actual.
+     * Obtiene el pool del servidor (tareas auxiliares y escritores de las colas de salida).
      *
-     * POST: Retorna referencia directa al ConcurrentHashMap (thread-safe).
+     * @return Pool de hilos del servidor.
+     */
+    public ExecutorService getPoolServer() {
+        return this.poolServer;
+    }
+
+    /**
+     * Obtiene el registro de jugadores (compartido por todas las mesas del casino).
      *
-     * @return Mapa jugador → lista de apuestas.
+     * @return Registro de jugadores.
      */
-    public Map<Jugador, List<Apuesta>> getJugadorApuestas() { 
-        return this.jugadorApuestas; 
+    public RegistroJugadores getRegistro() {
+        return this.registro;
+    }
+
+    /**
+     * @return Número de la mesa dentro del casino (1..N).
+     */
+    public int getNumeroMesa() {
+        return this.numeroMesa;
     }
     
     /**
-     * Reemplaza el mapa de apuestas (uso interno).
+     * Obtiene las apuestas de la ronda abierta.
      *
-     * PRE: m != null
-     * POST: El mapa interno se reemplaza por el nuevo.
+     * POST: Retorna una vista de solo lectura; sigue cambiando mientras se apuesta.
      *
-     * @param m Nuevo mapa de apuestas.
+     * @return Mapa jugador → lista de apuestas compiladas.
      */
-    public void setJugadorApuestas(Map<Jugador, List<Apuesta>> m) { 
-        this.jugadorApuestas = m; 
+    public Map<Jugador, List<ApuestaCompilada>> getJugadorApuestas() { 
+        return this.rondaAbierta.get().getApuestas(); 
     }
-    
+
     /**
-     * Crea una copia defensiva del mapa de apuestas.
-     * Útil para persistencia o cálculos sin afectar el original.
+     * Obtiene el libro de riesgo de la ronda abierta.
      *
-     * PRE: Ninguna.
-     * POST:
-     *  - Retorna un HashMap nuevo con copias de las listas de apuestas.
-     *  - Las modificaciones en la copia NO afectan al original.
+     * POST: Consultas sin bloqueo del total apostado, la deuda por número y la exposición máxima.
      *
-     * SINCRONIZACIÓN:
-     *  - Toma un snapshot del mapa para evitar ConcurrentModificationException.
-     *  - Copia cada lista de apuestas de forma atómica (synchronized).
+     * @return Libro de riesgo de la ronda.
+     */
+    public LibroRiesgo getLibroRiesgo() {
+        return this.rondaAbierta.get().getLibroRiesgo();
+    }
+    
+    /**
+     * Obtiene la última ronda cerrada (la que se está repartiendo o se acaba de repartir).
+     * Sustituye a la copia profunda del mapa de apuestas que se hacía para el historial.
      *
-     * @return Copia profunda del mapa de apuestas.
+     * PRE: NoVaMas() ya fue llamado.
+     * POST: Retorna la ronda congelada; se puede recorrer sin sincronización ni copias.
+     *
+     * @return Apuestas de la última ronda cerrada.
      */
-    public Map<Jugador, List<Apuesta>> getCopiaJugadorApuestas() {
-        // Foto del mapa: referencias coherentes en un instante
-        Map<Jugador, List<Apuesta>> foto;
-        synchronized (jugadorApuestas) {
-            foto = new HashMap<>(jugadorApuestas);
-        }
-
-        Map<Jugador, List<Apuesta>> copia = new HashMap<>(foto.size());
-        for (Map.Entry<Jugador, List<Apuesta>> entry : foto.entrySet()) {
-            Jugador jugador = entry.getKey();
-            List<Apuesta> listaOriginal = entry.getValue();
-            synchronized (listaOriginal) {
-                copia.put(jugador, new ArrayList<>(listaOriginal));
-            }
-        }
-        return copia;
+    public ApuestasRonda getRondaCerrada() {
+        return this.rondaCerrada;
     }
 
     // --- CONTROL DE RONDAS ---
@@ -238,27 +294,21 @@ public class ServicioRuleta {
      * Reinicia el estado de la mesa para una nueva ronda.
      * Abre la mesa y permite que los jugadores empiecen a apostar.
      *
-     * PRE: Debe llamarse DESPUÉS de NoVaMas() y reparto de premios.
+     * PRE:
+     *  - Debe llamarse DESPUÉS de NoVaMas() y reparto de premios.
+     *  - Solo desde el hilo del crupier.
      * POST:
-     *  - isNoVaMas = false → mesa abierta.
-     *  - jugadorApuestas vacío → nuevas apuestas para la ronda.
-     *  - noVaMas reiniciado → bloqueado hasta próximo cierre.
-     *  - VaMas desbloqueado → jugadores pueden entrar a la mesa.
+     *  - Mesa abierta en la ronda siguiente (EstadoRonda avanza una fase).
+     *  - Las apuestas nuevas van a la ronda abierta que dejó preparada NoVaMas().
+     *  - Si la mesa ya estaba abierta, no hace nada.
      *
      * SINCRONIZACIÓN:
      *  - Los hilos bloqueados en VaMasAwait() se desbloquean.
      */
     public void resetNoVaMas() {
-        // Limpiar apuestas de la ronda anterior
-        this.jugadorApuestas.clear();
-        this.isNoVaMas = false;
-
-        // Reiniciar latch de noVaMas para la próxima ronda
-        this.noVaMas = new CountDownLatch(1);
-
-        // Desbloquear jugadores que estaban esperando VaMas
-        if (this.VaMas != null) {
-            this.VaMas.countDown();
+        // No hay nada que limpiar: NoVaMas() ya dejó una ronda de apuestas vacía
+        if (this.estado.abrir()) {
+            this.avisarObservadoresMesa();
         }
     }
 
@@ -266,40 +316,77 @@ public class ServicioRuleta {
      * Cierra la mesa y detiene la aceptación de apuestas.
      * Se llama cuando el crupier decide girar la ruleta.
      *
-     * PRE: Debe llamarse DESPUÉS de un período de apuestas abiertas.
+     * PRE:
+     *  - Debe llamarse DESPUÉS de un período de apuestas abiertas.
+     *  - Solo desde el hilo del crupier.
      * POST:
-     *  - isNoVaMas = true → no se aceptan más apuestas.
-     *  - noVaMas desbloqueado → jugadores reciben resultado.
-     *  - VaMas reiniciado → bloqueado hasta resetNoVaMas().
+     *  - Mesa cerrada: no se aceptan más apuestas (EstadoRonda avanza una fase).
+     *  - La ronda de apuestas se cambia por una vacía (la de la ronda siguiente) y la anterior
+     *    queda congelada (getRondaCerrada).
+     *  - Si la mesa ya estaba cerrada, no hace nada.
      *
      * SINCRONIZACIÓN:
-     *  - Los hilos bloqueados en noVaMasAwait() se desbloquean.
+     *  - Los hilos bloqueados en noVaMasAwait() de esta ronda se desbloquean.
      */
     public void NoVaMas() {
-        this.isNoVaMas = true;
-
-        // Desbloquear jugadores esperando resultado
-        if (this.noVaMas != null) {
-            this.noVaMas.countDown();
+        int ronda = this.estado.getRondaAbierta();
+        if (ronda == 0) {
+            return; // Ya cerrada
         }
 
-        // Reiniciar latch de VaMas para la siguiente ronda
-        this.VaMas = new CountDownLatch(1);
+        // Cambio de ronda de apuestas: la nueva (ronda + 1) recibe lo que llegue a partir de ahora,
+        // la anterior se congela (espera solo a quien estuviera a mitad de anadirApuesta).
+        // Se cambia antes de cerrar el estado: una apuesta sellada con esta ronda que llegue
+        // tarde ya no encuentra su ronda abierta y se rechaza.
+        ApuestasRonda cerrada = this.rondaAbierta.getAndSet(new ApuestasRonda(ronda + 1));
+        this.estado.cerrar();
+        cerrada.cerrar();
+        this.rondaCerrada = cerrada;
+
+        this.avisarObservadoresMesa();
     }
 
     /**
-     * Espera a que la mesa cierre (bloquea el hilo).
+     * Registra un observador que se ejecuta cada vez que la mesa abre (resetNoVaMas)
+     * o cierra (NoVaMas). Se ejecuta en el hilo del crupier, así que debe ser muy corto
+     * (por ejemplo, despertar un Selector).
+     *
+     * PRE: obs != null
+     * POST: obs se ejecutará en cada cambio de estado de la mesa.
+     *
+     * @param obs Acción a ejecutar.
+     */
+    public void addObservadorMesa(Runnable obs) {
+        this.observadoresMesa.add(obs);
+    }
+
+    /**
+     * Ejecuta los observadores de la mesa. Un fallo en uno no impide avisar al resto.
+     */
+    private void avisarObservadoresMesa() {
+        for (Runnable obs : this.observadoresMesa) {
+            try {
+                obs.run();
+            } catch (RuntimeException e) {
+                System.err.println("⚠️ Error avisando cambio de mesa: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Espera a que se cierre la ronda indicada (bloquea el hilo).
      * Los jugadores llaman esto después de terminar sus apuestas.
      *
-     * PRE: El hilo debe estar en estado de juego (después de VaMasAwait).
-     * POST: Se desbloquea cuando NoVaMas() es llamado.
+     * PRE: ronda es la que devolvió VaMasAwait().
+     * POST:
+     *  - Se desbloquea cuando NoVaMas() cierra esa ronda.
+     *  - Si ya se cerró (aunque la mesa haya vuelto a abrir), vuelve enseguida.
      *
+     * @param ronda Ronda en la que ha jugado el hilo.
      * @throws InterruptedException Si el hilo es interrumpido durante la espera.
      */
-    public void noVaMasAwait() throws InterruptedException {
-        if (this.noVaMas != null) {
-            this.noVaMas.await();
-        }
+    public void noVaMasAwait(int ronda) throws InterruptedException {
+        this.estado.esperarCierre(ronda);
     }
 
     /**
@@ -307,14 +394,13 @@ public class ServicioRuleta {
      * Los jugadores llaman esto al entrar a la ruleta.
      *
      * PRE: El hilo debe haber solicitado jugar.
-     * POST: Se desbloquea cuando resetNoVaMas() es llamado.
+     * POST: Se desbloquea cuando resetNoVaMas() es llamado (o enseguida si ya está abierta).
      *
+     * @return Ronda abierta, con la que se sellan las apuestas (anadirApuesta).
      * @throws InterruptedException Si el hilo es interrumpido durante la espera.
      */
-    public void VaMasAwait() throws InterruptedException {
-        if (this.VaMas != null) {
-            this.VaMas.await();
-        }
+    public int VaMasAwait() throws InterruptedException {
+        return this.estado.esperarApertura();
     }
 
     /**
@@ -325,37 +411,38 @@ public class ServicioRuleta {
      * @return true si la mesa está cerrada, false en caso contrario.
      */
     public boolean isNoVaMas() {
-        return this.isNoVaMas;
+        return !this.estado.isAbierta();
+    }
+
+    /**
+     * Obtiene el estado de la mesa (ronda y fase) para consultas sin bloqueo.
+     *
+     * @return Estado de la ronda.
+     */
+    public EstadoRonda getEstadoRonda() {
+        return this.estado;
     }
 
     // --- GESTIÓN DE JUGADORES ---
     
     /**
-     * Busca un jugador por su ID en la lista de sesiones.
-     * Utiliza búsqueda paralela dividiendo la lista en 30 particiones.
+     * Busca un jugador por su ID en el registro de jugadores.
      *
      * PRE:
      *  - iD != null && !iD.isEmpty()
      *
      * POST:
      *  - Retorna el jugador si existe, null si no se encuentra.
-     *  - La búsqueda es thread-safe (copia defensiva de la lista).
+     *  - La búsqueda es thread-safe y no bloquea la lista de sesiones.
      *
      * OPTIMIZACIÓN:
-     *  - Si N < 30, cada hilo busca en un rango pequeño.
-     *  - Si N >= 30, se divide en 30 particiones.
-     *  - Los Future se cancelan automáticamente tras encontrar el jugador.
+     *  - Consulta directa al índice por ID del RegistroJugadores (O(1)).
+     *  - Ya no se copia la lista ni se lanzan/cancelan tareas en el pool,
+     *    el coste de un login no depende del número de cuentas.
      *
      * @param iD Identificador del jugador.
      * @return Jugador encontrado o null.
      */
-    
-    
-    
-    //MEJORAS: quiero saber si hay una forma mas eficiente de implementar este metodo, algo que en cuento encuentre el Jugador, se cancele todo al instante.
-    
-    
-    @SuppressWarnings({ "unchecked", "rawtypes" })
     public Jugador getJugador(String iD) {
         // Caso de entrada inválida: id nulo o vacío
         if (iD == null || iD.trim().isEmpty()) {
@@ -363,68 +450,7 @@ public class ServicioRuleta {
             return null;
         }
 
-        synchronized (jugadoresSesion) {
-            int N = this.jugadoresSesion.size();
-            
-            //MEJORA:cual es la forma optima de sacar las particiones?
-            
-            int particiones = 30;
-            
-            int in = 0;
-            int fin = 2;
-            
-            if (30 < N) {
-                fin = N / 30;
-            }
-            int suma = fin;
-            
-            List<Future<Jugador>> lfj = new ArrayList<>(particiones);
-            
-            
-            
-            for (int i = 0; i < particiones; i++) {
-                // Super importante mandar una copia, si mando la referencia original al estar en un bloque synchronize se bloquea todo.
-                // Mando una copia, como esta en un bloque síncrono de la lista no hay problema, no se cambiará mientras la utilizo.
-            	
-            	
-            		//MEJORA: usar subList?
-            	
-                lfj.add(this.poolServer.submit(new GetIDHilos(new ArrayList<>(this.jugadoresSesion), in, fin, iD)));
-                
-                in += suma;
-                fin += suma;
-                
-                if (i==particiones-2) {
-                    fin = N;
-                }
-            }
-            
-            Jugador sesion = null;
-            
-            //MEJORA: es mas eficiente hacerla con Future, o con un flag??
-            
-            for (Future<Jugador> jug : lfj) {
-                try {
-                    sesion = jug.get();
-                    if (sesion != null) {
-                        break;
-                    }
-                } catch (InterruptedException e) {
-                	
-                	
-                		//MEJORA: esto no lo entiendo. Si el currente Thread, es el AtenderPeticion.
-                	
-                    Thread.currentThread().interrupt();
-                    e.printStackTrace();
-                } catch (ExecutionException e) {
-                    e.printStackTrace();
-                }
-            }
-            
-            // Cerramos los future para ahorrar CPU.
-            this.poolServer.execute(new cancelarFuture(lfj));
-            return sesion;
-        }
+        return this.registro.buscar(iD);
     }
 
     /**
@@ -433,24 +459,24 @@ public class ServicioRuleta {
      *
      * PRE:
      *  - jug != null
-     *  - cliente != null && !cliente.isClosed()
+     *  - cliente != null && cliente.isAbierta()
      *
      * POST:
      *  - Si el jugador NO tiene sesión activa:
      *    → Se marca como conectado (isSesionIniciada = true).
-     *    → Se asocia el socket.
+     *    → Se asocia la conexión.
      *    → Se añade a jugadoresConexion.
      *  - Si el jugador YA tiene sesión activa:
      *    → Se envía mensaje de error al nuevo cliente.
-     *    → Se cierra el socket duplicado.
+     *    → Se cierra la conexión duplicada.
      *    → Se desconecta al jugador original (seguridad).
      *
      * @param jug     Jugador a conectar.
-     * @param cliente Socket del cliente.
-     * @throws IOException Si hay error al escribir en el socket.
+     * @param cliente Conexión del cliente (Socket o sesión NIO).
      */
-    public void establecerConexion(Jugador jug, Socket cliente) throws IOException {
-        synchronized (jug) { // Lock común por jugador
+    public void establecerConexion(Jugador jug, ConexionJugador cliente) {
+        jug.getLock().lock(); // Lock común por jugador (no clava hilos virtuales)
+        try {
             if (!jug.isSesionIniciada()) {
                 jug.setSesionIniciada(true);
                 jug.setConexion(cliente);
@@ -458,16 +484,15 @@ public class ServicioRuleta {
 
             } else {
                 // Jugador ya conectado → abortamos la nueva conexión
-                try (OutputStream os = cliente.getOutputStream()) {
-                    os.write("El usuario ya ha iniciado sesion\r\n".getBytes());
-                    os.flush();
-                }
-                // Cerramos el socket duplicado
-                cliente.close();
+                cliente.enviar("El usuario ya ha iniciado sesion");
+                // Cerramos la conexión duplicada
+                cliente.cerrar();
 
                 // Desconexión controlada en el servidor
                 this.desconectarJugador(jug);
             }
+        } finally {
+            jug.getLock().unlock();
         }
     }
 
@@ -477,7 +502,7 @@ public class ServicioRuleta {
      * PRE:
      *  - name != null && !name.isEmpty()
      *  - saldo >= 5 && saldo <= 10000
-     *  - cliente != null && !cliente.isClosed()
+     *  - cliente != null && cliente.isAbierta()
      *
      * POST:
      *  - Si el nombre NO existe:
@@ -488,32 +513,42 @@ public class ServicioRuleta {
      *  - Si el nombre YA existe:
      *    → Retorna null.
      *
+     * CONCURRENCIA:
+     *  - El alta es un "registrar si ausente" atómico del RegistroJugadores.
+     *  - No se toma ningún lock de servidor, así que un registro en curso no frena
+     *    a los demás inicios de sesión ni registros.
+     *  - Con dos registros simultáneos del mismo nombre gana exactamente uno.
+     *
      * @param name    Nombre del jugador.
      * @param saldo   Saldo inicial.
-     * @param cliente Socket del cliente.
+     * @param cliente Conexión del cliente.
      * @return Jugador registrado o null si el nombre ya existe.
-     * @throws IOException Si hay error al establecer conexión.
      */
-    public Jugador registroSesionDefinitivo(String name, double saldo, Socket cliente) throws IOException {
+    public Jugador registroSesionDefinitivo(String name, double saldo, ConexionJugador cliente) {
         // Validación de entrada: nombre inválido → abortamos registro
         if (name == null || name.trim().isEmpty()) {
             return null;
         }
 
-        synchronized (jugadoresSesion) {
-            Jugador jug = this.getJugador(name);
+        // El jugador se publica con la sesión ya marcada: si un inicio de sesión con el mismo
+        // nombre lo encuentra justo después del alta, verá que ya está conectado.
+        Jugador jug = new Jugador(name, saldo);
+        jug.setSesionIniciada(true);
+        jug.setConexion(cliente);
 
-            if (jug == null) {
-                jug = new Jugador(name, saldo);
-                // Puede lanzar IOException → se propaga a AtenderJugador
-                this.establecerConexion(jug, cliente);
-                jugadoresSesion.add(jug);
-                return jug;
-            } else {
+        // Alta atómica en el índice, sin lock global ni E/S de socket por medio.
+        try {
+            if (this.registro.registrarSiAusente(jug) != null) {
                 // Nombre ya existente → devolvemos null silencioso
                 return null;
             }
+        } catch (IllegalStateException e) {
+            System.err.println("⚠️ Alta de " + name + " rechazada: " + e.getMessage());
+            return null;
         }
+
+        jugadoresConexion.add(jug); // suficiente, ya es thread-safe
+        return jug;
     }
 
     /**
@@ -521,7 +556,7 @@ public class ServicioRuleta {
      *
      * PRE:
      *  - name != null && !name.isEmpty()
-     *  - cliente != null && !cliente.isClosed()
+     *  - cliente != null && cliente.isAbierta()
      *
      * POST:
      *  - Si el jugador existe:
@@ -531,28 +566,63 @@ public class ServicioRuleta {
      *    → Retorna null.
      *
      * @param name    Nombre del jugador.
-     * @param cliente Socket del cliente.
+     * @param cliente Conexión del cliente.
      * @return Jugador autenticado o null si no existe.
-     * @throws IOException Si hay error al establecer conexión.
      */
-    public Jugador inicioSesionDefinitivo(String name, Socket cliente) throws IOException {
+    public Jugador inicioSesionDefinitivo(String name, ConexionJugador cliente) {
         // Validación de entrada: nombre inválido → abortamos inicio de sesión
         if (name == null || name.trim().isEmpty()) {
             return null;
         }
 
-        synchronized (jugadoresSesion) {
-            Jugador jug = this.getJugador(name);
+        // Sin lock global: la búsqueda es sobre el índice concurrente y
+        // establecerConexion solo bloquea al propio jugador.
+        Jugador jug = this.getJugador(name);
 
-            if (jug != null) {
-                // Puede lanzar IOException → se propaga a AtenderJugador
-                this.establecerConexion(jug, cliente);
+        if (jug != null) {
+            this.establecerConexion(jug, cliente);
+        }
+        // Si no existe → devolvemos null silencioso
+        return jug;
+    }
+
+    // --- MESA ---
+
+    /**
+     * Sienta en esta mesa a un jugador conectado (lo añade a los que reciben la casilla).
+     *
+     * PRE: jug != null y con sesión iniciada.
+     * POST: jug está una sola vez en jugadoresConexion.
+     *
+     * @param jug Jugador que llega a la mesa.
+     */
+    public void sentar(Jugador jug) {
+        synchronized (this.jugadoresConexion) {
+            if (!this.jugadoresConexion.contains(jug)) {
+                this.jugadoresConexion.add(jug);
             }
-            // Si no existe → devolvemos null silencioso
-            return jug;
         }
     }
 
+    /**
+     * Levanta a un jugador de esta mesa sin cerrar su sesión.
+     *
+     * POST: jug ya no recibe la casilla de esta mesa.
+     *
+     * @param jug Jugador que se va de la mesa.
+     * @return true si estaba sentado en esta mesa.
+     */
+    public boolean levantar(Jugador jug) {
+        return this.jugadoresConexion.remove(jug);
+    }
+
+    /**
+     * @return Número de jugadores conectados sentados en esta mesa.
+     */
+    public int getNumJugadoresMesa() {
+        return this.jugadoresConexion.size();
+    }
+
     // --- GESTIÓN DE APUESTAS ---
     
     /**
@@ -561,29 +631,37 @@ public class ServicioRuleta {
      * PRE:
      *  - jug != null
      *  - apuesta != null
-     *  - jug.getSaldo() >= apuesta.getCantidad()
-     *  - isNoVaMas == false (mesa abierta)
+     *  - jug.getSaldo() >= apuesta.getCantidad() (se comprueba de forma atómica al descontar)
+     *  - ronda es la que devolvió VaMasAwait() al jugador
      *
      * POST:
      *  - Si la apuesta es válida:
-     *    → Se añade a la lista del jugador.
+     *    → Se compila (máscara de números ganadores + premio) y se añade a la ronda abierta.
      *    → Se resta el importe del saldo.
+     *    → Se suma al libro de riesgo de la ronda.
      *    → Retorna true.
      *  - Si la apuesta NO es válida:
      *    → Retorna false (no se modifica nada).
      *
      * VALIDACIONES:
-     *  - Mesa cerrada (isNoVaMas = true) → rechaza apuesta.
+     *  - Mesa cerrada o ronda distinta de la sellada (apuesta de una ronda anterior) → rechaza apuesta.
      *  - Apuesta nula → rechaza apuesta.
+     *  - Valor no válido para el tipo (no compila) → rechaza apuesta.
      *  - Saldo insuficiente → rechaza apuesta.
      *
+     * CONCURRENCIA:
+     *  - Sin locks: la ronda se comprueba con una lectura del EstadoRonda y otra de la
+     *    ronda de apuestas abierta, que lleva su número. Si NoVaMas() ha cambiado la ronda
+     *    entre medias, los números no coinciden y la apuesta se rechaza.
+     *
      * @param jug     Jugador que apuesta.
      * @param apuesta Apuesta a registrar.
+     * @param ronda   Ronda con la que se sella la apuesta (la que devolvió VaMasAwait()).
      * @return true si la apuesta fue aceptada, false en caso contrario.
      */
-    public boolean anadirApuesta(Jugador jug, Apuesta apuesta) {
-        // NO ACEPTAR APUESTAS SI LA MESA ESTÁ CERRADA
-        if (this.isNoVaMas) {
+    public boolean anadirApuesta(Jugador jug, Apuesta apuesta, int ronda) {
+        // NO ACEPTAR APUESTAS SI LA MESA ESTÁ CERRADA O SON DE OTRA RONDA
+        if (this.estado.getRondaAbierta() != ronda) {
             return false;
         }
 
@@ -591,147 +669,86 @@ public class ServicioRuleta {
             return false;
         }
 
-        // Validar saldo suficiente antes de añadir
-        if (jug.getSaldo() < apuesta.getCantidad()) {
+        // Se compila una sola vez: el reparto ya no interpreta tipo ni valor
+        ApuestaCompilada compilada = RuletaUtils.compilar(apuesta);
+        if (compilada == null) {
             return false;
         }
 
-        List<Apuesta> listaDelJugador =
-            this.jugadorApuestas.computeIfAbsent(
-                jug,
-                k -> Collections.synchronizedList(new ArrayList<>())
-            );
-
-        boolean add = listaDelJugador.add(apuesta);
-        if (add) {
-            jug.restarApuesta(apuesta.getCantidad()); // ya es synchronized en Jugador
-        }
-
-        return add;
-    }
-
-    /**
-     * Reparte premios a todos los jugadores que apostaron en la ronda.
-     * Utiliza un pool de hilos y CyclicBarrier para sincronizar el reparto.
-     *
-     * PRE:
-     *  - ganadora != null
-     *  - NoVaMas() ya fue llamado (mesa cerrada).
-     *
-     * POST:
-     *  - Se calcula la ganancia de cada jugador según sus apuestas.
-     *  - Se suma la ganancia al saldo del jugador.
-     *  - Se envía mensaje al cliente con la ganancia (si está conectado).
-     *  - Todos los hilos esperan en la barrera antes de actualizar saldos.
-     *
-     * CONCURRENCIA:
-     *  - Crea un pool de hilos del tamaño del número de jugadores.
-     *  - CyclicBarrier sincroniza el reparto (todos terminan al mismo tiempo).
-     *  - Timeout de 3 segundos para shutdown del pool.
-     *
-     * @param ganadora Casilla ganadora de la ronda.
-     */
-    public void repartirPremio(Casilla ganadora,CountDownLatch count) {
-        if (this.jugadorApuestas.isEmpty()) {
-            // No hay apuestas para repartir (silencioso)
-        		//count.countDown();
-            return;
+        // Si NoVaMas() congela esta ronda mientras estamos dentro, espera a que salgamos
+        ApuestasRonda apuestas = this.rondaAbierta.get();
+        if (apuestas.getRonda() != ronda || !apuestas.entrar()) {
+            return false;
         }
-
-        final CyclicBarrier starter = new CyclicBarrier(this.jugadorApuestas.size() + 1);
-        ExecutorService poolPremios = Executors.newFixedThreadPool(this.jugadorApuestas.size());
-
         try {
-            for (Map.Entry<Jugador, List<Apuesta>> entry : this.jugadorApuestas.entrySet()) {
-                // Copia defensiva de la lista de apuestas
-                List<Apuesta> copiaApuestas;
-                synchronized (entry.getValue()) {
-                    copiaApuestas = new ArrayList<>(entry.getValue());
-                }
-                poolPremios.execute(new MandarPremios(entry.getKey(), copiaApuestas, ganadora, starter));
+            // Comprobar saldo y descontar en una sola operación (CAS): dos apuestas
+            // simultáneas del mismo jugador no pueden gastar el mismo saldo
+            if (!jug.reservarApuesta(compilada.getCantidadCentimos())) {
+                return false;
             }
-
-            // Esperar a que todos los hilos de premios lleguen a la barrera
-            starter.await();
-
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt(); // restaurar estado de interrupción
-        } catch (BrokenBarrierException e) {
-            System.err.println("⚠️ Error en la barrera de premios: " + e.getMessage());
+            apuestas.anadir(jug, compilada);
+            return true;
         } finally {
-            //count.countDown();
-            poolPremios.shutdown();
-            try {
-                if (!poolPremios.awaitTermination(3, TimeUnit.SECONDS)) {
-                    poolPremios.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                poolPremios.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
-            
+            apuestas.salir();
         }
     }
 
     /**
-     * Comunica la casilla ganadora a todos los jugadores conectados.
-     * Utiliza un pool de hilos y CyclicBarrier para sincronizar el envío.
+     * Liquida la ronda cerrada: paga las apuestas y comunica el desenlace a cada jugador
+     * con un solo mensaje. Un único reparto en el MotorDifusion (antes eran dos: premios y
+     * casilla), una tarea y una escritura por jugador.
      *
      * PRE:
      *  - ganadora != null
-     *  - NoVaMas() ya fue llamado.
+     *  - NoVaMas() ya fue llamado (mesa cerrada): se liquida la ronda que congeló.
      *
      * POST:
-     *  - Todos los jugadores conectados reciben un mensaje con la casilla ganadora.
+     *  - Se suma a cada jugador que apostó el premio de sus apuestas.
+     *  - Los que apostaron y siguen conectados reciben el desenlace (resultado, ganancia neta
+     *    y saldo); el resto de jugadores conectados recibe solo el resultado, compuesto y
+     *    codificado una sola vez (MensajeCodificado).
      *  - Los jugadores desconectados son ignorados (no se interrumpe la ronda).
-     *  - Todos los hilos esperan en la barrera antes de enviar el mensaje.
+     *  - Se informa por consola del total apostado y pagado (libro de riesgo) y del tiempo de reparto.
      *
      * CONCURRENCIA:
      *  - Snapshot de jugadoresConexion para evitar ConcurrentModificationException.
-     *  - Si un jugador se conecta DESPUÉS del snapshot, no participa en esta ronda.
-     *  - CyclicBarrier sincroniza el envío (todos envían al mismo tiempo).
-     *  - Timeout de 3 segundos para shutdown del pool.
+     *  - Si un jugador se conecta DESPUÉS del snapshot, no recibe el resultado de esta ronda.
+     *  - El lock de la lista solo se mantiene mientras se copia, no durante el envío.
+     *  - La ronda está congelada: las listas de apuestas se pasan sin copiar.
+     *  - Espera máxima de 3 segundos, después la ronda continúa.
      *
      * @param ganadora Casilla ganadora de la ronda.
+     * @return Milisegundos que ha tardado el reparto.
      */
-    public void mandarCasilla(Casilla ganadora,CountDownLatch count) {
-        if (this.jugadoresConexion.isEmpty()) {
-        		//count.countDown();
-            return;
+    public long liquidarRonda(Casilla ganadora) {
+        ApuestasRonda ronda = this.rondaCerrada;
+        Map<Jugador, List<ApuestaCompilada>> apuestas = ronda.getApuestas();
+        if (!ronda.isVacia()) {
+            // Totales de la ronda sin recorrer las apuestas
+            LibroRiesgo riesgo = ronda.getLibroRiesgo();
+            System.out.println("Mesa " + this.numeroMesa + " · Ronda " + ronda.getRonda() + " (sale el " + ganadora.getNumero() + "): apostado " + riesgo.getTotalApostado()
+                + "€, premios " + riesgo.getDeuda(ganadora.getNumero())
+                + "€ (exposición máxima " + riesgo.getExposicionMaxima() + "€)");
         }
 
+        // Se compone y codifica una vez para toda la mesa: cada conexión recibe una vista de los mismos bytes
+        MensajeCodificado resultado = MensajeCodificado.resultado(this.numeroMesa, ronda.getRonda(), ganadora);
+        List<LiquidarJugador> tareas;
         synchronized (this.jugadoresConexion) {
-            // Snapshot del tamaño actual → si alguien se conecta después, no participa en esta ronda
-            final CyclicBarrier starter = new CyclicBarrier(this.jugadoresConexion.size() + 1);
-            ExecutorService poolCasilla = Executors.newFixedThreadPool(this.jugadoresConexion.size());
-
-            try {
-                for (Jugador j : this.jugadoresConexion) {
-                    poolCasilla.execute(new MandarCasillaGanadora(j.getConexion(), starter, ganadora));
+            // Snapshot → si alguien se conecta después, no participa en esta ronda
+            tareas = new ArrayList<>(this.jugadoresConexion.size() + apuestas.size());
+            for (Jugador j : this.jugadoresConexion) {
+                if (!apuestas.containsKey(j)) {
+                    tareas.add(new LiquidarJugador(j, null, resultado));
                 }
-
-                // Esperar a que todos los hilos lleguen a la barrera
-                starter.await();
-
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt(); // restaurar estado de interrupción
-            } catch (BrokenBarrierException e) {
-                System.err.println("⚠️ Error en la barrera de casillas: " + e.getMessage());
-            } finally {
-            		//count.countDown();
-                poolCasilla.shutdown();
-                try {
-                    if (!poolCasilla.awaitTermination(3, TimeUnit.SECONDS)) {
-                        poolCasilla.shutdownNow();
-                    }
-                } catch (InterruptedException e) {
-                    poolCasilla.shutdownNow();
-                    Thread.currentThread().interrupt();
-                }
-                
-                
             }
         }
+        // Los que apostaron, sigan o no en la mesa: hay que pagarles igual
+        for (Map.Entry<Jugador, List<ApuestaCompilada>> entry : apuestas.entrySet()) {
+            tareas.add(new LiquidarJugador(entry.getKey(), entry.getValue(), resultado));
+        }
+
+        return this.difusion.ejecutar("liquidación", tareas);
     }
 
     // --- DESCONEXIÓN ---
@@ -742,15 +759,13 @@ public class ServicioRuleta {
      * PRE: jug puede ser null (se valida internamente).
      * POST:
      *  - Se marca la sesión como cerrada (isSesionIniciada = false).
-     *  - Se cierra el socket del jugador.
+     *  - Se cierra la conexión del jugador.
      *  - Se elimina de jugadoresConexion.
-     *  - Se actualiza la BD en segundo plano (ActualizarBD).
+     *  - Se pide el guardado de lo pendiente (PersistenciaJugadores), sin copiar la lista
+     *    ni reescribir el XML: una desconexión masiva se guarda en un solo lote.
      *
      * CONCURRENCIA:
-     *  - Sincroniza sobre el jugador para evitar race conditions.
-     *  - No pasa nada por que se produzcan errores de carrera en la actualización de BD,
-     *    en el sentido de estar todo el rato sobreescribiendo, ya que al final la lista
-     *    jugadoresSesion siempre va a estar actualizada.
+     *  - Bloquea el lock del jugador para evitar race conditions.
      *
      * @param jug Jugador a desconectar.
      */
@@ -759,32 +774,38 @@ public class ServicioRuleta {
             return;
         }
 
-        synchronized (jug) {
+        jug.getLock().lock();
+        try {
             // Marcar sesión como cerrada
             jug.setSesionIniciada(false);
 
-            // Cerrar socket si existe
-            Socket conexion = jug.getConexion();
-            if (conexion != null && !conexion.isClosed()) {
-                try {
-                    conexion.close();
-                } catch (IOException e) {
-                    // Log silencioso, no propagamos
-                    System.err.println("⚠️ Error cerrando socket de jugador " + jug.getID() + ": " + e.getMessage());
-                }
+            // Cerrar conexión si existe
+            ConexionJugador conexion = jug.getConexion();
+            if (conexion != null) {
+                conexion.cerrar();
             }
             jug.setConexion(null);
 
+        } finally {
+            jug.getLock().unlock();
         }
         
         jugadoresConexion.remove(jug);
-        //No pasa nada por que se produzcan errores de carrera, en el sentido de estar todo el rato sobreescribiendo, ya que al final la lista        
-        // jugadoresSesion siempre va a estar acutalizada.         
-        this.poolServer.execute(new ActualizarBD(new ArrayList<>(this.jugadoresSesion),this.BBDD));        
+        PersistenciaJugadores persistencia = this.registro.getPersistencia();
+        if (persistencia != null) {
+            persistencia.solicitarGuardado();
+        }        
        
     }
     
     
+    /**
+     * Detiene los hilos del reparto de fin de ronda (cierre del servidor).
+     */
+    public void cerrarReparto() {
+        this.difusion.cerrar();
+    }
+
     public void desconectarTodo() {
     	
     	
@@ -0,0 +1,53 @@
+package modeloDominio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interfaz ConexionBinaria
+ * ------------------------
+ * Conexión de un cliente que ha negociado el protocolo binario (ProtocoloBinario).
+ * Los avisos de la ronda salen como tramas de tamaño fijo en lugar de líneas de texto,
+ * así que el resto del servidor no necesita saber qué protocolo habla cada jugador.
+ *
+ * PRECONDICIONES:
+ *  - Igual que ConexionJugador: las implementaciones deben ser thread-safe.
+ *
+ * POSTCONDICIONES:
+ *  - enviarTrama() entrega la trama completa o no entrega nada (nunca se mezclan tramas).
+ */
+public interface ConexionBinaria extends ConexionJugador {
+
+    /**
+     * Envía una trama ya codificada (cabecera incluida).
+     * Si la conexión está cerrada, la trama se descarta en silencio.
+     *
+     * @param trama Trama de ProtocoloBinario, de la posición al límite. La conexión se queda con
+     *              el buffer (puede ser una vista de solo lectura compartida con otras conexiones).
+     */
+    void enviarTrama(ByteBuffer trama);
+
+    /**
+     * @param trama Trama de ProtocoloBinario. No se modifica después de enviarla.
+     */
+    default void enviarTrama(byte[] trama) {
+        this.enviarTrama(ByteBuffer.wrap(trama));
+    }
+
+    /**
+     * Los avisos en texto que aún no tienen trama propia van en una trama TEXTO.
+     */
+    @Override
+    default void enviar(String linea) {
+        this.enviarTrama(ProtocoloBinario.texto(linea));
+    }
+
+    @Override
+    default void enviarResultado(MensajeCodificado resultado) {
+        this.enviarTrama(resultado.getTrama());
+    }
+
+    @Override
+    default void enviarDesenlace(MensajeCodificado resultado, long netaCentimos, long saldoCentimos) {
+        this.enviarTrama(resultado.getTrama(netaCentimos, saldoCentimos));
+    }
+}
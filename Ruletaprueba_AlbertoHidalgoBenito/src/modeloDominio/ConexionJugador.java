@@ -0,0 +1,84 @@
+package modeloDominio;
+
+/**
+ * Interfaz ConexionJugador
+ * ------------------------
+ * Canal de salida hacia el cliente de un jugador conectado.
+ * Abstrae cómo llegan las líneas del protocolo al cliente, para que el resto del servidor
+ * (broadcasts, premios, desconexión) no dependa de si la conexión es un Socket bloqueante
+ * (AtenderJugador) o una sesión no bloqueante del modo NIO, ni de si habla texto o tramas
+ * binarias (ConexionBinaria): los avisos de la ronda tienen su propio método.
+ *
+ * PRECONDICIONES:
+ *  - Las implementaciones deben ser thread-safe: se escribe desde el hilo del jugador
+ *    y desde los hilos de reparto de la ronda a la vez.
+ *
+ * POSTCONDICIONES:
+ *  - enviar() entrega la línea completa o no entrega nada (nunca se mezclan líneas).
+ *  - Tras cerrar(), isAbierta() devuelve false y enviar() no tiene efecto.
+ */
+public interface ConexionJugador {
+
+    /**
+     * Envía una línea de texto al cliente (se añade el salto de línea).
+     * Si la conexión está cerrada, la línea se descarta en silencio.
+     *
+     * @param linea Texto a enviar.
+     */
+    void enviar(String linea);
+
+    /**
+     * Comunica el resultado de una ronda, ya compuesto y codificado una vez para toda la mesa.
+     * En texto son sus líneas ("NO VA MÁS" y "CASILLA GANADORA"); una conexión binaria manda
+     * su trama RESULTADO. Por defecto se envían las líneas una a una; las conexiones que
+     * escriben bytes encolan directamente la vista codificada (MensajeCodificado.getTexto())
+     * y las que escriben con println, todas las líneas en una cadena (getLineasTexto()).
+     *
+     * @param resultado Resultado de la ronda (MensajeCodificado.resultado).
+     */
+    default void enviarResultado(MensajeCodificado resultado) {
+        for (int i = 0; i < resultado.getNumLineas(); i++) {
+            this.enviar(resultado.getLinea(i));
+        }
+    }
+
+    /**
+     * Comunica el desenlace de la ronda a un jugador que apostó: el resultado y lo que ha
+     * ganado o perdido, como un único mensaje (en texto, las líneas del resultado seguidas de
+     * "HAS GANADO"/"HAS PERDIDO" con el saldo; en binario, una trama DESENLACE).
+     * Por defecto se envían las líneas una a una; las conexiones que escriben bytes encolan
+     * un solo buffer (MensajeCodificado.getTexto(neta, saldo)) y las que escriben con println,
+     * una sola cadena (getLineasTexto(neta, saldo)).
+     *
+     * @param resultado     Resultado de la ronda, el mismo objeto para toda la mesa.
+     * @param netaCentimos  Premio menos lo apostado en la ronda.
+     * @param saldoCentimos Saldo del jugador tras cobrar el premio.
+     */
+    default void enviarDesenlace(MensajeCodificado resultado, long netaCentimos, long saldoCentimos) {
+        this.enviarResultado(resultado);
+        this.enviar(MensajeCodificado.lineaDesenlace(netaCentimos, saldoCentimos));
+    }
+
+    /**
+     * Pasa la conexión al protocolo binario (el cliente lo ha pedido con ProtocoloBinario.SALUDO).
+     *
+     * PRE: Aún no se ha iniciado sesión con esta conexión.
+     * POST: Si lo soporta, lo que se lea a partir de ahora son tramas y lo que se envíe por
+     *       la vista devuelta también.
+     *
+     * @return Vista binaria de la conexión, o null si esta conexión no lo soporta.
+     */
+    default ConexionBinaria pasarABinario() {
+        return null;
+    }
+
+    /**
+     * @return true si la conexión sigue abierta.
+     */
+    boolean isAbierta();
+
+    /**
+     * Cierra la conexión. Es idempotente.
+     */
+    void cerrar();
+}
@@ -0,0 +1,62 @@
+package modeloDominio;
+
+/**
+ * Clase Dinero
+ * ------------
+ * Conversión entre euros (double, como se muestran y se guardan en XML) y céntimos (long).
+ * Los saldos, premios y riesgos se calculan en céntimos enteros: sumar millones de
+ * premios en double acumula errores de redondeo, en long no.
+ *
+ * POSTCONDICIONES:
+ *  - aEuros(aCentimos(x)) == x para cualquier importe con 2 decimales como mucho.
+ */
+public final class Dinero {
+
+    /**
+     * Desde 10^7 € Double.toString usa notación científica.
+     */
+    private static final long MAX_PLANO = 1_000_000_000L;
+
+    // Constructor privado para evitar instanciación
+    private Dinero() {}
+
+    /**
+     * @param euros Importe en euros.
+     * @return Importe en céntimos, redondeado al céntimo más cercano.
+     */
+    public static long aCentimos(double euros) {
+        return Math.round(euros * 100);
+    }
+
+    /**
+     * @param centimos Importe en céntimos.
+     * @return Importe en euros.
+     */
+    public static double aEuros(long centimos) {
+        return centimos / 100.0;
+    }
+
+    /**
+     * Añade el importe en euros tal como lo escribiría sb.append(aEuros(centimos)) ("5.0", "12.5",
+     * "0.05"), pero sin pasar por double: formatear un double es lo más caro de un mensaje por jugador.
+     *
+     * @param sb       Destino.
+     * @param centimos Importe en céntimos.
+     * @return sb, para encadenar.
+     */
+    public static StringBuilder escribir(StringBuilder sb, long centimos) {
+        if (centimos <= -MAX_PLANO || centimos >= MAX_PLANO) {
+            return sb.append(aEuros(centimos)); // Double.toString pasa a notación científica
+        }
+        if (centimos < 0) {
+            sb.append('-');
+            centimos = -centimos;
+        }
+        long cts = centimos % 100;
+        sb.append(centimos / 100).append('.');
+        if (cts % 10 == 0) {
+            return sb.append(cts / 10); // "5.0", "5.5": sin ceros sobrantes
+        }
+        return sb.append(cts / 10).append(cts % 10);
+    }
+}
@@ -1,8 +1,13 @@
 package modeloDominio;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.net.Socket;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.xml.bind.annotation.*;
 
 /**
@@ -15,11 +20,22 @@ import javax.xml.bind.annotation.*;
  * PRECONDICIONES:
  *  - El ID del jugador debe ser único y no nulo.
  *  - El saldo inicial debe ser >= 0.
- *  - La conexión (Socket) puede ser nula si el jugador no está conectado.
+ *  - La conexión (ConexionJugador) puede ser nula si el jugador no está conectado.
  *
  * POSTCONDICIONES:
  *  - Se crea un objeto Jugador con ID, saldo y estado de sesión inicializado.
- *  - Los métodos sincronizados garantizan operaciones seguras sobre el saldo en entornos concurrentes.
+ *  - Las operaciones sobre el saldo son seguras en entornos concurrentes (sin bloqueos).
+ *
+ * CONCURRENCIA:
+ *  - El saldo se guarda en céntimos en un AtomicLong: las ganancias son una suma atómica
+ *    y las apuestas un compare-and-set que solo descuenta si hay saldo (reservarApuesta).
+ *  - En XML se sigue guardando en euros (getSaldo/setSaldo convierten).
+ *  - El ReentrantLock protege el estado de conexión. Se usa en lugar de synchronized: un hilo
+ *    virtual que espera un monitor queda "clavado" a su hilo portador, con el lock lo libera.
+ *  - ServicioRuleta usa ese lock (getLock) al conectar y desconectar al jugador.
+ *  - Cada cambio de saldo marca al jugador como pendiente de guardar. Solo el primer cambio
+ *    desde el último guardado avisa al observador (PersistenciaJugadores): el resto ya van
+ *    en el mismo lote y cuestan una lectura volatile.
  *  - equals() y hashCode() permiten comparar jugadores por su ID.
  *  - toString() devuelve una representación legible del jugador.
  */
@@ -30,11 +46,14 @@ public class Jugador implements Serializable {
 
     // --- ATRIBUTOS (Persistencia) ---
     private String id;
-    private double saldo;
+    private final AtomicLong saldoCentimos = new AtomicLong();
 
     // --- ATRIBUTOS TRANSITORIOS (no persisten en JAXB ni serialización estándar) ---
-    private transient Socket conexion;
+    private transient ConexionJugador conexion;
     private transient boolean isSesionIniciada;
+    private transient ReentrantLock lock = new ReentrantLock();
+    private transient AtomicBoolean pendiente = new AtomicBoolean();
+    private transient volatile Consumer<Jugador> alCambiarSaldo;
 
     // --- CONSTRUCTORES ---
 
@@ -44,7 +63,6 @@ public class Jugador implements Serializable {
      */
     public Jugador() {
         this.id = null;
-        this.saldo = 0.0;
         this.conexion = null;
         this.isSesionIniciada = false;
     }
@@ -57,7 +75,7 @@ public class Jugador implements Serializable {
      */
     public Jugador(String id, double saldo) {
         this.id = id;
-        this.saldo = saldo;
+        this.setSaldo(saldo);
         this.conexion = null;
         this.isSesionIniciada = false;
     }
@@ -67,11 +85,11 @@ public class Jugador implements Serializable {
      *
      * @param id      Identificador único del jugador.
      * @param saldo   Saldo inicial del jugador (>= 0).
-     * @param cliente Socket de conexión activo.
+     * @param cliente Conexión activa con el cliente.
      */
-    public Jugador(String id, double saldo, Socket cliente) {
+    public Jugador(String id, double saldo, ConexionJugador cliente) {
         this.id = id;
-        this.saldo = saldo;
+        this.setSaldo(saldo);
         this.conexion = cliente;
         this.isSesionIniciada = false;
     }
@@ -84,20 +102,100 @@ public class Jugador implements Serializable {
      * @param ganancia Monto a añadir al saldo.
      * POST: El saldo se incrementa en la cantidad indicada.
      */
-    public synchronized void sumarGanancia(double ganancia) {
-        this.setSaldo(this.saldo + ganancia);
+    public void sumarGanancia(double ganancia) {
+        this.sumarCentimos(Dinero.aCentimos(ganancia));
+    }
+
+    /**
+     * Suma céntimos al saldo (suma atómica, sin bloqueos).
+     *
+     * @param centimos Céntimos a añadir (negativo para restar).
+     * POST: El saldo se incrementa en la cantidad indicada.
+     */
+    public void sumarCentimos(long centimos) {
+        this.saldoCentimos.addAndGet(centimos);
+        this.marcarCambio();
     }
 
     /**
      * Resta el monto de la apuesta del saldo actual de forma segura para hilos.
+     * No comprueba el saldo: para aceptar apuestas se usa reservarApuesta().
      *
      * @param apuesta Monto a restar del saldo.
      * POST: El saldo se decrementa en la cantidad indicada.
      */
-    public synchronized void restarApuesta(double apuesta) {
-        this.setSaldo(this.saldo - apuesta);
+    public void restarApuesta(double apuesta) {
+        this.sumarCentimos(-Dinero.aCentimos(apuesta));
     }
 
+    /**
+     * Descuenta una apuesta solo si el saldo llega (comprobar y descontar es una única operación atómica).
+     *
+     * PRE: centimos > 0
+     * POST:
+     *  - true → el saldo se ha reducido en 'centimos'.
+     *  - false → saldo insuficiente, no se modifica nada.
+     *
+     * @param centimos Importe de la apuesta en céntimos.
+     * @return true si se ha descontado.
+     */
+    public boolean reservarApuesta(long centimos) {
+        long actual;
+        do {
+            actual = this.saldoCentimos.get();
+            if (actual < centimos) {
+                return false;
+            }
+        } while (!this.saldoCentimos.compareAndSet(actual, actual - centimos));
+        this.marcarCambio();
+        return true;
+    }
+
+    // --- CAMBIOS PENDIENTES DE GUARDAR ---
+
+    /**
+     * Marca al jugador como pendiente de guardar. Si no lo estaba, avisa al observador.
+     * setSaldo no marca: lo usan la carga de la BD (JAXB) y los constructores.
+     *
+     * POST: tomarCambio() devolverá true hasta que alguien lo consuma.
+     */
+    public void marcarCambio() {
+        if (!this.pendiente.get() && this.pendiente.compareAndSet(false, true)) {
+            Consumer<Jugador> obs = this.alCambiarSaldo;
+            if (obs != null) {
+                obs.accept(this);
+            }
+        }
+    }
+
+    /**
+     * Consume la marca de cambio. Se llama ANTES de leer el saldo que se va a guardar:
+     * un cambio posterior vuelve a marcar al jugador y entra en el lote siguiente.
+     *
+     * @return true si el jugador tenía cambios sin guardar.
+     */
+    public boolean tomarCambio() {
+        return this.pendiente.getAndSet(false);
+    }
+
+    /**
+     * Fija quién recibe el aviso del primer cambio de saldo (null para ninguno).
+     *
+     * @param observador Observador de la persistencia.
+     */
+    public void observarSaldo(Consumer<Jugador> observador) {
+        this.alCambiarSaldo = observador;
+    }
+
+    /**
+     * Lock que protege el estado de conexión del jugador (sesión y conexión).
+     * El saldo no lo necesita: es un AtomicLong de céntimos.
+     *
+     * @return Lock del jugador (reentrante).
+     */
+    @XmlTransient
+    public ReentrantLock getLock() { return this.lock; }
+
     // --- GETTERS Y SETTERS (Persistencia / JAXB) ---
 
     @XmlAttribute(name = "id", required = true)
@@ -105,19 +203,33 @@ public class Jugador implements Serializable {
     public void setID(String id) { this.id = id; }
 
     @XmlElement(name = "saldo", required = true)
-    public double getSaldo() { return saldo; }
-    public void setSaldo(double saldo) { this.saldo = saldo; }
+    public double getSaldo() { return Dinero.aEuros(this.saldoCentimos.get()); }
+    public void setSaldo(double saldo) { this.saldoCentimos.set(Dinero.aCentimos(saldo)); }
+
+    @XmlTransient
+    public long getSaldoCentimos() { return this.saldoCentimos.get(); }
 
     // --- GETTERS Y SETTERS (Transitorios / Conexión) ---
 
     @XmlTransient
-    public Socket getConexion() { return conexion; }
-    public void setConexion(Socket conex) { this.conexion = conex; }
+    public ConexionJugador getConexion() { return conexion; }
+    public void setConexion(ConexionJugador conex) { this.conexion = conex; }
 
     @XmlTransient
     public boolean isSesionIniciada() { return this.isSesionIniciada; }
     public void setSesionIniciada(boolean sesionIniciada) { this.isSesionIniciada = sesionIniciada; }
 
+    // --- SERIALIZACIÓN ---
+
+    /**
+     * Los campos transient no se inicializan al deserializar: recreamos el lock y la marca de cambio.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.lock = new ReentrantLock();
+        this.pendiente = new AtomicBoolean();
+    }
+
     // --- MÉTODOS DE OBJETO ---
 
     /**
@@ -151,6 +263,6 @@ public class Jugador implements Serializable {
      */
     @Override
     public String toString() {
-        return "Jugador [id=" + id + ", saldo=" + saldo + ", Sesión Iniciada=" + this.isSesionIniciada + "]";
+        return "Jugador [id=" + id + ", saldo=" + this.getSaldo() + ", Sesión Iniciada=" + this.isSesionIniciada + "]";
     }
 }
@@ -0,0 +1,188 @@
+package modeloDominio;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Clase MensajeCodificado
+ * -----------------------
+ * Aviso que se manda igual a todos los jugadores de la mesa (el resultado de la ronda),
+ * compuesto y codificado una sola vez: en texto, tal como lo escribiría el PrintWriter del
+ * modo clásico, y como trama de ProtocoloBinario. Cada conexión recibe una vista de solo
+ * lectura de los mismos bytes, así que difundirlo a 10.000 jugadores no crea ninguna cadena
+ * ni ningún array por jugador.
+ *
+ * DESENLACE:
+ *  - Quien apostó recibe además su ganancia neta y su saldo. getTexto(neta, saldo) y
+ *    getTrama(neta, saldo) componen resultado y premio en un único buffer, así que a cada
+ *    conexión le llega un solo mensaje por ronda y el premio nunca se separa del resultado.
+ *
+ * FORMATO:
+ *  - Texto: las líneas con System.lineSeparator() y el charset por defecto, los mismos bytes
+ *    que enviar() en SesionNIO. ConexionSocket escribe con el PrintWriter del cliente, así que
+ *    en lugar de los bytes usa las líneas unidas en una cadena (getLineasTexto), la misma
+ *    para toda la mesa.
+ *  - Trama: la de ProtocoloBinario, cabecera incluida.
+ *
+ * CONCURRENCIA:
+ *  - Inmutable. getTexto() y getTrama() devuelven un duplicado con su propia posición,
+ *    así que cada conexión lo consume a su ritmo sin tocar el de las demás.
+ */
+public final class MensajeCodificado {
+
+    private static final Charset CHARSET = Charset.defaultCharset();
+    private static final String SALTO = System.lineSeparator();
+
+    // --- ATRIBUTOS ---
+    private final int mesa;
+    private final int ronda;
+    private final Casilla ganadora;
+    private final String[] lineas;
+    private final String lineasTexto; // Las líneas unidas con SALTO, sin salto final
+    private final byte[] bytesTexto; // Nunca sale de la clase: solo vistas de solo lectura o copias
+    private final ByteBuffer texto;
+    private final ByteBuffer trama;
+
+    private MensajeCodificado(int mesa, int ronda, Casilla ganadora, String[] lineas, byte[] trama) {
+        this.mesa = mesa;
+        this.ronda = ronda;
+        this.ganadora = ganadora;
+        this.lineas = lineas;
+        StringBuilder sb = new StringBuilder();
+        for (String l : lineas) {
+            sb.append(l).append(SALTO);
+        }
+        this.bytesTexto = sb.toString().getBytes(CHARSET);
+        this.lineasTexto = sb.substring(0, sb.length() - SALTO.length());
+        this.texto = ByteBuffer.wrap(this.bytesTexto).asReadOnlyBuffer();
+        this.trama = ByteBuffer.wrap(trama).asReadOnlyBuffer();
+    }
+
+    /**
+     * Resultado de una ronda: "NO VA MÁS" + "CASILLA GANADORA" en texto, RESULTADO en binario.
+     *
+     * @param mesa     Número de la mesa.
+     * @param ronda    Ronda que se acaba de cerrar.
+     * @param ganadora Casilla ganadora.
+     * @return Mensaje listo para difundir.
+     */
+    public static MensajeCodificado resultado(int mesa, int ronda, Casilla ganadora) {
+        return new MensajeCodificado(mesa, ronda, ganadora, new String[] {
+            "\u001b[32m--- NO VA MÁS ---\u001b[0m",
+            "\u001b[32mCASILLA GANADORA: " + ganadora + "\u001b[0m"
+        }, ProtocoloBinario.resultado(mesa, ronda, ganadora));
+    }
+
+    // --- GETTERS ---
+
+    /**
+     * @return Casilla ganadora de la ronda.
+     */
+    public Casilla getGanadora() {
+        return this.ganadora;
+    }
+
+    /**
+     * @return Número de líneas del texto.
+     */
+    public int getNumLineas() {
+        return this.lineas.length;
+    }
+
+    /**
+     * Para conexiones que solo saben enviar líneas (ConexionJugador.enviar).
+     *
+     * @param i Índice de la línea (0 <= i < getNumLineas()).
+     * @return Línea sin salto.
+     */
+    public String getLinea(int i) {
+        return this.lineas[i];
+    }
+
+    /**
+     * Para conexiones que escriben con println (ConexionSocket): un solo println escribe
+     * todas las líneas seguidas.
+     *
+     * @return Las líneas unidas con el salto de línea del sistema, sin salto final.
+     */
+    public String getLineasTexto() {
+        return this.lineasTexto;
+    }
+
+    /**
+     * @return Vista de solo lectura del texto codificado, en la posición 0.
+     */
+    public ByteBuffer getTexto() {
+        return this.texto.duplicate();
+    }
+
+    /**
+     * @return Vista de solo lectura de la trama binaria, en la posición 0.
+     */
+    public ByteBuffer getTrama() {
+        return this.trama.duplicate();
+    }
+
+    // --- DESENLACE DE UN JUGADOR ---
+
+    /**
+     * Línea con lo que ha ganado o perdido el jugador en la ronda.
+     *
+     * @param netaCentimos  Premio menos lo apostado (negativa si ha perdido).
+     * @param saldoCentimos Saldo tras cobrar el premio.
+     * @return Línea sin salto.
+     */
+    public static String lineaDesenlace(long netaCentimos, long saldoCentimos) {
+        return desenlace(new StringBuilder(64), netaCentimos, saldoCentimos).toString();
+    }
+
+    /**
+     * Texto del resultado seguido de la línea del desenlace, en un único buffer.
+     *
+     * @param netaCentimos  Premio menos lo apostado.
+     * @param saldoCentimos Saldo tras cobrar el premio.
+     * @return Buffer nuevo en la posición 0 (solo para esta conexión).
+     */
+    public ByteBuffer getTexto(long netaCentimos, long saldoCentimos) {
+        byte[] linea = desenlace(new StringBuilder(64), netaCentimos, saldoCentimos).append(SALTO).toString().getBytes(CHARSET);
+        byte[] b = new byte[this.bytesTexto.length + linea.length];
+        System.arraycopy(this.bytesTexto, 0, b, 0, this.bytesTexto.length);
+        System.arraycopy(linea, 0, b, this.bytesTexto.length, linea.length);
+        return ByteBuffer.wrap(b);
+    }
+
+    /**
+     * Como getTexto(neta, saldo), para conexiones que escriben con println.
+     *
+     * @param netaCentimos  Premio menos lo apostado.
+     * @param saldoCentimos Saldo tras cobrar el premio.
+     * @return Líneas del resultado y del desenlace en una cadena, sin salto final.
+     */
+    public String getLineasTexto(long netaCentimos, long saldoCentimos) {
+        StringBuilder sb = new StringBuilder(this.lineasTexto.length() + 64).append(this.lineasTexto).append(SALTO);
+        return desenlace(sb, netaCentimos, saldoCentimos).toString();
+    }
+
+    /**
+     * @param netaCentimos  Premio menos lo apostado.
+     * @param saldoCentimos Saldo tras cobrar el premio.
+     * @return Trama DESENLACE de ProtocoloBinario, en la posición 0.
+     */
+    public ByteBuffer getTrama(long netaCentimos, long saldoCentimos) {
+        return ByteBuffer.wrap(ProtocoloBinario.desenlace(this.mesa, this.ronda, this.ganadora, netaCentimos, saldoCentimos));
+    }
+
+    // --- AUXILIARES ---
+
+    private static StringBuilder desenlace(StringBuilder sb, long netaCentimos, long saldoCentimos) {
+        if (netaCentimos < 0) {
+            sb.append("\u001b[1m\u001b[31mHAS PERDIDO: ");
+            Dinero.escribir(sb, -netaCentimos);
+        } else {
+            sb.append("\u001b[1m\u001b[33mHAS GANADO: ");
+            Dinero.escribir(sb, netaCentimos);
+        }
+        sb.append("€ · SALDO: ");
+        return Dinero.escribir(sb, saldoCentimos).append("€\u001b[0m");
+    }
+}
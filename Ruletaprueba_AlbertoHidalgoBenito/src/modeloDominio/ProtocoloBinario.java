@@ -0,0 +1,273 @@
+package modeloDominio;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Clase ProtocoloBinario
+ * ----------------------
+ * Protocolo binario del casino, alternativo al de líneas de texto: tramas con longitud,
+ * código de operación y campos fijos. Una apuesta, un resultado o un saldo ocupan unos pocos
+ * bytes y no hay que construir ni trocear cadenas en ningún extremo.
+ *
+ * NEGOCIACIÓN:
+ *  - Toda conexión empieza en texto. A la primera pregunta (bienvenida: "1. Iniciar Sesion /
+ *    2. Registrarse") el cliente contesta SALUDO + " " + VERSION, es decir "BINARIO 2".
+ *  - El servidor contesta con una trama HOLA y desde ahí todo va en tramas, en los dos sentidos.
+ *    El cliente no debe mandar ninguna trama antes de recibir HOLA.
+ *  - Si la versión no está soportada el servidor lo dice en texto y la conversación sigue en texto.
+ *
+ * TRAMA (big-endian):
+ *  - Longitud (2 B, sin signo): bytes que siguen, código incluido.
+ *  - Código (1 B).
+ *  - Campos fijos del código. Los nombres van como longitud (1 B) + UTF-8; el texto libre, como
+ *    longitud (2 B) + UTF-8. El dinero siempre en céntimos.
+ *
+ * CLIENTE → SERVIDOR:
+ *  - LOGIN         nombre
+ *  - REGISTRO      saldo (8 B), nombre
+ *  - INGRESAR      céntimos (8 B)
+ *  - ESPERAR_RONDA (sin datos): pide el aviso RONDA_ABIERTA cuando la mesa abra (o ya, si está abierta).
+ *  - APOSTAR       ronda (4 B), tipo (1 B, ordinal de TipoApuesta), valor (1 B), céntimos (4 B)
+ *                  Valor: NUMERO 0-36; COLOR 0 = ROJO, 1 = NEGRO; PAR_IMPAR 0 = PAR, 1 = IMPAR; DOCENA 1-3.
+ *  - MESA          número (1 B, 0 = la más libre)
+ *  - SALIR         (sin datos)
+ *
+ * SERVIDOR → CLIENTE:
+ *  - HOLA            versión (1 B)
+ *  - SESION          código (1 B, OK o motivo), saldo (8 B)
+ *  - SALDO           saldo (8 B)
+ *  - RONDA_ABIERTA   mesa (1 B), ronda (4 B)
+ *  - APUESTA_OK      saldo tras descontar la apuesta (8 B)
+ *  - RESULTADO       mesa (1 B), ronda (4 B), número ganador (1 B), color (1 B, ordinal de Casilla.COLOR),
+ *                    docena (1 B, 0 si sale el 0). A los jugadores que no apostaron en la ronda.
+ *  - DESENLACE       los campos de RESULTADO, ganancia neta (8 B, con signo: premio menos lo apostado)
+ *                    y saldo tras cobrar (8 B). A los que apostaron: resultado y premio en una sola trama.
+ *  - MESA            número (1 B)
+ *  - ERROR           código de la petición (1 B), motivo (1 B)
+ *  - TEXTO           texto (avisos del servidor que aún no tienen trama propia)
+ */
+public final class ProtocoloBinario {
+
+    /**
+     * Respuesta de texto con la que el cliente pide el protocolo binario.
+     */
+    public static final String SALUDO = "BINARIO";
+    public static final int VERSION = 2; // 2: DESENLACE sustituye a RESULTADO + PREMIO para quien apostó
+
+    /**
+     * Longitud máxima de una trama del cliente (la más larga es un REGISTRO con un nombre de 255 B).
+     */
+    public static final int MAX_TRAMA_CLIENTE = 512;
+
+    /**
+     * Bytes de la cabecera de longitud.
+     */
+    public static final int CABECERA = 2;
+
+    // --- CÓDIGOS CLIENTE → SERVIDOR ---
+    public static final int LOGIN = 0x01;
+    public static final int REGISTRO = 0x02;
+    public static final int INGRESAR = 0x03;
+    public static final int ESPERAR_RONDA = 0x04;
+    public static final int APOSTAR = 0x05;
+    public static final int MESA = 0x06;
+    public static final int SALIR = 0x07;
+
+    // --- CÓDIGOS SERVIDOR → CLIENTE ---
+    public static final int HOLA = 0x41;
+    public static final int SESION = 0x42;
+    public static final int SALDO = 0x43;
+    public static final int RONDA_ABIERTA = 0x44;
+    public static final int APUESTA_OK = 0x45;
+    public static final int RESULTADO = 0x46;
+    public static final int MESA_ASIGNADA = 0x48;
+    public static final int DESENLACE = 0x49;
+    public static final int ERROR = 0x4E;
+    public static final int TEXTO = 0x4F;
+
+    // --- MOTIVOS (SESION y ERROR) ---
+    public static final int OK = 0;
+    public static final int NO_EXISTE = 1;
+    public static final int NOMBRE_OCUPADO = 2;
+    public static final int SESION_DUPLICADA = 3;
+    public static final int SIN_SESION = 4;
+    public static final int CANTIDAD_NO_VALIDA = 5;
+    public static final int VALOR_NO_VALIDO = 6;
+    public static final int SALDO_INSUFICIENTE = 7;
+    public static final int RONDA_CERRADA = 8;
+    public static final int MESA_NO_VALIDA = 9;
+    public static final int TRAMA_NO_VALIDA = 10;
+
+    // Valores de Apuesta por código, ya construidos: decodificar una apuesta no crea cadenas
+    private static final String[] NUMEROS = new String[37];
+    private static final String[] COLORES = {"ROJO", "NEGRO"};
+    private static final String[] PARIDADES = {"PAR", "IMPAR"};
+    private static final String[] DOCENAS = {null, "1", "2", "3"};
+
+    static {
+        for (int i = 0; i < NUMEROS.length; i++) {
+            NUMEROS[i] = String.valueOf(i);
+        }
+    }
+
+    // Constructor privado para evitar instanciación
+    private ProtocoloBinario() {}
+
+    // --- TRAMAS DEL SERVIDOR ---
+
+    public static byte[] hola() {
+        return trama(HOLA, 1).put((byte) VERSION).array();
+    }
+
+    public static byte[] sesion(int codigo, long saldoCentimos) {
+        return trama(SESION, 9).put((byte) codigo).putLong(saldoCentimos).array();
+    }
+
+    public static byte[] saldo(long saldoCentimos) {
+        return trama(SALDO, 8).putLong(saldoCentimos).array();
+    }
+
+    public static byte[] rondaAbierta(int mesa, int ronda) {
+        return trama(RONDA_ABIERTA, 5).put((byte) mesa).putInt(ronda).array();
+    }
+
+    public static byte[] apuestaAceptada(long saldoCentimos) {
+        return trama(APUESTA_OK, 8).putLong(saldoCentimos).array();
+    }
+
+    public static byte[] resultado(int mesa, int ronda, Casilla ganadora) {
+        return casilla(trama(RESULTADO, 8), mesa, ronda, ganadora).array();
+    }
+
+    public static byte[] desenlace(int mesa, int ronda, Casilla ganadora, long netaCentimos, long saldoCentimos) {
+        return casilla(trama(DESENLACE, 24), mesa, ronda, ganadora).putLong(netaCentimos).putLong(saldoCentimos).array();
+    }
+
+    public static byte[] mesaAsignada(int mesa) {
+        return trama(MESA_ASIGNADA, 1).put((byte) mesa).array();
+    }
+
+    public static byte[] error(int peticion, int motivo) {
+        return trama(ERROR, 2).put((byte) peticion).put((byte) motivo).array();
+    }
+
+    /**
+     * Texto libre. Si no cabe en una trama se recorta (sin partir un carácter UTF-8).
+     */
+    public static byte[] texto(String texto) {
+        byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+        int len = Math.min(utf8.length, 0xFFFF - 1 - 2);
+        while (len < utf8.length && len > 0 && (utf8[len] & 0xC0) == 0x80) {
+            len--; // Byte de continuación: retrocedemos al inicio del carácter
+        }
+        return trama(TEXTO, 2 + len).putShort((short) len).put(utf8, 0, len).array();
+    }
+
+    // --- TRAMAS DEL CLIENTE ---
+
+    public static byte[] login(String nombre) {
+        byte[] id = nombre(nombre);
+        return trama(LOGIN, 1 + id.length).put((byte) id.length).put(id).array();
+    }
+
+    public static byte[] registro(String nombre, long saldoCentimos) {
+        byte[] id = nombre(nombre);
+        return trama(REGISTRO, 8 + 1 + id.length).putLong(saldoCentimos).put((byte) id.length).put(id).array();
+    }
+
+    public static byte[] ingresar(long centimos) {
+        return trama(INGRESAR, 8).putLong(centimos).array();
+    }
+
+    public static byte[] esperarRonda() {
+        return trama(ESPERAR_RONDA, 0).array();
+    }
+
+    public static byte[] apostar(int ronda, TipoApuesta tipo, int valor, int centimos) {
+        return trama(APOSTAR, 10).putInt(ronda).put((byte) tipo.ordinal()).put((byte) valor).putInt(centimos).array();
+    }
+
+    public static byte[] mesa(int numero) {
+        return trama(MESA, 1).put((byte) numero).array();
+    }
+
+    public static byte[] salir() {
+        return trama(SALIR, 0).array();
+    }
+
+    // --- LECTURA ---
+
+    /**
+     * Nombre (longitud de 1 B + UTF-8) en la posición actual.
+     *
+     * @throws IllegalArgumentException Si faltan bytes.
+     */
+    public static String leerNombre(ByteBuffer datos) {
+        int len = datos.get() & 0xFF;
+        if (datos.remaining() < len) {
+            throw new IllegalArgumentException("Nombre truncado");
+        }
+        String s = new String(datos.array(), datos.arrayOffset() + datos.position(), len, StandardCharsets.UTF_8);
+        datos.position(datos.position() + len);
+        return s;
+    }
+
+    /**
+     * Texto libre (longitud de 2 B + UTF-8) en la posición actual.
+     */
+    public static String leerTexto(ByteBuffer datos) {
+        int len = datos.getShort() & 0xFFFF;
+        String s = new String(datos.array(), datos.arrayOffset() + datos.position(), len, StandardCharsets.UTF_8);
+        datos.position(datos.position() + len);
+        return s;
+    }
+
+    /**
+     * Valor de Apuesta para un código de valor, o null si no es válido para el tipo.
+     * Devuelve siempre la misma cadena para el mismo valor.
+     *
+     * @param tipo  Tipo de la apuesta.
+     * @param valor Código del valor (ver APOSTAR).
+     * @return Valor como lo espera Apuesta ("17", "ROJO", "PAR", "2"...) o null.
+     */
+    public static String valorApuesta(TipoApuesta tipo, int valor) {
+        switch (tipo) {
+            case NUMERO:
+                return (valor >= 0 && valor < NUMEROS.length) ? NUMEROS[valor] : null;
+            case COLOR:
+                return (valor >= 0 && valor < COLORES.length) ? COLORES[valor] : null;
+            case PAR_IMPAR:
+                return (valor >= 0 && valor < PARIDADES.length) ? PARIDADES[valor] : null;
+            default: // DOCENA
+                return (valor >= 1 && valor < DOCENAS.length) ? DOCENAS[valor] : null;
+        }
+    }
+
+    // --- AUXILIARES ---
+
+    /**
+     * Buffer del tamaño exacto de la trama, con la cabecera y el código ya escritos.
+     */
+    private static ByteBuffer trama(int codigo, int datos) {
+        ByteBuffer b = ByteBuffer.allocate(CABECERA + 1 + datos);
+        b.putShort((short) (1 + datos)).put((byte) codigo);
+        return b;
+    }
+
+    /**
+     * Campos comunes de RESULTADO y DESENLACE.
+     */
+    private static ByteBuffer casilla(ByteBuffer b, int mesa, int ronda, Casilla ganadora) {
+        return b.put((byte) mesa).putInt(ronda).put((byte) ganadora.getNumero())
+            .put((byte) Casilla.COLOR.valueOf(ganadora.getColor()).ordinal()).put((byte) ganadora.getDocena());
+    }
+
+    private static byte[] nombre(String nombre) {
+        byte[] id = nombre.getBytes(StandardCharsets.UTF_8);
+        if (id.length > 0xFF) {
+            throw new IllegalArgumentException("Nombre demasiado largo (" + id.length + " bytes)");
+        }
+        return id;
+    }
+}
@@ -0,0 +1,152 @@
+package servidor.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import modeloDominio.Dinero;
+import modeloDominio.Jugador;
+
+/**
+ * Clase AlmacenBinario
+ * --------------------
+ * Foto de los jugadores en un fichero binario compacto (jugadores.bin).
+ * Sin reflexión ni XML: cargar un millón de jugadores es leer un fichero de ~20 MB de corrido.
+ *
+ * FORMATO (little-endian):
+ *  - Cabecera: "RJUG" (4 B), versión (1 B), número de jugadores (4 B).
+ *  - Por jugador: longitud del ID en bytes (2 B, sin signo), ID en UTF-8, saldo en céntimos (8 B).
+ *
+ * POSTCONDICIONES:
+ *  - Un fichero con otra cabecera, truncado o con bytes de más lanza IOException al cargar.
+ *  - Un ID de más de 65535 bytes lanza IOException al guardar (el fichero anterior no se toca).
+ */
+public class AlmacenBinario implements AlmacenJugadores {
+
+    static final String EXTENSION = ".bin";
+
+    private static final byte[] MAGICO = {'R', 'J', 'U', 'G'};
+    private static final byte VERSION = 1;
+    private static final int CABECERA = MAGICO.length + 1 + 4;
+    private static final int MAX_ID = 0xFFFF;
+
+    private final File fichero;
+
+    /**
+     * @param fichero Fichero binario de jugadores.
+     */
+    public AlmacenBinario(File fichero) {
+        this.fichero = fichero;
+    }
+
+    @Override
+    public List<Jugador> cargar() throws IOException {
+        List<Jugador> lista = new ArrayList<>();
+        this.recorrer(lista::add);
+        return lista;
+    }
+
+    @Override
+    public void recorrer(Consumer<Jugador> destino) throws IOException {
+        if (!this.fichero.isFile()) {
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(this.fichero.toPath(), StandardOpenOption.READ)) {
+            long tam = canal.size();
+            if (tam < CABECERA || tam > Integer.MAX_VALUE) {
+                throw new IOException("Foto de jugadores con tamaño no válido: " + tam + " bytes");
+            }
+            MappedByteBuffer b = canal.map(FileChannel.MapMode.READ_ONLY, 0, tam);
+            b.order(ByteOrder.LITTLE_ENDIAN);
+
+            for (byte m : MAGICO) {
+                if (b.get() != m) {
+                    throw new IOException("No es una foto de jugadores: " + this.fichero);
+                }
+            }
+            byte version = b.get();
+            if (version != VERSION) {
+                throw new IOException("Versión de foto de jugadores no soportada: " + version);
+            }
+            int n = b.getInt();
+            if (n < 0) {
+                throw new IOException("Número de jugadores no válido: " + n);
+            }
+
+            byte[] id = new byte[256];
+            for (int i = 0; i < n; i++) {
+                if (b.remaining() < 2) {
+                    throw new IOException("Foto de jugadores truncada en el jugador " + i);
+                }
+                int len = b.getShort() & 0xFFFF;
+                if (b.remaining() < len + 8) {
+                    throw new IOException("Foto de jugadores truncada en el jugador " + i);
+                }
+                if (len > id.length) {
+                    id = new byte[Math.max(len, id.length * 2)];
+                }
+                b.get(id, 0, len);
+                long centimos = b.getLong();
+                destino.accept(new Jugador(new String(id, 0, len, StandardCharsets.UTF_8), Dinero.aEuros(centimos)));
+            }
+            if (b.hasRemaining()) {
+                throw new IOException("Foto de jugadores con " + b.remaining() + " bytes de más");
+            }
+        }
+    }
+
+    @Override
+    public void guardar(List<Jugador> jugadores) throws IOException {
+        File tmp = new File(this.fichero.getPath() + ".tmp");
+        try (FileChannel canal = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer b = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            b.put(MAGICO).put(VERSION).putInt(jugadores.size());
+
+            for (Jugador j : jugadores) {
+                byte[] id = j.getID().getBytes(StandardCharsets.UTF_8);
+                if (id.length > MAX_ID) {
+                    throw new IOException("ID de jugador demasiado largo (" + id.length + " bytes)");
+                }
+                if (b.remaining() < 2 + id.length + 8) {
+                    vaciar(canal, b);
+                    if (b.remaining() < 2 + id.length + 8) {
+                        b = ByteBuffer.allocate(2 + id.length + 8).order(ByteOrder.LITTLE_ENDIAN);
+                    }
+                }
+                b.putShort((short) id.length).put(id).putLong(j.getSaldoCentimos());
+            }
+            vaciar(canal, b);
+            canal.force(false);
+        }
+        Files.move(tmp.toPath(), this.fichero.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public File getFichero() {
+        return this.fichero;
+    }
+
+    @Override
+    public String toString() {
+        return "binario " + this.fichero.getPath();
+    }
+
+    private static void vaciar(FileChannel canal, ByteBuffer b) throws IOException {
+        b.flip();
+        while (b.hasRemaining()) {
+            canal.write(b);
+        }
+        b.clear();
+    }
+}
@@ -0,0 +1,107 @@
+package servidor.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import modeloDominio.Jugador;
+
+/**
+ * Interfaz AlmacenJugadores
+ * -------------------------
+ * Fichero donde se guarda la foto completa de los jugadores (ID y saldo).
+ * PersistenciaJugadores lo carga al arrancar y lo reescribe al compactar su diario.
+ * La carga es en streaming (recorrer): cada jugador va a su destino según se lee,
+ * sin tener la foto entera en memoria dos veces.
+ *
+ * IMPLEMENTACIONES:
+ *  - AlmacenXML:     jugadores.xml con JAXB (formato de siempre, validable con jugadores.dtd).
+ *  - AlmacenBinario: foto binaria compacta, para cargar y guardar muchos jugadores deprisa.
+ *  ConvertirJugadores pasa de un formato a otro.
+ *
+ * PRECONDICIONES:
+ *  - La lista que se guarda no cambia mientras se guarda.
+ *
+ * POSTCONDICIONES:
+ *  - guardar() reemplaza el fichero de forma atómica (temporal + rename): tras una caída
+ *    queda la foto anterior o la nueva, nunca una a medias.
+ */
+public interface AlmacenJugadores {
+
+    /**
+     * Lee la foto y entrega cada jugador según se lee.
+     *
+     * POST:
+     *  - Si el fichero no existe no se entrega ninguno.
+     *  - Con una sola hebra de lectura, en el orden en que se guardaron. Si la implementación lee
+     *    por trozos en paralelo (AlmacenXML con varios hilos), el orden solo se respeta dentro
+     *    de cada trozo y destino se llama desde varios hilos a la vez.
+     *
+     * @param destino Receptor de los jugadores.
+     * @throws IOException Si el fichero existe y no se puede leer (puede haber entregado ya una parte).
+     */
+    void recorrer(Consumer<Jugador> destino) throws IOException;
+
+    /**
+     * Carga todos los jugadores en una lista.
+     *
+     * @return Jugadores guardados (lista nueva y modificable; vacía si el fichero no existe).
+     * @throws IOException Si el fichero existe y no se puede leer.
+     */
+    default List<Jugador> cargar() throws IOException {
+        List<Jugador> lista = new ArrayList<>();
+        this.recorrer(j -> {
+            synchronized (lista) {
+                lista.add(j);
+            }
+        });
+        return lista;
+    }
+
+    /**
+     * Reemplaza la foto por la de la lista.
+     *
+     * @param jugadores Jugadores a guardar.
+     * @throws IOException Si no se puede escribir (el fichero anterior no se toca).
+     */
+    void guardar(List<Jugador> jugadores) throws IOException;
+
+    /**
+     * @return Fichero de la foto (el diario de PersistenciaJugadores va a su lado).
+     */
+    File getFichero();
+
+    /**
+     * Almacén según la extensión del fichero: .bin es binario, cualquier otra cosa XML.
+     *
+     * @param fichero Fichero de jugadores.
+     * @return Almacén para ese fichero.
+     */
+    static AlmacenJugadores segunExtension(File fichero) {
+        return segunExtension(fichero, 1);
+    }
+
+    /**
+     * Igual que el anterior, leyendo el XML con varios hilos (AlmacenXML por trozos).
+     *
+     * @param fichero  Fichero de jugadores.
+     * @param hilosXml Hilos de lectura si es XML (1 = en orden).
+     * @return Almacén para ese fichero.
+     */
+    static AlmacenJugadores segunExtension(File fichero, int hilosXml) {
+        if (esBinario(fichero)) {
+            return new AlmacenBinario(fichero);
+        }
+        return new AlmacenXML(fichero, hilosXml);
+    }
+
+    /**
+     * @param fichero Fichero de jugadores.
+     * @return true si por su extensión (.bin) es una foto binaria.
+     */
+    static boolean esBinario(File fichero) {
+        return fichero.getName().toLowerCase().endsWith(AlmacenBinario.EXTENSION);
+    }
+}
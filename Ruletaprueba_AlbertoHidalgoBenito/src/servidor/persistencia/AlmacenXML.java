@@ -0,0 +1,277 @@
+package servidor.persistencia;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import modeloDominio.Jugador;
+
+/**
+ * Clase AlmacenXML
+ * ----------------
+ * Foto de los jugadores en jugadores.xml.
+ *
+ * LECTURA:
+ *  - En streaming con StAX: cada <jugador> se entrega en cuanto se cierra su etiqueta, sin
+ *    construir la ListaJugadores entera como hace JAXB (BDJugadores.UnmarshallingJugadores).
+ *  - Con hilos > 1 y un fichero grande, se parte en trozos que empiezan en una etiqueta
+ *    <jugador> y cada trozo se lee en su hilo como un documento aparte (<jugadores>trozo</jugadores>).
+ *    Dentro de un atributo o texto XML un '<' va siempre escapado, así que "<jugador" solo
+ *    puede ser el inicio de una etiqueta.
+ *
+ * ESCRITURA:
+ *  - Con JAXB (BDJugadores), sustituyendo el fichero de forma atómica.
+ *
+ * POSTCONDICIONES:
+ *  - Un XML mal formado lanza IOException (los jugadores anteriores al error ya se han entregado).
+ *  - El DOCTYPE, si lo hay, se ignora: no se va a buscar jugadores.dtd.
+ */
+public class AlmacenXML implements AlmacenJugadores {
+
+    /**
+     * Por debajo de este tamaño no compensa partir el fichero.
+     */
+    static final long MIN_BYTES_PARALELO = 4L * 1024 * 1024;
+
+    private static final byte[] ETIQUETA = "<jugador".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ABRIR_RAIZ = "<jugadores>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CERRAR_RAIZ = "</jugadores>".getBytes(StandardCharsets.US_ASCII);
+
+    private final File BBDD;
+    private final int hilos;
+
+    /**
+     * @param BBDD Fichero XML de jugadores.
+     */
+    public AlmacenXML(File BBDD) {
+        this(BBDD, 1);
+    }
+
+    /**
+     * @param BBDD  Fichero XML de jugadores.
+     * @param hilos Hilos para leer el fichero por trozos (1 = lectura secuencial, en orden).
+     */
+    public AlmacenXML(File BBDD, int hilos) {
+        this.BBDD = BBDD;
+        this.hilos = Math.max(1, hilos);
+    }
+
+    @Override
+    public void recorrer(Consumer<Jugador> destino) throws IOException {
+        if (!this.BBDD.isFile()) {
+            return;
+        }
+        long tam = this.BBDD.length();
+        if (this.hilos == 1 || tam < MIN_BYTES_PARALELO || tam > Integer.MAX_VALUE) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(this.BBDD), 64 * 1024)) {
+                leer(in, destino);
+            }
+            return;
+        }
+
+        try (FileChannel canal = FileChannel.open(this.BBDD.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, tam);
+            List<Integer> cortes = cortes(mapa, this.hilos);
+
+            List<Thread> lectores = new ArrayList<>();
+            List<Throwable> errores = Collections.synchronizedList(new ArrayList<>());
+            for (int i = 0; i + 1 < cortes.size(); i++) {
+                InputStream trozo = trozo(mapa, cortes.get(i), cortes.get(i + 1), i > 0, i + 2 < cortes.size());
+                Thread t = new Thread(() -> {
+                    try {
+                        leer(trozo, destino);
+                    } catch (IOException | RuntimeException e) {
+                        errores.add(e);
+                    }
+                }, "carga-jugadores-" + i);
+                lectores.add(t);
+                t.start();
+            }
+            for (Thread t : lectores) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Carga de jugadores interrumpida", e);
+                }
+            }
+            if (!errores.isEmpty()) {
+                Throwable e = errores.get(0);
+                throw (e instanceof IOException) ? (IOException) e : new IOException(e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void guardar(List<Jugador> jugadores) throws IOException {
+        try {
+            BDJugadores.reemplazarJugadores(jugadores, this.BBDD);
+        } catch (JAXBException e) {
+            throw new IOException("Error marshalling jugadores: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public File getFichero() {
+        return this.BBDD;
+    }
+
+    @Override
+    public String toString() {
+        return "XML " + this.BBDD.getPath();
+    }
+
+    // --- LECTURA ---
+
+    /**
+     * Lee un documento <jugadores> con StAX y entrega cada <jugador>.
+     * Igual que JAXB: sin id el jugador queda con ID null y sin saldo con saldo 0.
+     */
+    private static void leer(InputStream in, Consumer<Jugador> destino) throws IOException {
+        XMLInputFactory fabrica = XMLInputFactory.newInstance();
+        fabrica.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        fabrica.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        fabrica.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+        XMLStreamReader r = null;
+        try {
+            r = fabrica.createXMLStreamReader(in);
+            String id = null;
+            double saldo = 0;
+            int nivel = 0;
+            while (r.hasNext()) {
+                int evento = r.next();
+                if (evento == XMLStreamConstants.START_ELEMENT) {
+                    nivel++;
+                    if (nivel == 2 && "jugador".equals(r.getLocalName())) {
+                        id = r.getAttributeValue(null, "id");
+                        saldo = 0;
+                    } else if (nivel == 3 && "saldo".equals(r.getLocalName())) {
+                        saldo = Double.parseDouble(r.getElementText().trim());
+                        nivel--; // getElementText consume también el cierre de <saldo>
+                    }
+                } else if (evento == XMLStreamConstants.END_ELEMENT) {
+                    nivel--;
+                    if (nivel == 1 && "jugador".equals(r.getLocalName())) {
+                        destino.accept(new Jugador(id, saldo));
+                    } else if (nivel == 0) {
+                        break; // Fin de <jugadores>: lo que venga detrás no se lee
+                    }
+                }
+            }
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IOException("Error leyendo jugadores: " + e.getMessage(), e);
+        } finally {
+            if (r != null) {
+                try {
+                    r.close();
+                } catch (XMLStreamException e) {
+                    // Solo libera recursos del lector
+                }
+            }
+        }
+    }
+
+    /**
+     * Puntos de corte: 0, los inicios de <jugador> más cercanos a cada 1/n del fichero, y el final.
+     */
+    private static List<Integer> cortes(ByteBuffer mapa, int n) {
+        List<Integer> cortes = new ArrayList<>(n + 1);
+        cortes.add(0);
+        int primero = buscarEtiqueta(mapa, 0);
+        int tam = mapa.limit();
+        for (int i = 1; i < n; i++) {
+            int desde = Math.max((int) ((long) tam * i / n), cortes.get(cortes.size() - 1) + 1);
+            int corte = buscarEtiqueta(mapa, Math.max(desde, primero + 1));
+            if (corte < 0) {
+                break;
+            }
+            cortes.add(corte);
+        }
+        cortes.add(tam);
+        return cortes;
+    }
+
+    /**
+     * Primera etiqueta <jugador> (no <jugadores>) a partir de 'desde', o -1.
+     */
+    private static int buscarEtiqueta(ByteBuffer mapa, int desde) {
+        int fin = mapa.limit() - ETIQUETA.length - 1;
+        for (int i = Math.max(0, desde); i <= fin; i++) {
+            if (mapa.get(i) != '<') {
+                continue;
+            }
+            boolean igual = true;
+            for (int k = 1; k < ETIQUETA.length && igual; k++) {
+                igual = mapa.get(i + k) == ETIQUETA[k];
+            }
+            byte sig = mapa.get(i + ETIQUETA.length);
+            if (igual && (sig == ' ' || sig == '>' || sig == '\t' || sig == '\n' || sig == '\r' || sig == '/')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Trozo [desde, hasta) del fichero como documento completo: el primero ya trae la raíz
+     * de apertura y el último la de cierre; a los demás se les añaden.
+     */
+    private static InputStream trozo(ByteBuffer mapa, int desde, int hasta, boolean abrir, boolean cerrar) {
+        ByteBuffer b = mapa.duplicate();
+        b.position(desde).limit(hasta);
+        InputStream in = new EntradaBuffer(b.slice());
+        if (abrir) {
+            in = new SequenceInputStream(new ByteArrayInputStream(ABRIR_RAIZ), in);
+        }
+        if (cerrar) {
+            in = new SequenceInputStream(in, new ByteArrayInputStream(CERRAR_RAIZ));
+        }
+        return in;
+    }
+
+    /**
+     * InputStream sobre un ByteBuffer (el trozo mapeado, sin copiarlo).
+     */
+    private static final class EntradaBuffer extends InputStream {
+        private final ByteBuffer b;
+
+        EntradaBuffer(ByteBuffer b) {
+            this.b = b;
+        }
+
+        @Override
+        public int read() {
+            return this.b.hasRemaining() ? (this.b.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] destino, int off, int len) {
+            if (!this.b.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, this.b.remaining());
+            this.b.get(destino, off, n);
+            return n;
+        }
+    }
+}
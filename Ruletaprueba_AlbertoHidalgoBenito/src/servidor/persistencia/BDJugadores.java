@@ -1,6 +1,9 @@
 package servidor.persistencia;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,9 +28,15 @@ import modeloDominio.ListaJugadores;
  * POSTCONDICIONES:
  *  - Unmarshalling devuelve una lista de jugadores cargada desde el XML.
  *  - Marshalling guarda la lista de jugadores en el fichero XML con formato indentado.
+ *
+ * CONCURRENCIA:
+ *  - El JAXBContext se crea una sola vez (es thread-safe y caro de construir);
+ *    cada llamada crea su propio Marshaller/Unmarshaller, que no lo son.
  */
 public class BDJugadores {
 
+    private static volatile JAXBContext contexto;
+
     /**
      * Carga la lista de jugadores desde un fichero XML.
      *
@@ -40,8 +49,7 @@ public class BDJugadores {
      */
     public static List<Jugador> UnmarshallingJugadores(File BBDD) {
         try {
-            JAXBContext context = JAXBContext.newInstance(ListaJugadores.class);
-            Unmarshaller um = context.createUnmarshaller();
+            Unmarshaller um = contexto().createUnmarshaller();
 
             // SUPER IMPORTANTE: ignorar validación contra DTD para evitar JAXBException
             um.setSchema(null);
@@ -68,9 +76,7 @@ public class BDJugadores {
      */
     public static void MarshallingJugadores(List<Jugador> lj, File BBDD) {
         try {
-        	
-            JAXBContext context = JAXBContext.newInstance(ListaJugadores.class);
-            Marshaller m = context.createMarshaller();
+            Marshaller m = contexto().createMarshaller();
             m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
 
             // Añadir cabecera DOCTYPE si quieres que aparezca en el XML
@@ -85,4 +91,34 @@ public class BDJugadores {
             System.err.println("⚠️ Error marshalling jugadores: " + e.getMessage());
         }
     }
+
+    /**
+     * Reemplaza el fichero XML de forma atómica (temporal + rename): tras una caída
+     * queda la versión anterior o la nueva, nunca una a medias.
+     *
+     * PRE: lj != null
+     * POST: BBDD contiene exactamente los jugadores de lj.
+     *
+     * @param lj   Jugadores a guardar.
+     * @param BBDD Fichero XML de jugadores.
+     * @throws JAXBException Si falla el marshalling (el fichero no se toca).
+     * @throws IOException   Si no se puede reemplazar el fichero.
+     */
+    static void reemplazarJugadores(List<Jugador> lj, File BBDD) throws JAXBException, IOException {
+        File tmp = new File(BBDD.getPath() + ".tmp");
+        Marshaller m = contexto().createMarshaller();
+        m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+        m.marshal(new ListaJugadores(lj), tmp);
+        Files.move(tmp.toPath(), BBDD.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static JAXBContext contexto() throws JAXBException {
+        JAXBContext c = contexto;
+        if (c == null) {
+            // Dos hilos pueden crearlo a la vez la primera vez: da igual cuál se quede
+            c = JAXBContext.newInstance(ListaJugadores.class);
+            contexto = c;
+        }
+        return c;
+    }
 }
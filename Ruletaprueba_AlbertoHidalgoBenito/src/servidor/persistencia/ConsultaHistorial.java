@@ -0,0 +1,354 @@
+package servidor.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import modeloDominio.Dinero;
+import modeloDominio.TipoApuesta;
+
+/**
+ * Clase ConsultaHistorial
+ * -----------------------
+ * Consultas sobre el historial binario por columnas (HistorialBinario): recorridos y agregados
+ * entre dos días sin cargar el historial en memoria.
+ *
+ * FUNCIONAMIENTO:
+ *  - Cada segmento diario se mapea en memoria (solo lectura) y cada consulta lee únicamente las
+ *    columnas que necesita: la frecuencia de números solo lee ronda.numero, el balance por día
+ *    solo apuesta.cantidad y apuesta.premio.
+ *  - Los días fuera del intervalo no se abren (el nombre del directorio es el día).
+ *  - Los agregados de dinero van en céntimos (Dinero.aEuros para mostrarlos).
+ *
+ * PRECONDICIONES:
+ *  - El directorio es el de las columnas (HistorialBinario.directorioColumnas).
+ *
+ * POSTCONDICIONES:
+ *  - Solo se leen rondas completas: el segmento del día en curso se puede consultar mientras el
+ *    servidor escribe en él.
+ *
+ * CONCURRENCIA:
+ *  - Cada consulta mapea sus propios segmentos; se pueden hacer varias a la vez.
+ */
+public class ConsultaHistorial {
+
+    /**
+     * Recibe las apuestas de un recorrido, en orden de ronda.
+     */
+    public interface Visitante {
+        /**
+         * @param fecha    Fecha de la ronda (ms desde 1970).
+         * @param numero   Número ganador de la ronda.
+         * @param jugador  Índice del jugador (getJugador para su ID).
+         * @param tipo     Tipo de apuesta.
+         * @param valor    Valor codificado (ver HistorialBinario).
+         * @param cantidad Cantidad apostada en céntimos.
+         * @param premio   Premio pagado en céntimos (0 si perdió).
+         */
+        void apuesta(long fecha, int numero, int jugador, TipoApuesta tipo, int valor, long cantidad, long premio);
+    }
+
+    // --- ATRIBUTOS ---
+    private final File directorio;
+    private volatile List<String> jugadores = Collections.emptyList();
+
+    // --- CONSTRUCTORES ---
+
+    /**
+     * @param directorio Directorio de las columnas (historial-col).
+     */
+    public ConsultaHistorial(File directorio) {
+        this.directorio = directorio;
+    }
+
+    /**
+     * @param historial Ruta del historial XML (historial.xml); se consulta historial-col.
+     * @return Consulta sobre sus columnas.
+     */
+    public static ConsultaHistorial de(String historial) {
+        return new ConsultaHistorial(HistorialBinario.directorioColumnas(historial));
+    }
+
+    // --- CONSULTAS ---
+
+    /**
+     * @return Días con segmento, en orden.
+     */
+    public List<LocalDate> getDias() {
+        List<LocalDate> dias = new ArrayList<>();
+        File[] hijos = this.directorio.listFiles(File::isDirectory);
+        if (hijos != null) {
+            for (File f : hijos) {
+                try {
+                    dias.add(LocalDate.parse(f.getName()));
+                } catch (DateTimeParseException e) {
+                    // No es un segmento
+                }
+            }
+        }
+        Collections.sort(dias);
+        return dias;
+    }
+
+    /**
+     * @param indice Índice de jugador de las columnas.
+     * @return ID del jugador, o null si no existe.
+     */
+    public String getJugador(int indice) {
+        if (indice >= this.jugadores.size()) {
+            this.cargarJugadores();
+        }
+        List<String> l = this.jugadores;
+        return (indice >= 0 && indice < l.size()) ? l.get(indice) : null;
+    }
+
+    /**
+     * Veces que ha salido cada número entre dos días (ambos incluidos, null = sin límite).
+     *
+     * @return Array de 37 posiciones (índice = número).
+     */
+    public long[] frecuenciaNumeros(LocalDate desde, LocalDate hasta) throws IOException {
+        long[] frecuencia = new long[37];
+        for (LocalDate dia : this.diasEntre(desde, hasta)) {
+            Segmento s = this.abrir(dia);
+            ByteBuffer numero = s.rondas[HistorialBinario.NUMERO];
+            for (int i = 0; i < s.numRondas; i++) {
+                frecuencia[numero.get(i)]++;
+            }
+        }
+        return frecuencia;
+    }
+
+    /**
+     * Volumen de cada jugador entre dos días (ambos incluidos, null = sin límite).
+     *
+     * @return ID de jugador → {apuestas, apostado, premios}, dinero en céntimos.
+     */
+    public Map<String, long[]> volumenPorJugador(LocalDate desde, LocalDate hasta) throws IOException {
+        long[][] acumulado = new long[3][0];
+        for (LocalDate dia : this.diasEntre(desde, hasta)) {
+            Segmento s = this.abrir(dia);
+            ByteBuffer jugador = s.apuestas[HistorialBinario.JUGADOR];
+            ByteBuffer cantidad = s.apuestas[HistorialBinario.CANTIDAD];
+            ByteBuffer premio = s.apuestas[HistorialBinario.PREMIO];
+            for (int i = 0; i < s.numApuestas; i++) {
+                int j = jugador.getInt(i * 4);
+                if (j >= acumulado[0].length) {
+                    for (int k = 0; k < acumulado.length; k++) {
+                        acumulado[k] = Arrays.copyOf(acumulado[k], Math.max(j + 1, acumulado[k].length * 2));
+                    }
+                }
+                acumulado[0][j]++;
+                acumulado[1][j] += cantidad.getLong(i * 8);
+                acumulado[2][j] += premio.getLong(i * 8);
+            }
+        }
+
+        Map<String, long[]> res = new HashMap<>();
+        for (int j = 0; j < acumulado[0].length; j++) {
+            if (acumulado[0][j] > 0) {
+                res.put(this.getJugador(j), new long[] {acumulado[0][j], acumulado[1][j], acumulado[2][j]});
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Balance de la casa por día entre dos días (ambos incluidos, null = sin límite).
+     * El margen del día es 1 - pagado / apostado.
+     *
+     * @return Día → {rondas, apuestas, apostado, pagado}, dinero en céntimos.
+     */
+    public SortedMap<LocalDate, long[]> balancePorDia(LocalDate desde, LocalDate hasta) throws IOException {
+        SortedMap<LocalDate, long[]> res = new TreeMap<>();
+        for (LocalDate dia : this.diasEntre(desde, hasta)) {
+            Segmento s = this.abrir(dia);
+            ByteBuffer cantidad = s.apuestas[HistorialBinario.CANTIDAD];
+            ByteBuffer premio = s.apuestas[HistorialBinario.PREMIO];
+            long apostado = 0;
+            long pagado = 0;
+            for (int i = 0; i < s.numApuestas; i++) {
+                apostado += cantidad.getLong(i * 8);
+                pagado += premio.getLong(i * 8);
+            }
+            res.put(dia, new long[] {s.numRondas, s.numApuestas, apostado, pagado});
+        }
+        return res;
+    }
+
+    /**
+     * Recorre todas las apuestas entre dos días (ambos incluidos, null = sin límite).
+     *
+     * @param v Visitante que recibe cada apuesta.
+     */
+    public void recorrer(LocalDate desde, LocalDate hasta, Visitante v) throws IOException {
+        TipoApuesta[] tipos = TipoApuesta.values();
+        for (LocalDate dia : this.diasEntre(desde, hasta)) {
+            Segmento s = this.abrir(dia);
+            ByteBuffer numero = s.rondas[HistorialBinario.NUMERO];
+            ByteBuffer fecha = s.rondas[HistorialBinario.FECHA];
+            ByteBuffer fin = s.rondas[HistorialBinario.FIN];
+            ByteBuffer jugador = s.apuestas[HistorialBinario.JUGADOR];
+            ByteBuffer tipo = s.apuestas[HistorialBinario.TIPO];
+            ByteBuffer valor = s.apuestas[HistorialBinario.VALOR];
+            ByteBuffer cantidad = s.apuestas[HistorialBinario.CANTIDAD];
+            ByteBuffer premio = s.apuestas[HistorialBinario.PREMIO];
+
+            int i = 0;
+            for (int r = 0; r < s.numRondas; r++) {
+                long f = fecha.getLong(r * 8);
+                int n = numero.get(r);
+                int hastaApuesta = (int) fin.getLong(r * 8);
+                for (; i < hastaApuesta; i++) {
+                    v.apuesta(f, n, jugador.getInt(i * 4), tipos[tipo.get(i)], valor.get(i),
+                        cantidad.getLong(i * 8), premio.getLong(i * 8));
+                }
+            }
+        }
+    }
+
+    // --- SEGMENTOS ---
+
+    /**
+     * Segmento diario mapeado, limitado a sus rondas completas.
+     */
+    private static final class Segmento {
+        final ByteBuffer[] rondas = new ByteBuffer[HistorialBinario.COLUMNAS_RONDA.length];
+        final ByteBuffer[] apuestas = new ByteBuffer[HistorialBinario.COLUMNAS_APUESTA.length];
+        int numRondas;
+        int numApuestas;
+    }
+
+    private List<LocalDate> diasEntre(LocalDate desde, LocalDate hasta) {
+        List<LocalDate> res = new ArrayList<>();
+        for (LocalDate dia : this.getDias()) {
+            if ((desde == null || !dia.isBefore(desde)) && (hasta == null || !dia.isAfter(hasta))) {
+                res.add(dia);
+            }
+        }
+        return res;
+    }
+
+    private Segmento abrir(LocalDate dia) throws IOException {
+        File dir = new File(this.directorio, dia.toString());
+        int nr = HistorialBinario.COLUMNAS_RONDA.length;
+        int na = HistorialBinario.COLUMNAS_APUESTA.length;
+
+        FileChannel[] canales = new FileChannel[nr + na];
+        try {
+            long[] tam = new long[nr + na];
+            for (int c = 0; c < nr + na; c++) {
+                String nombre = (c < nr) ? HistorialBinario.COLUMNAS_RONDA[c] : HistorialBinario.COLUMNAS_APUESTA[c - nr];
+                File f = new File(dir, nombre);
+                if (f.isFile()) {
+                    canales[c] = FileChannel.open(f.toPath(), StandardOpenOption.READ);
+                    tam[c] = canales[c].size();
+                }
+            }
+
+            // Fotografía de las columnas: ronda.fin manda sobre lo que se lee
+            ByteBuffer fin = mapear(canales[HistorialBinario.FIN], tam[HistorialBinario.FIN]);
+            long[] completas = HistorialBinario.rondasCompletas(tam, i -> fin.getLong((int) (i * 8)));
+
+            Segmento s = new Segmento();
+            s.numRondas = (int) completas[0];
+            s.numApuestas = (int) completas[1];
+            for (int c = 0; c < nr; c++) {
+                s.rondas[c] = mapear(canales[c], (long) s.numRondas * HistorialBinario.ANCHO_RONDA[c]);
+            }
+            for (int c = 0; c < na; c++) {
+                s.apuestas[c] = mapear(canales[nr + c], (long) s.numApuestas * HistorialBinario.ANCHO_APUESTA[c]);
+            }
+            return s;
+        } finally {
+            // El mapeo sigue siendo válido después de cerrar el canal
+            for (FileChannel c : canales) {
+                if (c != null) {
+                    c.close();
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer mapear(FileChannel canal, long tam) throws IOException {
+        if (canal == null || tam == 0) {
+            return ByteBuffer.allocate(0);
+        }
+        if (tam > Integer.MAX_VALUE) {
+            throw new IOException("Columna de más de 2 GB en un solo día: no se puede mapear.");
+        }
+        return canal.map(FileChannel.MapMode.READ_ONLY, 0, tam).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private synchronized void cargarJugadores() {
+        try {
+            this.jugadores = Collections.unmodifiableList(
+                HistorialBinario.leerDiccionario(new File(this.directorio, HistorialBinario.DICCIONARIO)));
+        } catch (IOException e) {
+            System.err.println("⚠️ Error leyendo jugadores del historial binario: " + e.getMessage());
+        }
+    }
+
+    // --- LÍNEA DE COMANDOS ---
+
+    /**
+     * Resumen del historial binario por consola.
+     * Uso: ConsultaHistorial [historial.xml] [desde [hasta]]   (días AAAA-MM-DD)
+     */
+    public static void main(String[] args) throws IOException {
+        ConsultaHistorial consulta = ConsultaHistorial.de(args.length > 0 ? args[0] : "historial.xml");
+        LocalDate desde = args.length > 1 ? LocalDate.parse(args[1]) : null;
+        LocalDate hasta = args.length > 2 ? LocalDate.parse(args[2]) : null;
+
+        long inicio = System.nanoTime();
+        SortedMap<LocalDate, long[]> balance = consulta.balancePorDia(desde, hasta);
+        long[] frecuencia = consulta.frecuenciaNumeros(desde, hasta);
+        Map<String, long[]> volumen = consulta.volumenPorJugador(desde, hasta);
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+
+        long rondas = 0, apuestas = 0, apostado = 0, pagado = 0;
+        for (Map.Entry<LocalDate, long[]> e : balance.entrySet()) {
+            long[] b = e.getValue();
+            rondas += b[0];
+            apuestas += b[1];
+            apostado += b[2];
+            pagado += b[3];
+            System.out.printf("%s  rondas=%d apuestas=%d apostado=%.2f pagado=%.2f margen=%s%n",
+                e.getKey(), b[0], b[1], Dinero.aEuros(b[2]), Dinero.aEuros(b[3]), margen(b[2], b[3]));
+        }
+        System.out.printf("TOTAL  días=%d rondas=%d apuestas=%d apostado=%.2f pagado=%.2f margen=%s%n",
+            balance.size(), rondas, apuestas, Dinero.aEuros(apostado), Dinero.aEuros(pagado), margen(apostado, pagado));
+
+        StringBuilder sb = new StringBuilder("Frecuencia:");
+        for (int n = 0; n < frecuencia.length; n++) {
+            sb.append(' ').append(n).append('=').append(frecuencia[n]);
+        }
+        System.out.println(sb);
+
+        List<Map.Entry<String, long[]>> ranking = new ArrayList<>(volumen.entrySet());
+        ranking.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+        for (Map.Entry<String, long[]> e : ranking.subList(0, Math.min(10, ranking.size()))) {
+            long[] v = e.getValue();
+            System.out.printf("%-20s apuestas=%d apostado=%.2f premios=%.2f%n",
+                e.getKey(), v[0], Dinero.aEuros(v[1]), Dinero.aEuros(v[2]));
+        }
+        System.out.println("Consulta en " + ms + " ms.");
+    }
+
+    private static String margen(long apostado, long pagado) {
+        return apostado == 0 ? "-" : String.format("%.2f%%", 100.0 * (apostado - pagado) / apostado);
+    }
+}
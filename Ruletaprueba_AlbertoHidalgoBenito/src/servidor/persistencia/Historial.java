@@ -0,0 +1,54 @@
+package servidor.persistencia;
+
+import java.util.List;
+import java.util.Map;
+
+import logicaRuleta.core.ApuestaCompilada;
+import modeloDominio.Casilla;
+import modeloDominio.Jugador;
+
+/**
+ * Interfaz Historial
+ * ------------------
+ * Destino donde se guardan las rondas jugadas (apuestas de cada jugador y casilla ganadora).
+ *
+ * IMPLEMENTACIONES:
+ *  - XMLServidor:      historial.xml segmentado (formato de siempre, validable con historial.dtd).
+ *  - HistorialBinario: segmentos diarios en columnas binarias, para consultas (ConsultaHistorial).
+ *
+ * ÍNDICE POR JUGADOR:
+ *  - Cada implementación mantiene un IndiceJugadores junto al historial, así que
+ *    ultimasRondas(jugador, n) cuesta lo proporcional a n, no al tamaño del historial.
+ *
+ * PRECONDICIONES:
+ *  - Las rondas se guardan ya cerradas: el mapa no cambia mientras se guarda.
+ *
+ * CONCURRENCIA:
+ *  - Las implementaciones son thread-safe (varias mesas comparten el mismo historial).
+ */
+public interface Historial {
+
+    /**
+     * Guarda una ronda al final del historial.
+     *
+     * @param map     Apuestas de la ronda por jugador.
+     * @param ganador Casilla ganadora.
+     */
+    void guardarJugadorApuesta(Map<Jugador, List<ApuestaCompilada>> map, Casilla ganador);
+
+    /**
+     * Últimas rondas en las que ha apostado un jugador (solo sus apuestas).
+     *
+     * PRE: jugador != null
+     *
+     * @param jugador Jugador (sus apuestas se devuelven a su nombre).
+     * @param n       Número máximo de rondas.
+     * @return Hasta n rondas, de la más reciente a la más antigua (vacía si hay un error de E/S).
+     */
+    List<RondaJugador> ultimasRondas(Jugador jugador, int n);
+
+    /**
+     * Vuelca lo pendiente y cierra los ficheros (cierre del servidor). Se puede llamar varias veces.
+     */
+    void cerrar();
+}
@@ -0,0 +1,471 @@
+package servidor.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import logicaRuleta.core.ApuestaCompilada;
+import modeloDominio.Apuesta;
+import modeloDominio.Casilla;
+import modeloDominio.Dinero;
+import modeloDominio.Jugador;
+import modeloDominio.TipoApuesta;
+
+/**
+ * Clase HistorialBinario
+ * ----------------------
+ * Historial de rondas en formato binario por columnas, pensado para análisis
+ * (frecuencia de números, volumen por jugador, margen de la casa por día) con ConsultaHistorial.
+ *
+ * ESTRUCTURA (junto a historial.xml, en historial-col/):
+ *  - jugadores.dic: IDs de jugador, uno por línea. El índice de la línea es el que se guarda en las apuestas.
+ *  - AAAA-MM-DD/: un segmento por día (UTC) con un fichero por columna, little-endian:
+ *      ronda.numero (1 B), ronda.fecha (8 B, ms), ronda.fin (8 B, apuestas acumuladas al final de la ronda)
+ *      apuesta.jugador (4 B), apuesta.tipo (1 B, ordinal de TipoApuesta), apuesta.valor (1 B),
+ *      apuesta.cantidad (8 B, céntimos), apuesta.premio (8 B, céntimos pagados, 0 si perdió)
+ *  - Las apuestas de la ronda i son las posiciones [fin(i-1), fin(i)) de las columnas de apuesta.
+ *  - valor: el número (NUMERO), 0 ROJO / 1 NEGRO (COLOR), 0 PAR / 1 IMPAR (PAR_IMPAR), 1-3 (DOCENA).
+ *
+ * ESCRITURA:
+ *  - Solo se añade al final de cada columna. Primero las apuestas, después la ronda y lo último
+ *    ronda.fin: una ronda existe cuando está su fin, y entonces sus apuestas ya están escritas.
+ *  - Al abrir el segmento del día se recortan las columnas a la última ronda completa (caída).
+ *  - Después de la ronda se apunta en el índice de cada jugador (indice/): ronda dentro del día y día.
+ *
+ * CONCURRENCIA:
+ *  - guardarJugadorApuesta es synchronized (un solo escritor; varias mesas lo comparten).
+ *  - Los lectores (ConsultaHistorial) pueden leer el segmento del día mientras se escribe.
+ */
+public class HistorialBinario implements Historial {
+
+    // --- FORMATO (compartido con ConsultaHistorial) ---
+    static final String DICCIONARIO = "jugadores.dic";
+    static final String[] COLUMNAS_RONDA = {"ronda.numero", "ronda.fecha", "ronda.fin"};
+    static final int[] ANCHO_RONDA = {1, 8, 8};
+    static final String[] COLUMNAS_APUESTA = {"apuesta.jugador", "apuesta.tipo", "apuesta.valor", "apuesta.cantidad", "apuesta.premio"};
+    static final int[] ANCHO_APUESTA = {4, 1, 1, 8, 8};
+
+    // Índices de columna
+    static final int NUMERO = 0, FECHA = 1, FIN = 2;
+    static final int JUGADOR = 0, TIPO = 1, VALOR = 2, CANTIDAD = 3, PREMIO = 4;
+
+    // --- ATRIBUTOS ---
+    private final File directorio;
+    private final Map<String, Integer> indiceJugadores = new HashMap<>();
+    private FileChannel diccionario;
+    private final IndiceJugadores indice;
+
+    // Segmento abierto (día en curso)
+    private LocalDate dia;
+    private final FileChannel[] rondas = new FileChannel[COLUMNAS_RONDA.length];
+    private final FileChannel[] apuestas = new FileChannel[COLUMNAS_APUESTA.length];
+    private long numRondas;
+    private long numApuestas;
+
+    private boolean cerrado;
+
+    // --- CONSTRUCTOR ---
+    /**
+     * PRE: historial es la ruta del historial XML (historial.xml); las columnas van a historial-col/.
+     * POST: El diccionario de jugadores queda cargado. El segmento del día se abre con la primera ronda.
+     *
+     * @param historial Ruta del historial.
+     */
+    public HistorialBinario(String historial) {
+        this.directorio = directorioColumnas(historial);
+        this.directorio.mkdirs();
+        this.indice = new IndiceJugadores(new File(this.directorio, "indice"));
+        try {
+            File dic = new File(this.directorio, DICCIONARIO);
+            int i = 0;
+            for (String id : leerDiccionario(dic)) {
+                this.indiceJugadores.putIfAbsent(id, i++);
+            }
+            this.diccionario = FileChannel.open(dic.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            // Se descarta una línea a medias de una caída
+            this.diccionario.truncate(longitudDiccionario(dic));
+            this.diccionario.position(this.diccionario.size());
+        } catch (IOException e) {
+            System.err.println("⚠️ Error abriendo historial binario: " + e.getMessage());
+            this.cerrado = true;
+        }
+    }
+
+    /**
+     * @param historial Ruta del historial XML.
+     * @return Directorio de las columnas (historial.xml → historial-col).
+     */
+    public static File directorioColumnas(String historial) {
+        File f = new File(historial).getAbsoluteFile();
+        String n = f.getName();
+        String base = n.endsWith(".xml") ? n.substring(0, n.length() - 4) : n;
+        return new File(f.getParentFile(), base + "-col");
+    }
+
+    // --- ESCRITURA ---
+
+    @Override
+    public void guardarJugadorApuesta(Map<Jugador, List<ApuestaCompilada>> map, Casilla ganador) {
+        this.guardar(map, ganador, System.currentTimeMillis());
+    }
+
+    /**
+     * Guarda una ronda con la fecha indicada (ms desde 1970).
+     */
+    synchronized void guardar(Map<Jugador, List<ApuestaCompilada>> map, Casilla ganador, long fecha) {
+        if (this.cerrado) {
+            System.err.println("⚠️ Historial binario no disponible, no se guarda la ronda.");
+            return;
+        }
+        try {
+            LocalDate hoy = Instant.ofEpochMilli(fecha).atZone(ZoneOffset.UTC).toLocalDate();
+            if (!hoy.equals(this.dia)) {
+                this.abrirSegmento(hoy);
+            }
+
+            int total = 0;
+            for (List<ApuestaCompilada> l : map.values()) {
+                total += l.size();
+            }
+            ByteBuffer[] col = new ByteBuffer[COLUMNAS_APUESTA.length];
+            for (int c = 0; c < col.length; c++) {
+                col[c] = ByteBuffer.allocate(total * ANCHO_APUESTA[c]).order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            int numero = ganador.getNumero();
+            for (Entry<Jugador, List<ApuestaCompilada>> entrada : map.entrySet()) {
+                int jug = this.indiceJugador(entrada.getKey().getID());
+                for (ApuestaCompilada compilada : entrada.getValue()) {
+                    Apuesta ap = compilada.getApuesta();
+                    col[JUGADOR].putInt(jug);
+                    col[TIPO].put((byte) ap.getTipo().ordinal());
+                    col[VALOR].put((byte) codificarValor(ap));
+                    col[CANTIDAD].putLong(compilada.getCantidadCentimos());
+                    col[PREMIO].putLong(compilada.premioPara(numero));
+                }
+            }
+            for (int c = 0; c < col.length; c++) {
+                escribirTodo(this.apuestas[c], col[c]);
+            }
+            this.numApuestas += total;
+
+            // La ronda después de sus apuestas, y ronda.fin lo último
+            escribirTodo(this.rondas[NUMERO], (ByteBuffer) ByteBuffer.allocate(1).put((byte) numero).flip());
+            escribirTodo(this.rondas[FECHA], largo(fecha));
+            escribirTodo(this.rondas[FIN], largo(this.numApuestas));
+            this.numRondas++;
+
+            for (Jugador j : map.keySet()) {
+                this.indice.anadir(j.getID(), this.numRondas - 1, hoy.toEpochDay(), 0);
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Error de E/S guardando ronda en historial binario: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void cerrar() {
+        this.indice.cerrar();
+        this.cerrarSegmento();
+        try {
+            if (this.diccionario != null) {
+                this.diccionario.force(true);
+                this.diccionario.close();
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Error cerrando historial binario: " + e.getMessage());
+        }
+        this.cerrado = true;
+    }
+
+    // --- CONSULTA POR JUGADOR ---
+
+    /**
+     * Últimas rondas de un jugador: por cada una se lee su fila de ronda y el tramo de sus
+     * apuestas, sin recorrer el día. Se puede llamar mientras se escribe.
+     */
+    @Override
+    public List<RondaJugador> ultimasRondas(Jugador jugador, int n) {
+        List<RondaJugador> res = new ArrayList<>();
+        Integer indiceJugador;
+        synchronized (this) {
+            indiceJugador = this.indiceJugadores.get(jugador.getID());
+        }
+        if (indiceJugador == null) {
+            return res;
+        }
+        try {
+            for (long[] e : this.indice.ultimas(jugador.getID(), n)) {
+                RondaJugador r = this.leerRonda(LocalDate.ofEpochDay(e[1]), e[0], indiceJugador, jugador);
+                if (r != null) {
+                    res.add(r);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Error leyendo historial del jugador " + jugador.getID() + ": " + e.getMessage());
+        }
+        return res;
+    }
+
+    private RondaJugador leerRonda(LocalDate d, long ronda, int indiceJugador, Jugador jugador) throws IOException {
+        File seg = new File(this.directorio, d.toString());
+        long desde;
+        long hasta;
+        int numero;
+        long fecha;
+        try (FileChannel fin = abrirLectura(seg, COLUMNAS_RONDA[FIN]);
+             FileChannel num = abrirLectura(seg, COLUMNAS_RONDA[NUMERO]);
+             FileChannel fec = abrirLectura(seg, COLUMNAS_RONDA[FECHA])) {
+            if (fin.size() < (ronda + 1) * 8) {
+                return null; // Ronda recortada tras una caída
+            }
+            desde = (ronda == 0) ? 0 : leerLargo(fin, (ronda - 1) * 8);
+            hasta = leerLargo(fin, ronda * 8);
+            numero = leer(num, ronda, 1).get(0);
+            fecha = leerLargo(fec, ronda * 8);
+        }
+
+        int k = (int) (hasta - desde);
+        ByteBuffer[] col = new ByteBuffer[COLUMNAS_APUESTA.length];
+        for (int c = 0; c < col.length; c++) {
+            try (FileChannel canal = abrirLectura(seg, COLUMNAS_APUESTA[c])) {
+                col[c] = leer(canal, desde * ANCHO_APUESTA[c], k * ANCHO_APUESTA[c]);
+            }
+        }
+
+        TipoApuesta[] tipos = TipoApuesta.values();
+        List<Apuesta> apuestas = new ArrayList<>();
+        List<Long> premios = new ArrayList<>();
+        for (int i = 0; i < k; i++) {
+            if (col[JUGADOR].getInt(i * 4) != indiceJugador) {
+                continue;
+            }
+            TipoApuesta tipo = tipos[col[TIPO].get(i)];
+            apuestas.add(new Apuesta(jugador, tipo, decodificarValor(tipo, col[VALOR].get(i)),
+                Dinero.aEuros(col[CANTIDAD].getLong(i * 8))));
+            premios.add(col[PREMIO].getLong(i * 8));
+        }
+
+        long[] p = new long[premios.size()];
+        for (int i = 0; i < p.length; i++) {
+            p[i] = premios.get(i);
+        }
+        return new RondaJugador(new Date(fecha), new Casilla(numero), apuestas, p);
+    }
+
+    private static FileChannel abrirLectura(File segmento, String columna) throws IOException {
+        return FileChannel.open(new File(segmento, columna).toPath(), StandardOpenOption.READ);
+    }
+
+    // --- SEGMENTOS ---
+
+    /**
+     * Abre (o crea) el segmento del día y recorta sus columnas a la última ronda completa.
+     */
+    private void abrirSegmento(LocalDate nuevo) throws IOException {
+        this.cerrarSegmento();
+        File seg = new File(this.directorio, nuevo.toString());
+        seg.mkdirs();
+
+        for (int c = 0; c < this.rondas.length; c++) {
+            this.rondas[c] = FileChannel.open(new File(seg, COLUMNAS_RONDA[c]).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        for (int c = 0; c < this.apuestas.length; c++) {
+            this.apuestas[c] = FileChannel.open(new File(seg, COLUMNAS_APUESTA[c]).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        long[] tam = new long[this.rondas.length + this.apuestas.length];
+        for (int c = 0; c < this.rondas.length; c++) {
+            tam[c] = this.rondas[c].size();
+        }
+        for (int c = 0; c < this.apuestas.length; c++) {
+            tam[this.rondas.length + c] = this.apuestas[c].size();
+        }
+        long[] completas = rondasCompletas(tam, i -> leerLargo(this.rondas[FIN], i * 8));
+        this.numRondas = completas[0];
+        this.numApuestas = completas[1];
+
+        boolean recortado = false;
+        for (int c = 0; c < this.rondas.length; c++) {
+            recortado |= recortar(this.rondas[c], this.numRondas * ANCHO_RONDA[c]);
+        }
+        for (int c = 0; c < this.apuestas.length; c++) {
+            recortado |= recortar(this.apuestas[c], this.numApuestas * ANCHO_APUESTA[c]);
+        }
+        if (recortado) {
+            System.err.println("⚠️ Segmento " + nuevo + " del historial binario recortado a " + this.numRondas + " rondas completas.");
+        }
+        this.dia = nuevo;
+    }
+
+    private void cerrarSegmento() {
+        for (FileChannel[] grupo : new FileChannel[][] {this.rondas, this.apuestas}) {
+            for (int c = 0; c < grupo.length; c++) {
+                if (grupo[c] != null) {
+                    try {
+                        grupo[c].force(false);
+                        grupo[c].close();
+                    } catch (IOException e) {
+                        System.err.println("⚠️ Error cerrando columna del historial binario: " + e.getMessage());
+                    }
+                    grupo[c] = null;
+                }
+            }
+        }
+        this.dia = null;
+    }
+
+    /**
+     * Lectura de ronda.fin (apuestas acumuladas tras la ronda i).
+     */
+    interface LectorFin {
+        long fin(long ronda) throws IOException;
+    }
+
+    /**
+     * Rondas y apuestas completas de un segmento según el tamaño de sus columnas
+     * (primero las de ronda y luego las de apuesta, en el orden de COLUMNAS_*).
+     * Lo usan el escritor al abrir y los lectores: las columnas pueden ir por detrás unas de otras.
+     *
+     * @return {rondas, apuestas}
+     */
+    static long[] rondasCompletas(long[] tam, LectorFin fin) throws IOException {
+        long n = Long.MAX_VALUE;
+        for (int c = 0; c < ANCHO_RONDA.length; c++) {
+            n = Math.min(n, tam[c] / ANCHO_RONDA[c]);
+        }
+        long maxApuestas = Long.MAX_VALUE;
+        for (int c = 0; c < ANCHO_APUESTA.length; c++) {
+            maxApuestas = Math.min(maxApuestas, tam[ANCHO_RONDA.length + c] / ANCHO_APUESTA[c]);
+        }
+        long m = (n > 0) ? fin.fin(n - 1) : 0;
+        while (n > 0 && m > maxApuestas) {
+            n--;
+            m = (n > 0) ? fin.fin(n - 1) : 0;
+        }
+        return new long[] {n, m};
+    }
+
+    // --- JUGADORES ---
+
+    private int indiceJugador(String id) throws IOException {
+        Integer i = this.indiceJugadores.get(id);
+        if (i != null) {
+            return i;
+        }
+        // Se añade al diccionario antes de escribir las apuestas que lo usan
+        escribirTodo(this.diccionario, ByteBuffer.wrap((id + "\n").getBytes(StandardCharsets.UTF_8)));
+        int nuevo = this.indiceJugadores.size();
+        this.indiceJugadores.put(id, nuevo);
+        return nuevo;
+    }
+
+    /**
+     * Lee el diccionario de jugadores (ignora una última línea sin terminar).
+     */
+    static List<String> leerDiccionario(File dic) throws IOException {
+        List<String> ids = new ArrayList<>();
+        if (!dic.isFile()) {
+            return ids;
+        }
+        byte[] datos = Files.readAllBytes(dic.toPath());
+        int inicio = 0;
+        for (int i = 0; i < datos.length; i++) {
+            if (datos[i] == '\n') {
+                ids.add(new String(datos, inicio, i - inicio, StandardCharsets.UTF_8));
+                inicio = i + 1;
+            }
+        }
+        return ids;
+    }
+
+    private static long longitudDiccionario(File dic) throws IOException {
+        byte[] datos = Files.readAllBytes(dic.toPath());
+        int fin = datos.length;
+        while (fin > 0 && datos[fin - 1] != '\n') {
+            fin--;
+        }
+        return fin;
+    }
+
+    // --- AUXILIARES ---
+
+    /**
+     * Valor de la apuesta como byte (ver cabecera). La apuesta ya está compilada, así que es válido.
+     */
+    static int codificarValor(Apuesta ap) {
+        String v = ap.getValor().trim();
+        switch (ap.getTipo()) {
+            case COLOR:
+                return v.equalsIgnoreCase("ROJO") ? 0 : 1;
+            case PAR_IMPAR:
+                return v.equalsIgnoreCase("PAR") ? 0 : 1;
+            default:
+                return Integer.parseInt(v); // NUMERO y DOCENA
+        }
+    }
+
+    /**
+     * Inverso de codificarValor.
+     */
+    static String decodificarValor(TipoApuesta tipo, int valor) {
+        switch (tipo) {
+            case COLOR:
+                return valor == 0 ? "ROJO" : "NEGRO";
+            case PAR_IMPAR:
+                return valor == 0 ? "PAR" : "IMPAR";
+            default:
+                return String.valueOf(valor);
+        }
+    }
+
+    private static ByteBuffer largo(long v) {
+        return (ByteBuffer) ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(v).flip();
+    }
+
+    private static long leerLargo(FileChannel canal, long pos) throws IOException {
+        return leer(canal, pos, 8).getLong(0);
+    }
+
+    private static ByteBuffer leer(FileChannel canal, long pos, int n) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(n).order(ByteOrder.LITTLE_ENDIAN);
+        while (b.hasRemaining()) {
+            if (canal.read(b, pos + b.position()) < 0) {
+                throw new IOException("Columna más corta de lo esperado");
+            }
+        }
+        return b;
+    }
+
+    private static void escribirTodo(FileChannel canal, ByteBuffer buf) throws IOException {
+        buf.rewind();
+        long pos = canal.size();
+        while (buf.hasRemaining()) {
+            pos += canal.write(buf, pos);
+        }
+    }
+
+    private static boolean recortar(FileChannel canal, long tam) throws IOException {
+        if (canal.size() > tam) {
+            canal.truncate(tam);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,173 @@
+package servidor.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Clase IndiceJugadores
+ * ---------------------
+ * Índice del historial por jugador: dónde están las rondas en las que ha apostado cada uno.
+ * Permite leer las últimas N rondas de un jugador sin recorrer el historial.
+ *
+ * FORMATO:
+ *  - Un fichero por jugador en el directorio del índice (nombre: ID en hexadecimal + .idx),
+ *    con registros de 20 bytes little-endian, en orden de ronda:
+ *      ronda (8 B), posicion (8 B), longitud (4 B)
+ *  - Qué significan ronda/posicion/longitud lo decide el historial que lo escribe:
+ *      XMLServidor:      nº de orden de la ronda, byte donde empieza su bloque y bytes del bloque.
+ *      HistorialBinario: ronda dentro del día, día (LocalDate.toEpochDay) y 0.
+ *  - Las últimas N rondas son los últimos N registros: la consulta cuesta lo mismo
+ *    con un historial de un día que con uno de un año.
+ *
+ * PRECONDICIONES:
+ *  - Cada registro se añade después de que su ronda esté escrita en el historial.
+ *
+ * POSTCONDICIONES:
+ *  - Un registro a medias (caída) se descarta al volver a abrir el fichero.
+ *  - Las rondas guardadas antes de existir el índice no aparecen en él.
+ *
+ * CONCURRENCIA:
+ *  - anadir() es synchronized (lo llama el historial con su lock); ultimas() se puede llamar
+ *    desde cualquier hilo a la vez que se escribe.
+ */
+public class IndiceJugadores {
+
+    static final int REGISTRO = 20;
+
+    /**
+     * Ficheros de jugador abiertos a la vez para escribir (los que juegan ahora).
+     */
+    private static final int ABIERTOS = 128;
+
+    // --- ATRIBUTOS ---
+    private final File directorio;
+    private final Map<String, FileChannel> abiertos;
+
+    // --- CONSTRUCTOR ---
+    /**
+     * @param directorio Directorio del índice (se crea si no existe).
+     */
+    public IndiceJugadores(File directorio) {
+        this.directorio = directorio;
+        this.directorio.mkdirs();
+        this.abiertos = new LinkedHashMap<String, FileChannel>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FileChannel> mayor) {
+                if (size() > ABIERTOS) {
+                    cerrarCanal(mayor.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // --- ESCRITURA ---
+
+    /**
+     * Añade una ronda al índice de un jugador.
+     *
+     * @param id        ID del jugador.
+     * @param ronda     Ronda (según el historial).
+     * @param posicion  Posición de la ronda (según el historial).
+     * @param longitud  Longitud de la ronda (según el historial).
+     * @throws IOException Si no se puede escribir.
+     */
+    public synchronized void anadir(String id, long ronda, long posicion, int longitud) throws IOException {
+        FileChannel canal = this.abiertos.get(id);
+        if (canal == null) {
+            canal = FileChannel.open(this.fichero(id).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            long tam = canal.size();
+            if (tam % REGISTRO != 0) {
+                canal.truncate(tam - tam % REGISTRO);
+            }
+            this.abiertos.put(id, canal);
+        }
+
+        ByteBuffer b = ByteBuffer.allocate(REGISTRO).order(ByteOrder.LITTLE_ENDIAN);
+        b.putLong(ronda).putLong(posicion).putInt(longitud).flip();
+        long pos = canal.size();
+        while (b.hasRemaining()) {
+            pos += canal.write(b, pos);
+        }
+    }
+
+    /**
+     * Cierra los ficheros abiertos (cierre del historial).
+     */
+    public synchronized void cerrar() {
+        Iterator<FileChannel> it = this.abiertos.values().iterator();
+        while (it.hasNext()) {
+            cerrarCanal(it.next());
+            it.remove();
+        }
+    }
+
+    // --- CONSULTA ---
+
+    /**
+     * Últimas rondas de un jugador.
+     *
+     * @param id ID del jugador.
+     * @param n  Número máximo de rondas.
+     * @return Hasta n registros {ronda, posicion, longitud}, de la más reciente a la más antigua.
+     * @throws IOException Si no se puede leer.
+     */
+    public List<long[]> ultimas(String id, int n) throws IOException {
+        List<long[]> res = new ArrayList<>();
+        File f = this.fichero(id);
+        if (n <= 0 || !f.isFile()) {
+            return res;
+        }
+        try (FileChannel canal = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            long registros = canal.size() / REGISTRO;
+            int k = (int) Math.min(n, registros);
+            ByteBuffer b = ByteBuffer.allocate(k * REGISTRO).order(ByteOrder.LITTLE_ENDIAN);
+            long pos = (registros - k) * REGISTRO;
+            while (b.hasRemaining()) {
+                if (canal.read(b, pos + b.position()) < 0) {
+                    throw new IOException("Índice de jugador más corto de lo esperado");
+                }
+            }
+            for (int i = k - 1; i >= 0; i--) {
+                int base = i * REGISTRO;
+                res.add(new long[] {b.getLong(base), b.getLong(base + 8), b.getInt(base + 16)});
+            }
+        }
+        return res;
+    }
+
+    // --- AUXILIARES ---
+
+    /**
+     * Fichero del jugador: el ID en hexadecimal (cualquier ID es un nombre de fichero válido).
+     */
+    private File fichero(String id) {
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder(bytes.length * 2 + 4);
+        for (byte x : bytes) {
+            sb.append(Character.forDigit((x >> 4) & 0xF, 16)).append(Character.forDigit(x & 0xF, 16));
+        }
+        return new File(this.directorio, sb.append(".idx").toString());
+    }
+
+    private static void cerrarCanal(FileChannel canal) {
+        try {
+            canal.close();
+        } catch (IOException e) {
+            System.err.println("⚠️ Error cerrando índice de jugador: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package servidor.persistencia;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import modeloDominio.Apuesta;
+import modeloDominio.Casilla;
+import modeloDominio.Dinero;
+
+/**
+ * Clase RondaJugador
+ * ------------------
+ * Una ronda del historial vista por un jugador: la casilla ganadora y solo sus apuestas,
+ * con lo que cobró por cada una. Es el resultado de Historial.ultimasRondas.
+ *
+ * POSTCONDICIONES:
+ *  - Inmutable. premios[i] es el premio (céntimos) de apuestas.get(i), 0 si perdió.
+ */
+public final class RondaJugador {
+
+    /**
+     * Rondas que se muestran si el jugador no dice cuántas, y máximo por consulta.
+     */
+    public static final int RONDAS_POR_DEFECTO = 10;
+    public static final int MAX_RONDAS = 50;
+
+    // --- ATRIBUTOS ---
+    private final Date fecha;
+    private final Casilla ganadora;
+    private final List<Apuesta> apuestas;
+    private final long[] premios;
+
+    // --- CONSTRUCTOR ---
+    /**
+     * PRE: ganadora != null, apuestas != null, premios.length == apuestas.size()
+     *
+     * @param fecha     Fecha de la ronda (null si el historial no la tiene en un formato conocido).
+     * @param ganadora  Casilla ganadora.
+     * @param apuestas  Apuestas del jugador en la ronda.
+     * @param premios   Premio de cada apuesta en céntimos.
+     */
+    public RondaJugador(Date fecha, Casilla ganadora, List<Apuesta> apuestas, long[] premios) {
+        this.fecha = fecha;
+        this.ganadora = ganadora;
+        this.apuestas = Collections.unmodifiableList(new ArrayList<>(apuestas));
+        this.premios = premios.clone();
+    }
+
+    // --- GETTERS ---
+
+    public Date getFecha() { return this.fecha; }
+
+    public Casilla getGanadora() { return this.ganadora; }
+
+    public List<Apuesta> getApuestas() { return this.apuestas; }
+
+    public long getPremioCentimos(int i) { return this.premios[i]; }
+
+    /**
+     * @return Total apostado en la ronda, en céntimos.
+     */
+    public long getApostadoCentimos() {
+        long total = 0;
+        for (Apuesta ap : this.apuestas) {
+            total += Dinero.aCentimos(ap.getCantidad());
+        }
+        return total;
+    }
+
+    /**
+     * @return Total cobrado en la ronda, en céntimos.
+     */
+    public long getPremiosCentimos() {
+        long total = 0;
+        for (long p : this.premios) {
+            total += p;
+        }
+        return total;
+    }
+
+    /**
+     * Cuántas rondas pide el jugador en el menú.
+     *
+     * @param linea Respuesta del jugador (vacía = RONDAS_POR_DEFECTO).
+     * @return Número entre 1 y MAX_RONDAS, o 0 si la respuesta no es válida.
+     */
+    public static int leerCantidad(String linea) {
+        String s = linea.trim();
+        if (s.isEmpty()) {
+            return RONDAS_POR_DEFECTO;
+        }
+        try {
+            int n = Integer.parseInt(s);
+            return (n >= 1) ? Math.min(n, MAX_RONDAS) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Texto para el cliente: una línea de resumen y una por apuesta.
+     *
+     * @return Líneas a enviar, en orden.
+     */
+    public List<String> describir() {
+        List<String> lineas = new ArrayList<>(this.apuestas.size() + 1);
+        String cuando = (this.fecha == null) ? "¿?" : new SimpleDateFormat("dd/MM/yyyy HH:mm:ss").format(this.fecha);
+        lineas.add(cuando + " · Ganadora " + this.ganadora + " · Apostado " + Dinero.aEuros(this.getApostadoCentimos())
+            + "€ · Premios " + Dinero.aEuros(this.getPremiosCentimos()) + "€");
+        for (int i = 0; i < this.apuestas.size(); i++) {
+            Apuesta ap = this.apuestas.get(i);
+            lineas.add("   - " + ap.getTipo() + " " + ap.getValor() + ": " + ap.getCantidad() + "€"
+                + (this.premios[i] > 0 ? " → +" + Dinero.aEuros(this.premios[i]) + "€" : " → perdida"));
+        }
+        return lineas;
+    }
+}
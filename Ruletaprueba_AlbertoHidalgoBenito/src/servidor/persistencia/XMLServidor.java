@@ -1,49 +1,147 @@
 package servidor.persistencia;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 
-import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
+import logicaRuleta.core.ApuestaCompilada;
+import logicaRuleta.core.RuletaUtils;
 import modeloDominio.Apuesta;
 import modeloDominio.Casilla;
 import modeloDominio.Jugador;
+import modeloDominio.TipoApuesta;
 
 /**
  * Clase XMLServidor
  * -----------------
  * Se encarga de persistir en un fichero XML el historial de apuestas de la ruleta.
  *
+ * ESCRITURA SOLO AL FINAL (APPEND):
+ *  - El fichero no se vuelve a leer ni a reescribir en cada ronda (antes: parse DOM completo,
+ *    añadir un nodo y Transformer sobre todo el fichero, con un coste que crecía con el historial).
+ *  - Se guarda la posición de la etiqueta de cierre </historial>. Cada ronda escribe su bloque
+ *    <listapuestas> en esa posición seguido de un </historial> nuevo, así que el coste por ronda
+ *    solo depende del tamaño de la ronda y el fichero queda válido tras cada escritura.
+ *
+ * RECUPERACIÓN:
+ *  - Al abrir, si el fichero termina en </historial> (cierre limpio) solo se lee su final.
+ *  - Si no (el servidor se cayó a mitad de una escritura), se recorre una vez, se descarta el
+ *    bloque incompleto y se vuelve a poner el cierre. Se avisa por consola.
+ *
+ * SEGMENTOS:
+ *  - El fichero indicado (historial.xml) es el segmento vivo. Cuando supera el tamaño máximo o
+ *    su primera ronda es más antigua que la edad máxima, se cierra, se renombra a
+ *    historial-000001.xml, historial-000002.xml... y se empieza un historial.xml vacío.
+ *  - Cada segmento cerrado es un documento <historial> completo y se apunta en el manifiesto
+ *    (historial.manifiesto) con su rango de rondas y de fechas.
+ *  - Un hilo en segundo plano comprime los segmentos cerrados (.xml.gz). Ni la compresión ni
+ *    el archivado de segmentos viejos tocan el segmento vivo.
+ *  - Al arrancar se completa lo que una caída dejara a medias: segmentos sin apuntar en el
+ *    manifiesto, o sin comprimir.
+ *
+ * ÍNDICE POR JUGADOR (historial.indice/):
+ *  - Por cada ronda se apunta a cada jugador que apostó el número de la ronda, el byte donde
+ *    empieza su bloque y su longitud. Rotar es solo renombrar, así que la posición sigue
+ *    valiendo en el segmento cerrado; el manifiesto dice en qué segmento está cada ronda.
+ *  - ultimasRondas lee solo esos bloques. En un segmento ya comprimido hay que descomprimir
+ *    hasta el bloque (una pasada por segmento, acotada por maxBytes).
+ *
  * PRECONDICIONES:
  *  - El fichero debe existir o poder crearse en el sistema de archivos.
  *  - Las estructuras de datos (map de jugadores y apuestas) deben estar inicializadas.
+ *  - Solo un XMLServidor por fichero (es el único que lo escribe).
  *
  * POSTCONDICIONES:
- *  - El fichero XML contendrá un nodo raíz <historial>.
+ *  - El fichero XML contendrá un nodo raíz <historial>, válido según historial.dtd.
  *  - Cada llamada a guardarJugadorApuesta añadirá un nuevo bloque <listapuestas> con fecha, ganadora y jugadores.
- *  - El XML se escribirá con formato indentado (pretty print).
+ *  - El XML se escribe indentado (mismo formato que el pretty print de antes).
  */
 
 
 //Esta es la unica clase que toca el historial.
-public class XMLServidor {
+public class XMLServidor implements Historial {
+
+    private static final String CABECERA = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n";
+    private static final String APERTURA = "<historial>";
+    private static final String CIERRE = "</historial>\n";
+    private static final byte[] CIERRE_BYTES = CIERRE.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Bytes del final del fichero que se leen para comprobar el cierre limpio.
+     */
+    private static final int COLA = 256;
+
+    /**
+     * Límites por defecto del segmento vivo: 16 MB o 24 horas desde su primera ronda.
+     */
+    public static final long MAX_BYTES_SEGMENTO = 16L * 1024 * 1024;
+    public static final long MAX_EDAD_SEGMENTO = TimeUnit.HOURS.toMillis(24);
+
+    private static final Pattern FECHA = Pattern.compile("fecha=\"([^\"]*)\"");
+    private static final Pattern NUMERO = Pattern.compile("(\\d+)");
 
     private final File file;
+    private RandomAccessFile acceso;
+    private FileChannel canal;
+
+    /**
+     * Posición (en bytes) donde empieza </historial>: ahí se escribe el siguiente bloque.
+     */
+    private long posicion;
+
+    // --- SEGMENTOS ---
+    private final long maxBytes;
+    private final long maxEdad;
+    private final ManifiestoHistorial manifiesto;
+    private final ExecutorService compresor;
+    private final IndiceJugadores indice;
+
+    // Segmento vivo: número de orden de su primera ronda, rondas guardadas y fechas (ms)
+    private long primeraRonda;
+    private long rondasSegmento;
+    private long desdeSegmento;
+    private long hastaSegmento;
 
     /**
      * Constructor de XMLServidor.
@@ -54,52 +152,164 @@ public class XMLServidor {
      * POSTCONDICIONES:
      *  - Se crea el fichero si no existe.
      *  - Si está vacío, se inicializa con raíz <historial>.
+     *  - Si quedó incompleto (caída del servidor), se recupera hasta el último bloque completo.
+     *  - El fichero queda abierto para añadir rondas hasta cerrar().
+     *  - Segmentos de 16 MB o 24 horas como máximo.
      */
     public XMLServidor(String nameFile) {
+        this(nameFile, MAX_BYTES_SEGMENTO, MAX_EDAD_SEGMENTO);
+    }
+
+    /**
+     * Constructor con límites del segmento vivo.
+     *
+     * PRECONDICIONES:
+     *  - nameFile no debe ser null ni vacío.
+     *  - maxBytes > 0, maxEdad > 0 (ms).
+     *
+     * POSTCONDICIONES:
+     *  - Las del constructor anterior.
+     *  - Los segmentos cerrados que falten en el manifiesto se apuntan, y los que estén
+     *    sin comprimir se mandan a comprimir.
+     */
+    public XMLServidor(String nameFile, long maxBytes, long maxEdad) {
         File fichero = new File(nameFile);
+        this.maxBytes = maxBytes;
+        this.maxEdad = maxEdad;
 
         if (!fichero.exists() || !fichero.isFile()) {
             File carpetaPadre = fichero.getParentFile();
             if (carpetaPadre != null && !carpetaPadre.exists()) {
                 carpetaPadre.mkdirs();
             }
-            try {
-                fichero.createNewFile();
-                inicializarDocumento(fichero);
-            } catch (IOException e) {
-                System.err.println("⚠️ Error creando fichero XML: " + e.getMessage());
-            }
         }
         this.file = fichero;
+        this.manifiesto = new ManifiestoHistorial(new File(fichero.getAbsoluteFile().getParentFile(), base(fichero) + ".manifiesto"));
+        this.indice = new IndiceJugadores(new File(fichero.getAbsoluteFile().getParentFile(), base(fichero) + ".indice"));
+        this.compresor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "historial-compresion");
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.reconciliarSegmentos();
+
+        try {
+            this.acceso = new RandomAccessFile(fichero, "rw");
+            this.canal = this.acceso.getChannel();
+            this.posicion = this.localizarCierre();
+            this.abrirSegmento(this.escanear(new FileInputStream(fichero)));
+        } catch (IOException e) {
+            System.err.println("⚠️ Error abriendo fichero XML: " + e.getMessage());
+            this.cerrar();
+        }
     }
 
     /**
-     * Inicializa el documento XML con raíz <historial>.
-     *
-     * PRECONDICIONES:
-     *  - El fichero debe existir y ser accesible.
+     * @return Manifiesto de los segmentos cerrados del historial.
+     */
+    public ManifiestoHistorial getManifiesto() {
+        return this.manifiesto;
+    }
+
+    // --- APERTURA Y RECUPERACIÓN ---
+
+    /**
+     * Busca dónde se escribirá el siguiente bloque y deja el fichero terminado en </historial>.
      *
      * POSTCONDICIONES:
-     *  - El fichero contendrá un documento XML válido con raíz <historial>.
+     *  - Retorna la posición de </historial>, que es el último contenido del fichero.
      */
-    private void inicializarDocumento(File fichero) {
-        try {
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            Document doc = db.newDocument();
-            Element root = doc.createElement("historial");
-            doc.appendChild(root);
+    private long localizarCierre() throws IOException {
+        long tam = this.canal.size();
+        if (tam == 0) {
+            return this.inicializarDocumento();
+        }
 
-            TransformerFactory tf = TransformerFactory.newInstance();
-            Transformer t = tf.newTransformer();
-            t.setOutputProperty(javax.xml.transform.OutputKeys.INDENT, "yes");
-            t.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
-            t.transform(new DOMSource(doc), new StreamResult(fichero));
-        } catch (Exception e) {
-            System.err.println("⚠️ Error inicializando documento XML: " + e.getMessage());
+        // Cierre limpio: basta con leer la cola del fichero
+        int n = (int) Math.min(COLA, tam);
+        byte[] cola = this.leer(tam - n, n);
+        int fin = lastIndexOf(cola, "</historial>");
+        if (fin >= 0 && soloBlancos(cola, fin + "</historial>".length())) {
+            long pos = tam - n + fin;
+            this.escribirCierre(pos);
+            return pos;
         }
+
+        // El fichero no termina en </historial>: caída a mitad de una escritura
+        return this.recuperar(tam);
     }
 
+    /**
+     * Recorre el fichero entero (solo tras una caída) y lo corta tras el último
+     * <listapuestas> completo.
+     *
+     * NOTA: Las etiquetas son ASCII y en UTF-8 ningún byte de un carácter multibyte
+     * es ASCII, así que se pueden buscar byte a byte sin decodificar.
+     */
+    private long recuperar(long tam) throws IOException {
+        System.err.println("⚠️ El historial " + this.file.getName() + " no estaba bien cerrado, recuperando...");
+        if (tam > Integer.MAX_VALUE - 8) {
+            throw new IOException("Historial demasiado grande para recuperarlo");
+        }
+        byte[] datos = new byte[(int) tam];
+        ByteBuffer buf = ByteBuffer.wrap(datos);
+        while (buf.hasRemaining() && this.canal.read(buf, buf.position()) >= 0) {
+            // Leer todo
+        }
+
+        int raiz = indexOf(datos, "<historial", 0);
+        if (raiz < 0) {
+            // Ni siquiera llegó a escribirse la raíz: se empieza de cero
+            this.canal.truncate(0);
+            return this.inicializarDocumento();
+        }
+        int finApertura = indexOf(datos, ">", raiz);
+        if (finApertura < 0) {
+            this.canal.truncate(0);
+            return this.inicializarDocumento();
+        }
+
+        long pos = finApertura + 1;
+        if (datos[finApertura - 1] == '/') {
+            // <historial/> (raíz vacía): se reescribe como apertura
+            pos = this.escribir(raiz, APERTURA + "\n");
+        } else {
+            // Fin del último bloque completo: </listapuestas> o <listapuestas .../>
+            int finBloque = lastIndexOf(datos, "</listapuestas>");
+            if (finBloque >= 0) {
+                pos = Math.max(pos, finBloque + "</listapuestas>".length());
+            }
+            int inicioBloque = lastIndexOf(datos, "<listapuestas");
+            if (inicioBloque > finBloque) {
+                int cierreEtiqueta = indexOf(datos, ">", inicioBloque);
+                if (cierreEtiqueta > 0 && datos[cierreEtiqueta - 1] == '/') {
+                    pos = Math.max(pos, cierreEtiqueta + 1);
+                }
+            }
+            pos = this.escribir(pos, "\n");
+        }
+
+        this.escribirCierre(pos);
+        System.err.println("⚠️ Historial recuperado: se descartan " + (tam - pos) + " bytes incompletos.");
+        return pos;
+    }
+
+    /**
+     * Escribe un documento vacío: cabecera y raíz <historial>.
+     *
+     * POSTCONDICIONES:
+     *  - El fichero contendrá un documento XML válido con raíz <historial>.
+     *  - Retorna la posición de </historial>.
+     */
+    private long inicializarDocumento() throws IOException {
+        long pos = this.escribir(0, CABECERA + APERTURA + "\n");
+        this.escribirCierre(pos);
+        return pos;
+    }
+
+    // --- ESCRITURA ---
+
     /**
      * Guarda las apuestas de los jugadores en el fichero XML.
      *
@@ -108,62 +318,597 @@ public class XMLServidor {
      *  - La casilla ganadora debe estar inicializada.
      *
      * POSTCONDICIONES:
-     *  - Se añade un nuevo nodo <listapuestas> al documento XML con:
+     *  - Se añade un nuevo nodo <listapuestas> al final del documento XML con:
      *      - Atributo fecha (momento actual).
      *      - Atributo ganadora (número de la casilla).
      *      - Hijos <jugador> con atributo id y sus <apuesta>.
-     *  - El fichero se actualiza con formato indentado.
+     *  - El fichero sigue terminando en </historial>.
+     *
+     * CONCURRENCIA:
+     *  - El bloque se construye fuera del lock; dentro solo se hace una escritura en la posición
+     *    del cierre (el lock ya no dura más cuanto más viejo es el casino).
+     */
+    @Override
+    public void guardarJugadorApuesta(Map<Jugador, List<ApuestaCompilada>> map, Casilla ganador) {
+        Date fecha = new Date();
+        String bloque = bloqueRonda(map, ganador, fecha);
+
+        synchronized (this) {
+            if (this.canal == null) {
+                System.err.println("⚠️ Historial no disponible, no se guarda la ronda.");
+                return;
+            }
+            try {
+                // Bloque + cierre en una sola escritura: si falla a medias, lo arregla recuperar()
+                long inicio = this.posicion;
+                long pos = this.escribir(this.posicion, bloque + CIERRE);
+                this.posicion = pos - CIERRE_BYTES.length;
+
+                this.indexar(map.keySet(), this.primeraRonda + this.rondasSegmento, inicio, (int) (this.posicion - inicio));
+                this.rondasSegmento++;
+                if (this.desdeSegmento == 0) {
+                    this.desdeSegmento = fecha.getTime();
+                }
+                this.hastaSegmento = fecha.getTime();
+
+                if (this.posicion >= this.maxBytes || this.hastaSegmento - this.desdeSegmento >= this.maxEdad) {
+                    this.rotar();
+                }
+            } catch (IOException e) {
+                System.err.println("⚠️ Error de E/S guardando apuestas: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Vuelca el historial a disco y cierra el fichero (cierre del servidor).
+     * Espera unos segundos a la compresión pendiente; lo que no acabe se retoma al arrancar.
+     * Se puede llamar varias veces.
+     */
+    @Override
+    public synchronized void cerrar() {
+        this.indice.cerrar();
+        this.compresor.shutdown();
+        try {
+            this.compresor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (this.canal != null && this.canal.isOpen()) {
+                this.canal.force(true);
+            }
+            if (this.acceso != null) {
+                this.acceso.close();
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Error cerrando historial XML: " + e.getMessage());
+        } finally {
+            this.canal = null;
+            this.acceso = null;
+        }
+    }
+
+    /**
+     * Apunta la ronda recién escrita en el índice de cada jugador que apostó.
+     * Un fallo del índice no afecta a la ronda, que ya está guardada.
+     */
+    private void indexar(Iterable<Jugador> jugadores, long ronda, long inicio, int longitud) {
+        try {
+            for (Jugador j : jugadores) {
+                this.indice.anadir(j.getID(), ronda, inicio, longitud);
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Error actualizando índice de jugadores: " + e.getMessage());
+        }
+    }
+
+    // --- CONSULTA POR JUGADOR ---
+
+    /**
+     * Últimas rondas de un jugador, leyendo solo sus bloques (índice por jugador).
+     *
+     * POSTCONDICIONES:
+     *  - Las rondas del segmento vivo se leen con el lock (no rota a mitad de la lectura).
+     *  - Las de segmentos cerrados se leen sin lock; si el segmento se comprime mientras
+     *    tanto, se lee el .gz.
+     *  - Un bloque que no se entiende (p. ej. perdido en una caída) se salta.
+     */
+    @Override
+    public List<RondaJugador> ultimasRondas(Jugador jugador, int n) {
+        List<RondaJugador> res = new ArrayList<>();
+        try {
+            List<long[]> entradas = this.indice.ultimas(jugador.getID(), n);
+            byte[][] bloques = new byte[entradas.size()][];
+
+            // Segmento vivo, y agrupadas por segmento las que están en segmentos cerrados
+            Map<String, List<Integer>> porSegmento = new LinkedHashMap<>();
+            synchronized (this) {
+                for (int i = 0; i < entradas.size(); i++) {
+                    long[] e = entradas.get(i);
+                    if (e[0] >= this.primeraRonda) {
+                        if (this.canal != null && e[1] + e[2] <= this.posicion) {
+                            bloques[i] = this.leer(e[1], (int) e[2]);
+                        }
+                    } else {
+                        ManifiestoHistorial.Segmento s = this.manifiesto.buscarRonda(e[0]);
+                        if (s != null) {
+                            porSegmento.computeIfAbsent(s.getFichero(), k -> new ArrayList<>()).add(i);
+                        }
+                    }
+                }
+            }
+            for (Entry<String, List<Integer>> seg : porSegmento.entrySet()) {
+                this.leerBloques(seg.getKey(), entradas, seg.getValue(), bloques);
+            }
+
+            DocumentBuilder parser = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            parser.setErrorHandler(null);
+            for (int i = 0; i < bloques.length; i++) {
+                RondaJugador r = (bloques[i] == null) ? null : rondaJugador(parser, bloques[i], jugador);
+                if (r != null) {
+                    res.add(r);
+                }
+            }
+        } catch (IOException | ParserConfigurationException e) {
+            System.err.println("⚠️ Error leyendo historial del jugador " + jugador.getID() + ": " + e.getMessage());
+        }
+        return res;
+    }
+
+    /**
+     * Lee de un segmento cerrado los bloques de las entradas indicadas.
+     * Sin comprimir se leen en su posición; comprimido, en una sola pasada en orden de posición.
+     */
+    private void leerBloques(String nombre, List<long[]> entradas, List<Integer> indices, byte[][] bloques) throws IOException {
+        File dir = this.file.getAbsoluteFile().getParentFile();
+        if (!nombre.endsWith(".gz")) {
+            try (RandomAccessFile raf = new RandomAccessFile(new File(dir, nombre), "r")) {
+                for (int i : indices) {
+                    byte[] b = new byte[(int) entradas.get(i)[2]];
+                    raf.seek(entradas.get(i)[1]);
+                    raf.readFully(b);
+                    bloques[i] = b;
+                }
+                return;
+            } catch (FileNotFoundException e) {
+                nombre = nombre + ".gz"; // Se ha comprimido mientras tanto
+            }
+        }
+
+        List<Integer> orden = new ArrayList<>(indices);
+        orden.sort((a, b) -> Long.compare(entradas.get(a)[1], entradas.get(b)[1]));
+        try (DataInputStream in = new DataInputStream(abrirSegmento(new File(dir, nombre)))) {
+            long actual = 0;
+            for (int i : orden) {
+                long[] e = entradas.get(i);
+                long saltar = e[1] - actual;
+                while (saltar > 0) {
+                    long s = in.skip(saltar);
+                    if (s <= 0) {
+                        throw new EOFException("Segmento " + nombre + " más corto que su índice");
+                    }
+                    saltar -= s;
+                }
+                byte[] b = new byte[(int) e[2]];
+                in.readFully(b);
+                bloques[i] = b;
+                actual = e[1] + e[2];
+            }
+        }
+    }
+
+    /**
+     * Convierte el bloque <listapuestas> de una ronda en la ronda vista por el jugador.
+     *
+     * @return La ronda, o null si el bloque no es válido.
      */
-    public synchronized void guardarJugadorApuesta(Map<Jugador, List<Apuesta>> map, Casilla ganador) {
-    	
+    private static RondaJugador rondaJugador(DocumentBuilder parser, byte[] bloque, Jugador jugador) {
         try {
-            Date fechaHoraActual = new Date();
+            Element ronda = parser.parse(new ByteArrayInputStream(bloque)).getDocumentElement();
+            if (!ronda.getTagName().equals("listapuestas")) {
+                return null;
+            }
+            Matcher m = NUMERO.matcher(ronda.getAttribute("ganadora"));
+            if (!m.find()) {
+                return null;
+            }
+            Casilla ganadora = new Casilla(Integer.parseInt(m.group(1)));
+
+            Date fecha;
+            try {
+                fecha = new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US).parse(ronda.getAttribute("fecha"));
+            } catch (ParseException e) {
+                fecha = null;
+            }
+
+            List<Apuesta> apuestas = new ArrayList<>();
+            List<Long> premios = new ArrayList<>();
+            NodeList jugadores = ronda.getElementsByTagName("jugador");
+            for (int i = 0; i < jugadores.getLength(); i++) {
+                Element j = (Element) jugadores.item(i);
+                if (!j.getAttribute("id").equals(jugador.getID())) {
+                    continue;
+                }
+                NodeList lista = j.getElementsByTagName("apuesta");
+                for (int k = 0; k < lista.getLength(); k++) {
+                    Element a = (Element) lista.item(k);
+                    Apuesta ap = new Apuesta(jugador, TipoApuesta.valueOf(a.getAttribute("tipo")),
+                        a.getAttribute("valor"), Double.parseDouble(a.getAttribute("cantidad")));
+                    ApuestaCompilada compilada = RuletaUtils.compilar(ap);
+                    apuestas.add(ap);
+                    premios.add(compilada == null ? 0L : compilada.premioPara(ganadora.getNumero()));
+                }
+            }
 
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            Document doc = db.parse(file);
+            long[] p = new long[premios.size()];
+            for (int i = 0; i < p.length; i++) {
+                p[i] = premios.get(i);
+            }
+            return new RondaJugador(fecha, ganadora, apuestas, p);
+        } catch (SAXException | IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Texto XML de una ronda, con la misma indentación que el pretty print (4 espacios).
+     */
+    private static String bloqueRonda(Map<Jugador, List<ApuestaCompilada>> map, Casilla ganador, Date fecha) {
+        StringBuilder sb = new StringBuilder(128 + map.size() * 96);
+        sb.append("    <listapuestas fecha=\"").append(escapar(fecha.toString()))
+          .append("\" ganadora=\"").append(escapar(ganador.toString())).append('"');
+
+        if (map.isEmpty()) {
+            return sb.append("/>\n").toString();
+        }
+        sb.append(">\n");
 
-            Element root = doc.getDocumentElement();
-            if (root == null) {
-                root = doc.createElement("historial");
-                doc.appendChild(root);
+        for (Entry<Jugador, List<ApuestaCompilada>> entrada : map.entrySet()) {
+            sb.append("        <jugador id=\"").append(escapar(entrada.getKey().getID())).append("\">\n");
+            for (ApuestaCompilada compilada : entrada.getValue()) {
+                Apuesta ap = compilada.getApuesta();
+                sb.append("            <apuesta cantidad=\"").append(ap.getCantidad())
+                  .append("\" tipo=\"").append(ap.getTipo())
+                  .append("\" valor=\"").append(escapar(ap.getValor())).append("\"/>\n");
             }
+            sb.append("        </jugador>\n");
+        }
+        return sb.append("    </listapuestas>\n").toString();
+    }
+
+    /**
+     * Escapa un valor de atributo XML.
+     */
+    private static String escapar(String s) {
+        if (s == null) {
+            return "";
+        }
+        StringBuilder sb = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            String rep;
+            switch (c) {
+                case '&': rep = "&amp;"; break;
+                case '<': rep = "&lt;"; break;
+                case '>': rep = "&gt;"; break;
+                case '"': rep = "&quot;"; break;
+                case '\n': rep = "&#10;"; break;
+                case '\r': rep = "&#13;"; break;
+                case '\t': rep = "&#9;"; break;
+                default: rep = null;
+            }
+            if (rep != null) {
+                if (sb == null) {
+                    sb = new StringBuilder(s.length() + 16).append(s, 0, i);
+                }
+                sb.append(rep);
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb == null ? s : sb.toString();
+    }
+
+    // --- SEGMENTOS ---
+
+    /**
+     * Cierra el segmento vivo, lo apunta en el manifiesto y abre uno nuevo vacío.
+     * Se llama con el lock tomado, justo después de escribir una ronda.
+     */
+    private void rotar() throws IOException {
+        long numero = this.siguienteNumeroSegmento();
+        String nombre = base(this.file) + "-" + String.format("%06d", numero) + ".xml";
+        File cerrado = new File(this.file.getAbsoluteFile().getParentFile(), nombre);
+
+        // El segmento ya termina en </historial>: se vuelca, se cierra y se renombra
+        this.canal.force(true);
+        this.acceso.close();
+        try {
+            Files.move(this.file.toPath(), cerrado.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // No se pudo rotar: se sigue escribiendo en el mismo segmento
+            this.acceso = new RandomAccessFile(this.file, "rw");
+            this.canal = this.acceso.getChannel();
+            throw e;
+        }
 
-            Element listapuestas = doc.createElement("listapuestas");
-            listapuestas.setAttribute("fecha", fechaHoraActual.toString());
-            listapuestas.setAttribute("ganadora", (ganador.toString()));
+        long ultima = this.primeraRonda + this.rondasSegmento - 1;
+        this.manifiesto.anadir(new ManifiestoHistorial.Segmento(nombre, this.primeraRonda, ultima,
+            this.desdeSegmento, this.hastaSegmento));
+        System.out.println("Historial: segmento " + nombre + " cerrado (rondas " + this.primeraRonda + "-" + ultima + ")");
 
-            for (Entry<Jugador, List<Apuesta>> entrada : map.entrySet()) {
-                Element jugador = doc.createElement("jugador");
-                jugador.setAttribute("id", entrada.getKey().getID());
+        this.acceso = new RandomAccessFile(this.file, "rw");
+        this.canal = this.acceso.getChannel();
+        this.posicion = this.inicializarDocumento();
+        this.abrirSegmento(new long[] {0, 0, 0});
+
+        this.comprimirMasTarde(cerrado);
+    }
+
+    /**
+     * Estado del segmento vivo a partir de lo que contiene ({rondas, desde, hasta}).
+     */
+    private void abrirSegmento(long[] contenido) {
+        this.primeraRonda = this.manifiesto.getUltimaRonda() + 1;
+        this.rondasSegmento = contenido[0];
+        this.desdeSegmento = contenido[1];
+        this.hastaSegmento = contenido[2];
+    }
 
-                for (Apuesta ap : entrada.getValue()) {
-                    Element apuesta = doc.createElement("apuesta");
-                    apuesta.setAttribute("tipo", ap.getTipo().toString());
-                    apuesta.setAttribute("valor", ap.getValor());
-                    apuesta.setAttribute("cantidad", Double.toString(ap.getCantidad()));
-                    jugador.appendChild(apuesta);
+    private long siguienteNumeroSegmento() {
+        long max = 0;
+        for (File f : this.ficherosSegmento()) {
+            max = Math.max(max, numeroSegmento(f.getName()));
+        }
+        return max + 1;
+    }
+
+    /**
+     * Completa lo que una caída dejara a medias: borra temporales, apunta en el manifiesto los
+     * segmentos cerrados que falten y manda a comprimir los que no lo estén.
+     */
+    private void reconciliarSegmentos() {
+        File[] ficheros = this.ficherosSegmento();
+        Arrays.sort(ficheros, (a, b) -> Long.compare(numeroSegmento(a.getName()), numeroSegmento(b.getName())));
+
+        for (File f : ficheros) {
+            String nombre = f.getName();
+            if (nombre.endsWith(".tmp")) {
+                f.delete(); // Compresión interrumpida: se repite
+                continue;
+            }
+            if (nombre.endsWith(".xml") && new File(f.getParentFile(), nombre + ".gz").isFile()) {
+                // El .gz se completó (se renombra al terminar), solo faltó borrar el original
+                f.delete();
+                this.renombrarEnManifiesto(nombre, nombre + ".gz");
+                continue;
+            }
+            if (!this.manifiesto.contiene(nombre)) {
+                try (InputStream in = abrirSegmento(f)) {
+                    long[] c = this.escanear(in);
+                    long primera = this.manifiesto.getUltimaRonda() + 1;
+                    this.manifiesto.anadir(new ManifiestoHistorial.Segmento(nombre, primera, primera + c[0] - 1, c[1], c[2]));
+                    System.err.println("⚠️ Segmento " + nombre + " no estaba en el manifiesto, añadido.");
+                } catch (IOException e) {
+                    System.err.println("⚠️ Error leyendo segmento " + nombre + ": " + e.getMessage());
+                    continue;
                 }
-                listapuestas.appendChild(jugador);
             }
+            if (nombre.endsWith(".xml")) {
+                this.comprimirMasTarde(f);
+            }
+        }
+    }
 
-            root.appendChild(listapuestas);
+    private void comprimirMasTarde(File segmento) {
+        try {
+            this.compresor.execute(() -> this.comprimir(segmento));
+        } catch (RejectedExecutionException e) {
+            // Cerrando: se comprimirá en el próximo arranque
+        }
+    }
 
-            TransformerFactory tf = TransformerFactory.newInstance();
-            Transformer t = tf.newTransformer();
-            
-            //pretty print
-            t.setOutputProperty(javax.xml.transform.OutputKeys.INDENT, "yes");
-            t.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
-            
-            t.transform(new DOMSource(doc), new StreamResult(file));
+    /**
+     * Comprime un segmento cerrado: .xml → .xml.gz.tmp → .xml.gz, manifiesto, y borra el .xml.
+     */
+    private void comprimir(File segmento) {
+        File gz = new File(segmento.getPath() + ".gz");
+        File tmp = new File(gz.getPath() + ".tmp");
+        try (InputStream in = new FileInputStream(segmento);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(tmp), 64 * 1024)) {
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Error comprimiendo " + segmento.getName() + ": " + e.getMessage());
+            tmp.delete();
+            return;
+        }
+        try {
+            Files.move(tmp.toPath(), gz.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            this.renombrarEnManifiesto(segmento.getName(), gz.getName());
+            Files.delete(segmento.toPath());
+        } catch (IOException e) {
+            System.err.println("⚠️ Error comprimiendo " + segmento.getName() + ": " + e.getMessage());
+        }
+    }
 
+    private void renombrarEnManifiesto(String anterior, String nuevo) {
+        try {
+            this.manifiesto.renombrar(anterior, nuevo);
         } catch (IOException e) {
-            System.err.println("⚠️ Error de E/S guardando apuestas: " + e.getMessage());
-        } catch (ParserConfigurationException | SAXException e) {
-            System.err.println("⚠️ Error de parser XML: " + e.getMessage());
-        } catch (TransformerException e) {
-            System.err.println("⚠️ Error transformando XML: " + e.getMessage());
+            System.err.println("⚠️ Error actualizando manifiesto del historial: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Segmentos cerrados (y temporales de compresión) junto al segmento vivo.
+     */
+    private File[] ficherosSegmento() {
+        String prefijo = base(this.file) + "-";
+        File[] res = this.file.getAbsoluteFile().getParentFile().listFiles((dir, nombre) ->
+            nombre.startsWith(prefijo) && numeroSegmento(nombre) > 0
+                && (nombre.endsWith(".xml") || nombre.endsWith(".xml.gz") || nombre.endsWith(".xml.gz.tmp")));
+        return res == null ? new File[0] : res;
+    }
+
+    /**
+     * Abre un segmento cerrado para leerlo, descomprimiendo si es .gz.
+     *
+     * @param segmento Fichero del segmento.
+     * @return Flujo con el XML del segmento.
+     * @throws IOException Si no se puede abrir.
+     */
+    public static InputStream abrirSegmento(File segmento) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(segmento), 64 * 1024);
+        return segmento.getName().endsWith(".gz") ? new GZIPInputStream(in, 64 * 1024) : in;
+    }
+
+    /**
+     * Recorre un segmento contando sus rondas y leyendo la fecha de la primera y la última.
+     * Solo se usa al arrancar (segmento vivo, acotado por maxBytes) o tras una caída.
+     *
+     * @return {rondas, desde, hasta}; las fechas son 0 si no se pueden leer.
+     */
+    private long[] escanear(InputStream entrada) throws IOException {
+        byte[] patron = "<listapuestas".getBytes(StandardCharsets.US_ASCII);
+        long rondas = 0, desde = 0, hasta = 0;
+        SimpleDateFormat formato = new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US);
+
+        try (InputStream in = new BufferedInputStream(entrada, 64 * 1024)) {
+            int m = 0;
+            int c;
+            while ((c = in.read()) != -1) {
+                if (c == patron[m]) {
+                    if (++m < patron.length) {
+                        continue;
+                    }
+                    m = 0;
+                    rondas++;
+                    long t = leerFecha(in, formato);
+                    if (t != 0) {
+                        if (desde == 0) desde = t;
+                        hasta = t;
+                    }
+                } else {
+                    m = (c == patron[0]) ? 1 : 0;
+                }
+            }
+        }
+        return new long[] {rondas, desde, hasta};
+    }
+
+    /**
+     * Lee el resto de la etiqueta <listapuestas ...> y devuelve su fecha (0 si no se entiende).
+     */
+    private static long leerFecha(InputStream in, SimpleDateFormat formato) throws IOException {
+        ByteArrayOutputStream etiqueta = new ByteArrayOutputStream(128);
+        int c;
+        while ((c = in.read()) != -1 && c != '>' && etiqueta.size() < 1024) {
+            etiqueta.write(c);
+        }
+        Matcher m = FECHA.matcher(new String(etiqueta.toByteArray(), StandardCharsets.UTF_8));
+        if (!m.find()) {
+            return 0;
+        }
+        try {
+            return formato.parse(m.group(1)).getTime();
+        } catch (ParseException e) {
+            return 0; // Fechas antiguas escritas a mano (2025-11-22...)
+        }
+    }
+
+    private static String base(File f) {
+        String n = f.getName();
+        return n.endsWith(".xml") ? n.substring(0, n.length() - 4) : n;
+    }
+
+    /**
+     * @return Número del segmento (historial-000012.xml → 12), o 0 si el nombre no es de segmento.
+     */
+    private static long numeroSegmento(String nombre) {
+        int guion = nombre.lastIndexOf('-');
+        int punto = nombre.indexOf('.', guion);
+        if (guion < 0 || punto < 0) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(nombre.substring(guion + 1, punto));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // --- AUXILIARES DE FICHERO ---
+
+    /**
+     * Escribe el texto en la posición indicada.
+     *
+     * @return Posición siguiente al texto escrito.
+     */
+    private long escribir(long pos, String texto) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(texto.getBytes(StandardCharsets.UTF_8));
+        long p = pos;
+        while (buf.hasRemaining()) {
+            p += this.canal.write(buf, p);
+        }
+        return p;
+    }
+
+    /**
+     * Escribe </historial> en la posición indicada y corta lo que hubiera detrás.
+     */
+    private void escribirCierre(long pos) throws IOException {
+        long fin = this.escribir(pos, CIERRE);
+        this.canal.truncate(fin);
+    }
+
+    private byte[] leer(long pos, int n) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(n);
+        while (buf.hasRemaining() && this.canal.read(buf, pos + buf.position()) >= 0) {
+            // Leer n bytes
+        }
+        return buf.array();
+    }
+
+    private static boolean soloBlancos(byte[] datos, int desde) {
+        for (int i = desde; i < datos.length; i++) {
+            if (!Character.isWhitespace(datos[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] datos, String patron, int desde) {
+        byte[] p = patron.getBytes(StandardCharsets.US_ASCII);
+        for (int i = Math.max(0, desde); i <= datos.length - p.length; i++) {
+            if (coincide(datos, i, p)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] datos, String patron) {
+        byte[] p = patron.getBytes(StandardCharsets.US_ASCII);
+        for (int i = datos.length - p.length; i >= 0; i--) {
+            if (coincide(datos, i, p)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean coincide(byte[] datos, int i, byte[] p) {
+        for (int k = 0; k < p.length; k++) {
+            if (datos[i + k] != p[k]) {
+                return false;
+            }
         }
+        return true;
     }
 }
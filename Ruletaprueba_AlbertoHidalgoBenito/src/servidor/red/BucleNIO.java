@@ -0,0 +1,374 @@
+package servidor.red;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import logicaRuleta.core.AtenderJugadorNIO;
+import logicaRuleta.core.Casino;
+import logicaRuleta.core.ServicioRuleta;
+import servidor.persistencia.Historial;
+
+/**
+ * Clase BucleNIO
+ * --------------
+ * Bucle de eventos del modo NIO. Un único hilo atiende con un Selector a todas las
+ * conexiones que le entrega el hilo aceptador, en lugar de un hilo bloqueado por cliente.
+ *
+ * RESPONSABILIDADES:
+ *  - Registrar los canales nuevos y arrancar su conversación (AtenderJugadorNIO).
+ *  - Leer líneas (o tramas, con el protocolo binario) y pasárselas a la conversación de cada cliente.
+ *  - Escribir las líneas encoladas por enviar() (desde este hilo o desde los de la ronda).
+ *  - Avisar a las conversaciones cuando una mesa del casino abre o cierra.
+ *  - Cerrar a los clientes que llevan 45 segundos sin responder.
+ *
+ * CONCURRENCIA:
+ *  - Las conversaciones y el Selector solo se tocan desde el hilo del bucle.
+ *  - Los demás hilos solo usan entregar(), solicitarEscritura(), ejecutar() y el aviso de mesa,
+ *    que se comunican por colas concurrentes y Selector.wakeup().
+ *  - Lo que puede bloquear (leer el historial) lo hacen las conversaciones en el ejecutor de
+ *    consultas, y devuelven el resultado al bucle con ejecutar().
+ */
+public class BucleNIO implements Runnable {
+
+    /**
+     * Mismo timeout de lectura que el modo clásico (setSoTimeout(45000)).
+     */
+    private static final long TIMEOUT_LECTURA_MS = 45000;
+
+    /**
+     * Cada cuánto se buscan clientes inactivos. Cada enviar() desde otro hilo despierta al
+     * bucle: sin este margen, cada escritura costaría recorrer todas las sesiones.
+     */
+    private static final long REVISION_TIMEOUTS_MS = 1000;
+
+    // --- ATRIBUTOS ---
+    private final Casino casino;
+    private final Historial historial;
+    private final Executor consultas;
+    private final Selector selector;
+
+    private final Queue<SocketChannel> nuevos;
+    private final Queue<SesionNIO> pendientesEscritura;
+    private final Queue<Runnable> tareas;
+    private final AtomicBoolean mesaCambiada;
+
+    private final Set<SesionNIO> sesiones; // Solo desde el hilo del bucle
+    private final List<AtenderJugadorNIO> caducadas; // Reutilizada por revisarTimeouts
+    private long ultimaRevision;
+    private volatile Thread hilo;
+
+    // --- CONSTRUCTOR ---
+    /**
+     * PRE: casino != null
+     * POST: El bucle queda suscrito a los cambios de todas las mesas.
+     *
+     * @param casino Mesas del casino.
+     * @throws IOException Si no se puede abrir el Selector.
+     */
+    public BucleNIO(Casino casino) throws IOException {
+        this(casino, null);
+    }
+
+    /**
+     * PRE: casino != null
+     * POST: Como el constructor anterior; las conversaciones ofrecen ver las últimas rondas.
+     *
+     * @param casino    Mesas del casino.
+     * @param historial Historial de rondas (puede ser null).
+     * @throws IOException Si no se puede abrir el Selector.
+     */
+    public BucleNIO(Casino casino, Historial historial) throws IOException {
+        this(casino, historial, null);
+    }
+
+    /**
+     * PRE: casino != null
+     * POST: Como el constructor anterior; las consultas al historial se hacen en consultas.
+     *
+     * @param casino    Mesas del casino.
+     * @param historial Historial de rondas (puede ser null).
+     * @param consultas Ejecutor para leer el historial fuera del bucle (null = en el propio bucle).
+     * @throws IOException Si no se puede abrir el Selector.
+     */
+    public BucleNIO(Casino casino, Historial historial, Executor consultas) throws IOException {
+        this.casino = casino;
+        this.historial = historial;
+        this.consultas = consultas;
+        this.selector = Selector.open();
+        this.nuevos = new ConcurrentLinkedQueue<>();
+        this.pendientesEscritura = new ConcurrentLinkedQueue<>();
+        this.tareas = new ConcurrentLinkedQueue<>();
+        this.mesaCambiada = new AtomicBoolean(false);
+        this.sesiones = new HashSet<>();
+        this.caducadas = new ArrayList<>();
+        this.ultimaRevision = System.currentTimeMillis();
+
+        // Un solo aviso para todas las mesas: cada conversación mira la suya
+        Runnable aviso = () -> {
+            this.mesaCambiada.set(true);
+            this.selector.wakeup();
+        };
+        for (ServicioRuleta mesa : casino.getMesas()) {
+            mesa.addObservadorMesa(aviso);
+        }
+    }
+
+    // --- API PARA OTROS HILOS ---
+
+    /**
+     * Entrega una conexión aceptada a este bucle.
+     *
+     * @param canal Canal del cliente recién aceptado.
+     */
+    public void entregar(SocketChannel canal) {
+        this.nuevos.add(canal);
+        this.selector.wakeup();
+    }
+
+    /**
+     * Pide que se escriba lo pendiente de una sesión.
+     * Desde el propio bucle no hace falta despertar: se escribe al final de la iteración.
+     *
+     * @param sesion Sesión con líneas en cola.
+     */
+    void solicitarEscritura(SesionNIO sesion) {
+        this.pendientesEscritura.add(sesion);
+        if (Thread.currentThread() != this.hilo) {
+            this.selector.wakeup();
+        }
+    }
+
+    /**
+     * Ejecuta una tarea en el hilo del bucle (p. ej. la respuesta de una consulta al historial).
+     *
+     * @param tarea Tarea que toca conversaciones o sesiones de este bucle.
+     */
+    void ejecutar(Runnable tarea) {
+        this.tareas.add(tarea);
+        if (Thread.currentThread() != this.hilo) {
+            this.selector.wakeup();
+        }
+    }
+
+    /**
+     * Detiene el bucle y cierra todas sus conexiones.
+     */
+    public void detener() {
+        try {
+            this.selector.close();
+        } catch (IOException e) {
+            System.err.println("⚠️ Error cerrando selector: " + e.getMessage());
+        }
+    }
+
+    // --- BUCLE ---
+
+    @Override
+    public void run() {
+        this.hilo = Thread.currentThread();
+        List<String> lineas = new ArrayList<>();
+
+        try {
+            while (!Thread.currentThread().isInterrupted() && this.selector.isOpen()) {
+                // Con timeout para revisar los clientes inactivos aunque no haya eventos
+                this.selector.select(1000);
+
+                this.registrarNuevos();
+
+                Runnable tarea;
+                while ((tarea = this.tareas.poll()) != null) {
+                    tarea.run();
+                }
+
+                Iterator<SelectionKey> it = this.selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+
+                    SesionNIO sesion = (SesionNIO) key.attachment();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isReadable()) {
+                        this.atenderLectura(sesion, lineas);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        this.escribir(sesion);
+                    }
+                }
+
+                if (this.mesaCambiada.getAndSet(false)) {
+                    // Sin copia: las conversaciones solo encolan, las sesiones se quitan en cerrarSesion()
+                    for (SesionNIO s : this.sesiones) {
+                        s.getAtencion().mesaCambiada();
+                    }
+                }
+
+                SesionNIO s;
+                while ((s = this.pendientesEscritura.poll()) != null) {
+                    this.escribir(s);
+                }
+
+                this.revisarTimeouts();
+            }
+        } catch (ClosedSelectorException e) {
+            // detener() cerró el selector: salimos del bucle
+        } catch (IOException e) {
+            System.err.println("⚠️ Error en el bucle NIO: " + e.getMessage());
+        } finally {
+            for (SesionNIO s : new ArrayList<>(this.sesiones)) {
+                s.getAtencion().desconectar();
+                s.cerrarCanal();
+            }
+            this.sesiones.clear();
+        }
+    }
+
+    private void registrarNuevos() {
+        SocketChannel canal;
+        while ((canal = this.nuevos.poll()) != null) {
+            try {
+                canal.configureBlocking(false);
+                canal.socket().setTcpNoDelay(true); // Respuestas de varias líneas: sin esperar al ACK de la anterior
+                SesionNIO sesion = new SesionNIO(canal, this);
+                sesion.setClave(canal.register(this.selector, SelectionKey.OP_READ, sesion));
+                sesion.setAtencion((this.consultas != null)
+                    ? new AtenderJugadorNIO(this.casino, sesion, this.historial, this.consultas, this::ejecutar)
+                    : new AtenderJugadorNIO(this.casino, sesion, this.historial));
+                this.sesiones.add(sesion);
+                sesion.getAtencion().iniciar();
+            } catch (IOException e) {
+                System.err.println("⚠️ Error registrando cliente: " + e.getMessage());
+                try {
+                    canal.close();
+                } catch (IOException ignored) {
+                    // Ya estaba cerrado
+                }
+            }
+        }
+    }
+
+    private void atenderLectura(SesionNIO sesion, List<String> lineas) {
+        if (sesion.isBinaria()) {
+            this.atenderTramas(sesion);
+            return;
+        }
+        AtenderJugadorNIO atencion = sesion.getAtencion();
+        lineas.clear();
+        boolean abierto;
+        try {
+            abierto = sesion.leer(lineas);
+        } catch (IOException e) {
+            // Este mensaje es para el servidor.
+            System.out.println("Error de conexión con cliente: " + e.getMessage());
+            this.cerrarSesion(sesion);
+            return;
+        }
+
+        for (String linea : lineas) {
+            if (atencion.isCerrada() || sesion.isBinaria()) {
+                break; // Tras negociar el binario no se aceptan más líneas
+            }
+            atencion.procesarLinea(linea);
+        }
+
+        if (!abierto && !atencion.isCerrada()) {
+            atencion.conexionCerradaPorCliente();
+        }
+    }
+
+    private void atenderTramas(SesionNIO sesion) {
+        AtenderJugadorNIO atencion = sesion.getAtencion();
+        List<ByteBuffer> tramas = new ArrayList<>(4);
+        boolean abierto;
+        try {
+            abierto = sesion.leerTramas(tramas);
+        } catch (IOException e) {
+            System.out.println("Error de conexión con cliente: " + e.getMessage());
+            this.cerrarSesion(sesion);
+            return;
+        }
+
+        for (ByteBuffer trama : tramas) {
+            if (atencion.isCerrada()) {
+                break;
+            }
+            atencion.procesarTrama(trama);
+        }
+
+        if (!abierto && !atencion.isCerrada()) {
+            atencion.conexionCerradaPorCliente();
+        }
+    }
+
+    private void escribir(SesionNIO sesion) {
+        SelectionKey key = sesion.getClave();
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        if (sesion.isDesbordada()) {
+            this.cerrarSesion(sesion);
+            return;
+        }
+        try {
+            if (sesion.escribirPendiente()) {
+                if (sesion.isCerrando()) {
+                    this.cerrarSesion(sesion);
+                } else {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            } else {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        } catch (IOException e) {
+            System.out.println("Error de conexión con cliente: " + e.getMessage());
+            this.cerrarSesion(sesion);
+        }
+    }
+
+    /**
+     * Cierra a los clientes que llevan más de TIMEOUT_LECTURA_MS sin contestar.
+     * Como mucho una vez por REVISION_TIMEOUTS_MS, se llame cuantas veces se llame.
+     */
+    private void revisarTimeouts() {
+        long ahora = System.currentTimeMillis();
+        if (ahora - this.ultimaRevision < REVISION_TIMEOUTS_MS) {
+            return;
+        }
+        this.ultimaRevision = ahora;
+
+        for (SesionNIO s : this.sesiones) {
+            AtenderJugadorNIO atencion = s.getAtencion();
+            if (atencion.isEsperandoRespuesta()
+                    && ahora - atencion.getUltimaActividad() > TIMEOUT_LECTURA_MS) {
+                this.caducadas.add(atencion);
+            }
+        }
+        for (AtenderJugadorNIO atencion : this.caducadas) {
+            atencion.tiempoAgotado();
+        }
+        this.caducadas.clear();
+    }
+
+    /**
+     * Cierra el canal y, si la conversación seguía viva, desconecta al jugador.
+     */
+    private void cerrarSesion(SesionNIO sesion) {
+        this.sesiones.remove(sesion);
+        sesion.cerrarCanal();
+        sesion.getAtencion().desconectar();
+    }
+}
@@ -0,0 +1,227 @@
+package servidor.red;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import servidor.persistencia.AlmacenJugadores;
+import servidor.persistencia.XMLServidor;
+
+/**
+ * Clase ConfiguracionServidor
+ * ---------------------------
+ * Opciones de arranque de ServidorRuleta, leídas de los argumentos de main.
+ *
+ * OPCIONES:
+ *  - --puerto=N        Puerto TCP (por defecto 8000).
+ *  - --historial=RUTA  Fichero XML del historial de apuestas (por defecto historial.xml).
+ *  - --bd=RUTA         Fichero de jugadores (por defecto jugadores.xml). El formato sale de la
+ *                      extensión (AlmacenJugadores.segunExtension): .bin es binario, cualquier otra XML.
+ *  - --nio             Atiende a los clientes con bucles NIO en lugar de un hilo por cliente.
+ *  - --hilos-nio=N     Número de bucles NIO (por defecto, uno por CPU).
+ *  - --hilos-virtuales Ejecuta clientes y tareas de la ronda en hilos virtuales (Java 21+).
+ *  - --mesas=N         Número de mesas independientes (por defecto 1), cada una con su crupier.
+ *  - --historial-mb=N, --historial-horas=N
+ *                      Tamaño y edad máximos del segmento vivo del historial (por defecto 16 MB y 24 h).
+ *  - --historial-formato=xml|binario
+ *                      Formato del historial (por defecto xml). binario guarda columnas por día junto al
+ *                      historial (historial-col/) para consultarlas con ConsultaHistorial.
+ *  - --bd-formato=xml|binario
+ *                      Formato del fichero de jugadores. binario es una foto compacta (AlmacenBinario);
+ *                      ConvertirJugadores pasa un fichero de un formato al otro. Sin --bd, elige el
+ *                      fichero por defecto (jugadores.xml o jugadores.bin); con --bd, debe coincidir
+ *                      con su extensión (si no, IllegalArgumentException: nunca se lee un formato con
+ *                      el lector del otro).
+ *  - --bd-hilos=N      Hilos para leer jugadores.xml por trozos al arrancar (por defecto 1, en orden).
+ *  - --apuestas-ms=N, --giro-ms=N, --reparto-ms=N, --descanso-ms=N
+ *                      Duración de cada fase de la ronda (PlanRonda; por defecto 20000, 2000, 3000, 2000).
+ *
+ * POSTCONDICIONES:
+ *  - Sin argumentos se obtiene exactamente la configuración de siempre (modo clásico).
+ *  - Una opción desconocida o mal formada lanza IllegalArgumentException.
+ */
+public class ConfiguracionServidor {
+
+    // --- ATRIBUTOS ---
+    private int puerto;
+    private String historial;
+    private String bd;
+    private boolean nio;
+    private int hilosNIO;
+    private boolean hilosVirtuales;
+    private int mesas;
+    private int historialMb;
+    private int historialHoras;
+    private boolean historialBinario;
+    private Boolean bdFormatoBinario; // null = no se ha indicado --bd-formato
+    private boolean bdIndicada;
+    private int hilosBd;
+    private long apuestasMs;
+    private long giroMs;
+    private long repartoMs;
+    private long descansoMs;
+
+    // --- CONSTRUCTOR ---
+    /**
+     * Configuración por defecto (modo clásico, puerto 8000).
+     */
+    public ConfiguracionServidor() {
+        this.puerto = 8000;
+        this.historial = "historial.xml";
+        this.bd = "jugadores.xml";
+        this.nio = false;
+        this.hilosNIO = Runtime.getRuntime().availableProcessors();
+        this.hilosVirtuales = false;
+        this.mesas = 1;
+        this.historialMb = (int) (XMLServidor.MAX_BYTES_SEGMENTO / (1024 * 1024));
+        this.historialHoras = (int) TimeUnit.MILLISECONDS.toHours(XMLServidor.MAX_EDAD_SEGMENTO);
+        this.historialBinario = false;
+        this.bdFormatoBinario = null;
+        this.bdIndicada = false;
+        this.hilosBd = 1;
+
+        PlanRonda plan = new PlanRonda();
+        this.apuestasMs = plan.getApuestas();
+        this.giroMs = plan.getGiro();
+        this.repartoMs = plan.getReparto();
+        this.descansoMs = plan.getDescanso();
+    }
+
+    /**
+     * Construye la configuración a partir de los argumentos de línea de comandos.
+     *
+     * PRE: args != null
+     * POST: Las opciones no indicadas conservan su valor por defecto.
+     *
+     * @param args Argumentos de main.
+     * @return Configuración resultante.
+     * @throws IllegalArgumentException Si alguna opción no es válida.
+     */
+    public static ConfiguracionServidor desdeArgumentos(String[] args) {
+        ConfiguracionServidor conf = new ConfiguracionServidor();
+
+        for (String arg : args) {
+            if (arg.equals("--nio")) {
+                conf.nio = true;
+            } else if (arg.equals("--hilos-virtuales")) {
+                conf.hilosVirtuales = true;
+            } else if (arg.startsWith("--puerto=")) {
+                conf.puerto = enteroPositivo(arg, "--puerto=");
+            } else if (arg.startsWith("--hilos-nio=")) {
+                conf.hilosNIO = enteroPositivo(arg, "--hilos-nio=");
+            } else if (arg.startsWith("--mesas=")) {
+                conf.mesas = enteroPositivo(arg, "--mesas=");
+            } else if (arg.startsWith("--historial-mb=")) {
+                conf.historialMb = enteroPositivo(arg, "--historial-mb=");
+            } else if (arg.startsWith("--historial-horas=")) {
+                conf.historialHoras = enteroPositivo(arg, "--historial-horas=");
+            } else if (arg.startsWith("--historial-formato=")) {
+                String formato = arg.substring("--historial-formato=".length());
+                if (formato.equalsIgnoreCase("binario")) {
+                    conf.historialBinario = true;
+                } else if (formato.equalsIgnoreCase("xml")) {
+                    conf.historialBinario = false;
+                } else {
+                    throw new IllegalArgumentException("Valor no válido en " + arg);
+                }
+            } else if (arg.startsWith("--bd-formato=")) {
+                String formato = arg.substring("--bd-formato=".length());
+                if (formato.equalsIgnoreCase("binario")) {
+                    conf.bdFormatoBinario = Boolean.TRUE;
+                } else if (formato.equalsIgnoreCase("xml")) {
+                    conf.bdFormatoBinario = Boolean.FALSE;
+                } else {
+                    throw new IllegalArgumentException("Valor no válido en " + arg);
+                }
+            } else if (arg.startsWith("--bd-hilos=")) {
+                conf.hilosBd = enteroPositivo(arg, "--bd-hilos=");
+            } else if (arg.startsWith("--historial=")) {
+                conf.historial = arg.substring("--historial=".length());
+            } else if (arg.startsWith("--bd=")) {
+                conf.bd = arg.substring("--bd=".length());
+                conf.bdIndicada = true;
+            } else if (arg.startsWith("--apuestas-ms=")) {
+                conf.apuestasMs = milisegundos(arg, "--apuestas-ms=");
+            } else if (arg.startsWith("--giro-ms=")) {
+                conf.giroMs = milisegundos(arg, "--giro-ms=");
+            } else if (arg.startsWith("--reparto-ms=")) {
+                conf.repartoMs = milisegundos(arg, "--reparto-ms=");
+            } else if (arg.startsWith("--descanso-ms=")) {
+                conf.descansoMs = milisegundos(arg, "--descanso-ms=");
+            } else {
+                throw new IllegalArgumentException("Opción desconocida: " + arg);
+            }
+        }
+        conf.comprobarFormatoBd();
+        return conf;
+    }
+
+    /**
+     * El formato de la BD de jugadores lo decide la extensión del fichero: --bd-formato solo
+     * elige el fichero por defecto o confirma el de --bd.
+     */
+    private void comprobarFormatoBd() {
+        if (this.bdFormatoBinario == null) {
+            return;
+        }
+        if (!this.bdIndicada) {
+            this.bd = this.bdFormatoBinario ? "jugadores.bin" : "jugadores.xml";
+        } else if (this.bdFormatoBinario != this.isBdBinaria()) {
+            throw new IllegalArgumentException("--bd-formato=" + (this.bdFormatoBinario ? "binario" : "xml")
+                + " no coincide con la extensión de --bd=" + this.bd + " (.bin es binario, cualquier otra XML)");
+        }
+    }
+
+    private static int enteroPositivo(String arg, String prefijo) {
+        try {
+            int valor = Integer.parseInt(arg.substring(prefijo.length()));
+            if (valor > 0) {
+                return valor;
+            }
+        } catch (NumberFormatException e) {
+            // Lo tratamos abajo
+        }
+        throw new IllegalArgumentException("Valor no válido en " + arg);
+    }
+
+    private static long milisegundos(String arg, String prefijo) {
+        try {
+            long valor = Long.parseLong(arg.substring(prefijo.length()));
+            if (valor >= 0) {
+                return valor;
+            }
+        } catch (NumberFormatException e) {
+            // Lo tratamos abajo
+        }
+        throw new IllegalArgumentException("Valor no válido en " + arg);
+    }
+
+    // --- GETTERS ---
+
+    public int getPuerto() { return this.puerto; }
+
+    public String getHistorial() { return this.historial; }
+
+    public String getBd() { return this.bd; }
+
+    public boolean isNio() { return this.nio; }
+
+    public int getHilosNIO() { return this.hilosNIO; }
+
+    public boolean isHilosVirtuales() { return this.hilosVirtuales; }
+
+    public int getMesas() { return this.mesas; }
+
+    public long getHistorialMaxBytes() { return this.historialMb * 1024L * 1024L; }
+
+    public long getHistorialMaxEdad() { return TimeUnit.HOURS.toMillis(this.historialHoras); }
+
+    public boolean isHistorialBinario() { return this.historialBinario; }
+
+    public boolean isBdBinaria() { return AlmacenJugadores.esBinario(new File(this.bd)); }
+
+    public int getHilosBd() { return this.hilosBd; }
+
+    public PlanRonda getPlanRonda() {
+        return new PlanRonda(this.apuestasMs, this.giroMs, this.repartoMs, this.descansoMs);
+    }
+}
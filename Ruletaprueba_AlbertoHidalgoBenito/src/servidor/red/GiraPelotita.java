@@ -1,128 +1,222 @@
 package servidor.red;
 
 import java.util.Random;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import logicaRuleta.core.ServicioRuleta;
 import modeloDominio.Casilla;
-import servidor.persistencia.XMLServidor;
+import servidor.persistencia.Historial;
 
 /**
  * Clase GiraPelotita
  * ------------------
- * Tarea Runnable que simula el giro de la bola en la ruleta.
- * Cierra apuestas, genera la casilla ganadora, reparte premios,
- * guarda resultados en XML y abre una nueva ronda.
+ * Crupier automático: lleva una mesa por las fases de cada ronda según un PlanRonda.
+ * Con varias mesas hay un GiraPelotita por mesa, cada uno con su propio reloj.
+ * Cierra apuestas, genera la casilla ganadora, reparte premios, guarda resultados en XML
+ * y abre una nueva ronda.
+ *
+ * LÍNEA DE TIEMPO:
+ *  - Cada fase es una tarea del ScheduledExecutorService que hace su trabajo y programa la
+ *    siguiente para un instante absoluto (System.nanoTime), no con sleeps ni con un retardo fijo
+ *    entre ejecuciones. Lo que tarda cada fase (avisos, cierre de la ronda de apuestas) no se
+ *    suma a la ronda: el cierre llega a apertura + apuestas y el número a cierre + giro.
+ *  - El reparto no tiene plazo fijo: en cuanto termina empieza el descanso. Si acaba antes de lo
+ *    planificado, la ronda es más corta (más rondas por hora con la misma espera para el jugador).
+ *  - Al abrir la mesa se informa por consola de cuánto ha durado cada fase frente a lo planificado.
  *
  * PRECONDICIONES:
- *  - El ServicioRuletaServidor debe estar inicializado.
- *  - El ExecutorService debe estar activo para ejecutar tareas concurrentes.
- *  - El XMLServidor debe estar disponible para persistencia.
+ *  - El ServicioRuleta debe estar inicializado.
+ *  - El ExecutorService debe estar activo para guardar el historial.
+ *  - El Historial (XML o binario) debe estar disponible para persistencia.
  *
- * POSTCONDICIONES:
- *  - Se cierran las apuestas de la ronda actual.
- *  - Se genera una casilla ganadora aleatoria.
- *  - Se reparten premios a los jugadores.
- *  - Se guardan las apuestas y resultados en XML.
- *  - Se abre una nueva ronda tras un breve intervalo.
+ * CONCURRENCIA:
+ *  - Las fases se encadenan (cada una programa la siguiente), así que nunca hay dos a la vez y
+ *    los instantes de la ronda en curso no necesitan sincronización.
+ *  - detener() se puede llamar desde cualquier hilo.
  */
-public class GiraPelotita implements Runnable {
+public class GiraPelotita {
 
     // --- ATRIBUTOS ---
     private final ServicioRuleta rule;
     private final ExecutorService pool;
-    private final XMLServidor xml;
+    private final Historial xml;
+    private final PlanRonda plan;
+    private final ScheduledExecutorService reloj;
+    private final Random random;
+
+    private volatile boolean detenido;
+    private volatile ScheduledFuture<?> siguiente;
+
+    // Instantes de la ronda en curso (System.nanoTime). Solo los toca la fase en ejecución.
+    private long aperturaPlan;   // Apertura según el plan: de aquí salen los plazos de la ronda
+    private long apertura;
+    private long cierre;
+    private long inicioReparto;
+    private long finReparto;
 
     // --- CONSTRUCTOR ---
     /**
-     * Inicializa la tarea de giro de la bola.
+     * Inicializa el crupier. No hace nada hasta iniciar().
      *
-     * @param rule Servicio de ruleta compartido.
-     * @param pool ExecutorService para tareas concurrentes.
-     * @param xml  Manejador de persistencia XML.
+     * @param rule  Mesa que dirige este crupier.
+     * @param pool  ExecutorService para tareas concurrentes (historial).
+     * @param xml   Historial donde se guardan las rondas.
+     * @param plan  Duración de cada fase de la ronda.
+     * @param reloj Scheduler en el que se ejecutan las fases.
      */
-    public GiraPelotita(ServicioRuleta rule, ExecutorService pool, XMLServidor xml) {
+    public GiraPelotita(ServicioRuleta rule, ExecutorService pool, Historial xml,
+                        PlanRonda plan, ScheduledExecutorService reloj) {
         this.rule = rule;
         this.pool = pool;
         this.xml = xml;
+        this.plan = plan;
+        this.reloj = reloj;
+        this.random = new Random();
+        this.detenido = false;
     }
 
-    // --- LÓGICA DE NEGOCIO ---
+    // --- CICLO DE VIDA ---
+
     /**
-     * Ejecuta la simulación del giro de la bola:
-     * - Cierra apuestas.
-     * - Espera un tiempo de gracia.
-     * - Genera número ganador.
-     * - Reparte premios y comunica la casilla.
-     * - Guarda resultados en XML.
-     * - Espera y abre nueva ronda.
+     * Empieza la primera ronda. La mesa ya está abierta (EstadoRonda empieza en la ronda 1),
+     * así que se programa directamente su cierre.
+     *
+     * POST: Las rondas se suceden hasta detener().
      */
-    @Override
-    public void run() {
-    	
-    		
-    		//MEJORAS: queiro que antes de que se reseete el NO VA MAS, se envie el mensaje. Lo que me ocurre ahora es que si estoy esperando a que se abra la mesa,
-    		// se muestra primero el menu. Yo quiero que aparezca la casilla y las ganancias.
-    		//Basicamente quiero mandar las Casillas y los Premiso antes de volver al menu.
-    	
-    		
-    	
-        // 1. CERRAR APUESTAS
-        this.rule.NoVaMas();
-        
-        
-        //Si ha ocurrido algun error, cerramos la mesa y paramos.        
-        if(Thread.currentThread().isInterrupted()){return;}
-        
-        
-        // 2. ESPERAR 2 segundos para que los hilos de apuestas terminen
+    public void iniciar() {
+        System.out.println("Mesa " + this.rule.getNumeroMesa() + " · Plan de ronda: " + this.plan);
+        this.aperturaPlan = System.nanoTime();
+        this.apertura = this.aperturaPlan;
+        this.programar(this::cerrarApuestas, this.aperturaPlan + ms(this.plan.getApuestas()));
+    }
+
+    /**
+     * Detiene el ciclo: cancela la próxima fase y no se programa ninguna más.
+     * Una fase que ya esté en marcha termina normalmente.
+     */
+    public void detener() {
+        this.detenido = true;
+        ScheduledFuture<?> f = this.siguiente;
+        if (f != null) {
+            f.cancel(false);
+        }
+    }
+
+    // --- FASES ---
+
+    /**
+     * Fin de las apuestas: cierra la mesa.
+     */
+    private void cerrarApuestas() {
+        this.cierre = System.nanoTime();
         try {
-            TimeUnit.SECONDS.sleep(2);
-        } catch (InterruptedException e) {
-        	
-        		//MEJORA:Aqui tendria que cerrar el hilo??
-        	
-            Thread.currentThread().interrupt(); // restaurar estado 
-            System.err.println("⚠️ GiraPelotita interrumpida durante la espera de cierre de apuestas");
+            this.rule.NoVaMas();
+        } finally {
+            // Plazo contado desde el cierre planificado: lo que tarde NoVaMas() no se suma
+            this.programar(this::repartir,
+                this.aperturaPlan + ms(this.plan.getApuestas()) + ms(this.plan.getGiro()));
         }
-        
-        
-        
-        // 3. GENERAR NÚMERO GANADOR
-        int numeroGanador = new Random().nextInt(37); // 0-36
-        Casilla ganadora = new Casilla(numeroGanador);
-
-        
-        // 4. REPARTIR PREMIOS Y COMUNICAR CASILLA
-        
-        //MEJORA:esta sincronizacion no me va bien.
-        CountDownLatch count = new CountDownLatch(2);
-        this.rule.mandarCasilla(ganadora,count);
-        this.rule.repartirPremio(ganadora,count);
-
-        // 5. GUARDAR EN XML (en paralelo)
-        this.pool.execute(new guardarApuestas(this.rule.getCopiaJugadorApuestas(), ganadora, this.xml));
-
-        // 6. ESPERAR 2 SEGUNDOS ANTES DE ABRIR NUEVA RONDA
+    }
+
+    /**
+     * Fin del giro: saca el número, liquida la ronda (premios y resultado) y guarda el historial.
+     */
+    private void repartir() {
+        this.inicioReparto = System.nanoTime();
         try {
-            TimeUnit.SECONDS.sleep(2);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.err.println("⚠️ GiraPelotita interrumpida durante la espera antes de resetear");
+            int numeroGanador = this.random.nextInt(37); // 0-36
+            Casilla ganadora = new Casilla(numeroGanador);
+
+            // Premios y resultado en un solo reparto: un mensaje por jugador
+            this.rule.liquidarRonda(ganadora);
+
+            // Guardar en XML (en paralelo)
+            this.pool.execute(new guardarApuestas(this.rule.getRondaCerrada().getApuestas(), ganadora, this.xml));
+        } catch (RejectedExecutionException e) {
+            System.err.println("⚠️ No se pudo guardar el historial de la ronda: " + e.getMessage());
+        } finally {
+            // Avance anticipado: el descanso empieza al terminar el reparto, no al agotar su plazo
+            this.finReparto = System.nanoTime();
+            this.programar(this::abrirMesa, this.finReparto + ms(this.plan.getDescanso()));
         }
+    }
 
-        /*
+    /**
+     * Fin del descanso: abre la mesa para la ronda siguiente.
+     */
+    private void abrirMesa() {
+        long ahora = System.nanoTime();
         try {
-			count.await();
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-        */
-        
-        // 7. RESETEAR Y ABRIR NUEVA RONDA
-        this.rule.resetNoVaMas();
+            this.rule.resetNoVaMas();
+            this.informar(ahora);
+        } finally {
+            this.aperturaPlan = this.finReparto + ms(this.plan.getDescanso());
+            this.apertura = ahora;
+            this.programar(this::cerrarApuestas, this.aperturaPlan + ms(this.plan.getApuestas()));
+        }
+    }
+
+    // --- AUXILIARES ---
+
+    /**
+     * Programa una fase para un instante absoluto. Si ya ha pasado, se ejecuta enseguida.
+     */
+    private void programar(Runnable fase, long instante) {
+        if (this.detenido) {
+            return;
+        }
+        long espera = Math.max(0, instante - System.nanoTime());
+        try {
+            this.siguiente = this.reloj.schedule(() -> this.ejecutar(fase), espera, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // El scheduler se está cerrando: fin del ciclo
+        }
+    }
+
+    private void ejecutar(Runnable fase) {
+        if (this.detenido) {
+            return;
+        }
+        try {
+            fase.run();
+        } catch (RuntimeException e) {
+            // La fase ya ha programado la siguiente (finally): la mesa no se queda parada
+            System.err.println("⚠️ Error en el ciclo de la ruleta: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tiempos reales de cada fase de la ronda que acaba de terminar frente a los planificados.
+     */
+    private void informar(long aperturaSiguiente) {
+        long apuestas = aMs(this.cierre - this.apertura);
+        long giro = aMs(this.inicioReparto - this.cierre);
+        long reparto = aMs(this.finReparto - this.inicioReparto);
+        long descanso = aMs(aperturaSiguiente - this.finReparto);
+
+        System.out.println("Mesa " + this.rule.getNumeroMesa() + " · Ronda " + this.rule.getRondaCerrada().getRonda()
+            + " (real/plan): apuestas "
+            + apuestas + "/" + this.plan.getApuestas() + " ms, giro "
+            + giro + "/" + this.plan.getGiro() + " ms, reparto "
+            + reparto + "/" + this.plan.getReparto() + " ms, descanso "
+            + descanso + "/" + this.plan.getDescanso() + " ms, total "
+            + (apuestas + giro + reparto + descanso) + "/" + this.plan.getTotal() + " ms");
+
+        if (reparto > this.plan.getReparto()) {
+            System.err.println("⚠️ Mesa " + this.rule.getNumeroMesa() + ": el reparto ha superado su plazo en "
+                + (reparto - this.plan.getReparto()) + " ms");
+        }
+    }
+
+    private static long ms(long milisegundos) {
+        return TimeUnit.MILLISECONDS.toNanos(milisegundos);
+    }
+
+    private static long aMs(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
     }
 }
@@ -0,0 +1,77 @@
+package servidor.red;
+
+/**
+ * Clase PlanRonda
+ * ---------------
+ * Duraciones planificadas de cada fase de una ronda, en milisegundos.
+ *
+ * FASES:
+ *  - apuestas: mesa abierta, desde resetNoVaMas() hasta NoVaMas().
+ *  - giro:     desde NoVaMas() hasta sacar el número (suspense para los jugadores).
+ *  - reparto:  casilla ganadora y premios. Es un máximo: si el reparto acaba antes,
+ *              la ronda avanza en ese momento.
+ *  - descanso: tiempo para leer el resultado antes de abrir la mesa otra vez.
+ *
+ * POSTCONDICIONES:
+ *  - Inmutable.
+ *  - Por defecto 20 s de apuestas, 2 s de giro, 3 s de reparto y 2 s de descanso
+ *    (los tiempos que tenía GiraPelotita).
+ */
+public class PlanRonda {
+
+    // --- ATRIBUTOS ---
+    private final long apuestas;
+    private final long giro;
+    private final long reparto;
+    private final long descanso;
+
+    // --- CONSTRUCTORES ---
+    /**
+     * Plan por defecto.
+     */
+    public PlanRonda() {
+        this(20000, 2000, 3000, 2000);
+    }
+
+    /**
+     * PRE: Todas las duraciones >= 0.
+     *
+     * @param apuestas Milisegundos de mesa abierta.
+     * @param giro     Milisegundos entre el cierre y el número ganador.
+     * @param reparto  Milisegundos máximos previstos para el reparto.
+     * @param descanso Milisegundos entre el final del reparto y la apertura.
+     * @throws IllegalArgumentException Si alguna duración es negativa.
+     */
+    public PlanRonda(long apuestas, long giro, long reparto, long descanso) {
+        if (apuestas < 0 || giro < 0 || reparto < 0 || descanso < 0) {
+            throw new IllegalArgumentException("Las duraciones de la ronda no pueden ser negativas.");
+        }
+        this.apuestas = apuestas;
+        this.giro = giro;
+        this.reparto = reparto;
+        this.descanso = descanso;
+    }
+
+    // --- GETTERS ---
+
+    public long getApuestas() { return this.apuestas; }
+
+    public long getGiro() { return this.giro; }
+
+    public long getReparto() { return this.reparto; }
+
+    public long getDescanso() { return this.descanso; }
+
+    /**
+     * @return Duración total de una ronda si cada fase dura lo planificado.
+     */
+    public long getTotal() {
+        return this.apuestas + this.giro + this.reparto + this.descanso;
+    }
+
+    @Override
+    public String toString() {
+        return "apuestas " + this.apuestas + " ms, giro " + this.giro + " ms, reparto " + this.reparto
+            + " ms, descanso " + this.descanso + " ms";
+    }
+}
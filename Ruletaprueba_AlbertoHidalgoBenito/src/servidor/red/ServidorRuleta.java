@@ -1,16 +1,25 @@
 package servidor.red;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.concurrent.*;
 
+import logicaRuleta.concurrencia.FabricaHilos;
 import logicaRuleta.core.AtenderJugador;
+import logicaRuleta.core.Casino;
+import logicaRuleta.core.RegistroJugadores;
 import logicaRuleta.core.ServicioRuleta;
-import modeloDominio.Jugador;
 import servidor.persistencia.ActualizarBD;
-import servidor.persistencia.BDJugadores;
+import servidor.persistencia.AlmacenJugadores;
+import servidor.persistencia.Historial;
+import servidor.persistencia.HistorialBinario;
+import servidor.persistencia.PersistenciaJugadores;
 import servidor.persistencia.XMLServidor;
 
 import java.util.*;
@@ -19,11 +28,24 @@ import java.util.*;
  * Clase ServidorRuleta
  * --------------------
  * Representa el servidor principal de la ruleta. Se encarga de:
- *  - Cargar jugadores desde la base de datos XML.
+ *  - Cargar jugadores desde la base de datos (XML o binaria, según la extensión) en segundo plano,
+ *    mientras ya acepta conexiones (RegistroJugadores.cargarEnSegundoPlano).
  *  - Iniciar el servicio de ruleta.
  *  - Aceptar conexiones de clientes y atenderlas en paralelo.
  *  - Lanzar tareas periódicas: crupier automático y actualización de la base de datos.
  *
+ * MODOS DE CONEXIÓN:
+ *  - Clásico (por defecto): un hilo del pool por cliente (AtenderJugador).
+ *  - NIO (--nio): unos pocos BucleNIO con Selector atienden todas las conexiones
+ *    (AtenderJugadorNIO). El protocolo de líneas es el mismo en ambos modos.
+ *  - Hilos virtuales (--hilos-virtuales, Java 21+): el modo clásico, pero cada cliente
+ *    y cada tarea de la ronda en un hilo virtual.
+ *
+ * MESAS:
+ *  - Con --mesas=N el casino tiene N mesas independientes (Casino), cada una con su
+ *    GiraPelotita en su propio hilo de reloj y su propio reparto. Comparten el registro
+ *    de jugadores, el pool de conexiones y el historial.
+ *
  * PRECONDICIONES:
  *  - El puerto debe estar libre y accesible.
  *  - Los ficheros historial y bd deben ser rutas válidas en el sistema de archivos.
@@ -31,98 +53,241 @@ import java.util.*;
  * POSTCONDICIONES:
  *  - El servidor queda escuchando en el puerto indicado.
  *  - Los clientes pueden conectarse y ser atendidos en paralelo.
- *  - Cada 20 segundos se ejecuta el ciclo de la ruleta (GiraPelotita).
- *  - Cada minuto se guarda la base de datos de jugadores (ActualizarBD).
- *  - Al cerrar, se persiste el estado de los jugadores y se cierran los pools de hilos.
+ *  - El crupier de cada mesa (GiraPelotita) encadena sus rondas según el PlanRonda de la configuración.
+ *  - Los saldos que cambian se guardan solos en el diario de jugadores (PersistenciaJugadores);
+ *    cada minuto se pide además un guardado de seguridad (ActualizarBD).
+ *  - Al cerrar, se compacta el diario en la base de datos de jugadores y se cierran los pools de hilos.
+ *  - Si la base de datos de jugadores no se puede leer, el servidor deja de aceptar clientes y se
+ *    para sin compactar (la foto no se toca) y main sale con código 1: nunca se juega con un
+ *    registro a medias.
  */
 public class ServidorRuleta {
 
+    // --- ATRIBUTOS ---
+    private volatile boolean detenido = false;
+    private volatile boolean cargaFallida = false;
+    private Closeable escucha; // Socket de escucha actual (protegido por this)
+
     /**
-     * Inicia el servidor de ruleta en el puerto indicado.
+     * Inicia el servidor de ruleta en el puerto indicado (modo clásico).
      *
      * @param puerto    Puerto TCP donde escuchar conexiones de clientes.
      * @param historial Ruta del fichero XML donde se guarda el historial de apuestas.
      * @param bd        Ruta del fichero XML donde se guarda la base de datos de jugadores.
      */
     public void IniciarServidor(int puerto, String historial, String bd) {
-        // Inicializar historial XML
-        XMLServidor xml = new XMLServidor(historial);
-        
-        File BBDD= new File(bd);
-        
+        ConfiguracionServidor conf = ConfiguracionServidor.desdeArgumentos(new String[] {
+            "--puerto=" + puerto, "--historial=" + historial, "--bd=" + bd
+        });
+        this.IniciarServidor(conf);
+    }
 
-        // Cargar jugadores desde la base de datos
-        List<Jugador> jugadoresConSesion = BDJugadores.UnmarshallingJugadores(BBDD);
+    /**
+     * Inicia el servidor de ruleta con la configuración indicada.
+     *
+     * @param conf Opciones de arranque (puerto, ficheros y modo de conexión).
+     */
+    public void IniciarServidor(ConfiguracionServidor conf) {
+        String historial = conf.getHistorial();
+        String bd = conf.getBd();
 
-        for (Jugador j : jugadoresConSesion) {
-            System.out.println("Jugador cargado: " + j);
+        // Inicializar historial (XML o columnas binarias)
+        Historial xml;
+        if (conf.isHistorialBinario()) {
+            xml = new HistorialBinario(historial);
+        } else {
+            xml = new XMLServidor(historial, conf.getHistorialMaxBytes(), conf.getHistorialMaxEdad());
         }
         
-       
-        
-        System.out.println(jugadoresConSesion.size());
+        File BBDD= new File(bd);
+        AlmacenJugadores almacen = AlmacenJugadores.segunExtension(BBDD, conf.getHilosBd());
+
+        // Cargar jugadores desde la base de datos (foto XML o binaria + diario de cambios) en segundo plano:
+        // el servidor acepta conexiones ya, y quien busca un jugador que aún no se ha leído espera a la carga
+        // Si no se puede leer, se para el servidor: con un registro a medias se repetirían altas
+        RegistroJugadores registro = RegistroJugadores.cargarEnSegundoPlano(almacen, () -> {
+            this.cargaFallida = true;
+            System.err.println("⚠️ Sin la base de datos de jugadores no se puede seguir: deteniendo servidor.");
+            this.detener();
+        });
 
         // Pool de hilos para atender clientes
         
         
         
-        //Es mejor .newCachedThreadPool() para la Ruleta, aquí interesa tener concurrencia (más hilos que CPUs para atender a más jugadores concurrentemente).    
-        ExecutorService pool = Executors.newCachedThreadPool();
+        //Es mejor .newCachedThreadPool() para la Ruleta, aquí interesa tener concurrencia (más hilos que CPUs para atender a más jugadores concurrentemente).
+        //Con --hilos-virtuales cada cliente va en un hilo virtual: el límite de conexiones pasa a ser la memoria.
+        boolean virtuales = conf.isHilosVirtuales() && FabricaHilos.hayHilosVirtuales();
+        ExecutorService pool = FabricaHilos.crearPoolConexiones(conf.isHilosVirtuales());
+        if (virtuales) {
+            System.out.println("Servidor usando hilos virtuales.");
+        }
         
-        // Inicializar lógica de ruleta con jugadores cargados
-        ServicioRuleta rule = new ServicioRuleta(jugadoresConSesion, pool,BBDD);
+        // Inicializar las mesas de ruleta sobre el registro compartido
+        Casino casino = new Casino(registro, pool, virtuales, conf.getMesas());
+        PersistenciaJugadores persistencia = registro.getPersistencia();
 
-        // Scheduler para tareas periódicas (crupier y actualización BD)
-        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        // Scheduler para tareas periódicas (actualización BD)
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
 
-        try (ServerSocket server = new ServerSocket(puerto)) {
-        	
-        	
-            // Crupier automático cada 20 segundos
-            scheduler.scheduleWithFixedDelay(new GiraPelotita(rule, pool, xml),10, 20, TimeUnit.SECONDS);
+        // Un crupier por mesa, cada uno en su propio hilo de reloj: las mesas no se esperan entre sí
+        List<GiraPelotita> crupieres = new ArrayList<>();
+        List<ScheduledExecutorService> relojes = new ArrayList<>();
+        for (ServicioRuleta mesa : casino.getMesas()) {
+            ScheduledExecutorService reloj = FabricaHilos.crearRelojMesa(mesa.getNumeroMesa());
+            relojes.add(reloj);
+            crupieres.add(new GiraPelotita(mesa, pool, xml, conf.getPlanRonda(), reloj));
+        }
+        if (casino.getNumMesas() > 1) {
+            System.out.println("Casino con " + casino.getNumMesas() + " mesas.");
+        }
+
+        try {
+            // Crupier automático: cada fase programa la siguiente según el plan de ronda
+            for (GiraPelotita crupier : crupieres) {
+                crupier.iniciar();
+            }
+
+            // Guardado de seguridad de los jugadores cada minuto
+            scheduler.scheduleAtFixedRate(new ActualizarBD(persistencia),1, 1, TimeUnit.MINUTES);
+
+            if (conf.isNio()) {
+                this.aceptarNIO(conf, casino, pool, xml);
+            } else {
+                this.aceptarClasico(conf.getPuerto(), casino, pool, xml);
+            }
+            
+        } catch (IOException e) {
+            System.err.println("⚠️ Error iniciando servidor: " + e.getMessage());
+        } finally {
+            for (GiraPelotita crupier : crupieres) {
+                crupier.detener();
+            }
+            for (ScheduledExecutorService reloj : relojes) {
+                reloj.shutdown();
+            }
+            scheduler.shutdown();
+            casino.cerrarReparto();
+            pool.shutdown();
+            try {
+                for (ScheduledExecutorService reloj : relojes) {
+                    reloj.awaitTermination(3, TimeUnit.SECONDS);
+                }
+                scheduler.awaitTermination(3, TimeUnit.SECONDS);
+                pool.awaitTermination(3, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
 
-            // Guardar BD de jugadores cada minuto
-            scheduler.scheduleAtFixedRate(new ActualizarBD(jugadoresConSesion, BBDD),1, 1, TimeUnit.MINUTES);
+            // Guardar estado de jugadores al cerrar, con las rondas ya repartidas
+            persistencia.cerrar();
+
+            // Cierre del historial cuando ya no queda ningún guardarApuestas pendiente
+            xml.cerrar();
+        }
+    }
+    
+    /**
+     * Modo clásico: un hilo del pool por cliente, bloqueado en su socket.
+     */
+    private void aceptarClasico(int puerto, Casino casino, ExecutorService pool, Historial historial) throws IOException {
+        try (ServerSocket server = new ServerSocket(puerto)) {
+            this.escuchar(server);
 
             // Bucle principal: aceptar clientes
-            while (true) {
+            while (!this.detenido) {
             	
                 try {
                 	
                     Socket cliente = server.accept();
-                    pool.execute(new AtenderJugador(cliente, rule));
+                    pool.execute(new AtenderJugador(cliente, casino, historial));
                     
                     
                 } catch (IOException e) {
-                    System.err.println("⚠️ Error aceptando cliente: " + e.getMessage());
+                    if (!this.detenido) {
+                        System.err.println("⚠️ Error aceptando cliente: " + e.getMessage());
+                    }
                 } catch (RejectedExecutionException e) {
                     System.err.println("⚠️ Pool saturado: " + e.getMessage());
                 }
             }
-            
-            
-            
-        } catch (IOException e) {
-            System.err.println("⚠️ Error iniciando servidor: " + e.getMessage());
-        } finally {
-            // Guardar estado de jugadores al cerrar
-            BDJugadores.MarshallingJugadores(jugadoresConSesion, BBDD);
+        }
+    }
 
-            scheduler.shutdown();
-            pool.shutdown();
-            try {
-                scheduler.awaitTermination(3, TimeUnit.SECONDS);
-                pool.awaitTermination(3, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    /**
+     * Modo NIO: este hilo solo acepta y reparte los canales entre los bucles (round-robin).
+     * Cada bucle atiende a miles de clientes con un único hilo; el pool solo hace las
+     * consultas al historial, que no deben parar el bucle.
+     */
+    private void aceptarNIO(ConfiguracionServidor conf, Casino casino, ExecutorService pool, Historial historial) throws IOException {
+        BucleNIO[] bucles = new BucleNIO[conf.getHilosNIO()];
+        Thread[] hilos = new Thread[bucles.length];
+
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(conf.getPuerto()));
+            this.escuchar(server);
+
+            for (int i = 0; i < bucles.length; i++) {
+                bucles[i] = new BucleNIO(casino, historial, pool); // El pool lee el historial fuera del bucle
+                hilos[i] = new Thread(bucles[i], "bucle-nio-" + i);
+                hilos[i].start();
+            }
+            System.out.println("Servidor en modo NIO con " + bucles.length + " bucles de eventos.");
+
+            // Bucle principal: aceptar clientes
+            int siguiente = 0;
+            while (!this.detenido) {
+                try {
+                    SocketChannel cliente = server.accept();
+                    bucles[siguiente].entregar(cliente);
+                    siguiente = (siguiente + 1) % bucles.length;
+                } catch (IOException e) {
+                    if (!this.detenido) {
+                        System.err.println("⚠️ Error aceptando cliente: " + e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            for (BucleNIO b : bucles) {
+                if (b != null) {
+                    b.detener();
+                }
             }
         }
     }
     
+    /**
+     * Deja de aceptar clientes: cierra el socket de escucha y el arranque sigue por su cierre ordenado.
+     * Se puede llamar desde cualquier hilo, también antes de abrir el socket.
+     */
+    public synchronized void detener() {
+        this.detenido = true;
+        if (this.escucha != null) {
+            try {
+                this.escucha.close();
+            } catch (IOException e) {
+                System.err.println("⚠️ Error cerrando el socket de escucha: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Apunta el socket de escucha para que detener() lo pueda cerrar (o lo cierra ya si llega tarde).
+     */
+    private synchronized void escuchar(Closeable socket) throws IOException {
+        this.escucha = socket;
+        if (this.detenido) {
+            socket.close();
+        }
+    }
+
     public static void main(String [ ] args) {
 		
 		ServidorRuleta server = new ServidorRuleta();
-		server.IniciarServidor(8000,"historial.xml","jugadores.xml");
+		server.IniciarServidor(ConfiguracionServidor.desdeArgumentos(args));
+		if (server.cargaFallida) {
+			System.exit(1);
+		}
 
 	}
     
@@ -0,0 +1,336 @@
+package servidor.red;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import logicaRuleta.concurrencia.MetricasSalida;
+import logicaRuleta.core.AtenderJugadorNIO;
+import modeloDominio.ConexionBinaria;
+import modeloDominio.ConexionJugador;
+import modeloDominio.MensajeCodificado;
+import modeloDominio.ProtocoloBinario;
+
+/**
+ * Clase SesionNIO
+ * ---------------
+ * Conexión de un cliente en el modo NIO: un SocketChannel no bloqueante atendido por un BucleNIO.
+ * Implementa ConexionJugador, así que el resto del servidor le escribe igual que a un Socket.
+ *
+ * RESPONSABILIDADES:
+ *  - Lectura: trocea los bytes recibidos en líneas (como BufferedReader.readLine()),
+ *    o en tramas si el cliente ha negociado el protocolo binario (pasarABinario()).
+ *  - Escritura: encola las líneas y el bucle las escribe cuando el canal lo permite, varias
+ *    por llamada (escritura agrupada, write(ByteBuffer[])). El resultado de la ronda se encola
+ *    como vista de los bytes que comparte toda la mesa (MensajeCodificado), sin copiarlo.
+ *  - Cierre ordenado: cerrar() deja que se vacíe la cola antes de cerrar el canal.
+ *  - Cola acotada: si el cliente no lee y se acumulan MAX_PENDIENTES líneas, se le
+ *    desconecta sin esperar y se anota en MetricasSalida.
+ *
+ * CONCURRENCIA:
+ *  - enviar() y cerrar() son thread-safe (se llaman desde el bucle y desde los hilos de la ronda).
+ *  - leer(), escribirPendiente() y cerrarCanal() solo los llama el hilo del BucleNIO.
+ *
+ * PROTOCOLO:
+ *  - Mismo formato que PrintWriter/BufferedReader del modo clásico: charset por defecto,
+ *    salto de línea del sistema al escribir y "\n" o "\r\n" al leer.
+ */
+public class SesionNIO implements ConexionJugador {
+
+    /**
+     * Longitud máxima de una línea recibida. Ninguna respuesta del protocolo se acerca.
+     */
+    private static final int MAX_LINEA = 8192;
+
+    /**
+     * Líneas pendientes de escribir como máximo (mismo límite que ConexionSocket).
+     */
+    private static final int MAX_PENDIENTES = 256;
+
+    /**
+     * Buffers que se escriben como máximo en una sola llamada al canal.
+     */
+    private static final int MAX_LOTE = 16;
+
+    private static final Charset CHARSET = Charset.defaultCharset();
+    private static final String SALTO = System.lineSeparator();
+
+    // --- ATRIBUTOS ---
+    private final SocketChannel canal;
+    private final BucleNIO bucle;
+    private SelectionKey clave;
+    private AtenderJugadorNIO atencion;
+
+    private final ByteBuffer lectura;
+    private final ByteArrayOutputStream lineaParcial;
+
+    private final Queue<ByteBuffer> salida;
+    private final AtomicInteger numPendientes;
+    private final ByteBuffer[] lote; // Solo desde el hilo del bucle
+
+    private volatile boolean abierta;
+    private volatile boolean cerrando;
+    private volatile boolean desbordada;
+    private boolean binaria; // Solo desde el hilo del bucle
+
+    // --- CONSTRUCTOR ---
+    /**
+     * PRE: canal != null, en modo no bloqueante. bucle != null.
+     *
+     * @param canal Canal del cliente.
+     * @param bucle Bucle de eventos que atiende el canal.
+     */
+    public SesionNIO(SocketChannel canal, BucleNIO bucle) {
+        this.canal = canal;
+        this.bucle = bucle;
+        this.lectura = ByteBuffer.allocate(4096);
+        this.lineaParcial = new ByteArrayOutputStream(128);
+        this.salida = new ConcurrentLinkedQueue<>();
+        this.numPendientes = new AtomicInteger(0);
+        this.lote = new ByteBuffer[MAX_LOTE];
+        this.abierta = true;
+        this.cerrando = false;
+        this.desbordada = false;
+    }
+
+    // --- CONEXIONJUGADOR ---
+
+    @Override
+    public void enviar(String linea) {
+        this.encolar(ByteBuffer.wrap((linea + SALTO).getBytes(CHARSET)));
+    }
+
+    @Override
+    public void enviarResultado(MensajeCodificado resultado) {
+        this.encolar(resultado.getTexto());
+    }
+
+    @Override
+    public void enviarDesenlace(MensajeCodificado resultado, long netaCentimos, long saldoCentimos) {
+        this.encolar(resultado.getTexto(netaCentimos, saldoCentimos));
+    }
+
+    private void encolar(ByteBuffer mensaje) {
+        if (!this.isAbierta()) {
+            return;
+        }
+        if (this.numPendientes.incrementAndGet() > MAX_PENDIENTES) {
+            // El cliente no lee: cierre inmediato, lo pendiente se descarta
+            MetricasSalida.registrarDesbordamiento(this.canal.socket().getRemoteSocketAddress(), MAX_PENDIENTES);
+            this.desbordada = true;
+            this.cerrando = true;
+            this.bucle.solicitarEscritura(this);
+            return;
+        }
+        this.salida.add(mensaje);
+        this.bucle.solicitarEscritura(this);
+    }
+
+    @Override
+    public boolean isAbierta() {
+        return this.abierta && !this.cerrando;
+    }
+
+    /**
+     * Cierre ordenado: no admite más líneas y el bucle cierra el canal
+     * en cuanto termina de escribir las que ya estaban en cola.
+     */
+    @Override
+    public void cerrar() {
+        if (this.cerrando || !this.abierta) {
+            return;
+        }
+        this.cerrando = true;
+        this.bucle.solicitarEscritura(this);
+    }
+
+    /**
+     * A partir de aquí el bucle lee tramas en lugar de líneas.
+     *
+     * PRE: Se llama desde el hilo del bucle, al procesar la línea de negociación.
+     *
+     * @return Vista binaria que escribe las tramas por la misma cola.
+     */
+    @Override
+    public ConexionBinaria pasarABinario() {
+        this.binaria = true;
+        return new ConexionBinaria() {
+            @Override
+            public void enviarTrama(ByteBuffer trama) {
+                SesionNIO.this.encolar(trama);
+            }
+
+            @Override
+            public boolean isAbierta() {
+                return SesionNIO.this.isAbierta();
+            }
+
+            @Override
+            public void cerrar() {
+                SesionNIO.this.cerrar();
+            }
+        };
+    }
+
+    // --- USO EXCLUSIVO DEL BUCLE NIO ---
+
+    void setClave(SelectionKey clave) {
+        this.clave = clave;
+    }
+
+    SelectionKey getClave() {
+        return this.clave;
+    }
+
+    void setAtencion(AtenderJugadorNIO atencion) {
+        this.atencion = atencion;
+    }
+
+    AtenderJugadorNIO getAtencion() {
+        return this.atencion;
+    }
+
+    boolean isCerrando() {
+        return this.cerrando;
+    }
+
+    boolean isDesbordada() {
+        return this.desbordada;
+    }
+
+    boolean isBinaria() {
+        return this.binaria;
+    }
+
+    /**
+     * Lee lo disponible en el canal y añade a 'lineas' las líneas completas.
+     *
+     * POST: Los bytes de una línea a medias se guardan para la siguiente lectura.
+     *
+     * @param lineas Lista donde se añaden las líneas leídas (sin salto de línea).
+     * @return false si el cliente cerró su extremo (fin de stream).
+     * @throws IOException Si falla la lectura o la línea supera MAX_LINEA.
+     */
+    boolean leer(List<String> lineas) throws IOException {
+        int n;
+        while ((n = this.canal.read(this.lectura)) > 0) {
+            this.lectura.flip();
+            while (this.lectura.hasRemaining()) {
+                byte b = this.lectura.get();
+                if (b == '\n') {
+                    lineas.add(this.extraerLinea());
+                } else {
+                    this.lineaParcial.write(b);
+                    if (this.lineaParcial.size() > MAX_LINEA) {
+                        throw new IOException("Línea demasiado larga");
+                    }
+                }
+            }
+            this.lectura.clear();
+        }
+        return n >= 0;
+    }
+
+    /**
+     * Como leer(), pero en modo binario: añade a 'tramas' las tramas completas, cada una
+     * posicionada en su código de operación (sin la cabecera de longitud).
+     *
+     * POST: Los bytes de una trama a medias se quedan en el buffer de lectura.
+     *
+     * @param tramas Lista donde se añaden las tramas leídas.
+     * @return false si el cliente cerró su extremo (fin de stream).
+     * @throws IOException Si falla la lectura o una trama declara una longitud no válida.
+     */
+    boolean leerTramas(List<ByteBuffer> tramas) throws IOException {
+        int n;
+        while ((n = this.canal.read(this.lectura)) > 0) {
+            this.lectura.flip();
+            while (this.lectura.remaining() >= ProtocoloBinario.CABECERA) {
+                int inicio = this.lectura.position();
+                int len = this.lectura.getShort(inicio) & 0xFFFF;
+                if (len == 0 || len > ProtocoloBinario.MAX_TRAMA_CLIENTE) {
+                    throw new IOException("Trama no válida (" + len + " bytes)");
+                }
+                if (this.lectura.remaining() < ProtocoloBinario.CABECERA + len) {
+                    break; // Trama a medias
+                }
+                int desde = inicio + ProtocoloBinario.CABECERA;
+                tramas.add(ByteBuffer.wrap(Arrays.copyOfRange(this.lectura.array(), desde, desde + len)));
+                this.lectura.position(desde + len);
+            }
+            this.lectura.compact(); // Una trama cabe siempre: MAX_TRAMA_CLIENTE < capacidad
+        }
+        return n >= 0;
+    }
+
+    private String extraerLinea() {
+        byte[] bytes = this.lineaParcial.toByteArray();
+        this.lineaParcial.reset();
+        int len = bytes.length;
+        if (len > 0 && bytes[len - 1] == '\r') {
+            len--;
+        }
+        return new String(bytes, 0, len, CHARSET);
+    }
+
+    /**
+     * Escribe en el canal todo lo que admita sin bloquear, hasta MAX_LOTE buffers por llamada.
+     *
+     * @return true si la cola quedó vacía.
+     * @throws IOException Si falla la escritura.
+     */
+    boolean escribirPendiente() throws IOException {
+        while (true) {
+            // Solo este hilo saca de la cola: lo que vemos al recorrerla sigue ahí al escribir
+            int n = 0;
+            for (ByteBuffer buf : this.salida) {
+                this.lote[n++] = buf;
+                if (n == MAX_LOTE) {
+                    break;
+                }
+            }
+            if (n == 0) {
+                return true;
+            }
+
+            this.canal.write(this.lote, 0, n);
+
+            int escritos = 0;
+            while (escritos < n && !this.lote[escritos].hasRemaining()) {
+                this.salida.poll();
+                this.numPendientes.decrementAndGet();
+                escritos++;
+            }
+            Arrays.fill(this.lote, 0, n, null);
+            if (escritos < n) {
+                return false; // Buffer del socket lleno, esperamos a OP_WRITE
+            }
+        }
+    }
+
+    /**
+     * Cierra el canal inmediatamente y descarta lo pendiente. Idempotente.
+     */
+    void cerrarCanal() {
+        this.abierta = false;
+        this.salida.clear();
+        this.numPendientes.set(0);
+        if (this.clave != null) {
+            this.clave.cancel();
+        }
+        try {
+            this.canal.close();
+        } catch (IOException e) {
+            // Log silencioso, no propagamos
+            System.err.println("⚠️ Error cerrando canal: " + e.getMessage());
+        }
+    }
+}
@@ -3,24 +3,24 @@ package servidor.red;
 import java.util.List;
 import java.util.Map;
 
-import modeloDominio.Apuesta;
+import logicaRuleta.core.ApuestaCompilada;
 import modeloDominio.Casilla;
 import modeloDominio.Jugador;
-import servidor.persistencia.XMLServidor;
+import servidor.persistencia.Historial;
 
 /**
  * Clase guardarApuestas
  * ---------------------
- * Tarea Runnable que persiste en el historial XML las apuestas realizadas por los jugadores
+ * Tarea Runnable que persiste en el historial (XML o binario) las apuestas realizadas por los jugadores
  * y el resultado de la casilla ganadora.
  *
  * PRECONDICIONES:
- *  - El mapa de apuestas debe estar inicializado y no ser null.
+ *  - El mapa de apuestas debe estar inicializado, no ser null y ser de una ronda cerrada (no cambia).
  *  - La casilla ganadora debe estar correctamente creada (número válido entre 0 y 36).
- *  - El objeto XMLServidor debe estar inicializado y apuntar a un fichero XML válido.
+ *  - El Historial debe estar inicializado (XMLServidor o HistorialBinario).
  *
  * POSTCONDICIONES:
- *  - Se añade un nuevo bloque <listapuestas> al historial XML con:
+ *  - Se añade la ronda al final del historial con:
  *      - Fecha de la ronda.
  *      - Número ganador.
  *      - Jugadores y sus apuestas.
@@ -28,9 +28,9 @@ import servidor.persistencia.XMLServidor;
  */
 public class guardarApuestas implements Runnable {
 
-    private final Map<Jugador, List<Apuesta>> apuestas;
+    private final Map<Jugador, List<ApuestaCompilada>> apuestas;
     private final Casilla ganadora;
-    private final XMLServidor xml;
+    private final Historial xml;
 
     /**
      * Constructor de guardarApuestas.
@@ -43,7 +43,7 @@ public class guardarApuestas implements Runnable {
      * POSTCONDICIONES:
      *  - Se crea una tarea lista para persistir las apuestas en el historial.
      */
-    public guardarApuestas(Map<Jugador, List<Apuesta>> apuestas, Casilla ganadora, XMLServidor xml) {
+    public guardarApuestas(Map<Jugador, List<ApuestaCompilada>> apuestas, Casilla ganadora, Historial xml) {
         this.apuestas = apuestas;
         this.ganadora = ganadora;
         this.xml = xml;
@@ -53,7 +53,7 @@ public class guardarApuestas implements Runnable {
     @Override
     public void run() {
         try {
-            // Persistir apuestas y resultado en XML, 
+            // Persistir apuestas y resultado en el historial
             xml.guardarJugadorApuesta(apuestas, ganadora);
             //System.out.println("✅ Apuestas guardadas en historial con número ganador: " + ganadora.getNumero());
         } catch (Exception e) {